@@ -1,9 +1,16 @@
 package com.cs.csinventory;
 
+import com.cs.csinventory.config.CsInventoryRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EntityScan("com.cs.csinventory.domain")
+@EnableScheduling
+@ImportRuntimeHints(CsInventoryRuntimeHints.class)
 public class CsinventoryApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,41 @@
+package com.cs.csinventory.config;
+
+import com.cs.csinventory.domain.Inventory;
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.dto.HoldingSummaryDTO;
+import com.cs.csinventory.service.dto.InventoryWithItemDTO;
+import com.cs.csinventory.service.dto.TradeFlowDTO;
+import com.cs.csinventory.service.dto.TradeTypeSummaryDTO;
+import com.cs.csinventory.service.dto.TradeWithItemDTO;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.util.List;
+
+/**
+ * AOT / 原生镜像运行时提示 - 构建期静态分析看不到的反射和资源
+ *
+ * JPQL 构造表达式（SELECT new ...DTO(...)）由 Hibernate 运行时按类名反射调用构造方法；
+ * 实体的字段、Lombok 生成的访问器由 Hibernate 反射读写；Flyway 按目录扫描迁移脚本，
+ * 自定义的 common / {vendor} 目录不在默认提示范围内。新增构造表达式的 DTO 需要加到这里（有测试校验）。
+ */
+public class CsInventoryRuntimeHints implements RuntimeHintsRegistrar {
+
+    /** JPQL 构造表达式中使用的 DTO */
+    static final List<Class<?>> CONSTRUCTOR_EXPRESSION_TYPES = List.of(InventoryWithItemDTO.class,
+            HoldingSummaryDTO.class, TradeWithItemDTO.class, TradeTypeSummaryDTO.class, TradeFlowDTO.class);
+
+    static final List<Class<?>> ENTITY_TYPES = List.of(Item.class, Trade.class, Inventory.class, Portfolio.class);
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        CONSTRUCTOR_EXPRESSION_TYPES.forEach(type ->
+                hints.reflection().registerType(type, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS));
+        ENTITY_TYPES.forEach(type -> hints.reflection().registerType(type, MemberCategory.DECLARED_FIELDS,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS));
+        hints.resources().registerPattern("db/migration/**");
+    }
+}
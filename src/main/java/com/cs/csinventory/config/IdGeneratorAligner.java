@@ -0,0 +1,71 @@
+package com.cs.csinventory.config;
+
+import com.cs.csinventory.domain.IdGenerators;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 启动时对齐主键生成器 - 保证 id_generators 中每个实体的 next_val 不小于表中已有的最大ID
+ *
+ * 旧库的ID由 AUTO_INCREMENT 生成，切换到表生成器后需要从 MAX(id) + 1 继续分配；
+ * 通过 mysqldump 等方式直接导入数据后重启也会自动对齐。
+ * 在所有单例创建完成后、Web 服务器开始接收请求之前执行。
+ * 生成 AppCDS 归档的训练运行没有数据库，通过 app.id-generators.align-on-startup=false 跳过。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdGeneratorAligner implements SmartInitializingSingleton {
+
+    /** 使用表生成器的实体表，sequence_name 与表名相同 */
+    static final List<String> ENTITY_TABLES = List.of("items", "trades", "inventory", "portfolios");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.id-generators.align-on-startup:true}")
+    private boolean alignOnStartup;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!alignOnStartup) {
+            return;
+        }
+        ENTITY_TABLES.forEach(this::align);
+    }
+
+    private void align(String table) {
+        // next_val 保存的是已分配出去的最大ID，下一段从 next_val + 1 开始
+        Long required = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+
+        int updated = jdbcTemplate.update(
+                "UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN + " = ?"
+                        + " WHERE " + IdGenerators.NAME_COLUMN + " = ? AND " + IdGenerators.VALUE_COLUMN + " < ?",
+                required, table, required);
+        if (updated > 0) {
+            log.info("主键生成器已对齐，表: {}, next_val -> {}", table, required);
+            return;
+        }
+
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + IdGenerators.TABLE + " WHERE " + IdGenerators.NAME_COLUMN + " = ?",
+                Integer.class, table);
+        if (rows == null || rows == 0) {
+            try {
+                jdbcTemplate.update(
+                        "INSERT INTO " + IdGenerators.TABLE + " (" + IdGenerators.NAME_COLUMN + ", " + IdGenerators.VALUE_COLUMN + ") VALUES (?, ?)",
+                        table, required);
+                log.info("初始化主键生成器，表: {}, next_val = {}", table, required);
+            } catch (DuplicateKeyException e) {
+                // 其他实例已同时插入，重新对齐一次即可
+                align(table);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.cs.csinventory.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * 读写分离数据源配置 - 配置了 app.datasource.replica.jdbc-url 时启用
+ *
+ * 应用使用的 DataSource 是一个 LazyConnectionDataSourceProxy：物理连接延迟到第一条语句执行时才获取，
+ * 此时 @Transactional(readOnly = true) 的只读标记已经生效，只读事务从副本取连接，其余（写事务、无事务调用）走主库。
+ * 未配置副本时不创建本配置，沿用 Spring Boot 默认的单数据源。
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "jdbc-url")
+public class ReadReplicaDataSourceConfig {
+
+    /**
+     * 主库连接池，连接参数沿用 spring.datasource.*
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * 只读副本连接池，jdbc-url/username/password 及 Hikari 参数均在 app.datasource.replica.* 下配置
+     */
+    @Bean
+    @ConfigurationProperties("app.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 HikariDataSource replicaDataSource,
+                                 @Value("${app.datasource.replica-retry-interval:30s}") Duration retryInterval) {
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primaryDataSource);
+        routing.setReadOnlyDataSource(new ReplicaFailoverDataSource(replicaDataSource, primaryDataSource, retryInterval));
+        return routing;
+    }
+}
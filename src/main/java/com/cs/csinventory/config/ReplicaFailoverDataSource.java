@@ -0,0 +1,57 @@
+package com.cs.csinventory.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * 只读副本数据源 - 副本获取连接失败时回退到主库
+ *
+ * 失败后在 retryInterval 内直接使用主库，避免每个只读请求都等待副本的连接超时。
+ */
+@Slf4j
+public class ReplicaFailoverDataSource extends DelegatingDataSource {
+
+    private final DataSource primary;
+    private final long retryIntervalNanos;
+
+    private volatile long replicaRetryAt;
+
+    public ReplicaFailoverDataSource(DataSource replica, DataSource primary, Duration retryInterval) {
+        super(replica);
+        this.primary = primary;
+        this.retryIntervalNanos = retryInterval.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (isReplicaSuspended()) {
+            return primary.getConnection();
+        }
+        try {
+            return obtainTargetDataSource().getConnection();
+        } catch (SQLException | RuntimeException e) {
+            // Hikari 首次建池失败时抛出的是 RuntimeException（PoolInitializationException）
+            replicaRetryAt = System.nanoTime() + retryIntervalNanos;
+            log.warn("只读副本不可用，{} 秒内只读查询改走主库: {}", retryIntervalNanos / 1_000_000_000L, e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * 副本当前是否处于失败后的回退期
+     */
+    public boolean isReplicaSuspended() {
+        long retryAt = replicaRetryAt;
+        return retryAt != 0 && System.nanoTime() - retryAt < 0;
+    }
+}
@@ -0,0 +1,21 @@
+package com.cs.csinventory.domain;
+
+/**
+ * 实体主键生成器的公共配置
+ *
+ * 所有实体共用 id_generators 表，每个实体一行（sequence_name = 表名），
+ * next_val 为已经分配出去的最大ID（hibernate.id.generator.stored_last_used = true），
+ * 配合 pooled-lo 优化器每次取出 (next_val, next_val + ALLOCATION_SIZE] 这一段ID在内存中分配。
+ */
+public final class IdGenerators {
+
+    public static final String TABLE = "id_generators";
+    public static final String NAME_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+
+    /** 每次预取的ID数量，与 hibernate.jdbc.batch_size 保持一致 */
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGenerators() {
+    }
+}
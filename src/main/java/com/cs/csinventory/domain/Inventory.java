@@ -1,5 +1,6 @@
 package com.cs.csinventory.domain;
 
+import com.cs.csinventory.service.sync.ChangeLogEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -7,17 +8,28 @@ import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 
 @Entity
+// 同一物品在每个投资组合中各有一条库存
 @Table(name = "inventory", indexes = {
-        @Index(name = "idx_inventory_name_id", columnList = "nameId", unique = true)
+        @Index(name = "idx_inventory_portfolio_name_id", columnList = "portfolioId, nameId", unique = true)
 })
+@EntityListeners(ChangeLogEntityListener.class) // 写入自动记录到增量同步变更日志
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Inventory {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // 表生成器 + pooled-lo 优化器：每次从 id_generators 预取一段ID，插入时无需回查自增主键，可批量写入
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "inventory_id")
+    @TableGenerator(name = "inventory_id", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "inventory",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
+    // 所属投资组合
+    @Column(nullable = false)
+    private Long portfolioId;
+
     // 物品引用（来自Steam API中的物品ID）
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private Long nameId;
 
     // 当前持有数量
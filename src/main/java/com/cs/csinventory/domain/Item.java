@@ -1,5 +1,6 @@
 package com.cs.csinventory.domain;
 
+import com.cs.csinventory.service.sync.ChangeLogEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -8,9 +9,15 @@ import lombok.*;
         @Index(name = "idx_item_market_hash_name", columnList = "marketHashName"),
         @Index(name = "idx_item_name_id", columnList = "nameId")
 })
+@EntityListeners(ChangeLogEntityListener.class) // 写入自动记录到增量同步变更日志
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Item {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // 表生成器 + pooled-lo 优化器：每次从 id_generators 预取一段ID，插入时无需回查自增主键，可批量写入
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "item_id")
+    @TableGenerator(name = "item_id", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "items",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     // 市场哈希名称，作为唯一标识符（例如：AK-47 | Aquamarine Revenge (Battle-Scarred)）
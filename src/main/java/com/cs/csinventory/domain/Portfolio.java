@@ -0,0 +1,39 @@
+package com.cs.csinventory.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * 投资组合（账户），例如主账户、交易机器人、仓库号；交易和库存都属于某个组合
+ */
+@Entity
+@Table(name = "portfolios")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class Portfolio {
+
+    /** 默认组合（迁移前的全部数据），接口未指定组合时使用 */
+    public static final long DEFAULT_ID = 1L;
+
+    // 表生成器 + pooled-lo 优化器，与其他实体一致
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "portfolio_id")
+    @TableGenerator(name = "portfolio_id", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "portfolios",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(nullable = false, length = 64, unique = true)
+    private String name;
+
+    @Column(nullable = false)
+    private OffsetDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = OffsetDateTime.now();
+        }
+    }
+}
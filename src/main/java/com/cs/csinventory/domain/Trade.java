@@ -1,5 +1,6 @@
 package com.cs.csinventory.domain;
 
+import com.cs.csinventory.service.sync.ChangeLogEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -7,19 +8,31 @@ import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 
 @Entity
+// 表结构由 Flyway 管理（db/migration），MySQL 下按 created_at 月度分区，另有生成列 trade_date 供每日汇总使用
+// 所有索引以 portfolioId 开头，各投资组合的查询互不影响
 @Table(name = "trades", indexes = {
-        @Index(name = "idx_trade_name_id", columnList = "nameId"),
-        @Index(name = "idx_trade_time", columnList = "createdAt"),
-        @Index(name = "idx_trade_type", columnList = "type")
+        @Index(name = "idx_trade_portfolio_name_id_created_at", columnList = "portfolioId, nameId, createdAt"),
+        @Index(name = "idx_trade_portfolio_covering", columnList = "portfolioId, createdAt, type, quantity, totalAmount"),
+        @Index(name = "idx_trade_portfolio_type", columnList = "portfolioId, type")
 })
+@EntityListeners(ChangeLogEntityListener.class) // 写入自动记录到增量同步变更日志
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Trade {
 
     public enum Type { BUY, SELL }
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // 表生成器 + pooled-lo 优化器：每次从 id_generators 预取一段ID，插入时无需回查自增主键，可批量写入
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "trade_id")
+    @TableGenerator(name = "trade_id", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "trades",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
+    // 所属投资组合
+    @Column(nullable = false)
+    private Long portfolioId;
+
     // 物品引用（来自Steam API中的物品ID）
     @Column(nullable = false)
     private Long nameId;
@@ -1,12 +1,14 @@
 package com.cs.csinventory.repo;
 
 import com.cs.csinventory.domain.Inventory;
+import com.cs.csinventory.service.dto.HoldingSummaryDTO;
 import com.cs.csinventory.service.dto.InventoryWithItemDTO;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,17 +16,27 @@ import java.util.Optional;
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     
     /**
-     * 根据物品nameId查找库存记录
+     * 获取组合内的所有库存记录
      */
-    Optional<Inventory> findByNameId(Long nameId);
+    List<Inventory> findByPortfolioId(Long portfolioId);
+
+    /**
+     * 根据物品nameId查找组合内的库存记录
+     */
+    Optional<Inventory> findByPortfolioIdAndNameId(Long portfolioId, Long nameId);
+
+    /**
+     * 根据nameId列表批量查找组合内的库存记录
+     */
+    List<Inventory> findByPortfolioIdAndNameIdIn(Long portfolioId, Collection<Long> nameIds);
     
     /**
-     * 检查指定nameId的物品是否存在库存记录
+     * 检查组合内指定nameId的物品是否存在库存记录
      */
-    boolean existsByNameId(Long nameId);
+    boolean existsByPortfolioIdAndNameId(Long portfolioId, Long nameId);
     
     /**
-     * 获取所有库存记录并包含物品信息
+     * 获取组合内所有库存记录并包含物品信息
      */
     @Query("""
         SELECT new com.cs.csinventory.service.dto.InventoryWithItemDTO(
@@ -33,9 +45,10 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
         )
         FROM Inventory inv 
         LEFT JOIN Item i ON inv.nameId = i.nameId
+        WHERE inv.portfolioId = :portfolioId
         ORDER BY inv.lastUpdatedAt DESC
     """)
-    List<InventoryWithItemDTO> findAllInventoryWithItem();
+    List<InventoryWithItemDTO> findAllInventoryWithItem(@Param("portfolioId") Long portfolioId);
     
     /**
      * 根据nameId查找库存记录并包含物品信息
@@ -47,7 +60,34 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
         )
         FROM Inventory inv 
         LEFT JOIN Item i ON inv.nameId = i.nameId
-        WHERE inv.nameId = :nameId
+        WHERE inv.portfolioId = :portfolioId AND inv.nameId = :nameId
+    """)
+    Optional<InventoryWithItemDTO> findInventoryWithItemByNameId(@Param("portfolioId") Long portfolioId, @Param("nameId") Long nameId);
+    
+    /**
+     * 根据nameId列表批量查找库存记录并包含物品信息
+     */
+    @Query("""
+        SELECT new com.cs.csinventory.service.dto.InventoryWithItemDTO(
+            inv.id, inv.nameId, i.cnName, i.enName, inv.currentQuantity,
+            inv.weightedAverageCost, inv.totalInvestmentCost, inv.createdAt, inv.lastUpdatedAt
+        )
+        FROM Inventory inv 
+        LEFT JOIN Item i ON inv.nameId = i.nameId
+        WHERE inv.portfolioId = :portfolioId AND inv.nameId IN :nameIds
+    """)
+    List<InventoryWithItemDTO> findInventoryWithItemByNameIdIn(@Param("portfolioId") Long portfolioId,
+                                                               @Param("nameIds") Collection<Long> nameIds);
+    
+    /**
+     * 汇总组合当前持仓成本（加权平均成本 × 数量）和持有物品种类数
+     */
+    @Query("""
+        SELECT new com.cs.csinventory.service.dto.HoldingSummaryDTO(
+            SUM(inv.weightedAverageCost * inv.currentQuantity), COUNT(inv)
+        )
+        FROM Inventory inv
+        WHERE inv.portfolioId = :portfolioId AND inv.currentQuantity > 0
     """)
-    Optional<InventoryWithItemDTO> findInventoryWithItemByNameId(@Param("nameId") Long nameId);
-} 
\ No newline at end of file
+    HoldingSummaryDTO summarizeHoldings(@Param("portfolioId") Long portfolioId);
+}
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +17,12 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
     // 根据nameId查找物品
     Optional<Item> findByNameId(Long nameId);
     
+    // 根据nameId列表批量查找物品
+    List<Item> findByNameIdIn(Collection<Long> nameIds);
+    
+    // 根据市场哈希名称列表批量查找物品
+    List<Item> findByMarketHashNameIn(Collection<String> marketHashNames);
+    
     // 检查nameId是否已存在
     boolean existsByNameId(Long nameId);
     
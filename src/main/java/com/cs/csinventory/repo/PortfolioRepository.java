@@ -0,0 +1,14 @@
+package com.cs.csinventory.repo;
+
+import com.cs.csinventory.domain.Portfolio;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
+
+    /**
+     * 检查组合名称是否已存在
+     */
+    boolean existsByName(String name);
+}
@@ -1,51 +1,62 @@
 package com.cs.csinventory.repo;
 
 import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.dto.TradeFlowDTO;
+import com.cs.csinventory.service.dto.TradeTypeSummaryDTO;
 import com.cs.csinventory.service.dto.TradeWithItemDTO;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TradeRepository extends JpaRepository<Trade, Long> {
     
     /**
-     * 根据物品nameId查找交易记录
+     * 获取组合内的所有交易记录
      */
-    List<Trade> findByNameId(Long nameId);
+    List<Trade> findByPortfolioId(Long portfolioId);
     
     /**
-     * 根据时间范围查找交易记录
+     * 根据物品nameId查找组合内的交易记录
      */
-    List<Trade> findByCreatedAtBetween(OffsetDateTime start, OffsetDateTime end);
+    List<Trade> findByPortfolioIdAndNameId(Long portfolioId, Long nameId);
     
     /**
-     * 根据物品nameId和时间范围查找交易记录
+     * 根据时间范围查找组合内的交易记录
      */
-    List<Trade> findByNameIdAndCreatedAtBetween(Long nameId, OffsetDateTime start, OffsetDateTime end);
+    List<Trade> findByPortfolioIdAndCreatedAtBetween(Long portfolioId, OffsetDateTime start, OffsetDateTime end);
+    
+    /**
+     * 根据物品nameId和时间范围查找组合内的交易记录
+     */
+    List<Trade> findByPortfolioIdAndNameIdAndCreatedAtBetween(Long portfolioId, Long nameId, OffsetDateTime start, OffsetDateTime end);
     
     /**
      * 查询指定时间范围内的每日交易统计
+     * 按生成列 trade_date 分组，按 (portfolio_id, created_at) 走覆盖索引 idx_trade_portfolio_covering，MySQL 下只扫描相关月份分区
      */
     @Query(value = """
-        SELECT DATE(t.created_at) as trade_date,
+        SELECT t.trade_date as trade_date,
                t.type as trade_type,
                SUM(t.quantity) as total_quantity,
                SUM(t.total_amount) as total_amount,
-               COUNT(t) as trade_count
+               COUNT(*) as trade_count
         FROM trades t
-        WHERE t.created_at BETWEEN :start AND :end
-        GROUP BY DATE(t.created_at), t.type
+        WHERE t.portfolio_id = :portfolioId AND t.created_at BETWEEN :start AND :end
+        GROUP BY t.trade_date, t.type
         ORDER BY trade_date DESC, t.type
          """, nativeQuery = true)
-     List<Object[]> findDailyTradeSummary(@Param("start") OffsetDateTime start, @Param("end") OffsetDateTime end);
+     List<Object[]> findDailyTradeSummary(@Param("portfolioId") Long portfolioId,
+                                          @Param("start") OffsetDateTime start, @Param("end") OffsetDateTime end);
     
     /**
-     * 获取所有交易记录并包含物品信息
+     * 获取组合内所有交易记录并包含物品信息
      */
     @Query("""
         SELECT new com.cs.csinventory.service.dto.TradeWithItemDTO(
@@ -54,9 +65,10 @@ public interface TradeRepository extends JpaRepository<Trade, Long> {
         )
         FROM Trade t 
         LEFT JOIN Item i ON t.nameId = i.nameId
+        WHERE t.portfolioId = :portfolioId
         ORDER BY t.createdAt DESC
     """)
-    List<TradeWithItemDTO> findAllTradesWithItem();
+    List<TradeWithItemDTO> findAllTradesWithItem(@Param("portfolioId") Long portfolioId);
     
     /**
      * 根据物品nameId查找交易记录并包含物品信息
@@ -68,10 +80,24 @@ public interface TradeRepository extends JpaRepository<Trade, Long> {
         )
         FROM Trade t 
         LEFT JOIN Item i ON t.nameId = i.nameId
-        WHERE t.nameId = :nameId
+        WHERE t.portfolioId = :portfolioId AND t.nameId = :nameId
         ORDER BY t.createdAt DESC
     """)
-    List<TradeWithItemDTO> findTradeHistoryWithItem(@Param("nameId") Long nameId);
+    List<TradeWithItemDTO> findTradeHistoryWithItem(@Param("portfolioId") Long portfolioId, @Param("nameId") Long nameId);
+    
+    /**
+     * 根据交易ID列表批量查找交易记录并包含物品信息
+     */
+    @Query("""
+        SELECT new com.cs.csinventory.service.dto.TradeWithItemDTO(
+            t.id, t.nameId, i.cnName, i.enName, t.type, 
+            t.unitPrice, t.quantity, t.totalAmount, t.createdAt
+        )
+        FROM Trade t 
+        LEFT JOIN Item i ON t.nameId = i.nameId
+        WHERE t.id IN :ids
+    """)
+    List<TradeWithItemDTO> findTradesWithItemByIdIn(@Param("ids") Collection<Long> ids);
     
     /**
      * 根据时间范围查找交易记录并包含物品信息
@@ -83,8 +109,50 @@ public interface TradeRepository extends JpaRepository<Trade, Long> {
         )
         FROM Trade t 
         LEFT JOIN Item i ON t.nameId = i.nameId
-        WHERE t.createdAt BETWEEN :start AND :end
+        WHERE t.portfolioId = :portfolioId AND t.createdAt BETWEEN :start AND :end
         ORDER BY t.createdAt DESC
     """)
-    List<TradeWithItemDTO> findTradesByDateRangeWithItem(@Param("start") OffsetDateTime start, @Param("end") OffsetDateTime end);
+    List<TradeWithItemDTO> findTradesByDateRangeWithItem(@Param("portfolioId") Long portfolioId,
+                                                         @Param("start") OffsetDateTime start, @Param("end") OffsetDateTime end);
+    
+    /**
+     * 按交易类型汇总组合内的总金额、笔数和最早/最晚交易时间
+     */
+    @Query("""
+        SELECT new com.cs.csinventory.service.dto.TradeTypeSummaryDTO(
+            t.type, SUM(t.totalAmount), COUNT(t), MIN(t.createdAt), MAX(t.createdAt)
+        )
+        FROM Trade t
+        WHERE t.portfolioId = :portfolioId
+        GROUP BY t.type
+    """)
+    List<TradeTypeSummaryDTO> summarizeByType(@Param("portfolioId") Long portfolioId);
+    
+    /**
+     * 统计组合内交易过的物品种类数（包括已归档交易中的物品）
+     */
+    @Query(value = """
+        SELECT COUNT(*) FROM (
+            SELECT name_id FROM trades WHERE portfolio_id = :portfolioId
+            UNION
+            SELECT name_id FROM trade_archive_rollups WHERE portfolio_id = :portfolioId
+        ) traded
+    """, nativeQuery = true)
+    long countDistinctNameId(@Param("portfolioId") Long portfolioId);
+    
+    /**
+     * 按时间顺序获取早于指定时间的交易（归档时分批读取，不区分组合）
+     */
+    List<Trade> findByCreatedAtBeforeOrderByCreatedAtAscIdAsc(OffsetDateTime before, Pageable pageable);
+    
+    /**
+     * 按时间顺序获取组合内所有交易的资金流水（只查询类型和金额）
+     */
+    @Query("""
+        SELECT new com.cs.csinventory.service.dto.TradeFlowDTO(t.type, t.totalAmount)
+        FROM Trade t
+        WHERE t.portfolioId = :portfolioId
+        ORDER BY t.createdAt, t.id
+    """)
+    List<TradeFlowDTO> findAllFlowsOrderByCreatedAt(@Param("portfolioId") Long portfolioId);
 }
@@ -0,0 +1,41 @@
+package com.cs.csinventory.service;
+
+import com.cs.csinventory.domain.IdGenerators;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 为 JDBC 批量插入预留一段连续主键 - 与实体的表生成器共用 id_generators，不会与 Hibernate 分配的ID重叠
+ *
+ * 主键段在独立的短事务中预留，不让 id_generators 行锁持续到整批插入提交。
+ */
+@Service
+public class IdReservationService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate reservation;
+
+    public IdReservationService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reservation = new TransactionTemplate(transactionManager);
+        this.reservation.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 预留 count 个ID，返回第一个，预留的是 [first, first + count)
+     *
+     * @param sequenceName 实体表名（id_generators.sequence_name）
+     */
+    public long reserve(String sequenceName, int count) {
+        Long last = reservation.execute(status -> {
+            jdbcTemplate.update("UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN + " = "
+                    + IdGenerators.VALUE_COLUMN + " + ? WHERE " + IdGenerators.NAME_COLUMN + " = ?", count, sequenceName);
+            return jdbcTemplate.queryForObject("SELECT " + IdGenerators.VALUE_COLUMN + " FROM " + IdGenerators.TABLE
+                    + " WHERE " + IdGenerators.NAME_COLUMN + " = ?", Long.class, sequenceName);
+        });
+        return last - count + 1;
+    }
+}
@@ -5,52 +5,101 @@ import com.cs.csinventory.domain.Trade;
 import com.cs.csinventory.repo.InventoryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import com.cs.csinventory.service.dto.InventoryWithItemDTO;
+import com.cs.csinventory.service.leaderboard.InventoryChangedEvent;
+import com.cs.csinventory.service.money.Money;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class InventoryService {
 
+    /** 批量查询每次 IN 查询的最大 nameId 数 */
+    private static final int IN_CHUNK = 1000;
+
     private final InventoryRepository inventoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
-     * 获取所有库存记录
+     * 获取组合内所有库存记录
      */
     @Transactional(readOnly = true)
-    public List<Inventory> getAllInventory() {
-        return inventoryRepository.findAll();
+    public List<Inventory> getAllInventory(Long portfolioId) {
+        return inventoryRepository.findByPortfolioId(portfolioId);
     }
     
     /**
-     * 获取所有库存记录并包含物品信息
+     * 获取组合内所有库存记录并包含物品信息
      */
     @Transactional(readOnly = true)
-    public List<InventoryWithItemDTO> getAllInventoryWithItem() {
-        return inventoryRepository.findAllInventoryWithItem();
+    public List<InventoryWithItemDTO> getAllInventoryWithItem(Long portfolioId) {
+        return inventoryRepository.findAllInventoryWithItem(portfolioId);
     }
 
     /**
-     * 根据nameId获取库存记录
+     * 根据nameId获取组合内的库存记录
      */
     @Transactional(readOnly = true)
-    public Optional<Inventory> getInventoryByNameId(Long nameId) {
-        return inventoryRepository.findByNameId(nameId);
+    public Optional<Inventory> getInventoryByNameId(Long portfolioId, Long nameId) {
+        return inventoryRepository.findByPortfolioIdAndNameId(portfolioId, nameId);
     }
     
     /**
-     * 根据nameId获取库存记录并包含物品信息
+     * 根据nameId获取组合内的库存记录并包含物品信息
      */
     @Transactional(readOnly = true)
-    public Optional<InventoryWithItemDTO> getInventoryWithItemByNameId(Long nameId) {
-        return inventoryRepository.findInventoryWithItemByNameId(nameId);
+    public Optional<InventoryWithItemDTO> getInventoryWithItemByNameId(Long portfolioId, Long nameId) {
+        return inventoryRepository.findInventoryWithItemByNameId(portfolioId, nameId);
+    }
+
+    /**
+     * 按 nameId 列表批量获取组合内的库存记录（含物品信息），按请求顺序以 nameId 为键，未持有的不返回
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, InventoryWithItemDTO> getInventoryWithItemByNameIds(Long portfolioId, Collection<Long> nameIds) {
+        Map<Long, InventoryWithItemDTO> found = new HashMap<>();
+        for (InventoryWithItemDTO inventory : loadChunked(ItemService.distinct(nameIds, "nameId"),
+                chunk -> inventoryRepository.findInventoryWithItemByNameIdIn(portfolioId, chunk))) {
+            found.put(inventory.getNameId(), inventory);
+        }
+        Map<Long, InventoryWithItemDTO> result = new LinkedHashMap<>();
+        for (Long nameId : nameIds) {
+            InventoryWithItemDTO inventory = found.get(nameId);
+            if (inventory != null) {
+                result.put(nameId, inventory);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按 nameId 列表批量获取当前持有数量，按请求顺序以 nameId 为键，未持有的为 0
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> getCurrentQuantities(Long portfolioId, Collection<Long> nameIds) {
+        Map<Long, Integer> found = new HashMap<>();
+        for (Inventory inventory : loadChunked(ItemService.distinct(nameIds, "nameId"),
+                chunk -> inventoryRepository.findByPortfolioIdAndNameIdIn(portfolioId, chunk))) {
+            found.put(inventory.getNameId(), inventory.getCurrentQuantity());
+        }
+        Map<Long, Integer> result = new LinkedHashMap<>();
+        for (Long nameId : nameIds) {
+            result.put(nameId, found.getOrDefault(nameId, 0));
+        }
+        return result;
     }
 
     /**
@@ -62,15 +111,20 @@ public class InventoryService {
             throw new IllegalArgumentException("只能处理买入交易");
         }
 
-        Optional<Inventory> existingInventory = inventoryRepository.findByNameId(trade.getNameId());
-        
+        Optional<Inventory> existingInventory =
+                inventoryRepository.findByPortfolioIdAndNameId(trade.getPortfolioId(), trade.getNameId());
+        long costBefore = existingInventory.map(inventory -> Money.of(inventory.getTotalInvestmentCost())).orElse(0L);
+
+        Inventory updated;
         if (existingInventory.isPresent()) {
             // 更新现有库存
-            return updateInventoryForBuy(existingInventory.get(), trade);
+            updated = updateInventoryForBuy(existingInventory.get(), trade);
         } else {
             // 创建新库存记录
-            return createNewInventoryForBuy(trade);
+            updated = createNewInventoryForBuy(trade);
         }
+        eventPublisher.publishEvent(InventoryChangedEvent.applied(trade, Money.subtract(costOf(updated), costBefore)));
+        return updated;
     }
 
     /**
@@ -82,7 +136,7 @@ public class InventoryService {
             throw new IllegalArgumentException("只能处理卖出交易");
         }
 
-        Inventory inventory = inventoryRepository.findByNameId(trade.getNameId())
+        Inventory inventory = inventoryRepository.findByPortfolioIdAndNameId(trade.getPortfolioId(), trade.getNameId())
                 .orElseThrow(() -> new IllegalStateException("无法卖出未持有的物品，nameId: " + trade.getNameId()));
 
         if (inventory.getCurrentQuantity() < trade.getQuantity()) {
@@ -92,7 +146,10 @@ public class InventoryService {
             );
         }
 
-        return updateInventoryForSell(inventory, trade);
+        long costBefore = costOf(inventory);
+        Inventory updated = updateInventoryForSell(inventory, trade);
+        eventPublisher.publishEvent(InventoryChangedEvent.applied(trade, Money.subtract(costOf(updated), costBefore)));
+        return updated;
     }
 
     /**
@@ -100,6 +157,7 @@ public class InventoryService {
      */
     private Inventory createNewInventoryForBuy(Trade trade) {
         Inventory inventory = Inventory.builder()
+                .portfolioId(trade.getPortfolioId())
                 .nameId(trade.getNameId())
                 .currentQuantity(trade.getQuantity())
                 .weightedAverageCost(trade.getUnitPrice())
@@ -117,22 +175,22 @@ public class InventoryService {
      */
     private Inventory updateInventoryForBuy(Inventory inventory, Trade trade) {
         int oldQuantity = inventory.getCurrentQuantity();
-        BigDecimal oldTotalCost = inventory.getTotalInvestmentCost();
+        long oldTotalCost = Money.of(inventory.getTotalInvestmentCost());
         
         int newQuantity = oldQuantity + trade.getQuantity();
-        BigDecimal newTotalCost = oldTotalCost.add(trade.getTotalAmount());
+        long newTotalCost = Money.add(oldTotalCost, Money.of(trade.getTotalAmount()));
         
         // 计算加权平均成本
-        BigDecimal newWeightedAverageCost = newTotalCost.divide(
-                BigDecimal.valueOf(newQuantity), 4, RoundingMode.HALF_UP);
+        long newWeightedAverageCost = Money.divide(newTotalCost, newQuantity);
+        BigDecimal oldWeightedAverageCost = inventory.getWeightedAverageCost();
 
         inventory.setCurrentQuantity(newQuantity);
-        inventory.setWeightedAverageCost(newWeightedAverageCost);
-        inventory.setTotalInvestmentCost(newTotalCost);
+        inventory.setWeightedAverageCost(Money.toBigDecimal(newWeightedAverageCost));
+        inventory.setTotalInvestmentCost(Money.toBigDecimal(newTotalCost));
 
         log.info("更新库存记录，nameId: {}, 数量: {} -> {}, 平均成本: {} -> {}", 
                 trade.getNameId(), oldQuantity, newQuantity, 
-                inventory.getWeightedAverageCost(), newWeightedAverageCost);
+                oldWeightedAverageCost, inventory.getWeightedAverageCost());
 
         return inventoryRepository.save(inventory);
     }
@@ -150,18 +208,18 @@ public class InventoryService {
             inventoryRepository.delete(inventory);
             return null;
         } else {
-            // 部分卖出，按比例减少总投入成本
-            BigDecimal sellRatio = BigDecimal.valueOf(trade.getQuantity())
-                    .divide(BigDecimal.valueOf(oldQuantity), 4, RoundingMode.HALF_UP);
-            BigDecimal soldCost = inventory.getTotalInvestmentCost().multiply(sellRatio);
-            BigDecimal newTotalCost = inventory.getTotalInvestmentCost().subtract(soldCost);
+            // 部分卖出，按比例（保留4位小数）减少总投入成本
+            // 剩余成本 = 总成本 × (1 - 卖出比例)，只在最后舍入一次，与原 总成本 - 总成本 × 比例 的结果一致
+            long sellRatio = Money.ratio(trade.getQuantity(), oldQuantity);
+            long newTotalCost = Money.applyRatio(
+                    Money.of(inventory.getTotalInvestmentCost()), Money.subtract(Money.ONE, sellRatio));
 
             inventory.setCurrentQuantity(newQuantity);
-            inventory.setTotalInvestmentCost(newTotalCost);
+            inventory.setTotalInvestmentCost(Money.toBigDecimal(newTotalCost));
             // 加权平均成本保持不变
 
             log.info("部分卖出，nameId: {}, 数量: {} -> {}, 剩余总成本: {}", 
-                    trade.getNameId(), oldQuantity, newQuantity, newTotalCost);
+                    trade.getNameId(), oldQuantity, newQuantity, inventory.getTotalInvestmentCost());
 
             return inventoryRepository.save(inventory);
         }
@@ -169,17 +227,20 @@ public class InventoryService {
 
     /**
      * 检查是否有足够库存进行卖出
+     * 卖出校验使用读写事务，保证读主库（读到刚提交的买入），不会被路由到有延迟的只读副本
      */
-    public boolean hasEnoughInventory(Long nameId, Integer quantity) {
-        Optional<Inventory> inventory = inventoryRepository.findByNameId(nameId);
+    @Transactional
+    public boolean hasEnoughInventory(Long portfolioId, Long nameId, Integer quantity) {
+        Optional<Inventory> inventory = inventoryRepository.findByPortfolioIdAndNameId(portfolioId, nameId);
         return inventory.map(inv -> inv.getCurrentQuantity() >= quantity).orElse(false);
     }
 
     /**
-     * 获取当前持有数量
+     * 获取当前持有数量（同样读主库，用于卖出校验失败时的提示）
      */
-    public Integer getCurrentQuantity(Long nameId) {
-        return inventoryRepository.findByNameId(nameId)
+    @Transactional
+    public Integer getCurrentQuantity(Long portfolioId, Long nameId) {
+        return inventoryRepository.findByPortfolioIdAndNameId(portfolioId, nameId)
                 .map(Inventory::getCurrentQuantity)
                 .orElse(0);
     }
@@ -193,8 +254,9 @@ public class InventoryService {
             throw new IllegalArgumentException("只能回滚买入交易");
         }
 
-        Inventory inventory = inventoryRepository.findByNameId(trade.getNameId())
+        Inventory inventory = inventoryRepository.findByPortfolioIdAndNameId(trade.getPortfolioId(), trade.getNameId())
                 .orElseThrow(() -> new IllegalStateException("找不到对应的库存记录，无法回滚"));
+        long costBefore = costOf(inventory);
 
         int oldQuantity = inventory.getCurrentQuantity();
         int newQuantity = oldQuantity - trade.getQuantity();
@@ -209,26 +271,27 @@ public class InventoryService {
             // 回滚后数量为0，删除库存记录
             log.info("回滚买入交易后数量为0，删除库存记录，nameId: {}", trade.getNameId());
             inventoryRepository.delete(inventory);
+            eventPublisher.publishEvent(InventoryChangedEvent.rolledBack(trade, -costBefore));
         } else {
             // 回滚后还有剩余，需要重新计算加权平均成本
-            BigDecimal oldTotalCost = inventory.getTotalInvestmentCost();
-            BigDecimal newTotalCost = oldTotalCost.subtract(trade.getTotalAmount());
+            long oldTotalCost = Money.of(inventory.getTotalInvestmentCost());
+            long newTotalCost = Money.subtract(oldTotalCost, Money.of(trade.getTotalAmount()));
             
-            if (newTotalCost.compareTo(BigDecimal.ZERO) < 0) {
+            if (newTotalCost < 0) {
                 throw new IllegalStateException("回滚后总成本为负，数据异常");
             }
 
-            BigDecimal newWeightedAverageCost = newTotalCost.divide(
-                    BigDecimal.valueOf(newQuantity), 4, RoundingMode.HALF_UP);
+            long newWeightedAverageCost = Money.divide(newTotalCost, newQuantity);
 
             inventory.setCurrentQuantity(newQuantity);
-            inventory.setWeightedAverageCost(newWeightedAverageCost);
-            inventory.setTotalInvestmentCost(newTotalCost);
+            inventory.setWeightedAverageCost(Money.toBigDecimal(newWeightedAverageCost));
+            inventory.setTotalInvestmentCost(Money.toBigDecimal(newTotalCost));
 
             log.info("回滚买入交易，nameId: {}, 数量: {} -> {}, 平均成本: {}", 
-                    trade.getNameId(), oldQuantity, newQuantity, newWeightedAverageCost);
+                    trade.getNameId(), oldQuantity, newQuantity, inventory.getWeightedAverageCost());
 
             inventoryRepository.save(inventory);
+            eventPublisher.publishEvent(InventoryChangedEvent.rolledBack(trade, Money.subtract(newTotalCost, costBefore)));
         }
     }
 
@@ -241,27 +304,29 @@ public class InventoryService {
             throw new IllegalArgumentException("只能回滚卖出交易");
         }
 
-        Optional<Inventory> existingInventory = inventoryRepository.findByNameId(trade.getNameId());
+        Optional<Inventory> existingInventory =
+                inventoryRepository.findByPortfolioIdAndNameId(trade.getPortfolioId(), trade.getNameId());
         
         if (existingInventory.isPresent()) {
             // 库存记录存在，增加数量和成本
             Inventory inventory = existingInventory.get();
+            long costBefore = costOf(inventory);
             int oldQuantity = inventory.getCurrentQuantity();
             int newQuantity = oldQuantity + trade.getQuantity();
             
             // 恢复卖出的成本（按之前的加权平均成本计算）
-            BigDecimal restoredCost = inventory.getWeightedAverageCost()
-                    .multiply(BigDecimal.valueOf(trade.getQuantity()));
-            BigDecimal newTotalCost = inventory.getTotalInvestmentCost().add(restoredCost);
+            long restoredCost = Money.times(Money.of(inventory.getWeightedAverageCost()), trade.getQuantity());
+            long newTotalCost = Money.add(Money.of(inventory.getTotalInvestmentCost()), restoredCost);
 
             inventory.setCurrentQuantity(newQuantity);
-            inventory.setTotalInvestmentCost(newTotalCost);
+            inventory.setTotalInvestmentCost(Money.toBigDecimal(newTotalCost));
             // 加权平均成本保持不变
 
             log.info("回滚卖出交易，nameId: {}, 数量: {} -> {}, 恢复成本: {}", 
-                    trade.getNameId(), oldQuantity, newQuantity, restoredCost);
+                    trade.getNameId(), oldQuantity, newQuantity, Money.toBigDecimal(restoredCost));
 
             inventoryRepository.save(inventory);
+            eventPublisher.publishEvent(InventoryChangedEvent.rolledBack(trade, Money.subtract(newTotalCost, costBefore)));
         } else {
             // 库存记录不存在（可能已经全部卖出），需要重新创建
             // 使用加权平均成本作为恢复的成本基础
@@ -272,4 +337,19 @@ public class InventoryService {
             );
         }
     }
-} 
\ No newline at end of file
+
+    private static <T> List<T> loadChunked(List<Long> nameIds, Function<List<Long>, List<T>> loader) {
+        List<T> result = new ArrayList<>(nameIds.size());
+        for (int from = 0; from < nameIds.size(); from += IN_CHUNK) {
+            result.addAll(loader.apply(nameIds.subList(from, Math.min(nameIds.size(), from + IN_CHUNK))));
+        }
+        return result;
+    }
+
+    /**
+     * 库存记录的总投入成本（定点），记录已删除（null）时为0
+     */
+    private static long costOf(Inventory inventory) {
+        return inventory != null ? Money.of(inventory.getTotalInvestmentCost()) : 0;
+    }
+}
@@ -1,327 +1,513 @@
 package com.cs.csinventory.service;
 
+import com.cs.csinventory.domain.Portfolio;
 import com.cs.csinventory.domain.Trade;
 import com.cs.csinventory.repo.TradeRepository;
 import com.cs.csinventory.repo.InventoryRepository;
+import com.cs.csinventory.service.archive.ArchiveCheckpoint;
+import com.cs.csinventory.service.archive.TradeArchiveRollups;
+import com.cs.csinventory.service.cache.SingleFlight;
+import com.cs.csinventory.service.dto.HoldingSummaryDTO;
 import com.cs.csinventory.service.dto.InvestmentPoolDTO;
+import com.cs.csinventory.service.dto.InvestmentPoolSummaryDTO;
+import com.cs.csinventory.service.dto.PortfolioPoolDTO;
+import com.cs.csinventory.service.dto.TradeFlowDTO;
+import com.cs.csinventory.service.dto.TradeTypeSummaryDTO;
+import com.cs.csinventory.service.money.Money;
+import com.cs.csinventory.service.sync.DataVersions;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 投资池分析服务 - 将CS物品交易看作动态投资池
+ *
+ * 所有金额聚合在内部使用 {@link Money} 定点 long 计算，只在构建 DTO 时转换为 BigDecimal。
+ * 各项指标拆分为互相独立的统计任务（交易汇总、物品种类、峰值净投入、持仓成本），
+ * 通过 {@link StatisticsFanOut} 在虚拟线程上并行查询，每个任务有独立的超时时间。
+ * 已归档的交易通过 {@link TradeArchiveRollups} 的汇总和归档进度参与统计，不读取段文件。
+ *
+ * 一致性取舍：每个任务是独立的只读事务，任务之间不是同一时刻的快照。归档批次把交易从 trades 移入汇总，
+ * 所以未归档交易和归档汇总在同一个任务（同一个可重复读事务）中读取，不会重复计算或漏算；峰值净投入的
+ * 归档进度和资金流水同理。持仓成本与交易汇总分属不同任务，计算期间有交易提交时，已实现盈利等组合指标
+ * 可能混合提交前后的数据——这次结果只记在计算前读取的版本下，提交使版本前进，下一次请求重新计算。
+ *
+ * 统计按投资组合分别聚合并缓存：缓存以组合的 {@link DataVersions} 版本为准，组合有写入提交后才重新计算，
+ * 一个组合的写入和计算不影响其他组合。跨组合统计由各组合的聚合合并得出，不再单独扫描全表。
+ *
+ * 可以只请求部分字段：按 {@link PoolMetric} 的依赖图只执行这些字段需要的统计任务、只计算需要的指标，
+ * 其余字段为空。缓存的聚合记录已加载的数据源，同一版本下缺少的数据源再补充查询。
+ * 缓存未命中时同时到达的相同查询（同一组合、版本和数据源）经 {@link SingleFlight} 合并为一次计算。
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class InvestmentPoolService {
-    
+
     private final TradeRepository tradeRepository;
     private final InventoryRepository inventoryRepository;
-    
+    private final TradeArchiveRollups tradeArchiveRollups;
+    private final PortfolioService portfolioService;
+    private final DataVersions dataVersions;
+    private final SingleFlight singleFlight;
+    private final PlatformTransactionManager transactionManager;
+
+    static final Set<PoolMetric> ALL_METRICS = Collections.unmodifiableSet(EnumSet.allOf(PoolMetric.class));
+    static final Set<PoolMetric.Source> ALL_SOURCES =
+            Collections.unmodifiableSet(EnumSet.allOf(PoolMetric.Source.class));
+
+    /** 各组合的聚合缓存 */
+    private final ConcurrentHashMap<Long, CachedAggregate> aggregates = new ConcurrentHashMap<>();
+
+    @Value("${app.stats.parallel:true}")
+    private boolean parallelStatistics;
+
+    @Value("${app.stats.task-timeout:5s}")
+    private Duration statisticsTaskTimeout;
+
+    /**
+     * 聚合缓存的最长有效期：统计在只读副本上计算，副本延迟时版本未变也需要定期重新计算
+     */
+    @Value("${app.stats.cache-ttl:30s}")
+    private Duration cacheTtl;
+
+    /**
+     * 获取组合的投资池整体表现统计
+     */
+    public InvestmentPoolDTO getInvestmentPoolStatistics(Long portfolioId) {
+        return getInvestmentPoolStatistics(portfolioId, ALL_METRICS);
+    }
+
+    /**
+     * 只计算 fields 中的字段，其余字段为空
+     */
+    public InvestmentPoolDTO getInvestmentPoolStatistics(Long portfolioId, Set<PoolMetric> fields) {
+        return buildPool(aggregate(portfolioService.requirePortfolio(portfolioId), PoolMetric.sources(fields)), null, fields);
+    }
+
+    /**
+     * 使用手动输入的市场价值重新计算组合的投资池统计
+     */
+    public InvestmentPoolDTO getInvestmentPoolStatisticsWithManualValue(Long portfolioId, BigDecimal manualMarketValue) {
+        return buildPool(aggregate(portfolioService.requirePortfolio(portfolioId), ALL_SOURCES), manualMarketValue,
+                ALL_METRICS);
+    }
+
     /**
-     * 获取投资池整体表现统计
+     * 跨组合投资池统计：合并各组合的聚合
+     *
+     * 金额、笔数直接相加；物品种类数和持有物品种类数按组合分别计数后相加（同一物品在多个组合中各计一次）；
+     * 峰值净投入为各组合峰值之和，即各组合各自需要的本金之和。
      */
-    @Transactional(readOnly = true)
-    public InvestmentPoolDTO getInvestmentPoolStatistics() {
-        
-        // 1. 获取所有交易记录
-        List<Trade> allTrades = tradeRepository.findAll();
-        
-        if (allTrades.isEmpty()) {
-            return createEmptyPool();
+    public InvestmentPoolSummaryDTO getCombinedStatistics() {
+        return getCombinedStatistics(ALL_METRICS);
+    }
+
+    /**
+     * 只计算 fields 中字段的跨组合投资池统计
+     */
+    public InvestmentPoolSummaryDTO getCombinedStatistics(Set<PoolMetric> fields) {
+        Set<PoolMetric.Source> sources = PoolMetric.sources(fields);
+        List<PortfolioPoolDTO> portfolios = new ArrayList<>();
+        PoolAggregate total = PoolAggregate.EMPTY;
+        for (Portfolio portfolio : portfolioService.getAllPortfolios()) {
+            PoolAggregate aggregate = aggregate(portfolio.getId(), sources);
+            portfolios.add(new PortfolioPoolDTO(portfolio.getId(), portfolio.getName(), buildPool(aggregate, null, fields)));
+            total = total.merge(aggregate);
+        }
+        return new InvestmentPoolSummaryDTO(buildPool(total, null, fields), portfolios);
+    }
+
+    /**
+     * 读取组合包含 sources 的聚合，缓存版本与组合当前版本一致且未过期时只查询缓存中缺少的数据源
+     */
+    PoolAggregate aggregate(long portfolioId, Set<PoolMetric.Source> sources) {
+        // 集群中其他节点的变更落后过多时不使用缓存
+        if (!dataVersions.coherent()) {
+            return computeAggregate(portfolioId, sources);
+        }
+        // 先读版本再计算：计算期间提交的写入会使版本前进，结果只记在旧版本下
+        long version = dataVersions.current(portfolioId);
+        CachedAggregate cached = aggregates.get(portfolioId);
+        if (cached == null || cached.version() != version || System.nanoTime() - cached.computedAt() >= cacheTtl.toNanos()) {
+            cached = null;
+        } else if (cached.aggregate().sources().containsAll(sources)) {
+            return cached.aggregate();
+        }
+        Set<PoolMetric.Source> missing = EnumSet.noneOf(PoolMetric.Source.class);
+        missing.addAll(sources);
+        if (cached != null) {
+            missing.removeAll(cached.aggregate().sources());
+        }
+        PoolAggregate computed = singleFlight.execute("investmentPool.aggregate", portfolioId, List.of(missing),
+                () -> computeAggregate(portfolioId, missing));
+        // 补充的数据源与缓存中的合并，有效期仍从较早的一次计算算起
+        CachedAggregate entry = cached != null
+                ? new CachedAggregate(version, cached.computedAt(), cached.aggregate().with(computed))
+                : new CachedAggregate(version, System.nanoTime(), computed);
+        aggregates.merge(portfolioId, entry, (previous, current) -> {
+            if (current.version() != previous.version()) {
+                return current.version() > previous.version() ? current : previous;
+            }
+            return new CachedAggregate(current.version(), Math.min(previous.computedAt(), current.computedAt()),
+                    previous.aggregate().with(current.aggregate()));
+        });
+        return entry.aggregate();
+    }
+
+    /**
+     * 查询组合 sources 中的聚合指标
+     */
+    private PoolAggregate computeAggregate(long portfolioId, Set<PoolMetric.Source> sources) {
+        // 并行执行互相独立的统计任务（各自使用独立的只读事务），只执行需要的任务
+        try (StatisticsFanOut fanOut = new StatisticsFanOut(transactionManager, parallelStatistics, statisticsTaskTimeout)) {
+            boolean summary = sources.contains(PoolMetric.Source.TRADE_SUMMARY);
+            // 未归档交易和归档汇总在同一个事务中读取，归档批次提交前后只会看到其中一边
+            var summaryTask = summary
+                    ? fanOut.fork("tradeSummary", () -> mergeSummaries(tradeRepository.summarizeByType(portfolioId),
+                            tradeArchiveRollups.summarizeByType(portfolioId))) : null;
+            var distinctItemsTask = sources.contains(PoolMetric.Source.DISTINCT_ITEMS)
+                    ? fanOut.fork("distinctItems", () -> tradeRepository.countDistinctNameId(portfolioId)) : null;
+            var peakTask = sources.contains(PoolMetric.Source.PEAK_NET_INVESTMENT)
+                    ? fanOut.fork("peakNetInvestment", () -> calculatePeakNetInvestment(portfolioId)) : null;
+            var holdingsTask = sources.contains(PoolMetric.Source.HOLDINGS)
+                    ? fanOut.fork("holdings", () -> inventoryRepository.summarizeHoldings(portfolioId)) : null;
+
+            HoldingSummaryDTO holdings = holdingsTask != null ? holdingsTask.join() : null;
+            return new PoolAggregate(
+                    EnumSet.copyOf(sources),
+                    summary ? summaryTask.join() : List.of(),
+                    distinctItemsTask != null ? distinctItemsTask.join() : 0,
+                    peakTask != null ? peakTask.join() : 0,
+                    holdings != null ? Money.of(holdings.holdingCost()) : 0,
+                    holdings != null ? holdings.holdingItems() : 0);
+        }
+    }
+
+    /**
+     * 由聚合构建投资池统计，manualMarketValue 为空时使用成本价作为持仓估值；只计算 fields 中的字段
+     */
+    InvestmentPoolDTO buildPool(PoolAggregate aggregate, BigDecimal manualMarketValue, Set<PoolMetric> fields) {
+        PoolEvaluation evaluation = new PoolEvaluation(aggregate, manualMarketValue);
+        Map<PoolMetric, Object> values = new EnumMap<>(PoolMetric.class);
+        for (PoolMetric field : fields) {
+            values.put(field, evaluation.value(field));
         }
-        
-        // 2. 计算旧版资金流统计 (保留用于兼容)
-        BigDecimal totalInvestment = calculateTotalInvestment(allTrades);
-        BigDecimal totalWithdrawal = calculateTotalWithdrawal(allTrades);
-        BigDecimal currentCost = totalInvestment.subtract(totalWithdrawal);
-        
-        // 3. 计算静态成本 (当前持仓物品的购买成本总和)
-        BigDecimal staticCost = calculateCurrentHoldingValueByCost();
-        
-        // 4. 计算当前持仓估值 (使用成本价，前端可手动覆盖)
-        BigDecimal currentHoldingValue = staticCost;
-        
-        // 5. 计算新版真实投资统计
-        BigDecimal peakNetInvestment = calculatePeakNetInvestment(allTrades);
-        BigDecimal netCashFlow = totalInvestment.subtract(totalWithdrawal);
-        
-        // 6. 计算已实现盈利和未实现盈利
-        BigDecimal realizedProfit = calculateRealizedProfit(allTrades);
-        BigDecimal unrealizedProfit = currentHoldingValue.subtract(staticCost);
-        BigDecimal totalProfit = realizedProfit.add(unrealizedProfit);
-        
-        // 7. 计算真实收益率
-        BigDecimal realReturnRate = peakNetInvestment.compareTo(BigDecimal.ZERO) > 0 ? 
-            totalProfit.divide(peakNetInvestment, 4, RoundingMode.HALF_UP) : BigDecimal.ZERO;
-        
-        // 8. 计算旧版收益统计 (保留用于兼容)
-        BigDecimal absoluteProfit = currentHoldingValue.subtract(currentCost);
-        BigDecimal returnRate = currentCost.compareTo(BigDecimal.ZERO) > 0 ? 
-            absoluteProfit.divide(currentCost, 4, RoundingMode.HALF_UP) : BigDecimal.ZERO;
-        BigDecimal totalValue = totalWithdrawal.add(currentHoldingValue);
-        
-        // 9. 计算时间统计
-        LocalDate firstInvestmentDate = getFirstInvestmentDate(allTrades);
-        LocalDate lastTradeDate = getLastTradeDate(allTrades);
-        Integer totalInvestmentDays = (int) ChronoUnit.DAYS.between(firstInvestmentDate, LocalDate.now()) + 1;
-        
-        // 10. 计算交易统计
-        Integer totalBuyTrades = (int) allTrades.stream().filter(t -> t.getType() == Trade.Type.BUY).count();
-        Integer totalSellTrades = (int) allTrades.stream().filter(t -> t.getType() == Trade.Type.SELL).count();
-        Integer totalItems = (int) allTrades.stream().map(Trade::getNameId).distinct().count();
-        Integer currentHoldingItems = (int) inventoryRepository.findAll().stream()
-            .filter(inv -> inv.getCurrentQuantity() > 0).count();
-        
         return InvestmentPoolDTO.builder()
                 // 旧版字段（兼容）
-                .totalInvestment(totalInvestment)
-                .totalWithdrawal(totalWithdrawal)
-                .currentCost(currentCost)
-                .staticCost(staticCost)
-                .currentHoldingValue(currentHoldingValue)
-                .absoluteProfit(absoluteProfit)
-                .returnRate(returnRate)
-                .totalValue(totalValue)
+                .totalInvestment(field(values, PoolMetric.TOTAL_INVESTMENT))
+                .totalWithdrawal(field(values, PoolMetric.TOTAL_WITHDRAWAL))
+                .currentCost(field(values, PoolMetric.CURRENT_COST))
+                .staticCost(field(values, PoolMetric.STATIC_COST))
+                .currentHoldingValue(field(values, PoolMetric.CURRENT_HOLDING_VALUE))
+                .absoluteProfit(field(values, PoolMetric.ABSOLUTE_PROFIT))
+                .returnRate(field(values, PoolMetric.RETURN_RATE))
+                .totalValue(field(values, PoolMetric.TOTAL_VALUE))
                 // 新增字段
-                .peakNetInvestment(peakNetInvestment)
-                .netCashFlow(netCashFlow)
-                .realizedProfit(realizedProfit)
-                .totalProfit(totalProfit)
-                .realReturnRate(realReturnRate)
+                .peakNetInvestment(field(values, PoolMetric.PEAK_NET_INVESTMENT))
+                .netCashFlow(field(values, PoolMetric.NET_CASH_FLOW))
+                .realizedProfit(field(values, PoolMetric.REALIZED_PROFIT))
+                .totalProfit(field(values, PoolMetric.TOTAL_PROFIT))
+                .realReturnRate(field(values, PoolMetric.REAL_RETURN_RATE))
                 // 时间统计
-                .firstInvestmentDate(firstInvestmentDate)
-                .lastTradeDate(lastTradeDate)
-                .totalInvestmentDays(totalInvestmentDays)
+                .firstInvestmentDate(field(values, PoolMetric.FIRST_INVESTMENT_DATE))
+                .lastTradeDate(field(values, PoolMetric.LAST_TRADE_DATE))
+                .totalInvestmentDays(field(values, PoolMetric.TOTAL_INVESTMENT_DAYS))
                 // 交易统计
-                .totalBuyTrades(totalBuyTrades)
-                .totalSellTrades(totalSellTrades)
-                .totalItems(totalItems)
-                .currentHoldingItems(currentHoldingItems)
+                .totalBuyTrades(field(values, PoolMetric.TOTAL_BUY_TRADES))
+                .totalSellTrades(field(values, PoolMetric.TOTAL_SELL_TRADES))
+                .totalItems(field(values, PoolMetric.TOTAL_ITEMS))
+                .currentHoldingItems(field(values, PoolMetric.CURRENT_HOLDING_ITEMS))
                 .build();
     }
-    
-    /**
-     * 计算累计投入资金 (所有买入金额)
-     */
-    private BigDecimal calculateTotalInvestment(List<Trade> trades) {
-        return trades.stream()
-                .filter(trade -> trade.getType() == Trade.Type.BUY)
-                .map(Trade::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+    @SuppressWarnings("unchecked")
+    private static <T> T field(Map<PoolMetric, Object> values, PoolMetric metric) {
+        return (T) values.get(metric);
     }
-    
+
     /**
-     * 计算累计回收资金 (所有卖出金额)
+     * 一次构建中的指标计算：按需计算并记住每个指标的值，依赖的指标先递归计算
+     *
+     * 金额在内部为 {@link Money} 定点 long，{@link #value} 返回 DTO 字段的类型。
      */
-    private BigDecimal calculateTotalWithdrawal(List<Trade> trades) {
-        return trades.stream()
-                .filter(trade -> trade.getType() == Trade.Type.SELL)
-                .map(Trade::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private final class PoolEvaluation {
+
+        private final PoolAggregate aggregate;
+        private final BigDecimal manualMarketValue;
+        private final Map<PoolMetric, Object> computed = new EnumMap<>(PoolMetric.class);
+
+        PoolEvaluation(PoolAggregate aggregate, BigDecimal manualMarketValue) {
+            this.aggregate = aggregate;
+            this.manualMarketValue = manualMarketValue;
+        }
+
+        /**
+         * DTO 字段的值：金额为 BigDecimal，日期为 LocalDate，笔数、种类数、天数为 Integer
+         */
+        Object value(PoolMetric metric) {
+            if (isEmptyPool()) {
+                return emptyValue(metric);
+            }
+            Object value = raw(metric);
+            return value instanceof Long money ? Money.toBigDecimal(money) : value;
+        }
+
+        /**
+         * 已加载交易汇总且没有任何交易；没有加载交易汇总的字段不依赖交易，按聚合正常计算
+         */
+        private boolean isEmptyPool() {
+            return aggregate.sources().contains(PoolMetric.Source.TRADE_SUMMARY)
+                    && tradeCount(Trade.Type.BUY) + tradeCount(Trade.Type.SELL) == 0;
+        }
+
+        private Object raw(PoolMetric metric) {
+            Object value = computed.get(metric);
+            if (value == null) {
+                value = compute(metric);
+                computed.put(metric, value);
+            }
+            return value;
+        }
+
+        private long money(PoolMetric metric) {
+            return (Long) raw(metric);
+        }
+
+        private Object compute(PoolMetric metric) {
+            return switch (metric) {
+                // 资金流统计（旧版字段保留用于兼容）
+                case TOTAL_INVESTMENT -> amount(Trade.Type.BUY);
+                case TOTAL_WITHDRAWAL -> amount(Trade.Type.SELL);
+                case CURRENT_COST -> Money.subtract(money(PoolMetric.TOTAL_INVESTMENT), money(PoolMetric.TOTAL_WITHDRAWAL));
+                // 静态成本 (当前持仓物品的购买成本总和)
+                case STATIC_COST -> require(PoolMetric.Source.HOLDINGS).holdingCost();
+                // 当前持仓估值 (默认使用成本价，可由手动输入的市场价值覆盖)
+                case CURRENT_HOLDING_VALUE -> manualMarketValue != null
+                        ? Money.of(manualMarketValue) : money(PoolMetric.STATIC_COST);
+                // 真实投资统计
+                case PEAK_NET_INVESTMENT -> require(PoolMetric.Source.PEAK_NET_INVESTMENT).peakNetInvestment();
+                case NET_CASH_FLOW -> Money.subtract(money(PoolMetric.TOTAL_INVESTMENT), money(PoolMetric.TOTAL_WITHDRAWAL));
+                case REALIZED_PROFIT -> calculateRealizedProfit(money(PoolMetric.TOTAL_INVESTMENT),
+                        money(PoolMetric.TOTAL_WITHDRAWAL), money(PoolMetric.STATIC_COST));
+                // 收益统计
+                case ABSOLUTE_PROFIT -> Money.subtract(money(PoolMetric.CURRENT_HOLDING_VALUE), money(PoolMetric.CURRENT_COST));
+                case RETURN_RATE -> money(PoolMetric.CURRENT_COST) > 0
+                        ? Money.ratio(money(PoolMetric.ABSOLUTE_PROFIT), money(PoolMetric.CURRENT_COST)) : 0L;
+                case TOTAL_VALUE -> Money.add(money(PoolMetric.TOTAL_WITHDRAWAL), money(PoolMetric.CURRENT_HOLDING_VALUE));
+                // 总盈利 = 已实现盈利 + 未实现盈利
+                case TOTAL_PROFIT -> Money.add(money(PoolMetric.REALIZED_PROFIT),
+                        Money.subtract(money(PoolMetric.CURRENT_HOLDING_VALUE), money(PoolMetric.STATIC_COST)));
+                case REAL_RETURN_RATE -> money(PoolMetric.PEAK_NET_INVESTMENT) > 0
+                        ? Money.ratio(money(PoolMetric.TOTAL_PROFIT), money(PoolMetric.PEAK_NET_INVESTMENT)) : 0L;
+                // 时间统计
+                case FIRST_INVESTMENT_DATE -> {
+                    TradeTypeSummaryDTO buySummary = summary(Trade.Type.BUY);
+                    yield buySummary != null ? buySummary.firstTradeAt().toLocalDate() : LocalDate.now();
+                }
+                case LAST_TRADE_DATE -> getLastTradeDate(require(PoolMetric.Source.TRADE_SUMMARY).tradeSummaries());
+                case TOTAL_INVESTMENT_DAYS -> (int) ChronoUnit.DAYS.between(
+                        (LocalDate) raw(PoolMetric.FIRST_INVESTMENT_DATE), LocalDate.now()) + 1;
+                // 交易统计
+                case TOTAL_BUY_TRADES -> (int) tradeCount(Trade.Type.BUY);
+                case TOTAL_SELL_TRADES -> (int) tradeCount(Trade.Type.SELL);
+                case TOTAL_ITEMS -> (int) require(PoolMetric.Source.DISTINCT_ITEMS).distinctItems();
+                case CURRENT_HOLDING_ITEMS -> (int) require(PoolMetric.Source.HOLDINGS).holdingItems();
+            };
+        }
+
+        private PoolAggregate require(PoolMetric.Source source) {
+            if (!aggregate.sources().contains(source)) {
+                throw new IllegalStateException("统计数据源未加载: " + source);
+            }
+            return aggregate;
+        }
+
+        private TradeTypeSummaryDTO summary(Trade.Type type) {
+            return findSummary(require(PoolMetric.Source.TRADE_SUMMARY).tradeSummaries(), type);
+        }
+
+        private long amount(Trade.Type type) {
+            TradeTypeSummaryDTO summary = summary(type);
+            return summary != null ? Money.of(summary.totalAmount()) : 0L;
+        }
+
+        private long tradeCount(Trade.Type type) {
+            TradeTypeSummaryDTO summary = summary(type);
+            return summary != null ? summary.tradeCount() : 0;
+        }
     }
-    
+
     /**
-     * 基于成本价计算当前持仓估值
+     * 合并未归档和已归档交易的按类型汇总
      */
-    private BigDecimal calculateCurrentHoldingValueByCost() {
-        return inventoryRepository.findAll().stream()
-                .filter(inv -> inv.getCurrentQuantity() > 0)
-                .map(inv -> inv.getWeightedAverageCost()
-                    .multiply(BigDecimal.valueOf(inv.getCurrentQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private static List<TradeTypeSummaryDTO> mergeSummaries(List<TradeTypeSummaryDTO> live, List<TradeTypeSummaryDTO> archived) {
+        if (archived.isEmpty()) {
+            return live;
+        }
+        Map<Trade.Type, TradeTypeSummaryDTO> merged = new EnumMap<>(Trade.Type.class);
+        for (TradeTypeSummaryDTO summary : live) {
+            merged.put(summary.type(), summary);
+        }
+        for (TradeTypeSummaryDTO summary : archived) {
+            merged.merge(summary.type(), summary, (a, b) -> new TradeTypeSummaryDTO(
+                    a.type(),
+                    Money.toBigDecimal(Money.add(Money.of(a.totalAmount()), Money.of(b.totalAmount()))),
+                    a.tradeCount() + b.tradeCount(),
+                    a.firstTradeAt().isBefore(b.firstTradeAt()) ? a.firstTradeAt() : b.firstTradeAt(),
+                    a.lastTradeAt().isAfter(b.lastTradeAt()) ? a.lastTradeAt() : b.lastTradeAt()));
+        }
+        return List.copyOf(merged.values());
     }
-    
-    /**
-     * 获取首次投资日期
-     */
-    private LocalDate getFirstInvestmentDate(List<Trade> trades) {
-        return trades.stream()
-                .filter(trade -> trade.getType() == Trade.Type.BUY)
-                .map(trade -> trade.getCreatedAt().toLocalDate())
-                .min(LocalDate::compareTo)
-                .orElse(LocalDate.now());
+
+    private TradeTypeSummaryDTO findSummary(List<TradeTypeSummaryDTO> summaries, Trade.Type type) {
+        return summaries.stream()
+                .filter(summary -> summary.type() == type)
+                .findFirst()
+                .orElse(null);
     }
-    
+
     /**
      * 获取最后交易日期
      */
-    private LocalDate getLastTradeDate(List<Trade> trades) {
-        return trades.stream()
-                .map(trade -> trade.getCreatedAt().toLocalDate())
+    private LocalDate getLastTradeDate(List<TradeTypeSummaryDTO> summaries) {
+        return summaries.stream()
+                .map(summary -> summary.lastTradeAt().toLocalDate())
                 .max(LocalDate::compareTo)
                 .orElse(LocalDate.now());
     }
-    
+
     /**
      * 计算峰值净投入 - 历史上投入池中的最大净资金量
      * 这代表了真实的本金投入，排除了盈利再投资的重复计算
+     * 已归档交易的资金流已累计在归档进度中，从那里继续计算
      */
-    private BigDecimal calculatePeakNetInvestment(List<Trade> trades) {
-        // 按时间顺序排序交易
-        List<Trade> sortedTrades = trades.stream()
-                .sorted((t1, t2) -> t1.getCreatedAt().compareTo(t2.getCreatedAt()))
-                .toList();
-        
-        BigDecimal currentNetInvestment = BigDecimal.ZERO;
-        BigDecimal peakNetInvestment = BigDecimal.ZERO;
-        
-        for (Trade trade : sortedTrades) {
-            if (trade.getType() == Trade.Type.BUY) {
+    private long calculatePeakNetInvestment(long portfolioId) {
+        ArchiveCheckpoint checkpoint = tradeArchiveRollups.findCheckpoint(portfolioId).orElseGet(ArchiveCheckpoint::empty);
+
+        // 按时间顺序获取资金流水
+        List<TradeFlowDTO> sortedFlows = tradeRepository.findAllFlowsOrderByCreatedAt(portfolioId);
+
+        long currentNetInvestment = checkpoint.netFlow();
+        long peakNetInvestment = checkpoint.peakNetInvestment();
+
+        for (TradeFlowDTO flow : sortedFlows) {
+            long amount = Money.of(flow.totalAmount());
+            if (flow.type() == Trade.Type.BUY) {
                 // 买入增加净投入
-                currentNetInvestment = currentNetInvestment.add(trade.getTotalAmount());
+                currentNetInvestment = Money.add(currentNetInvestment, amount);
             } else {
                 // 卖出减少净投入
-                currentNetInvestment = currentNetInvestment.subtract(trade.getTotalAmount());
+                currentNetInvestment = Money.subtract(currentNetInvestment, amount);
             }
-            
+
             // 更新峰值（只有正数才有意义，代表实际投入的钱）
-            if (currentNetInvestment.compareTo(peakNetInvestment) > 0) {
+            if (currentNetInvestment > peakNetInvestment) {
                 peakNetInvestment = currentNetInvestment;
             }
         }
-        
+
         // 如果峰值为0，说明从未投入过（或者一直是负数），返回第一笔买入的金额
-        if (peakNetInvestment.compareTo(BigDecimal.ZERO) == 0 && !sortedTrades.isEmpty()) {
-            return sortedTrades.stream()
-                    .filter(t -> t.getType() == Trade.Type.BUY)
+        if (peakNetInvestment == 0 && checkpoint.firstBuyAmount() != null) {
+            return checkpoint.firstBuyAmount();
+        }
+        if (peakNetInvestment == 0 && !sortedFlows.isEmpty()) {
+            return sortedFlows.stream()
+                    .filter(flow -> flow.type() == Trade.Type.BUY)
                     .findFirst()
-                    .map(Trade::getTotalAmount)
-                    .orElse(BigDecimal.ZERO);
+                    .map(flow -> Money.of(flow.totalAmount()))
+                    .orElse(0L);
         }
-        
+
         return peakNetInvestment;
     }
-    
+
     /**
      * 计算已实现盈利 - 所有卖出收入减去对应的成本
      * 注意：这里简化计算，使用总卖出 - 总买入 + 当前持仓成本
      */
-    private BigDecimal calculateRealizedProfit(List<Trade> trades) {
-        BigDecimal totalBuy = calculateTotalInvestment(trades);
-        BigDecimal totalSell = calculateTotalWithdrawal(trades);
-        BigDecimal currentHoldingCost = calculateCurrentHoldingValueByCost();
-        
+    private long calculateRealizedProfit(long totalBuy, long totalSell, long currentHoldingCost) {
         // 已实现盈利 = 总卖出 - (总买入 - 当前持仓成本)
         // 即：已卖出的部分赚了多少钱
-        return totalSell.subtract(totalBuy.subtract(currentHoldingCost));
+        return Money.subtract(totalSell, Money.subtract(totalBuy, currentHoldingCost));
     }
-    
+
     /**
-     * 创建空投资池统计
+     * 空投资池（没有任何交易）中指标的值
      */
-    private InvestmentPoolDTO createEmptyPool() {
-        LocalDate now = LocalDate.now();
-        return InvestmentPoolDTO.builder()
-                .totalInvestment(BigDecimal.ZERO)
-                .totalWithdrawal(BigDecimal.ZERO)
-                .currentCost(BigDecimal.ZERO)
-                .staticCost(BigDecimal.ZERO)
-                .currentHoldingValue(BigDecimal.ZERO)
-                .peakNetInvestment(BigDecimal.ZERO)
-                .netCashFlow(BigDecimal.ZERO)
-                .realizedProfit(BigDecimal.ZERO)
-                .absoluteProfit(BigDecimal.ZERO)
-                .returnRate(BigDecimal.ZERO)
-                .totalValue(BigDecimal.ZERO)
-                .totalProfit(BigDecimal.ZERO)
-                .realReturnRate(BigDecimal.ZERO)
-                .firstInvestmentDate(now)
-                .lastTradeDate(now)
-                .totalInvestmentDays(0)
-                .totalBuyTrades(0)
-                .totalSellTrades(0)
-                .totalItems(0)
-                .currentHoldingItems(0)
-                .build();
+    private static Object emptyValue(PoolMetric metric) {
+        return switch (metric) {
+            case FIRST_INVESTMENT_DATE, LAST_TRADE_DATE -> LocalDate.now();
+            case TOTAL_INVESTMENT_DAYS, TOTAL_BUY_TRADES, TOTAL_SELL_TRADES, TOTAL_ITEMS, CURRENT_HOLDING_ITEMS -> 0;
+            default -> BigDecimal.ZERO;
+        };
     }
-    
+
     /**
-     * 使用手动输入的市场价值重新计算投资池统计
+     * 一个组合（或多个组合合并后）的聚合指标，金额为 {@link Money} 定点值；只有 sources 中的数据源已查询
      */
-    public InvestmentPoolDTO getInvestmentPoolStatisticsWithManualValue(BigDecimal manualMarketValue) {
-        // 获取基础统计
-        List<Trade> allTrades = tradeRepository.findAll();
-        
-        if (allTrades.isEmpty()) {
-            return createEmptyPool();
+    record PoolAggregate(
+            Set<PoolMetric.Source> sources,
+            List<TradeTypeSummaryDTO> tradeSummaries,
+            long distinctItems,
+            long peakNetInvestment,
+            long holdingCost,
+            long holdingItems
+    ) {
+        static final PoolAggregate EMPTY = new PoolAggregate(ALL_SOURCES, List.of(), 0, 0, 0, 0);
+
+        /**
+         * 合并两个组合的聚合，结果只包含两者都已查询的数据源
+         */
+        PoolAggregate merge(PoolAggregate other) {
+            Set<PoolMetric.Source> common = EnumSet.noneOf(PoolMetric.Source.class);
+            common.addAll(sources);
+            common.retainAll(other.sources);
+            return new PoolAggregate(
+                    common,
+                    mergeSummaries(tradeSummaries, other.tradeSummaries),
+                    distinctItems + other.distinctItems,
+                    Money.add(peakNetInvestment, other.peakNetInvestment),
+                    Money.add(holdingCost, other.holdingCost),
+                    holdingItems + other.holdingItems);
         }
-        
-        // 计算旧版资金流统计 (保留用于兼容)
-        BigDecimal totalInvestment = calculateTotalInvestment(allTrades);
-        BigDecimal totalWithdrawal = calculateTotalWithdrawal(allTrades);
-        BigDecimal currentCost = totalInvestment.subtract(totalWithdrawal);
-        
-        // 计算静态成本 (始终使用购买成本)
-        BigDecimal staticCost = calculateCurrentHoldingValueByCost();
-        
-        // 使用手动输入的市场价值
-        BigDecimal currentHoldingValue = manualMarketValue != null ? manualMarketValue : staticCost;
-        
-        // 计算新版真实投资统计
-        BigDecimal peakNetInvestment = calculatePeakNetInvestment(allTrades);
-        BigDecimal netCashFlow = totalInvestment.subtract(totalWithdrawal);
-        
-        // 计算已实现盈利和未实现盈利
-        BigDecimal realizedProfit = calculateRealizedProfit(allTrades);
-        BigDecimal unrealizedProfit = currentHoldingValue.subtract(staticCost);
-        BigDecimal totalProfit = realizedProfit.add(unrealizedProfit);
-        
-        // 计算真实收益率
-        BigDecimal realReturnRate = peakNetInvestment.compareTo(BigDecimal.ZERO) > 0 ? 
-            totalProfit.divide(peakNetInvestment, 4, RoundingMode.HALF_UP) : BigDecimal.ZERO;
-        
-        // 计算旧版收益统计 (保留用于兼容)
-        BigDecimal absoluteProfit = currentHoldingValue.subtract(currentCost);
-        BigDecimal returnRate = currentCost.compareTo(BigDecimal.ZERO) > 0 ? 
-            absoluteProfit.divide(currentCost, 4, RoundingMode.HALF_UP) : BigDecimal.ZERO;
-        BigDecimal totalValue = totalWithdrawal.add(currentHoldingValue);
-        
-        // 计算时间统计
-        LocalDate firstInvestmentDate = getFirstInvestmentDate(allTrades);
-        LocalDate lastTradeDate = getLastTradeDate(allTrades);
-        Integer totalInvestmentDays = (int) ChronoUnit.DAYS.between(firstInvestmentDate, LocalDate.now()) + 1;
-        
-        // 计算交易统计
-        Integer totalBuyTrades = (int) allTrades.stream().filter(t -> t.getType() == Trade.Type.BUY).count();
-        Integer totalSellTrades = (int) allTrades.stream().filter(t -> t.getType() == Trade.Type.SELL).count();
-        Integer totalItems = (int) allTrades.stream().map(Trade::getNameId).distinct().count();
-        Integer currentHoldingItems = (int) inventoryRepository.findAll().stream()
-            .filter(inv -> inv.getCurrentQuantity() > 0).count();
-        
-        return InvestmentPoolDTO.builder()
-                // 旧版字段（兼容）
-                .totalInvestment(totalInvestment)
-                .totalWithdrawal(totalWithdrawal)
-                .currentCost(currentCost)
-                .staticCost(staticCost)
-                .currentHoldingValue(currentHoldingValue)
-                .absoluteProfit(absoluteProfit)
-                .returnRate(returnRate)
-                .totalValue(totalValue)
-                // 新增字段
-                .peakNetInvestment(peakNetInvestment)
-                .netCashFlow(netCashFlow)
-                .realizedProfit(realizedProfit)
-                .totalProfit(totalProfit)
-                .realReturnRate(realReturnRate)
-                // 时间统计
-                .firstInvestmentDate(firstInvestmentDate)
-                .lastTradeDate(lastTradeDate)
-                .totalInvestmentDays(totalInvestmentDays)
-                // 交易统计
-                .totalBuyTrades(totalBuyTrades)
-                .totalSellTrades(totalSellTrades)
-                .totalItems(totalItems)
-                .currentHoldingItems(currentHoldingItems)
-                .build();
+
+        /**
+         * 同一组合、同一版本的聚合补充 other 中查询的数据源
+         */
+        PoolAggregate with(PoolAggregate other) {
+            Set<PoolMetric.Source> union = EnumSet.noneOf(PoolMetric.Source.class);
+            union.addAll(sources);
+            union.addAll(other.sources);
+            return new PoolAggregate(
+                    union,
+                    pick(other, PoolMetric.Source.TRADE_SUMMARY) ? other.tradeSummaries : tradeSummaries,
+                    pick(other, PoolMetric.Source.DISTINCT_ITEMS) ? other.distinctItems : distinctItems,
+                    pick(other, PoolMetric.Source.PEAK_NET_INVESTMENT) ? other.peakNetInvestment : peakNetInvestment,
+                    pick(other, PoolMetric.Source.HOLDINGS) ? other.holdingCost : holdingCost,
+                    pick(other, PoolMetric.Source.HOLDINGS) ? other.holdingItems : holdingItems);
+        }
+
+        private boolean pick(PoolAggregate other, PoolMetric.Source source) {
+            return other.sources.contains(source) && !sources.contains(source);
+        }
+    }
+
+    private record CachedAggregate(long version, long computedAt, PoolAggregate aggregate) {
     }
-} 
\ No newline at end of file
+}
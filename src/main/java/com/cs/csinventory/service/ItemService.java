@@ -2,29 +2,32 @@ package com.cs.csinventory.service;
 
 import com.cs.csinventory.domain.Item;
 import com.cs.csinventory.repo.ItemRepository;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.cs.csinventory.service.cache.ItemCache;
+import com.cs.csinventory.service.catalog.CatalogImportService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ItemService {
+
+    /** 批量查询一次最多的 key 数 */
+    public static final int MAX_BATCH = 10_000;
     
     private final ItemRepository itemRepository;
-    private final ObjectMapper objectMapper;
-    private final ItemSaveService itemSaveService;
+    private final CatalogImportService catalogImportService;
+    private final ItemCache itemCache;
 
     public List<Item> getAllItems() {
         return itemRepository.findAll();
@@ -41,82 +44,87 @@ public class ItemService {
         return itemRepository.findByCnNameContainingIgnoreCaseOrderByCnName(keyword.trim(), limit);
     }
     
+    /**
+     * 按 nameId 列表批量获取物品（先查物品缓存），按请求顺序以 nameId 为键，不存在的不返回
+     */
+    public Map<Long, Item> getItemsByNameIds(Collection<Long> nameIds) {
+        Map<Long, Item> found = itemCache.findByNameIdIn(distinct(nameIds, "nameId"));
+        Map<Long, Item> result = new LinkedHashMap<>();
+        for (Long nameId : nameIds) {
+            Item item = found.get(nameId);
+            if (item != null) {
+                result.put(nameId, item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按 marketHashName 列表批量获取物品（先查物品缓存），按请求顺序以 marketHashName 为键，不存在的不返回
+     */
+    public Map<String, Item> getItemsByMarketHashNames(Collection<String> marketHashNames) {
+        Map<String, Item> found = itemCache.findByMarketHashNameIn(distinct(marketHashNames, "marketHashName"));
+        Map<String, Item> result = new LinkedHashMap<>();
+        for (String marketHashName : marketHashNames) {
+            Item item = found.get(marketHashName);
+            if (item != null) {
+                result.put(marketHashName, item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 去重并校验批量查询的 key：不能为空、不能有 null、不超过 MAX_BATCH 个
+     */
+    static <K> List<K> distinct(Collection<K> keys, String name) {
+        if (keys == null || keys.isEmpty()) {
+            throw new IllegalArgumentException(name + "列表不能为空");
+        }
+        if (keys.size() > MAX_BATCH) {
+            throw new IllegalArgumentException("一次最多查询 " + MAX_BATCH + " 个" + name);
+        }
+        if (keys.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException(name + "不能为空");
+        }
+        return List.copyOf(new LinkedHashSet<>(keys));
+    }
+
     @Transactional
     public Item createItem(Item item) {
         return itemRepository.save(item);
     }
 
-    // 主导入方法 - 不使用事务，让每个物品保存使用独立事务
+    /**
+     * 导入 JSON 目录（增量：只写入新增和变化的物品）
+     */
     public ImportResult importItemsFromJson(String jsonData) {
-        try {
-            // 解析JSON数据
-            JsonNode rootNode = objectMapper.readTree(jsonData);
-            
-            List<String> skippedItems = new ArrayList<>();
-            AtomicInteger totalProcessed = new AtomicInteger(0);
-            AtomicInteger successCount = new AtomicInteger(0);
-            
-            // 计算总数量
-            int totalItems = rootNode.size();
-            log.info("开始导入 {} 个物品", totalItems);
-            
-            // 遍历JSON中的每个物品
-            rootNode.fields().forEachRemaining(entry -> {
-                String marketHashName = entry.getKey();
-                JsonNode itemData = entry.getValue();
-                
-                totalProcessed.incrementAndGet();
-                
-                try {
-                    // 获取物品数据
-                    String enName = itemData.get("en_name").asText();
-                    String cnName = itemData.get("cn_name").asText();
-                    Long nameId = itemData.get("name_id").asLong();
-                    
-                    // 尝试保存物品（使用独立事务）
-                    boolean success = itemSaveService.saveItemInNewTransaction(marketHashName, enName, cnName, nameId);
-                    
-                    if (success) {
-                        successCount.incrementAndGet();
-                    } else {
-                        skippedItems.add(marketHashName + " (已存在或保存失败)");
-                    }
-                    
-                    // 每处理100个记录打印一次日志
-                    if (totalProcessed.get() % 100 == 0) {
-                        log.info("已处理 {}/{} 个物品, 成功导入 {} 个", 
-                               totalProcessed.get(), totalItems, successCount.get());
-                    }
-                    
-                } catch (Exception e) {
-                    log.error("处理物品 {} 时出错: {}", marketHashName, e.getMessage());
-                    skippedItems.add(marketHashName + " (处理出错: " + e.getMessage() + ")");
-                }
-            });
-            
-            log.info("导入完成: 总共 {} 个物品，成功导入 {} 个，跳过 {} 个", 
-                   totalItems, successCount.get(), skippedItems.size());
-            
-            return new ImportResult(successCount.get(), skippedItems.size(), skippedItems, totalItems);
-            
-        } catch (Exception e) {
-            log.error("导入JSON数据失败", e);
-            throw new RuntimeException("导入失败: " + e.getMessage());
-        }
+        return importItems(jsonData.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ImportResult importItems(byte[] json) {
+        return catalogImportService.importCatalog(json);
     }
 
-    // 导入结果DTO - 添加总数量字段
+    // 导入结果DTO
     public static class ImportResult {
-        public final int importedCount;
+        public final int importedCount;     // 新增
+        public final int updatedCount;      // 名称有变化、已更新
+        public final int unchangedCount;    // 与数据库一致、未写入
         public final int skippedCount;
-        public final List<String> skippedItems;
+        public final List<String> skippedItems;   // 跳过明细（最多 100 条）
         public final int totalItems;
-        
-        public ImportResult(int importedCount, int skippedCount, List<String> skippedItems, int totalItems) {
+        public final boolean fileUnchanged; // 文件与上次导入完全相同，未做比较
+
+        public ImportResult(int importedCount, int updatedCount, int unchangedCount, int skippedCount,
+                            List<String> skippedItems, int totalItems, boolean fileUnchanged) {
             this.importedCount = importedCount;
+            this.updatedCount = updatedCount;
+            this.unchangedCount = unchangedCount;
             this.skippedCount = skippedCount;
             this.skippedItems = skippedItems;
             this.totalItems = totalItems;
+            this.fileUnchanged = fileUnchanged;
         }
     }
-} 
\ No newline at end of file
+}
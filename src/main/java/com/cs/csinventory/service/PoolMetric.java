@@ -0,0 +1,125 @@
+package com.cs.csinventory.service;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 投资池指标及其依赖图 - 每个指标对应 {@link com.cs.csinventory.service.dto.InvestmentPoolDTO} 的一个字段
+ *
+ * 指标直接依赖若干数据源（一个数据源是一组统计查询）或其他指标，按依赖在前的顺序声明。
+ * 请求部分字段时只查询这些字段传递依赖的数据源，只计算这些字段传递依赖的指标。
+ */
+public enum PoolMetric {
+
+    // 资金流统计
+    TOTAL_INVESTMENT("totalInvestment", Set.of(Source.TRADE_SUMMARY)),
+    TOTAL_WITHDRAWAL("totalWithdrawal", Set.of(Source.TRADE_SUMMARY)),
+    CURRENT_COST("currentCost", Set.of(), TOTAL_INVESTMENT, TOTAL_WITHDRAWAL),
+    STATIC_COST("staticCost", Set.of(Source.HOLDINGS)),
+    // 空投资池的持仓估值为 0（即使有手动输入的市场价值），需要交易汇总判断是否为空
+    CURRENT_HOLDING_VALUE("currentHoldingValue", Set.of(Source.TRADE_SUMMARY), STATIC_COST),
+
+    // 真实投资统计
+    PEAK_NET_INVESTMENT("peakNetInvestment", Set.of(Source.PEAK_NET_INVESTMENT)),
+    NET_CASH_FLOW("netCashFlow", Set.of(), TOTAL_INVESTMENT, TOTAL_WITHDRAWAL),
+    REALIZED_PROFIT("realizedProfit", Set.of(), TOTAL_INVESTMENT, TOTAL_WITHDRAWAL, STATIC_COST),
+
+    // 收益统计
+    ABSOLUTE_PROFIT("absoluteProfit", Set.of(), CURRENT_HOLDING_VALUE, CURRENT_COST),
+    RETURN_RATE("returnRate", Set.of(), ABSOLUTE_PROFIT, CURRENT_COST),
+    TOTAL_VALUE("totalValue", Set.of(), TOTAL_WITHDRAWAL, CURRENT_HOLDING_VALUE),
+    TOTAL_PROFIT("totalProfit", Set.of(), REALIZED_PROFIT, CURRENT_HOLDING_VALUE, STATIC_COST),
+    REAL_RETURN_RATE("realReturnRate", Set.of(), TOTAL_PROFIT, PEAK_NET_INVESTMENT),
+
+    // 时间统计
+    FIRST_INVESTMENT_DATE("firstInvestmentDate", Set.of(Source.TRADE_SUMMARY)),
+    LAST_TRADE_DATE("lastTradeDate", Set.of(Source.TRADE_SUMMARY)),
+    TOTAL_INVESTMENT_DAYS("totalInvestmentDays", Set.of(), FIRST_INVESTMENT_DATE),
+
+    // 交易统计
+    TOTAL_BUY_TRADES("totalBuyTrades", Set.of(Source.TRADE_SUMMARY)),
+    TOTAL_SELL_TRADES("totalSellTrades", Set.of(Source.TRADE_SUMMARY)),
+    TOTAL_ITEMS("totalItems", Set.of(Source.DISTINCT_ITEMS)),
+    CURRENT_HOLDING_ITEMS("currentHoldingItems", Set.of(Source.HOLDINGS));
+
+    /**
+     * 指标的数据源，每个数据源对应一组统计查询
+     */
+    public enum Source {
+        /** 未归档和已归档交易的按类型汇总 */
+        TRADE_SUMMARY,
+        /** 交易过的物品种类数 */
+        DISTINCT_ITEMS,
+        /** 归档进度和资金流水 */
+        PEAK_NET_INVESTMENT,
+        /** 当前持仓成本和持有物品种类数 */
+        HOLDINGS
+    }
+
+    private static final Map<String, PoolMetric> BY_FIELD = Arrays.stream(values())
+            .collect(Collectors.toMap(PoolMetric::field, Function.identity()));
+
+    private final String field;
+    private final Set<Source> directSources;
+    private final List<PoolMetric> dependencies;
+
+    PoolMetric(String field, Set<Source> sources, PoolMetric... dependencies) {
+        this.field = field;
+        this.directSources = sources;
+        this.dependencies = List.of(dependencies);
+    }
+
+    /**
+     * JSON 字段名
+     */
+    public String field() {
+        return field;
+    }
+
+    /**
+     * 计算 metrics 传递依赖的数据源
+     */
+    public static Set<Source> sources(Collection<PoolMetric> metrics) {
+        Set<Source> sources = EnumSet.noneOf(Source.class);
+        Set<PoolMetric> visited = EnumSet.noneOf(PoolMetric.class);
+        Deque<PoolMetric> pending = new ArrayDeque<>(metrics);
+        while (!pending.isEmpty()) {
+            PoolMetric metric = pending.pop();
+            if (visited.add(metric)) {
+                sources.addAll(metric.directSources);
+                pending.addAll(metric.dependencies);
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * 解析逗号分隔的字段名，为空时返回全部指标
+     */
+    public static Set<PoolMetric> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return EnumSet.allOf(PoolMetric.class);
+        }
+        Set<PoolMetric> metrics = EnumSet.noneOf(PoolMetric.class);
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            PoolMetric metric = BY_FIELD.get(name);
+            if (metric == null) {
+                throw new IllegalArgumentException("未知的统计字段: " + name);
+            }
+            metrics.add(metric);
+        }
+        return metrics.isEmpty() ? EnumSet.allOf(PoolMetric.class) : metrics;
+    }
+}
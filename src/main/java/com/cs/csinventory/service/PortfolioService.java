@@ -0,0 +1,71 @@
+package com.cs.csinventory.service;
+
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.repo.PortfolioRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 投资组合管理
+ */
+@Service
+@Slf4j
+public class PortfolioService {
+
+    private final PortfolioRepository portfolioRepository;
+    private final TransactionTemplate primaryRead;
+
+    /** 已确认存在的组合ID（组合不会被删除，无需失效） */
+    private final Set<Long> knownPortfolioIds = ConcurrentHashMap.newKeySet();
+
+    public PortfolioService(PortfolioRepository portfolioRepository, PlatformTransactionManager transactionManager) {
+        this.portfolioRepository = portfolioRepository;
+        this.primaryRead = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Portfolio> getAllPortfolios() {
+        return portfolioRepository.findAll(Sort.by("id"));
+    }
+
+    @Transactional
+    public Portfolio createPortfolio(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("组合名称不能为空");
+        }
+        String trimmed = name.trim();
+        if (trimmed.length() > 64) {
+            throw new IllegalArgumentException("组合名称不能超过64个字符");
+        }
+        if (portfolioRepository.existsByName(trimmed)) {
+            throw new IllegalArgumentException("组合名称已存在: " + trimmed);
+        }
+        Portfolio portfolio = portfolioRepository.save(Portfolio.builder().name(trimmed).build());
+        log.info("创建投资组合，ID: {}, 名称: {}", portfolio.getId(), trimmed);
+        return portfolio;
+    }
+
+    /**
+     * 校验组合存在并返回其ID，未指定时使用默认组合
+     */
+    public long requirePortfolio(Long portfolioId) {
+        long id = portfolioId != null ? portfolioId : Portfolio.DEFAULT_ID;
+        if (knownPortfolioIds.contains(id)) {
+            return id;
+        }
+        // 读写事务走主库：刚创建的组合可能还没有复制到只读副本
+        if (!Boolean.TRUE.equals(primaryRead.execute(status -> portfolioRepository.existsById(id)))) {
+            throw new IllegalArgumentException("投资组合不存在，ID: " + id);
+        }
+        knownPortfolioIds.add(id);
+        return id;
+    }
+}
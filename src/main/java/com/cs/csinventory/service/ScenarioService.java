@@ -0,0 +1,336 @@
+package com.cs.csinventory.service;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.dto.InvestmentPoolDTO;
+import com.cs.csinventory.service.dto.ScenarioActionDTO;
+import com.cs.csinventory.service.dto.ScenarioBatchDTO;
+import com.cs.csinventory.service.dto.ScenarioDTO;
+import com.cs.csinventory.service.dto.ScenarioResultDTO;
+import com.cs.csinventory.service.dto.TradeTypeSummaryDTO;
+import com.cs.csinventory.service.money.Money;
+import com.cs.csinventory.service.sync.DataVersions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 假设场景模拟 - 在组合的内存快照上执行一批假设操作（买入、卖出、设定市场单价），返回每个场景的投资池统计
+ *
+ * 快照包含投资池聚合（交易汇总、峰值净投入）、各物品持仓（数量、成本）和交易过的物品，创建后不再修改，
+ * 按组合缓存，缓存以 {@link DataVersions} 版本为准（有效期同投资池统计），版本变化后才重新加载。
+ * 模拟不访问数据库：每个场景只复制被操作的物品持仓，持仓成本和估值按增量计算，耗时与操作数成正比。
+ * 买入、卖出对持仓的影响与 {@link InventoryService} 一致（加权平均成本，部分卖出按比例减少成本）。
+ */
+@Service
+public class ScenarioService {
+
+    /** 一次请求最多的场景数 */
+    public static final int MAX_SCENARIOS = 200;
+
+    private static final String HOLDINGS_SQL =
+            "SELECT name_id, current_quantity, weighted_average_cost, total_investment_cost FROM inventory "
+                    + "WHERE portfolio_id = ? AND current_quantity > 0";
+
+    private static final String TRADED_ITEMS_SQL = """
+            SELECT name_id FROM trades WHERE portfolio_id = ?
+            UNION
+            SELECT name_id FROM trade_archive_rollups WHERE portfolio_id = ?
+            """;
+
+    private final InvestmentPoolService investmentPoolService;
+    private final PortfolioService portfolioService;
+    private final DataVersions dataVersions;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    /** 各组合的快照 */
+    private final ConcurrentHashMap<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    @Value("${app.stats.cache-ttl:30s}")
+    private Duration cacheTtl;
+
+    public ScenarioService(InvestmentPoolService investmentPoolService, PortfolioService portfolioService,
+                           DataVersions dataVersions, JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager) {
+        this.investmentPoolService = investmentPoolService;
+        this.portfolioService = portfolioService;
+        this.dataVersions = dataVersions;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * 在组合当前快照上分别执行每个场景
+     */
+    public ScenarioBatchDTO evaluate(Long portfolioId, List<ScenarioDTO> scenarios) {
+        if (scenarios == null || scenarios.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个场景");
+        }
+        if (scenarios.size() > MAX_SCENARIOS) {
+            throw new IllegalArgumentException("一次最多模拟 " + MAX_SCENARIOS + " 个场景");
+        }
+        Snapshot snapshot = snapshot(portfolioService.requirePortfolio(portfolioId));
+        OffsetDateTime now = OffsetDateTime.now();
+        List<ScenarioResultDTO> results = new ArrayList<>(scenarios.size());
+        for (ScenarioDTO scenario : scenarios) {
+            try {
+                results.add(new ScenarioResultDTO(scenario.name(), simulate(snapshot, scenario, now), null));
+            } catch (IllegalArgumentException e) {
+                results.add(new ScenarioResultDTO(scenario.name(), null, e.getMessage()));
+            }
+        }
+        return new ScenarioBatchDTO(portfolioId, snapshot.version(), results);
+    }
+
+    /**
+     * 读取组合的快照，版本与组合当前版本一致且未过期时直接返回
+     */
+    private Snapshot snapshot(long portfolioId) {
+        // 先读版本再加载：加载期间提交的写入会使版本前进，快照只记在旧版本下
+        long version = dataVersions.current(portfolioId);
+        Snapshot cached = snapshots.get(portfolioId);
+        if (dataVersions.coherent() && cached != null && cached.version() == version
+                && System.nanoTime() - cached.loadedAt() < cacheTtl.toNanos()) {
+            return cached;
+        }
+        Snapshot snapshot = load(portfolioId, version);
+        snapshots.merge(portfolioId, snapshot,
+                (previous, current) -> current.version() >= previous.version() ? current : previous);
+        return snapshot;
+    }
+
+    private Snapshot load(long portfolioId, long version) {
+        InvestmentPoolService.PoolAggregate aggregate =
+                investmentPoolService.aggregate(portfolioId, InvestmentPoolService.ALL_SOURCES);
+        return readOnlyTransaction.execute(status -> {
+            Map<Long, Holding> holdings = new HashMap<>();
+            jdbcTemplate.query(HOLDINGS_SQL, rs -> {
+                holdings.put(rs.getLong("name_id"), new Holding(rs.getInt("current_quantity"),
+                        Money.of(rs.getBigDecimal("weighted_average_cost")),
+                        Money.of(rs.getBigDecimal("total_investment_cost"))));
+            }, portfolioId);
+            Set<Long> tradedItems = new HashSet<>(
+                    jdbcTemplate.queryForList(TRADED_ITEMS_SQL, Long.class, portfolioId, portfolioId));
+            long holdingCost = holdings.values().stream().mapToLong(Holding::cost).reduce(0L, Money::add);
+            return new Snapshot(version, System.nanoTime(), aggregate.tradeSummaries(), aggregate.peakNetInvestment(),
+                    Map.copyOf(holdings), holdingCost, Set.copyOf(tradedItems));
+        });
+    }
+
+    /**
+     * 在快照上依次执行场景的操作，返回操作后的投资池统计；操作无效时抛出 IllegalArgumentException
+     */
+    private InvestmentPoolDTO simulate(Snapshot snapshot, ScenarioDTO scenario, OffsetDateTime now) {
+        Simulation simulation = new Simulation(snapshot, now);
+        List<ScenarioActionDTO> actions = scenario.actions() != null ? scenario.actions() : List.of();
+        for (int i = 0; i < actions.size(); i++) {
+            ScenarioActionDTO action = actions.get(i);
+            try {
+                simulation.apply(action);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("第 " + (i + 1) + " 个操作: " + e.getMessage(), e);
+            }
+        }
+        BigDecimal marketValue = scenario.marketValue() != null ? scenario.marketValue() : simulation.marketValue();
+        return investmentPoolService.buildPool(simulation.aggregate(), marketValue, InvestmentPoolService.ALL_METRICS);
+    }
+
+    /**
+     * 一个场景的模拟状态：快照上的增量，只复制被操作的物品持仓
+     */
+    private static final class Simulation {
+
+        private final Snapshot snapshot;
+        private final OffsetDateTime now;
+        private final Map<Long, Holding> changedHoldings = new HashMap<>();
+        private final Map<Long, Long> prices = new HashMap<>();
+        private final Set<Long> newItems = new HashSet<>();
+        private final Summary buy;
+        private final Summary sell;
+        private long holdingCost;
+        private long holdingItems;
+        private long netFlow;
+        private long peakNetInvestment;
+
+        Simulation(Snapshot snapshot, OffsetDateTime now) {
+            this.snapshot = snapshot;
+            this.now = now;
+            this.buy = new Summary(Trade.Type.BUY, snapshot.tradeSummaries());
+            this.sell = new Summary(Trade.Type.SELL, snapshot.tradeSummaries());
+            this.holdingCost = snapshot.holdingCost();
+            this.holdingItems = snapshot.holdings().size();
+            this.netFlow = Money.subtract(buy.amount, sell.amount);
+            this.peakNetInvestment = snapshot.peakNetInvestment();
+        }
+
+        void apply(ScenarioActionDTO action) {
+            if (action == null || action.type() == null || action.nameId() == null) {
+                throw new IllegalArgumentException("操作类型和 nameId 不能为空");
+            }
+            if (action.unitPrice() == null || action.unitPrice().signum() < 0) {
+                throw new IllegalArgumentException("单价不能为空或负数");
+            }
+            long unitPrice = Money.of(action.unitPrice());
+            if (action.type() == ScenarioActionDTO.Type.SET_PRICE) {
+                prices.put(action.nameId(), unitPrice);
+                return;
+            }
+            if (action.quantity() == null || action.quantity() <= 0) {
+                throw new IllegalArgumentException("数量必须大于0");
+            }
+            long amount = Money.times(unitPrice, action.quantity());
+            Holding holding = holding(action.nameId());
+            if (action.type() == ScenarioActionDTO.Type.BUY) {
+                buy.add(amount, now);
+                netFlow = Money.add(netFlow, amount);
+                peakNetInvestment = Math.max(peakNetInvestment, netFlow);
+                if (!snapshot.tradedItems().contains(action.nameId())) {
+                    newItems.add(action.nameId());
+                }
+                Holding bought;
+                if (holding != null) {
+                    int quantity = holding.quantity() + action.quantity();
+                    long totalCost = Money.add(holding.totalCost(), amount);
+                    bought = new Holding(quantity, Money.divide(totalCost, quantity), totalCost);
+                } else {
+                    bought = new Holding(action.quantity(), unitPrice, amount);
+                }
+                update(action.nameId(), holding, bought);
+            } else {
+                int held = holding != null ? holding.quantity() : 0;
+                if (held < action.quantity()) {
+                    throw new IllegalArgumentException(
+                            String.format("库存不足，nameId: %d，当前持有: %d，尝试卖出: %d", action.nameId(), held,
+                                    action.quantity()));
+                }
+                sell.add(amount, now);
+                netFlow = Money.subtract(netFlow, amount);
+                int remaining = held - action.quantity();
+                // 部分卖出按比例减少总成本，加权平均成本不变，与库存更新一致
+                Holding sold = remaining == 0 ? null : new Holding(remaining, holding.averageCost(),
+                        Money.applyRatio(holding.totalCost(),
+                                Money.subtract(Money.ONE, Money.ratio(action.quantity(), held))));
+                update(action.nameId(), holding, sold);
+            }
+        }
+
+        private Holding holding(long nameId) {
+            return changedHoldings.containsKey(nameId) ? changedHoldings.get(nameId) : snapshot.holdings().get(nameId);
+        }
+
+        private void update(long nameId, Holding before, Holding after) {
+            changedHoldings.put(nameId, after);
+            holdingCost = Money.add(Money.subtract(holdingCost, before != null ? before.cost() : 0),
+                    after != null ? after.cost() : 0);
+            holdingItems += (after != null ? 1 : 0) - (before != null ? 1 : 0);
+        }
+
+        /**
+         * 设定过市场单价时的持仓估值：有单价的物品按单价估值，其余按成本；没有设定单价时为空（按成本估值）
+         */
+        BigDecimal marketValue() {
+            if (prices.isEmpty()) {
+                return null;
+            }
+            long value = holdingCost;
+            for (Map.Entry<Long, Long> price : prices.entrySet()) {
+                Holding holding = holding(price.getKey());
+                if (holding != null) {
+                    value = Money.add(value,
+                            Money.subtract(Money.times(price.getValue(), holding.quantity()), holding.cost()));
+                }
+            }
+            return Money.toBigDecimal(value);
+        }
+
+        InvestmentPoolService.PoolAggregate aggregate() {
+            List<TradeTypeSummaryDTO> summaries = new ArrayList<>(2);
+            buy.toDto().ifPresent(summaries::add);
+            sell.toDto().ifPresent(summaries::add);
+            return new InvestmentPoolService.PoolAggregate(InvestmentPoolService.ALL_SOURCES, summaries,
+                    snapshot.tradedItems().size() + newItems.size(), peakNetInvestment, holdingCost, holdingItems);
+        }
+    }
+
+    /**
+     * 一种交易类型的汇总，假设的交易发生在当前时间
+     */
+    private static final class Summary {
+
+        private final Trade.Type type;
+        private long amount;
+        private long count;
+        private OffsetDateTime firstTradeAt;
+        private OffsetDateTime lastTradeAt;
+
+        Summary(Trade.Type type, List<TradeTypeSummaryDTO> summaries) {
+            this.type = type;
+            for (TradeTypeSummaryDTO summary : summaries) {
+                if (summary.type() == type) {
+                    amount = Money.of(summary.totalAmount());
+                    count = summary.tradeCount();
+                    firstTradeAt = summary.firstTradeAt();
+                    lastTradeAt = summary.lastTradeAt();
+                }
+            }
+        }
+
+        void add(long tradeAmount, OffsetDateTime at) {
+            amount = Money.add(amount, tradeAmount);
+            count++;
+            if (firstTradeAt == null) {
+                firstTradeAt = at;
+            }
+            if (lastTradeAt == null || at.isAfter(lastTradeAt)) {
+                lastTradeAt = at;
+            }
+        }
+
+        Optional<TradeTypeSummaryDTO> toDto() {
+            return count == 0 ? Optional.empty() : Optional.of(
+                    new TradeTypeSummaryDTO(type, Money.toBigDecimal(amount), count, firstTradeAt, lastTradeAt));
+        }
+    }
+
+    /**
+     * 一个物品的持仓：数量、加权平均成本和总投入成本（{@link Money} 定点值）
+     */
+    private record Holding(int quantity, long averageCost, long totalCost) {
+
+        /**
+         * 持仓成本，与投资池统计的口径一致（加权平均成本 × 数量）
+         */
+        long cost() {
+            return Money.times(averageCost, quantity);
+        }
+    }
+
+    /**
+     * 组合在某个数据版本下的不可变快照
+     */
+    private record Snapshot(
+            long version,
+            long loadedAt,
+            List<TradeTypeSummaryDTO> tradeSummaries,
+            long peakNetInvestment,
+            Map<Long, Holding> holdings,
+            long holdingCost,
+            Set<Long> tradedItems
+    ) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.cs.csinventory.service;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 统计任务并行执行作用域 - 每个任务运行在独立的虚拟线程上，并使用自己的只读事务
+ *
+ * 用法与结构化并发一致：在 try-with-resources 中 fork 任务、join 结果，
+ * 作用域关闭时所有未完成的任务都会被取消并等待结束，任务不会泄漏到请求之外。
+ * （JDK 21 的 StructuredTaskScope 仍是预览特性，这里用虚拟线程执行器实现相同语义）
+ *
+ * 一致性：一个任务内的多条查询在同一个可重复读事务中，读到同一时刻的数据；不同任务是不同的事务，
+ * 彼此之间没有共同的快照。需要互相一致的查询（例如未归档交易和归档汇总）应放在同一个任务里。
+ *
+ * 截止时间：每个任务的事务超时设为该任务的超时时间（向上取整到秒），查询超时由数据库取消；
+ * 并行时 join 最多等到截止时间，超时取消任务。依次执行时任务在 fork 中同步完成，完成时已过截止时间的同样按超时失败。
+ */
+final class StatisticsFanOut implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final PlatformTransactionManager transactionManager;
+    private final Duration defaultTimeout;
+
+    /**
+     * @param parallel 为 false 时在调用线程上依次执行任务（用于对比或连接池很小的部署）
+     */
+    StatisticsFanOut(PlatformTransactionManager transactionManager, boolean parallel, Duration defaultTimeout) {
+        this.executor = parallel ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        this.transactionManager = transactionManager;
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    <T> Metric<T> fork(String name, Supplier<T> task) {
+        return fork(name, task, defaultTimeout);
+    }
+
+    <T> Metric<T> fork(String name, Supplier<T> task, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        TransactionTemplate transaction = readOnlyTransaction(timeout);
+        if (executor == null) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            try {
+                T value = transaction.execute(status -> task.get());
+                if (System.nanoTime() - deadline > 0) {
+                    result.completeExceptionally(timedOut(name));
+                } else {
+                    result.complete(value);
+                }
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+            return new Metric<>(name, result, deadline);
+        }
+        Future<T> future = executor.submit(() -> transaction.execute(status -> task.get()));
+        return new Metric<>(name, future, deadline);
+    }
+
+    private TransactionTemplate readOnlyTransaction(Duration timeout) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        transaction.setTimeout((int) Math.max(1, (timeout.toMillis() + 999) / 1000));
+        return transaction;
+    }
+
+    private static IllegalStateException timedOut(String name) {
+        return new IllegalStateException("统计任务超时: " + name);
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            // 取消尚未完成的任务（例如其他任务已失败或超时），并等待所有虚拟线程结束
+            executor.shutdownNow();
+            executor.close();
+        }
+    }
+
+    /**
+     * 已提交的统计任务，join 时最多等待到该任务自己的截止时间
+     */
+    record Metric<T>(String name, Future<T> future, long deadlineNanos) {
+
+        T join() {
+            long remaining = Math.max(0, deadlineNanos - System.nanoTime());
+            try {
+                return future.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                throw timedOut(name);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("统计任务失败: " + name + ", " + cause.getMessage(), cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("统计任务被中断: " + name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.cs.csinventory.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * 交易表分区维护 - 保证 trades 表始终预留未来若干个月的月度分区
+ *
+ * 分区由迁移脚本 V3 创建（MySQL 按 created_at RANGE COLUMNS 分区，已预建到 2026-12），
+ * 最后一个分区 p_future 兜底保存更晚的数据。启动时不修改表结构（只由 Flyway 校验），
+ * 本服务每天定时检查一次，把 p_future 拆分出缺少的月份分区；表未分区时（例如 H2 测试库）不做任何事。
+ *
+ * 多个节点可能同时执行：拆分失败时重新读取分区信息，分区已被其他节点建好则视为成功。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TradePartitionService {
+
+    static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.trades.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    /**
+     * 补齐从本月起往后 monthsAhead 个月的分区，返回新建的分区数
+     */
+    @Scheduled(cron = "${app.trades.partitions.cron:0 30 3 * * *}")
+    public int ensureFuturePartitions() {
+        Set<String> existing;
+        try {
+            existing = readPartitions();
+        } catch (RuntimeException e) {
+            log.debug("无法读取交易表分区信息，跳过分区维护: {}", e.getMessage());
+            return 0;
+        }
+        if (!existing.contains(FUTURE_PARTITION)) {
+            return 0;
+        }
+
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        int created = 0;
+        for (YearMonth month : monthsToCover(current, monthsAhead)) {
+            String name = month.format(PARTITION_NAME);
+            if (existing.contains(name)) {
+                continue;
+            }
+            try {
+                // 只拆分 p_future，已有月份的数据不会移动；p_future 为空时该操作只修改元数据
+                jdbcTemplate.execute("ALTER TABLE trades REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO ("
+                        + "PARTITION " + name + " VALUES LESS THAN ('" + month.plusMonths(1).atDay(1) + "'), "
+                        + "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+            } catch (DataAccessException e) {
+                // 其他节点同时拆分（分区名重复）时分区已经存在；否则是真正的失败
+                existing = readPartitions();
+                if (!existing.contains(name)) {
+                    throw e;
+                }
+                log.info("交易表分区 {} 已由其他节点创建", name);
+                continue;
+            }
+            existing.add(name);
+            created++;
+            log.info("新建交易表分区: {}", name);
+        }
+        return created;
+    }
+
+    private Set<String> readPartitions() {
+        return new HashSet<>(jdbcTemplate.queryForList("""
+                SELECT partition_name FROM information_schema.partitions
+                WHERE table_schema = DATABASE() AND table_name = 'trades' AND partition_name IS NOT NULL
+                """, String.class));
+    }
+
+    /**
+     * 需要存在的月份，按时间升序（REORGANIZE 只能从 p_future 依次向后拆分）
+     */
+    static List<YearMonth> monthsToCover(YearMonth current, int monthsAhead) {
+        return IntStream.rangeClosed(0, Math.max(0, monthsAhead))
+                .mapToObj(current::plusMonths)
+                .toList();
+    }
+}
@@ -1,19 +1,33 @@
 package com.cs.csinventory.service;
 
+import com.cs.csinventory.domain.Item;
 import com.cs.csinventory.domain.Trade;
-import com.cs.csinventory.repo.ItemRepository;
 import com.cs.csinventory.repo.TradeRepository;
+import com.cs.csinventory.service.cache.ItemCache;
 import com.cs.csinventory.service.dto.DailyFlowDTO;
+import com.cs.csinventory.service.live.TradeChangedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import com.cs.csinventory.service.archive.ArchivedTrade;
+import com.cs.csinventory.service.archive.TradeArchiveRollups;
+import com.cs.csinventory.service.archive.TradeSegmentStore;
 import com.cs.csinventory.service.dto.TradeWithItemDTO;
+import com.cs.csinventory.service.money.Money;
 
 @Service
 @RequiredArgsConstructor
@@ -21,14 +35,19 @@ import com.cs.csinventory.service.dto.TradeWithItemDTO;
 public class TradeService {
     
     private final TradeRepository tradeRepository;
-    private final ItemRepository itemRepository;
+    private final ItemCache itemCache;
     private final InventoryService inventoryService;
+    private final PortfolioService portfolioService;
+    private final TradeSegmentStore tradeSegmentStore;
+    private final TradeArchiveRollups tradeArchiveRollups;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
-     * 创建交易记录并同步更新库存
+     * 创建交易记录并同步更新库存，未指定组合时记入默认组合
      */
     @Transactional
     public Trade createTrade(Trade trade) {
+        trade.setPortfolioId(portfolioService.requirePortfolio(trade.getPortfolioId()));
         // 验证必要字段
         if (trade.getNameId() == null) {
             throw new IllegalArgumentException("nameId不能为空");
@@ -36,23 +55,34 @@ public class TradeService {
         if (trade.getType() == null) {
             throw new IllegalArgumentException("交易类型不能为空");
         }
-        if (trade.getUnitPrice() == null || trade.getUnitPrice().compareTo(BigDecimal.ZERO) <= 0) {
+        if (trade.getUnitPrice() == null) {
             throw new IllegalArgumentException("单价必须大于0");
         }
+        long unitPrice;
+        try {
+            unitPrice = Money.of(trade.getUnitPrice());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("单价超出范围");
+        }
+        if (unitPrice <= 0) {
+            throw new IllegalArgumentException("单价必须大于0");
+        }
+        // 单价统一为4位小数（与数据库列一致），总金额和库存成本的定点计算不再产生额外舍入
+        trade.setUnitPrice(Money.normalize(trade.getUnitPrice()));
         if (trade.getQuantity() == null || trade.getQuantity() <= 0) {
             throw new IllegalArgumentException("数量必须大于0");
         }
 
         // 验证物品是否存在
-        boolean itemExists = itemRepository.findByNameId(trade.getNameId()).isPresent();
+        boolean itemExists = itemCache.findByNameId(trade.getNameId()).isPresent();
         if (!itemExists) {
             throw new IllegalArgumentException("物品不存在，nameId: " + trade.getNameId());
         }
 
         // 如果是卖出，检查库存是否足够
         if (trade.getType() == Trade.Type.SELL) {
-            if (!inventoryService.hasEnoughInventory(trade.getNameId(), trade.getQuantity())) {
-                Integer currentQuantity = inventoryService.getCurrentQuantity(trade.getNameId());
+            if (!inventoryService.hasEnoughInventory(trade.getPortfolioId(), trade.getNameId(), trade.getQuantity())) {
+                Integer currentQuantity = inventoryService.getCurrentQuantity(trade.getPortfolioId(), trade.getNameId());
                 throw new IllegalStateException(
                     String.format("库存不足，当前持有: %d，尝试卖出: %d", currentQuantity, trade.getQuantity())
                 );
@@ -61,8 +91,8 @@ public class TradeService {
 
         // 保存交易记录
         Trade savedTrade = tradeRepository.save(trade);
-        log.info("创建交易记录，ID: {}, nameId: {}, 类型: {}, 数量: {}, 单价: {}", 
-                savedTrade.getId(), trade.getNameId(), trade.getType(), 
+        log.info("创建交易记录，ID: {}, 组合: {}, nameId: {}, 类型: {}, 数量: {}, 单价: {}", 
+                savedTrade.getId(), trade.getPortfolioId(), trade.getNameId(), trade.getType(), 
                 trade.getQuantity(), trade.getUnitPrice());
 
         // 同步更新库存
@@ -77,70 +107,75 @@ public class TradeService {
             throw new RuntimeException("库存更新失败: " + e.getMessage(), e);
         }
 
+        // 事务提交后推送增量
+        eventPublisher.publishEvent(TradeChangedEvent.created(savedTrade));
         return savedTrade;
     }
 
     /**
-     * 获取所有交易记录
+     * 获取组合内所有交易记录
      */
     @Transactional(readOnly = true)
-    public List<Trade> getAllTrades() {
-        return tradeRepository.findAll();
+    public List<Trade> getAllTrades(Long portfolioId) {
+        return tradeRepository.findByPortfolioId(portfolioId);
     }
     
     /**
-     * 获取所有交易记录并包含物品信息
+     * 获取组合内所有交易记录并包含物品信息
      */
     @Transactional(readOnly = true)
-    public List<TradeWithItemDTO> getAllTradesWithItem() {
-        return tradeRepository.findAllTradesWithItem();
+    public List<TradeWithItemDTO> getAllTradesWithItem(Long portfolioId) {
+        return mergeArchived(tradeRepository.findAllTradesWithItem(portfolioId), tradeSegmentStore.findAll(portfolioId));
     }
 
     /**
-     * 获取指定物品的交易历史
+     * 获取组合内指定物品的交易历史
      */
     @Transactional(readOnly = true)
-    public List<Trade> getTradeHistory(Long nameId) {
-        return tradeRepository.findByNameId(nameId);
+    public List<Trade> getTradeHistory(Long portfolioId, Long nameId) {
+        return tradeRepository.findByPortfolioIdAndNameId(portfolioId, nameId);
     }
     
     /**
-     * 获取指定物品的交易历史并包含物品信息
+     * 获取组合内指定物品的交易历史并包含物品信息
      */
     @Transactional(readOnly = true)
-    public List<TradeWithItemDTO> getTradeHistoryWithItem(Long nameId) {
-        return tradeRepository.findTradeHistoryWithItem(nameId);
+    public List<TradeWithItemDTO> getTradeHistoryWithItem(Long portfolioId, Long nameId) {
+        return mergeArchived(tradeRepository.findTradeHistoryWithItem(portfolioId, nameId),
+                tradeSegmentStore.findByNameId(portfolioId, nameId));
     }
 
     /**
-     * 获取指定时间范围的交易记录
+     * 获取组合内指定时间范围的交易记录
      */
     @Transactional(readOnly = true)
-    public List<Trade> getTradesByDateRange(OffsetDateTime start, OffsetDateTime end) {
-        return tradeRepository.findByCreatedAtBetween(start, end);
+    public List<Trade> getTradesByDateRange(Long portfolioId, OffsetDateTime start, OffsetDateTime end) {
+        return tradeRepository.findByPortfolioIdAndCreatedAtBetween(portfolioId, start, end);
     }
     
     /**
-     * 获取指定时间范围的交易记录并包含物品信息
+     * 获取组合内指定时间范围的交易记录并包含物品信息
      */
     @Transactional(readOnly = true)
-    public List<TradeWithItemDTO> getTradesByDateRangeWithItem(OffsetDateTime start, OffsetDateTime end) {
-        return tradeRepository.findTradesByDateRangeWithItem(start, end);
+    public List<TradeWithItemDTO> getTradesByDateRangeWithItem(Long portfolioId, OffsetDateTime start, OffsetDateTime end) {
+        return mergeArchived(tradeRepository.findTradesByDateRangeWithItem(portfolioId, start, end),
+                tradeSegmentStore.findBetween(portfolioId, start, end));
     }
 
     /**
-     * 获取每日交易统计
+     * 获取组合的每日交易统计
      */
     @Transactional(readOnly = true)
-    public List<DailyFlowDTO> dailySummary(OffsetDateTime start, OffsetDateTime end) {
-        List<Object[]> rawData = tradeRepository.findDailyTradeSummary(start, end);
+    public List<DailyFlowDTO> dailySummary(Long portfolioId, OffsetDateTime start, OffsetDateTime end) {
+        List<Object[]> rawData = tradeRepository.findDailyTradeSummary(portfolioId, start, end);
         
-        return rawData.stream().map(row -> {
-            LocalDate tradeDate = (LocalDate) row[0];
-            Trade.Type tradeType = (Trade.Type) row[1];
-            Long totalQuantity = (Long) row[2];
+        List<DailyFlowDTO> live = rawData.stream().map(row -> {
+            // 原生查询的列类型由驱动决定（DATE 可能是 java.sql.Date，SUM 可能是 BigDecimal），统一转换
+            LocalDate tradeDate = row[0] instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) row[0];
+            Trade.Type tradeType = Trade.Type.valueOf(row[1].toString());
+            Number totalQuantity = (Number) row[2];
             BigDecimal totalAmount = (BigDecimal) row[3];
-            Long tradeCount = (Long) row[4];
+            Number tradeCount = (Number) row[4];
             
             return DailyFlowDTO.builder()
                     .day(tradeDate)
@@ -150,15 +185,65 @@ public class TradeService {
                     .tradeCount(tradeCount.intValue())
                     .build();
         }).toList();
+
+        // 已归档的交易只保留每日汇总（UTC 日期粒度），与未归档的同日同类型数据相加
+        List<DailyFlowDTO> archived = tradeArchiveRollups.dailySummary(portfolioId,
+                start.withOffsetSameInstant(ZoneOffset.UTC).toLocalDate(),
+                end.withOffsetSameInstant(ZoneOffset.UTC).toLocalDate());
+        if (archived.isEmpty()) {
+            return live;
+        }
+        Map<String, DailyFlowDTO> merged = new LinkedHashMap<>();
+        for (DailyFlowDTO day : live) {
+            merged.put(day.day() + "|" + day.tradeType(), day);
+        }
+        for (DailyFlowDTO day : archived) {
+            merged.merge(day.day() + "|" + day.tradeType(), day, (a, b) -> DailyFlowDTO.builder()
+                    .day(a.day())
+                    .tradeType(a.tradeType())
+                    .totalQuantity(a.totalQuantity() + b.totalQuantity())
+                    .totalAmount(a.totalAmount().add(b.totalAmount()))
+                    .tradeCount(a.tradeCount() + b.tradeCount())
+                    .build());
+        }
+        return merged.values().stream()
+                .sorted(Comparator.comparing(DailyFlowDTO::day).reversed().thenComparing(DailyFlowDTO::tradeType))
+                .toList();
     }
 
     /**
-     * 删除交易记录并回滚库存变更
+     * 合并数据库中的交易和段文件中的已归档交易，按时间倒序，同一ID只保留数据库中的记录
+     */
+    private List<TradeWithItemDTO> mergeArchived(List<TradeWithItemDTO> live, List<ArchivedTrade> archived) {
+        if (archived.isEmpty()) {
+            return live;
+        }
+        Set<Long> nameIds = archived.stream().map(ArchivedTrade::nameId).collect(Collectors.toSet());
+        Map<Long, Item> items = itemCache.findByNameIdIn(nameIds);
+
+        Map<Long, TradeWithItemDTO> merged = new HashMap<>();
+        for (ArchivedTrade trade : archived) {
+            Item item = items.get(trade.nameId());
+            merged.put(trade.id(), trade.toTradeWithItem(
+                    item != null ? item.getCnName() : null, item != null ? item.getEnName() : null));
+        }
+        for (TradeWithItemDTO trade : live) {
+            merged.put(trade.getId(), trade);
+        }
+        return merged.values().stream()
+                .sorted(Comparator.comparing(TradeWithItemDTO::getCreatedAt).reversed())
+                .toList();
+    }
+
+
+    /**
+     * 删除组合内的交易记录并回滚库存变更
      */
     @Transactional
-    public void deleteTrade(Long tradeId) {
-        // 查找交易记录
+    public void deleteTrade(Long portfolioId, Long tradeId) {
+        // 查找交易记录（其他组合的交易视为不存在）
         Trade trade = tradeRepository.findById(tradeId)
+                .filter(found -> found.getPortfolioId().equals(portfolioId))
                 .orElseThrow(() -> new IllegalArgumentException("交易记录不存在，ID: " + tradeId));
 
         log.info("准备删除交易记录，ID: {}, nameId: {}, 类型: {}, 数量: {}, 单价: {}", 
@@ -179,6 +264,7 @@ public class TradeService {
 
         // 删除交易记录
         tradeRepository.delete(trade);
+        eventPublisher.publishEvent(TradeChangedEvent.deleted(trade));
         log.info("成功删除交易记录，ID: {}", tradeId);
     }
 }
@@ -0,0 +1,137 @@
+package com.cs.csinventory.service.alerts;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * 一个物品的提醒索引 - 上涨提醒和下跌提醒分别按触发价格排序，并记住最近一次价格
+ *
+ * 新价格到达时，上涨提醒中阈值 ≤ 价格的一段和下跌提醒中阈值 ≥ 价格的一段就是全部被越过的提醒，
+ * 取出并从索引中移除，复杂度 O(log n + k)，k 为触发的提醒数，未触发的提醒不会被访问。
+ * 提醒只触发一次，所以 k 的总和不超过提醒总数。所有方法在本对象上同步，不同物品互不影响。
+ */
+final class AlertBook {
+
+    /**
+     * 一个未触发的提醒；threshold 和 indexed 只在所属 AlertBook 的锁内读写
+     */
+    static final class Alert {
+        final long id;
+        final long portfolioId;
+        final long nameId;
+        final PriceAlertType type;
+        /** 提醒价格或跌幅百分比（定点单位） */
+        final long target;
+        final OffsetDateTime createdAt;
+        /** 当前触发价格（定点单位），DRAWDOWN 未持有时为 null */
+        Long threshold;
+        boolean indexed;
+        /** 已触发或已删除，不再放入索引 */
+        boolean closed;
+
+        Alert(long id, long portfolioId, long nameId, PriceAlertType type, long target, OffsetDateTime createdAt) {
+            this.id = id;
+            this.portfolioId = portfolioId;
+            this.nameId = nameId;
+            this.type = type;
+            this.target = target;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /** 价格 ≥ 阈值时触发 */
+    private final TreeMap<Long, List<Alert>> rising = new TreeMap<>();
+    /** 价格 ≤ 阈值时触发 */
+    private final TreeMap<Long, List<Alert>> falling = new TreeMap<>();
+    private Long lastPrice;
+    private int size;
+
+    /**
+     * 新价格：返回被越过的提醒（已标记为触发并移出索引），离新价格远的在前
+     */
+    synchronized List<Alert> update(long price) {
+        lastPrice = price;
+        if (size == 0) {
+            return List.of();
+        }
+        List<Alert> fired = new ArrayList<>();
+        drain(rising.headMap(price, true), fired);
+        drain(falling.tailMap(price, true).descendingMap(), fired);
+        return fired;
+    }
+
+    /**
+     * 以新的触发价格放入索引（已在索引中时先移除）；threshold 为 null 时只移出索引。
+     * 按最近一次价格已越过时不放入索引，标记为触发并返回 true
+     */
+    synchronized boolean arm(Alert alert, Long threshold) {
+        if (alert.closed) {
+            return false;
+        }
+        unindex(alert);
+        alert.threshold = threshold;
+        if (threshold == null) {
+            return false;
+        }
+        if (lastPrice != null && (alert.type.rising ? lastPrice >= threshold : lastPrice <= threshold)) {
+            alert.closed = true;
+            return true;
+        }
+        (alert.type.rising ? rising : falling).computeIfAbsent(threshold, key -> new ArrayList<>(1)).add(alert);
+        alert.indexed = true;
+        size++;
+        return false;
+    }
+
+    /**
+     * 移出索引（提醒被删除）
+     */
+    synchronized void disarm(Alert alert) {
+        unindex(alert);
+        alert.closed = true;
+    }
+
+    synchronized Long lastPrice() {
+        return lastPrice;
+    }
+
+    synchronized Long threshold(Alert alert) {
+        return alert.threshold;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void unindex(Alert alert) {
+        if (!alert.indexed) {
+            return;
+        }
+        TreeMap<Long, List<Alert>> side = alert.type.rising ? rising : falling;
+        List<Alert> alerts = side.get(alert.threshold);
+        alerts.remove(alert);
+        if (alerts.isEmpty()) {
+            side.remove(alert.threshold);
+        }
+        alert.indexed = false;
+        size--;
+    }
+
+    private void drain(NavigableMap<Long, List<Alert>> crossed, List<Alert> fired) {
+        if (crossed.isEmpty()) {
+            return;
+        }
+        for (List<Alert> alerts : crossed.values()) {
+            for (Alert alert : alerts) {
+                alert.indexed = false;
+                alert.closed = true;
+                fired.add(alert);
+            }
+            size -= alerts.size();
+        }
+        crossed.clear();
+    }
+}
@@ -0,0 +1,548 @@
+package com.cs.csinventory.service.alerts;
+
+import com.cs.csinventory.service.IdReservationService;
+import com.cs.csinventory.service.PortfolioService;
+import com.cs.csinventory.service.alerts.AlertBook.Alert;
+import com.cs.csinventory.service.cache.ItemCache;
+import com.cs.csinventory.service.dto.PriceAlertDTO;
+import com.cs.csinventory.service.dto.PriceAlertEventDTO;
+import com.cs.csinventory.service.leaderboard.InventoryChangedEvent;
+import com.cs.csinventory.service.live.LiveUpdate;
+import com.cs.csinventory.service.live.LiveUpdateHub;
+import com.cs.csinventory.service.money.Money;
+import com.cs.csinventory.service.sync.ChangeLog;
+import com.cs.csinventory.service.sync.DataChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 价格提醒 - 物品价格（由接口或本地文件推送）越过提醒价格时触发，触发事件记入内存日志并通过 SSE 推送
+ *
+ * 未触发的提醒按 nameId 放在 {@link AlertBook} 中，按触发价格排序：一次价格更新只访问被越过的提醒，
+ * 复杂度 O(log n + k)，与提醒总数无关。DRAWDOWN（相对加权平均成本的跌幅）的触发价格由库存计算，
+ * 库存变更提交后重新计算并调整在索引中的位置。提醒只触发一次，触发后记录触发时间和价格。
+ *
+ * 提醒存在 price_alerts 表，启动时载入索引；索引和最近价格在每个节点内存中，价格需推送到创建提醒的节点。
+ */
+@Service
+@Slf4j
+public class PriceAlertService {
+
+    /** 单次价格更新最多的条数 */
+    static final int MAX_UPDATES = 10_000;
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PortfolioService portfolioService;
+    private final ItemCache itemCache;
+    private final IdReservationService idReservation;
+    private final LiveUpdateHub liveUpdateHub;
+    private final Path directory;
+
+    /** nameId -> 该物品的提醒索引和最近价格 */
+    private final ConcurrentHashMap<Long, AlertBook> books = new ConcurrentHashMap<>();
+    /** 未触发的提醒 */
+    private final ConcurrentHashMap<Long, Alert> active = new ConcurrentHashMap<>();
+    /** 未触发的 DRAWDOWN 提醒，按组合和物品，库存变更时重新计算触发价格 */
+    private final ConcurrentHashMap<ItemKey, Set<Alert>> drawdowns = new ConcurrentHashMap<>();
+
+    private final PriceAlertEventDTO[] events;
+    private int nextEvent;
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder priceUpdates = new LongAdder();
+
+    public PriceAlertService(JdbcTemplate jdbcTemplate, PortfolioService portfolioService, ItemCache itemCache,
+                             IdReservationService idReservation, LiveUpdateHub liveUpdateHub,
+                             @Value("${app.alerts.event-log-size:1000}") int eventLogSize,
+                             @Value("${app.alerts.price-directory:data/prices}") Path directory) {
+        if (eventLogSize <= 0) {
+            throw new IllegalArgumentException("提醒事件日志条数必须大于0");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.portfolioService = portfolioService;
+        this.itemCache = itemCache;
+        this.idReservation = idReservation;
+        this.liveUpdateHub = liveUpdateHub;
+        this.events = new PriceAlertEventDTO[eventLogSize];
+        this.directory = directory;
+    }
+
+    private record ItemKey(long portfolioId, long nameId) {
+    }
+
+    /**
+     * 一条价格
+     */
+    public record PriceUpdate(Long nameId, BigDecimal price) {
+    }
+
+    /**
+     * 价格更新结果
+     *
+     * @param rejected 格式错误或价格不合法而跳过的条数
+     */
+    public record PriceUpdateResult(long updates, long rejected, List<PriceAlertEventDTO> fired) {
+    }
+
+    /**
+     * 提醒索引概况
+     */
+    public record AlertStats(int activeAlerts, int items, long priceUpdates, long fired) {
+    }
+
+    /**
+     * 启动时载入未触发的提醒，DRAWDOWN 按当前库存计算触发价格
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            List<Alert> loaded = jdbcTemplate.query("""
+                    SELECT a.id, a.portfolio_id, a.name_id, a.type, a.target, a.created_at,
+                           i.current_quantity, i.weighted_average_cost
+                    FROM price_alerts a
+                    LEFT JOIN inventory i ON a.type = 'DRAWDOWN' AND i.portfolio_id = a.portfolio_id
+                                         AND i.name_id = a.name_id
+                    WHERE a.triggered_at IS NULL
+                    """, (rs, rowNum) -> {
+                Alert alert = alert(rs);
+                // 启动时还没有价格，不会立即触发
+                activate(alert, alert.type == PriceAlertType.DRAWDOWN
+                        ? drawdownThreshold(alert, rs.getObject(7) != null ? rs.getInt(7) : 0, rs.getBigDecimal(8))
+                        : Long.valueOf(alert.target));
+                return alert;
+            });
+            log.info("载入价格提醒 {} 个", loaded.size());
+        } catch (RuntimeException e) {
+            log.warn("载入价格提醒失败", e);
+        }
+    }
+
+    /**
+     * 创建提醒；价格已越过时（按本节点最近收到的价格）立即触发
+     *
+     * @param target PRICE_ABOVE / PRICE_BELOW 为提醒价格，DRAWDOWN 为跌幅百分比（0 ~ 100）
+     */
+    public PriceAlertDTO createAlert(Long portfolioId, Long nameId, PriceAlertType type, BigDecimal target) {
+        long portfolio = portfolioService.requirePortfolio(portfolioId);
+        if (nameId == null) {
+            throw new IllegalArgumentException("nameId不能为空");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("提醒类型不能为空");
+        }
+        if (target == null || target.signum() <= 0) {
+            throw new IllegalArgumentException(type == PriceAlertType.DRAWDOWN ? "跌幅必须大于0" : "提醒价格必须大于0");
+        }
+        if (type == PriceAlertType.DRAWDOWN && target.compareTo(HUNDRED) >= 0) {
+            throw new IllegalArgumentException("跌幅必须小于100");
+        }
+        if (itemCache.findByNameId(nameId).isEmpty()) {
+            throw new IllegalArgumentException("物品不存在，nameId: " + nameId);
+        }
+        long id = idReservation.reserve("price_alerts", 1);
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        Alert alert = new Alert(id, portfolio, nameId, type, Money.of(target), now);
+        jdbcTemplate.update("""
+                INSERT INTO price_alerts (id, portfolio_id, name_id, type, target, created_at)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """, id, portfolio, nameId, type.name(), Money.toBigDecimal(alert.target), now.toLocalDateTime());
+
+        Long threshold = type == PriceAlertType.DRAWDOWN ? drawdownThreshold(alert, readHolding(portfolio, nameId))
+                : Long.valueOf(alert.target);
+        PriceAlertEventDTO fired = activate(alert, threshold);
+        if (fired != null) {
+            recordFired(List.of(fired));
+            return toDTO(alert, threshold, fired.firedAt(), fired.price());
+        }
+        return toDTO(alert, threshold, null, null);
+    }
+
+    /**
+     * 组合的提醒（含已触发的），新建的在前
+     */
+    public List<PriceAlertDTO> getAlerts(Long portfolioId) {
+        long portfolio = portfolioService.requirePortfolio(portfolioId);
+        return jdbcTemplate.query("""
+                SELECT id, portfolio_id, name_id, type, target, created_at, triggered_at, triggered_price
+                FROM price_alerts WHERE portfolio_id = ? ORDER BY id DESC
+                """, (rs, rowNum) -> {
+            Alert stored = alert(rs);
+            LocalDateTime triggeredAt = rs.getObject(7, LocalDateTime.class);
+            Alert alert = active.get(stored.id);
+            Long threshold = alert != null ? books.get(alert.nameId).threshold(alert)
+                    : stored.type != PriceAlertType.DRAWDOWN ? Long.valueOf(stored.target) : null;
+            return toDTO(stored, threshold, triggeredAt != null ? triggeredAt.atOffset(ZoneOffset.UTC) : null,
+                    rs.getBigDecimal(8));
+        }, portfolio);
+    }
+
+    /**
+     * 删除组合内的提醒（其他组合的提醒视为不存在）
+     */
+    public void deleteAlert(Long portfolioId, Long alertId) {
+        long portfolio = portfolioService.requirePortfolio(portfolioId);
+        int deleted = jdbcTemplate.update("DELETE FROM price_alerts WHERE id = ? AND portfolio_id = ?", alertId,
+                portfolio);
+        if (deleted == 0) {
+            throw new IllegalArgumentException("提醒不存在: " + alertId);
+        }
+        Alert alert = active.remove(alertId);
+        if (alert != null) {
+            books.get(alert.nameId).disarm(alert);
+            forgetDrawdown(alert);
+        }
+    }
+
+    /**
+     * 推送一批价格，返回触发的提醒
+     */
+    public PriceUpdateResult updatePrices(List<PriceUpdate> updates) {
+        if (updates == null || updates.isEmpty()) {
+            throw new IllegalArgumentException("价格不能为空");
+        }
+        if (updates.size() > MAX_UPDATES) {
+            throw new IllegalArgumentException("一次最多推送 " + MAX_UPDATES + " 条价格");
+        }
+        // 先校验全部价格再更新索引，无效的价格不会中断已开始的更新
+        long[] prices = new long[updates.size()];
+        long rejected = 0;
+        for (int i = 0; i < prices.length; i++) {
+            PriceUpdate update = updates.get(i);
+            prices[i] = update != null && update.nameId() != null ? units(update.price()) : 0;
+            if (prices[i] <= 0) {
+                rejected++;
+            }
+        }
+        List<PriceAlertEventDTO> fired = new ArrayList<>();
+        try {
+            for (int i = 0; i < prices.length; i++) {
+                if (prices[i] > 0) {
+                    apply(updates.get(i).nameId(), prices[i], fired);
+                }
+            }
+        } finally {
+            // 已从索引移出的提醒必须写回和广播，否则直到重启前都会丢失
+            recordFired(fired);
+        }
+        return new PriceUpdateResult(updates.size() - rejected, rejected, fired);
+    }
+
+    /**
+     * 从 CSV 读取价格（表头: nameId,price），按 MAX_UPDATES 条一批处理
+     */
+    public PriceUpdateResult updatePrices(Reader csv) throws IOException {
+        BufferedReader reader = csv instanceof BufferedReader buffered ? buffered : new BufferedReader(csv);
+        List<PriceAlertEventDTO> fired = new ArrayList<>();
+        long updates = 0;
+        long rejected = 0;
+        List<PriceAlertEventDTO> batch = new ArrayList<>();
+        String line;
+        boolean first = true;
+        try {
+            while ((line = reader.readLine()) != null) {
+                if (first) {
+                    first = false;
+                    line = line.replace("\uFEFF", "");
+                    if (line.trim().equalsIgnoreCase("nameId,price")) {
+                        continue;
+                    }
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] columns = line.split(",");
+                long nameId;
+                long price;
+                try {
+                    nameId = Long.parseLong(columns[0].trim());
+                    price = columns.length == 2 ? units(new BigDecimal(columns[1].trim())) : 0;
+                } catch (NumberFormatException e) {
+                    price = 0;
+                    nameId = 0;
+                }
+                if (price <= 0) {
+                    rejected++;
+                    continue;
+                }
+                apply(nameId, price, batch);
+                if (++updates % MAX_UPDATES == 0) {
+                    recordFired(batch);
+                    fired.addAll(batch);
+                    batch.clear();
+                }
+            }
+        } finally {
+            // 读取失败时也写回已触发的提醒
+            recordFired(batch);
+            fired.addAll(batch);
+        }
+        return new PriceUpdateResult(updates, rejected, fired);
+    }
+
+    /**
+     * 读取价格目录（app.alerts.price-directory）中的 CSV 文件
+     */
+    public PriceUpdateResult updatePricesFromFile(String fileName) throws IOException {
+        Path base = directory.toAbsolutePath().normalize();
+        Path file = base.resolve(fileName).normalize();
+        if (!file.startsWith(base) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("价格文件不存在: " + fileName);
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return updatePrices(reader);
+        }
+    }
+
+    /**
+     * 最近的提醒触发事件（本节点，最多 app.alerts.event-log-size 条），sequence 大于 after 的，按 sequence 升序
+     *
+     * @param portfolioId 只返回该组合的事件，为 null 时返回全部
+     */
+    public List<PriceAlertEventDTO> getEvents(Long portfolioId, long after) {
+        Long portfolio = portfolioId != null ? portfolioService.requirePortfolio(portfolioId) : null;
+        List<PriceAlertEventDTO> result = new ArrayList<>();
+        synchronized (events) {
+            for (int i = 0; i < events.length; i++) {
+                PriceAlertEventDTO event = events[(nextEvent + i) % events.length];
+                if (event != null && event.sequence() > after
+                        && (portfolio == null || portfolio == event.portfolioId())) {
+                    result.add(event);
+                }
+            }
+        }
+        return result;
+    }
+
+    public AlertStats stats() {
+        return new AlertStats(active.size(), books.size(), priceUpdates.sum(), sequence.get());
+    }
+
+    /**
+     * 交易处理或回滚已提交：重新计算受影响物品 DRAWDOWN 提醒的触发价格
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (drawdowns.isEmpty()) {
+            return;
+        }
+        if (event.bulk()) {
+            rearmPortfolio(event.portfolioId());
+        } else {
+            rearm(new ItemKey(event.portfolioId(), event.nameId()));
+        }
+    }
+
+    /**
+     * 集群其他节点的库存变更：重新计算受影响组合的 DRAWDOWN 提醒
+     */
+    @EventListener
+    public void onDataChanged(DataChangedEvent event) {
+        if (!event.remote() || drawdowns.isEmpty()) {
+            return;
+        }
+        if (event.everythingChanged()) {
+            List.copyOf(drawdowns.keySet()).forEach(this::rearm);
+            return;
+        }
+        event.changes().stream()
+                .filter(change -> change.entity() == ChangeLog.Entity.INVENTORY && change.portfolioId() != null)
+                .map(ChangeLog.Change::portfolioId)
+                .distinct()
+                .forEach(this::rearmPortfolio);
+    }
+
+    private void rearmPortfolio(long portfolioId) {
+        drawdowns.keySet().stream()
+                .filter(key -> key.portfolioId() == portfolioId)
+                .toList()
+                .forEach(this::rearm);
+    }
+
+    private void rearm(ItemKey key) {
+        Set<Alert> alerts = drawdowns.get(key);
+        if (alerts == null || alerts.isEmpty()) {
+            return;
+        }
+        Holding holding = readHolding(key.portfolioId(), key.nameId());
+        AlertBook book = books.get(key.nameId());
+        List<PriceAlertEventDTO> fired = new ArrayList<>();
+        for (Alert alert : List.copyOf(alerts)) {
+            Long threshold = drawdownThreshold(alert, holding);
+            if (book.arm(alert, threshold)) {
+                fired.add(fire(alert, book.lastPrice()));
+            }
+        }
+        recordFired(fired);
+    }
+
+    /**
+     * 放入索引；按最近价格已越过时返回触发事件（尚未记录）
+     */
+    private PriceAlertEventDTO activate(Alert alert, Long threshold) {
+        AlertBook book = books.computeIfAbsent(alert.nameId, nameId -> new AlertBook());
+        active.put(alert.id, alert);
+        if (alert.type == PriceAlertType.DRAWDOWN) {
+            drawdowns.computeIfAbsent(new ItemKey(alert.portfolioId, alert.nameId), key -> ConcurrentHashMap.newKeySet())
+                    .add(alert);
+        }
+        return book.arm(alert, threshold) ? fire(alert, book.lastPrice()) : null;
+    }
+
+    /**
+     * 价格转定点单位；为空、超出 long 范围或舍入后不为正时返回 0（调用方按无效价格计数）
+     */
+    private static long units(BigDecimal price) {
+        if (price == null) {
+            return 0;
+        }
+        try {
+            return Math.max(Money.of(price), 0);
+        } catch (ArithmeticException e) {
+            return 0;
+        }
+    }
+
+    private void apply(long nameId, long price, List<PriceAlertEventDTO> fired) {
+        priceUpdates.increment();
+        // 没有提醒的物品也记住最近价格，新建的提醒按它判断是否已越过
+        AlertBook book = books.computeIfAbsent(nameId, key -> new AlertBook());
+        for (Alert alert : book.update(price)) {
+            fired.add(fire(alert, price));
+        }
+    }
+
+    private PriceAlertEventDTO fire(Alert alert, long price) {
+        active.remove(alert.id);
+        forgetDrawdown(alert);
+        return PriceAlertEventDTO.builder()
+                .sequence(sequence.incrementAndGet())
+                .alertId(alert.id)
+                .portfolioId(alert.portfolioId)
+                .nameId(alert.nameId)
+                .type(alert.type)
+                .target(Money.toBigDecimal(alert.target))
+                .threshold(Money.toBigDecimal(alert.threshold))
+                .price(Money.toBigDecimal(price))
+                .firedAt(OffsetDateTime.now(ZoneOffset.UTC))
+                .build();
+    }
+
+    /**
+     * 触发的提醒写回数据库、记入事件日志并推送
+     */
+    private void recordFired(Collection<PriceAlertEventDTO> fired) {
+        if (fired.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate("""
+                    UPDATE price_alerts SET triggered_at = ?, triggered_price = ?
+                    WHERE id = ? AND triggered_at IS NULL
+                    """, fired.stream()
+                    .map(event -> new Object[]{event.firedAt().toLocalDateTime(), event.price(), event.alertId()})
+                    .toList());
+        } catch (RuntimeException e) {
+            // 内存中已触发，未写回的提醒重启后会重新载入
+            log.warn("记录价格提醒触发失败: {}", fired.stream().map(event -> String.valueOf(event.alertId()))
+                    .collect(Collectors.joining(",")), e);
+        }
+        synchronized (events) {
+            for (PriceAlertEventDTO event : fired) {
+                events[nextEvent] = event;
+                nextEvent = (nextEvent + 1) % events.length;
+            }
+        }
+        for (PriceAlertEventDTO event : fired) {
+            liveUpdateHub.broadcast(new LiveUpdate(LiveUpdate.PRICE_ALERT, event, event.portfolioId()));
+        }
+    }
+
+    private void forgetDrawdown(Alert alert) {
+        if (alert.type != PriceAlertType.DRAWDOWN) {
+            return;
+        }
+        drawdowns.computeIfPresent(new ItemKey(alert.portfolioId, alert.nameId), (key, alerts) -> {
+            alerts.remove(alert);
+            return alerts.isEmpty() ? null : alerts;
+        });
+    }
+
+    private record Holding(int quantity, BigDecimal weightedAverageCost) {
+    }
+
+    private Holding readHolding(long portfolioId, long nameId) {
+        List<Holding> rows = jdbcTemplate.query(
+                "SELECT current_quantity, weighted_average_cost FROM inventory WHERE portfolio_id = ? AND name_id = ?",
+                (rs, rowNum) -> new Holding(rs.getInt(1), rs.getBigDecimal(2)), portfolioId, nameId);
+        return rows.isEmpty() ? new Holding(0, null) : rows.get(0);
+    }
+
+    private static Long drawdownThreshold(Alert alert, Holding holding) {
+        return drawdownThreshold(alert, holding.quantity(), holding.weightedAverageCost());
+    }
+
+    /**
+     * 加权平均成本 × (1 - 跌幅%)，未持有时为 null（不触发）
+     */
+    private static Long drawdownThreshold(Alert alert, int quantity, BigDecimal weightedAverageCost) {
+        if (quantity <= 0 || weightedAverageCost == null || weightedAverageCost.signum() <= 0) {
+            return null;
+        }
+        long remaining = Money.ONE - Money.divide(alert.target, 100);
+        return Money.applyRatio(Money.of(weightedAverageCost), remaining);
+    }
+
+    private static Alert alert(ResultSet rs) throws SQLException {
+        return new Alert(rs.getLong(1), rs.getLong(2), rs.getLong(3), PriceAlertType.valueOf(rs.getString(4)),
+                Money.of(rs.getBigDecimal(5)), rs.getObject(6, LocalDateTime.class).atOffset(ZoneOffset.UTC));
+    }
+
+    private static PriceAlertDTO toDTO(Alert alert, Long threshold, OffsetDateTime triggeredAt,
+                                       BigDecimal triggeredPrice) {
+        return PriceAlertDTO.builder()
+                .id(alert.id)
+                .portfolioId(alert.portfolioId)
+                .nameId(alert.nameId)
+                .type(alert.type)
+                .target(Money.toBigDecimal(alert.target))
+                .threshold(threshold != null ? Money.toBigDecimal(threshold) : null)
+                .createdAt(alert.createdAt)
+                .triggeredAt(triggeredAt)
+                .triggeredPrice(triggeredPrice)
+                .build();
+    }
+
+    /**
+     * 测试用：各物品索引中的提醒数之和
+     */
+    int indexedAlerts() {
+        return books.values().stream().mapToInt(AlertBook::size).sum();
+    }
+}
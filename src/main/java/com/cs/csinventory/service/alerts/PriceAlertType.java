@@ -0,0 +1,20 @@
+package com.cs.csinventory.service.alerts;
+
+/**
+ * 价格提醒类型
+ */
+public enum PriceAlertType {
+    /** 价格 ≥ 提醒价格 */
+    PRICE_ABOVE(true),
+    /** 价格 ≤ 提醒价格 */
+    PRICE_BELOW(false),
+    /** 价格 ≤ 加权平均成本 × (1 - 跌幅%)，未持有时不触发 */
+    DRAWDOWN(false);
+
+    /** 为 true 时价格升至阈值及以上触发，否则降至阈值及以下触发 */
+    final boolean rising;
+
+    PriceAlertType(boolean rising) {
+        this.rising = rising;
+    }
+}
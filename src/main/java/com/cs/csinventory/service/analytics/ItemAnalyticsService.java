@@ -0,0 +1,255 @@
+package com.cs.csinventory.service.analytics;
+
+import com.cs.csinventory.service.PortfolioService;
+import com.cs.csinventory.service.dto.ItemAnalyticsDTO;
+import com.cs.csinventory.service.dto.ItemAnalyticsPageDTO;
+import com.cs.csinventory.service.money.Money;
+import com.cs.csinventory.service.sync.DataVersions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 物品交易表现分析 - 一条 SQL 计算组合内所有物品的持有时长、周转率、买卖均价、已实现盈利和交易频率
+ *
+ * 未归档交易与归档汇总（每日 × 类型 × 物品一行）合并后，用窗口函数按物品、时间顺序累计持仓数量，
+ * 持仓大于0的区间（到下一笔交易或当前时间）累加为持有时长；已归档部分按天汇总，时长为近似值。
+ * 已实现盈利与投资池口径一致：卖出金额 - (买入金额 - 当前持仓成本)。
+ *
+ * 结果按组合缓存，缓存以 {@link DataVersions} 版本为准（有效期同投资池统计），
+ * 排序和分页在缓存的结果上完成，每种排序的结果也随缓存保留。
+ */
+@Service
+@Slf4j
+public class ItemAnalyticsService {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+    private static final long DAYS_PER_MONTH = 30L;
+
+    private static final String ANALYTICS_SQL = """
+            WITH activity AS (
+                SELECT name_id, type, quantity, total_amount, 1 AS trade_count,
+                       created_at AS first_at, created_at AS last_at, id AS seq
+                FROM trades
+                WHERE portfolio_id = ?
+                UNION ALL
+                SELECT name_id, type, total_quantity, total_amount, trade_count,
+                       first_trade_at, last_trade_at, 0
+                FROM trade_archive_rollups
+                WHERE portfolio_id = ?
+            ),
+            positions AS (
+                SELECT name_id, type, quantity, total_amount, trade_count, first_at, last_at,
+                       SUM(CASE WHEN type = 'BUY' THEN quantity ELSE -quantity END)
+                           OVER (PARTITION BY name_id ORDER BY first_at, seq ROWS UNBOUNDED PRECEDING) AS position,
+                       LEAD(first_at) OVER (PARTITION BY name_id ORDER BY first_at, seq) AS next_at
+                FROM activity
+            ),
+            per_item AS (
+                SELECT name_id,
+                       SUM(CASE WHEN type = 'BUY' THEN trade_count ELSE 0 END) AS buy_trades,
+                       SUM(CASE WHEN type = 'SELL' THEN trade_count ELSE 0 END) AS sell_trades,
+                       SUM(CASE WHEN type = 'BUY' THEN quantity ELSE 0 END) AS buy_quantity,
+                       SUM(CASE WHEN type = 'SELL' THEN quantity ELSE 0 END) AS sell_quantity,
+                       SUM(CASE WHEN type = 'BUY' THEN total_amount ELSE 0 END) AS buy_amount,
+                       SUM(CASE WHEN type = 'SELL' THEN total_amount ELSE 0 END) AS sell_amount,
+                       SUM(CASE WHEN position > 0
+                                THEN TIMESTAMPDIFF(SECOND, first_at, COALESCE(next_at, ?)) ELSE 0 END) AS held_seconds,
+                       MIN(first_at) AS first_trade_at,
+                       MAX(last_at) AS last_trade_at
+                FROM positions
+                GROUP BY name_id
+            )
+            SELECT p.name_id, i.cn_name, i.en_name, p.buy_trades, p.sell_trades, p.buy_quantity, p.sell_quantity,
+                   p.buy_amount, p.sell_amount, p.held_seconds, p.first_trade_at, p.last_trade_at,
+                   inv.current_quantity, inv.total_investment_cost
+            FROM per_item p
+            LEFT JOIN items i ON i.name_id = p.name_id
+            LEFT JOIN inventory inv ON inv.portfolio_id = ? AND inv.name_id = p.name_id
+            """;
+
+    /** 可排序字段（升序、降序），值为空的物品始终排在最后 */
+    private static final Map<String, SortField> SORTS = new LinkedHashMap<>();
+
+    static {
+        sort("nameId", ItemAnalyticsDTO::nameId);
+        sort("buyTrades", ItemAnalyticsDTO::buyTrades);
+        sort("sellTrades", ItemAnalyticsDTO::sellTrades);
+        sort("buyQuantity", ItemAnalyticsDTO::buyQuantity);
+        sort("sellQuantity", ItemAnalyticsDTO::sellQuantity);
+        sort("currentQuantity", ItemAnalyticsDTO::currentQuantity);
+        sort("averageBuyPrice", ItemAnalyticsDTO::averageBuyPrice);
+        sort("averageSellPrice", ItemAnalyticsDTO::averageSellPrice);
+        sort("realizedProfit", ItemAnalyticsDTO::realizedProfit);
+        sort("realizedMargin", ItemAnalyticsDTO::realizedMargin);
+        sort("turnover", ItemAnalyticsDTO::turnover);
+        sort("holdingDays", ItemAnalyticsDTO::holdingDays);
+        sort("tradesPerMonth", ItemAnalyticsDTO::tradesPerMonth);
+        sort("firstTradeAt", ItemAnalyticsDTO::firstTradeAt);
+        sort("lastTradeAt", ItemAnalyticsDTO::lastTradeAt);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PortfolioService portfolioService;
+    private final DataVersions dataVersions;
+    private final TransactionTemplate readOnlyTransaction;
+
+    /** 各组合的分析结果缓存 */
+    private final ConcurrentHashMap<Long, CachedAnalytics> cache = new ConcurrentHashMap<>();
+
+    @Value("${app.stats.cache-ttl:30s}")
+    private Duration cacheTtl;
+
+    public ItemAnalyticsService(JdbcTemplate jdbcTemplate, PortfolioService portfolioService, DataVersions dataVersions,
+                                PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.portfolioService = portfolioService;
+        this.dataVersions = dataVersions;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * 组合内物品交易表现的一页
+     *
+     * @param sort      排序字段，例如 realizedProfit、turnover、holdingDays
+     * @param direction asc 或 desc
+     * @param page      页码，从0开始
+     */
+    public ItemAnalyticsPageDTO getItemAnalytics(Long portfolioId, String sort, String direction, int page, int size) {
+        long id = portfolioService.requirePortfolio(portfolioId);
+        SortField field = SORTS.get(sort);
+        if (field == null) {
+            throw new IllegalArgumentException("不支持的排序字段: " + sort + "，可选: " + String.join(", ", SORTS.keySet()));
+        }
+        boolean descending;
+        if ("desc".equalsIgnoreCase(direction)) {
+            descending = true;
+        } else if ("asc".equalsIgnoreCase(direction)) {
+            descending = false;
+        } else {
+            throw new IllegalArgumentException("排序方向只能是 asc 或 desc");
+        }
+        if (page < 0) {
+            throw new IllegalArgumentException("页码不能为负数");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        CachedAnalytics analytics = analytics(id);
+        List<ItemAnalyticsDTO> sorted = analytics.sorted().computeIfAbsent(sort + (descending ? ",desc" : ",asc"),
+                key -> analytics.items().stream().sorted(descending ? field.descending() : field.ascending()).toList());
+        int from = (int) Math.min((long) page * pageSize, sorted.size());
+        int to = Math.min(from + pageSize, sorted.size());
+        return new ItemAnalyticsPageDTO(sorted.size(), page, pageSize, sort, descending ? "desc" : "asc",
+                sorted.subList(from, to));
+    }
+
+    /**
+     * 读取组合的分析结果，缓存版本与组合当前版本一致且未过期时直接返回
+     */
+    private CachedAnalytics analytics(long portfolioId) {
+        if (!dataVersions.coherent()) {
+            return new CachedAnalytics(0, System.nanoTime(), compute(portfolioId), new ConcurrentHashMap<>());
+        }
+        // 先读版本再计算，计算期间的写入只会让结果记在旧版本下
+        long version = dataVersions.current(portfolioId);
+        CachedAnalytics cached = cache.get(portfolioId);
+        if (cached != null && cached.version() == version && System.nanoTime() - cached.computedAt() < cacheTtl.toNanos()) {
+            return cached;
+        }
+        CachedAnalytics computed = new CachedAnalytics(version, System.nanoTime(), compute(portfolioId),
+                new ConcurrentHashMap<>());
+        cache.merge(portfolioId, computed,
+                (previous, current) -> current.version() >= previous.version() ? current : previous);
+        return computed;
+    }
+
+    private List<ItemAnalyticsDTO> compute(long portfolioId) {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        List<ItemAnalyticsDTO> items = readOnlyTransaction.execute(status -> jdbcTemplate.query(ANALYTICS_SQL,
+                (rs, rowNum) -> map(rs, now), portfolioId, portfolioId, now, portfolioId));
+        log.debug("计算物品交易表现，组合: {}, 物品数: {}, 耗时 {} ms", portfolioId, items.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return List.copyOf(items);
+    }
+
+    private static ItemAnalyticsDTO map(ResultSet rs, LocalDateTime now) throws SQLException {
+        long buyQuantity = rs.getLong("buy_quantity");
+        long sellQuantity = rs.getLong("sell_quantity");
+        long buyAmount = Money.of(rs.getBigDecimal("buy_amount"));
+        long sellAmount = Money.of(rs.getBigDecimal("sell_amount"));
+        BigDecimal holdingCostValue = rs.getBigDecimal("total_investment_cost");
+        long holdingCost = holdingCostValue != null ? Money.of(holdingCostValue) : 0;
+        long buyTrades = rs.getLong("buy_trades");
+        long sellTrades = rs.getLong("sell_trades");
+        LocalDateTime first = rs.getObject("first_trade_at", LocalDateTime.class);
+        LocalDateTime last = rs.getObject("last_trade_at", LocalDateTime.class);
+
+        // 已卖出部分的成本 = 买入金额 - 当前持仓成本
+        long soldCost = Money.subtract(buyAmount, holdingCost);
+        long realizedProfit = sellQuantity > 0 ? Money.subtract(sellAmount, soldCost) : 0;
+        // 时间跨度不足一天按一天计算，避免单日多笔交易的频率失真
+        long spanSeconds = Math.max(SECONDS_PER_DAY, Duration.between(first, last).toSeconds());
+
+        return ItemAnalyticsDTO.builder()
+                .nameId(rs.getLong("name_id"))
+                .cnName(rs.getString("cn_name"))
+                .enName(rs.getString("en_name"))
+                .buyTrades(buyTrades)
+                .sellTrades(sellTrades)
+                .buyQuantity(buyQuantity)
+                .sellQuantity(sellQuantity)
+                .currentQuantity(rs.getInt("current_quantity"))
+                .averageBuyPrice(buyQuantity > 0 ? Money.toBigDecimal(Money.divide(buyAmount, buyQuantity)) : null)
+                .averageSellPrice(sellQuantity > 0 ? Money.toBigDecimal(Money.divide(sellAmount, sellQuantity)) : null)
+                .realizedProfit(Money.toBigDecimal(realizedProfit))
+                .realizedMargin(sellQuantity > 0 && soldCost > 0
+                        ? Money.toBigDecimal(Money.ratio(realizedProfit, soldCost)) : null)
+                .turnover(buyQuantity > 0 ? Money.toBigDecimal(Money.ratio(sellQuantity, buyQuantity)) : null)
+                .holdingDays(Money.toBigDecimal(Money.ratio(rs.getLong("held_seconds"), SECONDS_PER_DAY)))
+                .tradesPerMonth(Money.toBigDecimal(Money.ratio(
+                        (buyTrades + sellTrades) * DAYS_PER_MONTH * SECONDS_PER_DAY, spanSeconds)))
+                .firstTradeAt(utc(first))
+                .lastTradeAt(utc(last))
+                .build();
+    }
+
+    private static OffsetDateTime utc(LocalDateTime value) {
+        return value != null ? value.atOffset(ZoneOffset.UTC) : null;
+    }
+
+    private static <T extends Comparable<? super T>> void sort(String name, Function<ItemAnalyticsDTO, T> field) {
+        SORTS.put(name, new SortField(
+                Comparator.comparing(field, Comparator.nullsLast(Comparator.<T>naturalOrder()))
+                        .thenComparing(ItemAnalyticsDTO::nameId),
+                Comparator.comparing(field, Comparator.nullsLast(Comparator.<T>reverseOrder()))
+                        .thenComparing(ItemAnalyticsDTO::nameId)));
+    }
+
+    private record SortField(Comparator<ItemAnalyticsDTO> ascending, Comparator<ItemAnalyticsDTO> descending) {
+    }
+
+    private record CachedAnalytics(long version, long computedAt, List<ItemAnalyticsDTO> items,
+                                   ConcurrentHashMap<String, List<ItemAnalyticsDTO>> sorted) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.cs.csinventory.service.archive;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.money.Money;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * 归档进度 - 截止时间之前的交易已移至段文件
+ *
+ * 同时保存截止时刻的资金流状态（{@link Money} 定点单位），投资池的峰值净投入从这里继续计算，
+ * 无需再读取已归档的明细。
+ *
+ * @param netFlow           已归档交易的累计净投入（买入 - 卖出）
+ * @param peakNetInvestment 已归档交易期间的净投入峰值
+ * @param firstBuyAmount    第一笔买入的金额，没有归档过买入时为 null
+ */
+public record ArchiveCheckpoint(
+        OffsetDateTime archivedBefore,
+        long netFlow,
+        long peakNetInvestment,
+        Long firstBuyAmount
+) {
+
+    /**
+     * 按时间顺序追加一批新归档的交易
+     */
+    public ArchiveCheckpoint advance(List<ArchivedTrade> chronological, OffsetDateTime cutoff) {
+        long net = netFlow;
+        long peak = peakNetInvestment;
+        Long firstBuy = firstBuyAmount;
+        for (ArchivedTrade trade : chronological) {
+            if (trade.type() == Trade.Type.BUY) {
+                net = Money.add(net, trade.totalAmount());
+                if (firstBuy == null) {
+                    firstBuy = trade.totalAmount();
+                }
+            } else {
+                net = Money.subtract(net, trade.totalAmount());
+            }
+            if (net > peak) {
+                peak = net;
+            }
+        }
+        OffsetDateTime before = archivedBefore == null || cutoff.isAfter(archivedBefore) ? cutoff : archivedBefore;
+        return new ArchiveCheckpoint(before, net, peak, firstBuy);
+    }
+
+    /**
+     * 尚未归档过任何交易
+     */
+    public static ArchiveCheckpoint empty() {
+        return new ArchiveCheckpoint(null, 0, 0, null);
+    }
+}
@@ -0,0 +1,61 @@
+package com.cs.csinventory.service.archive;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.dto.TradeWithItemDTO;
+import com.cs.csinventory.service.money.Money;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 已归档的交易记录（段文件中的一行）
+ *
+ * 金额为 {@link Money} 定点单位，时间为 UTC 纪元微秒（与数据库 DATETIME(6) 精度一致）。
+ */
+public record ArchivedTrade(
+        long id,
+        long portfolioId,
+        long nameId,
+        Trade.Type type,
+        long unitPrice,
+        int quantity,
+        long totalAmount,
+        long createdAtMicros
+) {
+
+    public static ArchivedTrade from(Trade trade) {
+        return new ArchivedTrade(
+                trade.getId(),
+                trade.getPortfolioId(),
+                trade.getNameId(),
+                trade.getType(),
+                Money.of(trade.getUnitPrice()),
+                trade.getQuantity(),
+                Money.of(trade.getTotalAmount()),
+                toMicros(trade.getCreatedAt()));
+    }
+
+    public OffsetDateTime createdAt() {
+        return Instant.EPOCH.plus(createdAtMicros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+    }
+
+    public TradeWithItemDTO toTradeWithItem(String cnName, String enName) {
+        return TradeWithItemDTO.builder()
+                .id(id)
+                .nameId(nameId)
+                .cnName(cnName)
+                .enName(enName)
+                .type(type)
+                .unitPrice(Money.toBigDecimal(unitPrice))
+                .quantity(quantity)
+                .totalAmount(Money.toBigDecimal(totalAmount))
+                .createdAt(createdAt())
+                .build();
+    }
+
+    public static long toMicros(OffsetDateTime time) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, time.toInstant());
+    }
+}
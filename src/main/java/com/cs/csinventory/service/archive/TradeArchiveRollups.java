@@ -0,0 +1,159 @@
+package com.cs.csinventory.service.archive;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.dto.DailyFlowDTO;
+import com.cs.csinventory.service.dto.TradeTypeSummaryDTO;
+import com.cs.csinventory.service.money.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 已归档交易的汇总数据（trade_archive_rollups / trade_archive_checkpoint），按投资组合划分
+ *
+ * 时间列按 UTC 存储为 DATETIME，与 Hibernate 的 NORMALIZE_UTC 配置一致。
+ */
+@Repository
+@RequiredArgsConstructor
+public class TradeArchiveRollups {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 将一批归档交易累加到 组合 × 日期 × 类型 × 物品 汇总中（须在删除明细的同一事务内调用）
+     */
+    public void accumulate(List<ArchivedTrade> trades) {
+        Map<RollupKey, Rollup> rollups = new LinkedHashMap<>();
+        for (ArchivedTrade trade : trades) {
+            RollupKey key = new RollupKey(trade.portfolioId(), trade.createdAt().toLocalDate(), trade.type(), trade.nameId());
+            rollups.computeIfAbsent(key, k -> new Rollup()).add(trade);
+        }
+        rollups.forEach((key, rollup) -> {
+            Object[] values = {rollup.count, rollup.quantity, Money.toBigDecimal(rollup.amount),
+                    utc(rollup.first), utc(rollup.last)};
+            int updated = jdbcTemplate.update("""
+                    UPDATE trade_archive_rollups
+                    SET trade_count = trade_count + ?, total_quantity = total_quantity + ?,
+                        total_amount = total_amount + ?,
+                        first_trade_at = LEAST(first_trade_at, ?), last_trade_at = GREATEST(last_trade_at, ?)
+                    WHERE portfolio_id = ? AND trade_date = ? AND type = ? AND name_id = ?
+                    """, values[0], values[1], values[2], values[3], values[4],
+                    key.portfolioId(), key.day(), key.type().name(), key.nameId());
+            if (updated == 0) {
+                jdbcTemplate.update("""
+                        INSERT INTO trade_archive_rollups (trade_count, total_quantity, total_amount,
+                            first_trade_at, last_trade_at, portfolio_id, trade_date, type, name_id)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                        """, values[0], values[1], values[2], values[3], values[4],
+                        key.portfolioId(), key.day(), key.type().name(), key.nameId());
+            }
+        });
+    }
+
+    /**
+     * 组合内已归档交易按类型汇总（与 TradeRepository.summarizeByType 口径一致）
+     */
+    public List<TradeTypeSummaryDTO> summarizeByType(long portfolioId) {
+        return jdbcTemplate.query("""
+                SELECT type, SUM(total_amount), SUM(trade_count), MIN(first_trade_at), MAX(last_trade_at)
+                FROM trade_archive_rollups
+                WHERE portfolio_id = ?
+                GROUP BY type
+                """, (rs, rowNum) -> new TradeTypeSummaryDTO(
+                Trade.Type.valueOf(rs.getString(1)), rs.getBigDecimal(2), rs.getLong(3),
+                offset(rs, 4), offset(rs, 5)), portfolioId);
+    }
+
+    /**
+     * 组合内已归档交易的每日汇总（按 UTC 日期，粒度为整天）
+     */
+    public List<DailyFlowDTO> dailySummary(long portfolioId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query("""
+                SELECT trade_date, type, SUM(total_quantity), SUM(total_amount), SUM(trade_count)
+                FROM trade_archive_rollups
+                WHERE portfolio_id = ? AND trade_date BETWEEN ? AND ?
+                GROUP BY trade_date, type
+                """, (rs, rowNum) -> DailyFlowDTO.builder()
+                .day(rs.getObject(1, LocalDate.class))
+                .tradeType(Trade.Type.valueOf(rs.getString(2)))
+                .totalQuantity(rs.getInt(3))
+                .totalAmount(rs.getBigDecimal(4))
+                .tradeCount(rs.getInt(5))
+                .build(), portfolioId, from, to);
+    }
+
+    public Optional<ArchiveCheckpoint> findCheckpoint(long portfolioId) {
+        return jdbcTemplate.query("""
+                SELECT archived_before, net_flow, peak_net_investment, first_buy_amount
+                FROM trade_archive_checkpoint WHERE portfolio_id = ?
+                """, (rs, rowNum) -> {
+            BigDecimal firstBuy = rs.getBigDecimal(4);
+            return new ArchiveCheckpoint(offset(rs, 1), Money.of(rs.getBigDecimal(2)),
+                    Money.of(rs.getBigDecimal(3)), firstBuy != null ? Money.of(firstBuy) : null);
+        }, portfolioId).stream().findFirst();
+    }
+
+    public void saveCheckpoint(long portfolioId, ArchiveCheckpoint checkpoint) {
+        Object[] values = {utc(checkpoint.archivedBefore()), Money.toBigDecimal(checkpoint.netFlow()),
+                Money.toBigDecimal(checkpoint.peakNetInvestment()),
+                checkpoint.firstBuyAmount() != null ? Money.toBigDecimal(checkpoint.firstBuyAmount()) : null,
+                portfolioId};
+        int updated = jdbcTemplate.update("""
+                UPDATE trade_archive_checkpoint
+                SET archived_before = ?, net_flow = ?, peak_net_investment = ?, first_buy_amount = ?
+                WHERE portfolio_id = ?
+                """, values);
+        if (updated == 0) {
+            jdbcTemplate.update("""
+                    INSERT INTO trade_archive_checkpoint
+                        (archived_before, net_flow, peak_net_investment, first_buy_amount, portfolio_id)
+                    VALUES (?, ?, ?, ?, ?)
+                    """, values);
+        }
+    }
+
+    private static LocalDateTime utc(OffsetDateTime time) {
+        return time.withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    }
+
+    private static OffsetDateTime offset(ResultSet rs, int column) throws SQLException {
+        LocalDateTime time = rs.getObject(column, LocalDateTime.class);
+        return time != null ? time.atOffset(ZoneOffset.UTC) : null;
+    }
+
+    private record RollupKey(long portfolioId, LocalDate day, Trade.Type type, long nameId) {
+    }
+
+    private static final class Rollup {
+        long count;
+        long quantity;
+        long amount;
+        OffsetDateTime first;
+        OffsetDateTime last;
+
+        void add(ArchivedTrade trade) {
+            count++;
+            quantity += trade.quantity();
+            amount = Money.add(amount, trade.totalAmount());
+            OffsetDateTime createdAt = trade.createdAt();
+            if (first == null || createdAt.isBefore(first)) {
+                first = createdAt;
+            }
+            if (last == null || createdAt.isAfter(last)) {
+                last = createdAt;
+            }
+        }
+    }
+}
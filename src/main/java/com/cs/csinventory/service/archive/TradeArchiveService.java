@@ -0,0 +1,120 @@
+package com.cs.csinventory.service.archive;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.TradeRepository;
+import com.cs.csinventory.service.sync.DataVersions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 交易归档服务 - 将超过保留期的交易从 trades 表移至不可变的压缩段文件
+ *
+ * 每批最多 segmentRows 笔交易（按时间顺序，每个投资组合各写一个段）：在同一个写事务内读取明细、发布段文件、
+ * 累加汇总、推进归档进度并删除明细；事务失败时撤销已发布的段。
+ * 若进程在段发布后、事务提交前崩溃，明细会同时存在于数据库和段文件中，查询合并时按ID去重。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TradeArchiveService {
+
+    private final TradeRepository tradeRepository;
+    private final TradeSegmentStore segmentStore;
+    private final TradeArchiveRollups rollups;
+    private final PlatformTransactionManager transactionManager;
+    private final DataVersions dataVersions;
+
+    @Value("${app.archive.trades.max-age:365d}")
+    private Duration maxAge;
+
+    @Value("${app.archive.trades.segment-rows:50000}")
+    private int segmentRows;
+
+    /**
+     * 定时归档，cron 为 "-"（默认）时不启用
+     */
+    @Scheduled(cron = "${app.archive.trades.cron:-}")
+    public void scheduledArchive() {
+        archive();
+    }
+
+    /**
+     * 归档早于 (当前时间 - maxAge) 所在 UTC 日零点的交易，截止时间对齐到整天，每日汇总不会被拆开
+     */
+    public ArchiveResult archive() {
+        OffsetDateTime cutoff = OffsetDateTime.now(ZoneOffset.UTC).minus(maxAge).truncatedTo(ChronoUnit.DAYS);
+        return archiveBefore(cutoff);
+    }
+
+    /**
+     * 归档早于 cutoff 的全部交易
+     */
+    public synchronized ArchiveResult archiveBefore(OffsetDateTime cutoff) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int segments = 0;
+        long trades = 0;
+        while (true) {
+            List<TradeSegment> published = new ArrayList<>();
+            Integer archived;
+            try {
+                archived = transaction.execute(status -> {
+                    List<Trade> batch = tradeRepository.findByCreatedAtBeforeOrderByCreatedAtAscIdAsc(
+                            cutoff, PageRequest.of(0, segmentRows));
+                    if (batch.isEmpty()) {
+                        return 0;
+                    }
+                    List<ArchivedTrade> rows = batch.stream().map(ArchivedTrade::from).toList();
+                    // 每个组合单独成段，归档进度也按组合推进（分组后仍保持时间顺序）
+                    Map<Long, List<ArchivedTrade>> byPortfolio = rows.stream().collect(
+                            Collectors.groupingBy(ArchivedTrade::portfolioId, TreeMap::new, Collectors.toList()));
+                    byPortfolio.forEach((portfolioId, portfolioRows) -> {
+                        published.add(segmentStore.append(portfolioRows));
+                        ArchiveCheckpoint checkpoint = rollups.findCheckpoint(portfolioId).orElseGet(ArchiveCheckpoint::empty);
+                        rollups.saveCheckpoint(portfolioId, checkpoint.advance(portfolioRows, cutoff));
+                    });
+                    rollups.accumulate(rows);
+                    tradeRepository.deleteAllByIdInBatch(batch.stream().map(Trade::getId).toList());
+                    return rows.size();
+                });
+            } catch (RuntimeException e) {
+                published.forEach(segmentStore::discard);
+                throw e;
+            }
+            if (archived == null || archived == 0) {
+                break;
+            }
+            segments += published.size();
+            trades += archived;
+            // 每个批次提交后就使涉及组合的缓存失效：批次之间计算的统计不会在整个归档结束前一直被复用
+            published.stream().map(TradeSegment::portfolioId).distinct().forEach(dataVersions::portfolioChanged);
+            log.info("已归档 {} 笔交易至 {}", archived,
+                    published.stream().map(segment -> segment.file().getFileName().toString()).toList());
+        }
+        if (trades > 0) {
+            log.info("交易归档完成，截止时间: {}, 新增段: {}, 交易数: {}", cutoff, segments, trades);
+        }
+        return new ArchiveResult(cutoff, segments, trades);
+    }
+
+    /**
+     * 一次归档的结果
+     */
+    public record ArchiveResult(OffsetDateTime archivedBefore, int segments, long trades) {
+    }
+}
@@ -0,0 +1,299 @@
+package com.cs.csinventory.service.archive;
+
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 交易归档段文件 - 写入后不可修改，按 (createdAt, id) 排序，列式存储并整体 Deflate 压缩
+ *
+ * 每个段只包含一个投资组合的交易。文件布局（大端序）：
+ * <pre>
+ * 头部：magic | version | 组合ID | 行数 | 最早/最晚交易时间 | 去重排序后的 nameId 列表 | 原始长度 | 压缩长度 | CRC32
+ * 数据：压缩后的列块 id(增量) | nameId | type | unitPrice | quantity | totalAmount | createdAt(增量)
+ * </pre>
+ * 文件通过内存映射打开，头部直接从映射区读取，查询时先用时间范围和 nameId 索引排除整段，
+ * 只有命中的段才从映射区解压数据块。版本 1 的段（没有组合ID）属于默认组合。
+ */
+public final class TradeSegment {
+
+    static final String EXTENSION = ".seg";
+
+    private static final int MAGIC = 0x43535447; // "CSTG"
+    private static final short VERSION = 2;
+    private static final short VERSION_WITHOUT_PORTFOLIO = 1;
+    /** 每行原始字节数：id + nameId + type + unitPrice + quantity + totalAmount + createdAt */
+    private static final int ROW_BYTES = Long.BYTES * 5 + Integer.BYTES + 1;
+    private static final Trade.Type[] TYPES = Trade.Type.values();
+
+    private final Path file;
+    private final long portfolioId;
+    private final int rowCount;
+    private final long minCreatedAtMicros;
+    private final long maxCreatedAtMicros;
+    private final long[] nameIds;
+    private final int rawLength;
+    private final int crc;
+    private final ByteBuffer payload;
+
+    private TradeSegment(Path file, long portfolioId, int rowCount, long minCreatedAtMicros, long maxCreatedAtMicros,
+                         long[] nameIds, int rawLength, int crc, ByteBuffer payload) {
+        this.file = file;
+        this.portfolioId = portfolioId;
+        this.rowCount = rowCount;
+        this.minCreatedAtMicros = minCreatedAtMicros;
+        this.maxCreatedAtMicros = maxCreatedAtMicros;
+        this.nameIds = nameIds;
+        this.rawLength = rawLength;
+        this.crc = crc;
+        this.payload = payload;
+    }
+
+    /**
+     * 将交易写入新的段文件（调用方负责排序和原子替换）
+     *
+     * @param trades 按 (createdAt, id) 升序排列、属于同一组合的非空交易列表
+     */
+    static void write(Path file, List<ArchivedTrade> trades) {
+        if (trades.isEmpty()) {
+            throw new IllegalArgumentException("归档段不能为空");
+        }
+        long portfolioId = trades.get(0).portfolioId();
+        if (trades.stream().anyMatch(trade -> trade.portfolioId() != portfolioId)) {
+            throw new IllegalArgumentException("归档段只能包含一个组合的交易");
+        }
+        int n = trades.size();
+        ByteBuffer raw = ByteBuffer.allocate(n * ROW_BYTES);
+        long previous = 0;
+        for (ArchivedTrade trade : trades) {
+            raw.putLong(trade.id() - previous);
+            previous = trade.id();
+        }
+        for (ArchivedTrade trade : trades) {
+            raw.putLong(trade.nameId());
+        }
+        for (ArchivedTrade trade : trades) {
+            raw.put((byte) trade.type().ordinal());
+        }
+        for (ArchivedTrade trade : trades) {
+            raw.putLong(trade.unitPrice());
+        }
+        for (ArchivedTrade trade : trades) {
+            raw.putInt(trade.quantity());
+        }
+        for (ArchivedTrade trade : trades) {
+            raw.putLong(trade.totalAmount());
+        }
+        previous = 0;
+        for (ArchivedTrade trade : trades) {
+            raw.putLong(trade.createdAtMicros() - previous);
+            previous = trade.createdAtMicros();
+        }
+        byte[] rawBytes = raw.array();
+
+        CRC32 checksum = new CRC32();
+        checksum.update(rawBytes);
+        byte[] compressed = deflate(rawBytes);
+        long[] distinctNameIds = trades.stream().mapToLong(ArchivedTrade::nameId).distinct().sorted().toArray();
+
+        ByteBuffer header = ByteBuffer.allocate(headerLength(distinctNameIds.length));
+        header.putInt(MAGIC)
+                .putShort(VERSION)
+                .putLong(portfolioId)
+                .putInt(n)
+                .putLong(trades.get(0).createdAtMicros())
+                .putLong(trades.get(n - 1).createdAtMicros())
+                .putInt(distinctNameIds.length);
+        for (long nameId : distinctNameIds) {
+            header.putLong(nameId);
+        }
+        header.putInt(rawBytes.length).putInt(compressed.length).putInt((int) checksum.getValue());
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer body = ByteBuffer.wrap(compressed);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, body});
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入归档段失败: " + file, e);
+        }
+    }
+
+    /**
+     * 以内存映射方式打开段文件，只解析头部
+     */
+    static TradeSegment open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效，直到缓冲区被回收
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.remaining() < headerLength(0) - Long.BYTES || mapped.getInt() != MAGIC) {
+                throw new IllegalStateException("不是有效的归档段文件: " + file);
+            }
+            short version = mapped.getShort();
+            long portfolioId;
+            if (version == VERSION) {
+                portfolioId = mapped.getLong();
+            } else if (version == VERSION_WITHOUT_PORTFOLIO) {
+                portfolioId = Portfolio.DEFAULT_ID;
+            } else {
+                throw new IllegalStateException("不支持的归档段版本: " + version + ", 文件: " + file);
+            }
+            int rowCount = mapped.getInt();
+            long minCreatedAt = mapped.getLong();
+            long maxCreatedAt = mapped.getLong();
+            long[] nameIds = new long[mapped.getInt()];
+            for (int i = 0; i < nameIds.length; i++) {
+                nameIds[i] = mapped.getLong();
+            }
+            int rawLength = mapped.getInt();
+            int compressedLength = mapped.getInt();
+            int crc = mapped.getInt();
+            if (mapped.remaining() != compressedLength) {
+                throw new IllegalStateException("归档段文件不完整: " + file);
+            }
+            ByteBuffer payload = mapped.slice(mapped.position(), compressedLength);
+            return new TradeSegment(file, portfolioId, rowCount, minCreatedAt, maxCreatedAt, nameIds, rawLength, crc, payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开归档段失败: " + file, e);
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public long portfolioId() {
+        return portfolioId;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public long minCreatedAtMicros() {
+        return minCreatedAtMicros;
+    }
+
+    public long maxCreatedAtMicros() {
+        return maxCreatedAtMicros;
+    }
+
+    /**
+     * 段内是否可能包含该物品的交易（头部 nameId 索引，二分查找）
+     */
+    public boolean containsNameId(long nameId) {
+        return Arrays.binarySearch(nameIds, nameId) >= 0;
+    }
+
+    /**
+     * 段的时间范围是否与 [fromMicros, toMicros] 相交
+     */
+    public boolean overlaps(long fromMicros, long toMicros) {
+        return minCreatedAtMicros <= toMicros && maxCreatedAtMicros >= fromMicros;
+    }
+
+    /**
+     * 从映射区解压并解码全部交易，按 (createdAt, id) 升序
+     */
+    public List<ArchivedTrade> read() {
+        ByteBuffer raw = inflate();
+        int n = rowCount;
+        long[] ids = new long[n];
+        long previous = 0;
+        for (int i = 0; i < n; i++) {
+            previous += raw.getLong();
+            ids[i] = previous;
+        }
+        long[] nameIdColumn = new long[n];
+        for (int i = 0; i < n; i++) {
+            nameIdColumn[i] = raw.getLong();
+        }
+        byte[] types = new byte[n];
+        raw.get(types);
+        long[] unitPrices = new long[n];
+        for (int i = 0; i < n; i++) {
+            unitPrices[i] = raw.getLong();
+        }
+        int[] quantities = new int[n];
+        for (int i = 0; i < n; i++) {
+            quantities[i] = raw.getInt();
+        }
+        long[] totalAmounts = new long[n];
+        for (int i = 0; i < n; i++) {
+            totalAmounts[i] = raw.getLong();
+        }
+        List<ArchivedTrade> trades = new ArrayList<>(n);
+        previous = 0;
+        for (int i = 0; i < n; i++) {
+            previous += raw.getLong();
+            trades.add(new ArchivedTrade(ids[i], portfolioId, nameIdColumn[i], TYPES[types[i]],
+                    unitPrices[i], quantities[i], totalAmounts[i], previous));
+        }
+        return trades;
+    }
+
+    private ByteBuffer inflate() {
+        ByteBuffer raw = ByteBuffer.allocate(rawLength);
+        Inflater inflater = new Inflater();
+        try {
+            // 直接以映射区为输入，压缩数据不复制到堆内
+            inflater.setInput(payload.duplicate());
+            while (!inflater.finished() && raw.hasRemaining()) {
+                if (inflater.inflate(raw) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("归档段数据损坏: " + file, e);
+        } finally {
+            inflater.end();
+        }
+        raw.flip();
+        CRC32 checksum = new CRC32();
+        checksum.update(raw.duplicate());
+        if (raw.remaining() != rawLength || (int) checksum.getValue() != crc) {
+            throw new IllegalStateException("归档段校验失败: " + file);
+        }
+        return raw;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteBuffer output = ByteBuffer.allocate(Math.max(64, input.length / 2));
+            while (!deflater.finished()) {
+                if (!output.hasRemaining()) {
+                    output = ByteBuffer.allocate(output.capacity() * 2).put(output.flip());
+                }
+                deflater.deflate(output);
+            }
+            return Arrays.copyOf(output.array(), output.position());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static int headerLength(int nameIdCount) {
+        return Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES * 2 + Integer.BYTES
+                + Long.BYTES * nameIdCount + Integer.BYTES * 3;
+    }
+}
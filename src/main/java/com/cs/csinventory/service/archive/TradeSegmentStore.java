@@ -0,0 +1,142 @@
+package com.cs.csinventory.service.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * 本地磁盘上的交易归档段集合
+ *
+ * 启动时打开目录中已有的段文件；新段先写入临时文件再原子重命名，读取方永远看不到写了一半的段。
+ * 段一旦发布就不再修改，查询按时间范围和 nameId 索引筛选出相关段后再解压。
+ */
+@Component
+@Slf4j
+public class TradeSegmentStore {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final Comparator<ArchivedTrade> CHRONOLOGICAL =
+            Comparator.comparingLong(ArchivedTrade::createdAtMicros).thenComparingLong(ArchivedTrade::id);
+
+    private final Path directory;
+    private final List<TradeSegment> segments = new CopyOnWriteArrayList<>();
+
+    public TradeSegmentStore(@Value("${app.archive.trades.directory:data/archive/trades}") Path directory) {
+        this.directory = directory;
+        load();
+    }
+
+    private void load() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // 上次写入中断留下的临时文件，对应的交易仍在数据库中
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(TradeSegment.EXTENSION)) {
+                    segments.add(TradeSegment.open(file));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取归档目录失败: " + directory, e);
+        }
+        log.info("已加载 {} 个交易归档段，目录: {}", segments.size(), directory.toAbsolutePath());
+    }
+
+    /**
+     * 将同一组合的一批交易写成新的段并发布
+     */
+    public TradeSegment append(List<ArchivedTrade> trades) {
+        List<ArchivedTrade> sorted = trades.stream().sorted(CHRONOLOGICAL).toList();
+        ArchivedTrade first = sorted.get(0);
+        String name = "trades-" + first.portfolioId() + "-" + first.createdAt().format(FILE_TIME) + "-" + first.id();
+        try {
+            Files.createDirectories(directory);
+            Path temp = directory.resolve(name + TradeSegment.EXTENSION + TEMP_SUFFIX);
+            Path target = directory.resolve(name + TradeSegment.EXTENSION);
+            TradeSegment.write(temp, sorted);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            TradeSegment segment = TradeSegment.open(target);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("发布归档段失败: " + name, e);
+        }
+    }
+
+    /**
+     * 撤销刚发布的段（对应的数据库删除未能提交时调用）
+     */
+    public void discard(TradeSegment segment) {
+        segments.remove(segment);
+        try {
+            Files.deleteIfExists(segment.file());
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除归档段失败: " + segment.file(), e);
+        }
+    }
+
+    public List<TradeSegment> segments() {
+        return List.copyOf(segments);
+    }
+
+    /**
+     * 查询组合内某个物品的全部归档交易
+     */
+    public List<ArchivedTrade> findByNameId(long portfolioId, long nameId) {
+        List<ArchivedTrade> result = new ArrayList<>();
+        for (TradeSegment segment : segments) {
+            if (segment.portfolioId() == portfolioId && segment.containsNameId(nameId)) {
+                segment.read().stream().filter(trade -> trade.nameId() == nameId).forEach(result::add);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查询组合内时间范围内（含两端）的归档交易
+     */
+    public List<ArchivedTrade> findBetween(long portfolioId, OffsetDateTime start, OffsetDateTime end) {
+        long from = ArchivedTrade.toMicros(start);
+        long to = ArchivedTrade.toMicros(end);
+        List<ArchivedTrade> result = new ArrayList<>();
+        for (TradeSegment segment : segments) {
+            if (segment.portfolioId() == portfolioId && segment.overlaps(from, to)) {
+                segment.read().stream()
+                        .filter(trade -> trade.createdAtMicros() >= from && trade.createdAtMicros() <= to)
+                        .forEach(result::add);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 组合的全部归档交易（导出全部交易记录时使用）
+     */
+    public List<ArchivedTrade> findAll(long portfolioId) {
+        List<ArchivedTrade> result = new ArrayList<>();
+        for (TradeSegment segment : segments) {
+            if (segment.portfolioId() == portfolioId) {
+                result.addAll(segment.read());
+            }
+        }
+        return result;
+    }
+}
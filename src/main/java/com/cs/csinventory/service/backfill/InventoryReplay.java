@@ -0,0 +1,57 @@
+package com.cs.csinventory.service.backfill;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.archive.ArchivedTrade;
+import com.cs.csinventory.service.money.Money;
+
+/**
+ * 按时间顺序重放单个物品的全部交易，得到最终库存（{@link Money} 定点单位）
+ *
+ * 计算方式与 InventoryService 逐笔更新库存完全一致：买入累加成本并重算加权平均成本，
+ * 卖出按比例减少总成本、平均成本不变，数量清零时库存记录删除、之后的买入重新开始。
+ */
+public class InventoryReplay {
+
+    private int quantity;
+    private long totalCost;
+    private long averageCost;
+    /** 重放过程中出现卖出数量超过持有数量 */
+    private boolean oversold;
+
+    public void apply(ArchivedTrade trade) {
+        if (oversold) {
+            return;
+        }
+        if (trade.type() == Trade.Type.BUY) {
+            quantity = Math.addExact(quantity, trade.quantity());
+            totalCost = Money.add(totalCost, trade.totalAmount());
+            averageCost = Money.divide(totalCost, quantity);
+        } else if (trade.quantity() > quantity) {
+            oversold = true;
+        } else if (trade.quantity() == quantity) {
+            quantity = 0;
+            totalCost = 0;
+            averageCost = 0;
+        } else {
+            long sellRatio = Money.ratio(trade.quantity(), quantity);
+            totalCost = Money.applyRatio(totalCost, Money.subtract(Money.ONE, sellRatio));
+            quantity -= trade.quantity();
+        }
+    }
+
+    public int quantity() {
+        return quantity;
+    }
+
+    public long totalCost() {
+        return totalCost;
+    }
+
+    public long averageCost() {
+        return averageCost;
+    }
+
+    public boolean oversold() {
+        return oversold;
+    }
+}
@@ -0,0 +1,364 @@
+package com.cs.csinventory.service.backfill;
+
+import com.cs.csinventory.domain.Inventory;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.InventoryRepository;
+import com.cs.csinventory.service.IdReservationService;
+import com.cs.csinventory.service.PortfolioService;
+import com.cs.csinventory.service.archive.ArchiveCheckpoint;
+import com.cs.csinventory.service.archive.ArchivedTrade;
+import com.cs.csinventory.service.archive.TradeArchiveRollups;
+import com.cs.csinventory.service.archive.TradeSegmentStore;
+import com.cs.csinventory.service.leaderboard.InventoryChangedEvent;
+import com.cs.csinventory.service.live.LiveUpdate;
+import com.cs.csinventory.service.live.LiveUpdateHub;
+import com.cs.csinventory.service.money.Money;
+import com.cs.csinventory.service.sync.ChangeLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 历史交易批量回填 - 从 CSV 流式导入交易，然后按时间顺序重放受影响物品的库存
+ *
+ * 逐条调用创建交易接口时，乱序到达的历史交易会让加权平均成本算错（卖出校验也可能失败）。
+ * 这里先不计算库存，按 batchRows 一批：批量校验 nameId、预留主键、保留原始 createdAt 用 JDBC 批量插入；
+ * 全部插入后，只对涉及的 nameId 按 (createdAt, id) 顺序重放全部交易（含已归档的），重新生成库存记录。
+ *
+ * 内存占用只与批大小和涉及的物品数有关，与文件行数无关：CSV 逐行读取，重放时按 nameId 分页读取交易。
+ * 格式错误、物品不存在或早于归档截止时间的行会被跳过并计入结果。
+ * 一次回填的所有交易属于同一个投资组合，重放和归档截止时间也只针对该组合。
+ */
+@Service
+@Slf4j
+public class TradeBackfillService {
+
+    /** 结果中最多返回的错误明细条数 */
+    private static final int MAX_ERRORS = 100;
+    /** IN 查询每批的参数个数 */
+    private static final int IN_CHUNK = 1000;
+
+    private static final String REPLAY_SQL =
+            "SELECT id, type, unit_price, quantity, total_amount, created_at FROM trades WHERE portfolio_id = ? AND name_id = ?";
+
+    private static final Comparator<ArchivedTrade> CHRONOLOGICAL =
+            Comparator.comparingLong(ArchivedTrade::createdAtMicros).thenComparingLong(ArchivedTrade::id);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeLog changeLog;
+    private final InventoryRepository inventoryRepository;
+    private final PortfolioService portfolioService;
+    private final TradeSegmentStore segmentStore;
+    private final TradeArchiveRollups rollups;
+    private final LiveUpdateHub liveUpdateHub;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdReservationService idReservation;
+    private final TransactionTemplate transaction;
+
+    @Value("${app.trades.backfill.directory:data/backfill}")
+    private Path directory;
+
+    @Value("${app.trades.backfill.batch-rows:5000}")
+    private int batchRows;
+
+    @Value("${app.trades.backfill.replay-items:200}")
+    private int replayItems;
+
+    @Value("${app.trades.backfill.replay-page:10000}")
+    private int replayPage;
+
+    public TradeBackfillService(JdbcTemplate jdbcTemplate, ChangeLog changeLog, InventoryRepository inventoryRepository,
+                                PortfolioService portfolioService, TradeSegmentStore segmentStore, TradeArchiveRollups rollups,
+                                LiveUpdateHub liveUpdateHub, ApplicationEventPublisher eventPublisher,
+                                IdReservationService idReservation, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.changeLog = changeLog;
+        this.inventoryRepository = inventoryRepository;
+        this.portfolioService = portfolioService;
+        this.segmentStore = segmentStore;
+        this.rollups = rollups;
+        this.liveUpdateHub = liveUpdateHub;
+        this.eventPublisher = eventPublisher;
+        this.idReservation = idReservation;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 回填服务器本地目录（app.trades.backfill.directory）中的 CSV 文件到指定组合
+     */
+    public BackfillResult backfillFile(Long portfolioId, String fileName) throws IOException {
+        Path base = directory.toAbsolutePath().normalize();
+        Path file = base.resolve(fileName).normalize();
+        if (!file.startsWith(base) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("回填文件不存在: " + fileName);
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return backfill(portfolioId, reader);
+        }
+    }
+
+    /**
+     * 从 CSV 流回填交易到指定组合（为 null 时为默认组合），并重放受影响物品的库存
+     */
+    public synchronized BackfillResult backfill(Long portfolioId, Reader csv) throws IOException {
+        long portfolio = portfolioService.requirePortfolio(portfolioId);
+        Progress progress = new Progress(portfolio,
+                rollups.findCheckpoint(portfolio).map(ArchiveCheckpoint::archivedBefore).orElse(null));
+        try (TradeCsvReader reader = new TradeCsvReader(csv)) {
+            List<TradeCsvReader.Row> batch = new ArrayList<>(batchRows);
+            TradeCsvReader.Row row;
+            while ((row = reader.next()) != null) {
+                progress.totalRows++;
+                if (row.error() != null) {
+                    progress.reject(row, row.error());
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() == batchRows) {
+                    insertBatch(batch, progress);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                insertBatch(batch, progress);
+            }
+        }
+        log.info("交易回填插入完成: 组合 {}，共 {} 行，插入 {} 笔，跳过 {} 行，涉及 {} 个物品",
+                portfolio, progress.totalRows, progress.inserted, progress.rejected, progress.touched.size());
+
+        List<Long> inconsistent = replayInventory(portfolio, progress.touched);
+        if (!inconsistent.isEmpty()) {
+            log.warn("以下物品重放时卖出数量超过持有数量，库存未更新: {}", inconsistent);
+        }
+        // 数据整体变化，在线客户端直接重新拉取
+        if (progress.inserted > 0 && liveUpdateHub.hasSubscribers()) {
+            liveUpdateHub.broadcast(new LiveUpdate(LiveUpdate.RESYNC, null, portfolio));
+        }
+        if (!progress.touched.isEmpty()) {
+            eventPublisher.publishEvent(InventoryChangedEvent.rebuilt(portfolio));
+        }
+        return new BackfillResult(progress.totalRows, progress.inserted, progress.rejected, progress.errors,
+                progress.touched.size(), inconsistent);
+    }
+
+    /**
+     * 校验并插入一批交易（一个事务）
+     */
+    private void insertBatch(List<TradeCsvReader.Row> batch, Progress progress) {
+        transaction.executeWithoutResult(status -> {
+            resolveNameIds(batch, progress);
+            List<TradeCsvReader.Row> valid = new ArrayList<>(batch.size());
+            for (TradeCsvReader.Row row : batch) {
+                if (!progress.knownNameIds.contains(row.nameId())) {
+                    progress.reject(row, "物品不存在，nameId: " + row.nameId());
+                } else if (progress.archivedBefore != null && row.createdAt().isBefore(progress.archivedBefore)) {
+                    progress.reject(row, "早于归档截止时间 " + progress.archivedBefore);
+                } else {
+                    valid.add(row);
+                }
+            }
+            if (valid.isEmpty()) {
+                return;
+            }
+
+            long firstId = idReservation.reserve("trades", valid.size());
+            List<Object[]> values = new ArrayList<>(valid.size());
+            for (int i = 0; i < valid.size(); i++) {
+                TradeCsvReader.Row row = valid.get(i);
+                long unitPrice = Money.of(row.unitPrice());
+                values.add(new Object[]{firstId + i, progress.portfolioId, row.nameId(), row.type().name(), Money.toBigDecimal(unitPrice),
+                        row.quantity(), Money.toBigDecimal(Money.times(unitPrice, row.quantity())),
+                        row.createdAt().withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime()});
+            }
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO trades (id, portfolio_id, name_id, type, unit_price, quantity, total_amount, created_at)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                    """, values);
+            // JDBC 写入不经过实体回调，显式记录变更日志
+            for (int i = 0; i < valid.size(); i++) {
+                changeLog.record(ChangeLog.Entity.TRADE, progress.portfolioId, firstId + i, ChangeLog.Op.UPSERT);
+                progress.touched.add(valid.get(i).nameId());
+            }
+            progress.inserted += valid.size();
+        });
+    }
+
+    /**
+     * 一次 IN 查询校验本批中尚未见过的 nameId，结果在整个回填过程中复用
+     */
+    private void resolveNameIds(List<TradeCsvReader.Row> batch, Progress progress) {
+        List<Long> unresolved = batch.stream()
+                .map(TradeCsvReader.Row::nameId)
+                .filter(nameId -> !progress.knownNameIds.contains(nameId) && !progress.missingNameIds.contains(nameId))
+                .distinct()
+                .toList();
+        for (int from = 0; from < unresolved.size(); from += IN_CHUNK) {
+            List<Long> chunk = unresolved.subList(from, Math.min(unresolved.size(), from + IN_CHUNK));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            Set<Long> found = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT name_id FROM items WHERE name_id IN (" + placeholders + ")", Long.class, chunk.toArray()));
+            for (Long nameId : chunk) {
+                (found.contains(nameId) ? progress.knownNameIds : progress.missingNameIds).add(nameId);
+            }
+        }
+    }
+
+    /**
+     * 按 nameId 分组（每组一个事务）重放库存
+     *
+     * @return 重放时出现超卖、库存未更新的 nameId
+     */
+    private List<Long> replayInventory(long portfolioId, Set<Long> touched) {
+        List<Long> nameIds = new ArrayList<>(touched);
+        List<Long> inconsistent = new ArrayList<>();
+        for (int from = 0; from < nameIds.size(); from += replayItems) {
+            List<Long> group = nameIds.subList(from, Math.min(nameIds.size(), from + replayItems));
+            transaction.executeWithoutResult(status -> {
+                Map<Long, Inventory> existing = inventoryRepository.findByPortfolioIdAndNameIdIn(portfolioId, group).stream()
+                        .collect(Collectors.toMap(Inventory::getNameId, Function.identity()));
+                for (Long nameId : group) {
+                    InventoryReplay replay = replay(portfolioId, nameId);
+                    if (replay.oversold()) {
+                        inconsistent.add(nameId);
+                        continue;
+                    }
+                    Inventory inventory = existing.get(nameId);
+                    if (replay.quantity() == 0) {
+                        if (inventory != null) {
+                            inventoryRepository.delete(inventory);
+                        }
+                        continue;
+                    }
+                    if (inventory == null) {
+                        inventory = Inventory.builder().portfolioId(portfolioId).nameId(nameId).build();
+                    }
+                    inventory.setCurrentQuantity(replay.quantity());
+                    inventory.setWeightedAverageCost(Money.toBigDecimal(replay.averageCost()));
+                    inventory.setTotalInvestmentCost(Money.toBigDecimal(replay.totalCost()));
+                    inventoryRepository.save(inventory);
+                }
+            });
+        }
+        return inconsistent;
+    }
+
+    /**
+     * 按 (createdAt, id) 顺序重放一个物品的已归档交易和数据库中的交易，数据库中的交易按页读取
+     */
+    private InventoryReplay replay(long portfolioId, long nameId) {
+        InventoryReplay replay = new InventoryReplay();
+        List<ArchivedTrade> archived = new ArrayList<>(segmentStore.findByNameId(portfolioId, nameId));
+        archived.sort(CHRONOLOGICAL);
+        int next = 0;
+
+        ArchivedTrade cursor = null;
+        while (true) {
+            List<ArchivedTrade> page = cursor == null
+                    ? jdbcTemplate.query(REPLAY_SQL + " ORDER BY created_at, id LIMIT ?",
+                            (rs, rowNum) -> mapTrade(rs, portfolioId, nameId), portfolioId, nameId, replayPage)
+                    : jdbcTemplate.query(REPLAY_SQL + " AND (created_at > ? OR (created_at = ? AND id > ?))"
+                                    + " ORDER BY created_at, id LIMIT ?",
+                            (rs, rowNum) -> mapTrade(rs, portfolioId, nameId),
+                            portfolioId, nameId, utc(cursor), utc(cursor), cursor.id(), replayPage);
+            for (ArchivedTrade trade : page) {
+                while (next < archived.size() && CHRONOLOGICAL.compare(archived.get(next), trade) < 0) {
+                    replay.apply(archived.get(next++));
+                }
+                // 归档过程中崩溃时同一笔交易可能同时存在于数据库和段文件
+                if (next < archived.size() && archived.get(next).id() == trade.id()) {
+                    next++;
+                }
+                replay.apply(trade);
+            }
+            if (page.size() < replayPage) {
+                break;
+            }
+            cursor = page.get(page.size() - 1);
+        }
+        while (next < archived.size()) {
+            replay.apply(archived.get(next++));
+        }
+        return replay;
+    }
+
+    private static ArchivedTrade mapTrade(ResultSet rs, long portfolioId, long nameId) throws SQLException {
+        OffsetDateTime createdAt = rs.getObject(6, LocalDateTime.class).atOffset(ZoneOffset.UTC);
+        return new ArchivedTrade(rs.getLong(1), portfolioId, nameId, Trade.Type.valueOf(rs.getString(2)),
+                Money.of(rs.getBigDecimal(3)), rs.getInt(4), Money.of(rs.getBigDecimal(5)),
+                ArchivedTrade.toMicros(createdAt));
+    }
+
+    private static LocalDateTime utc(ArchivedTrade trade) {
+        return trade.createdAt().toLocalDateTime();
+    }
+
+    /**
+     * 回填过程中的累计状态
+     */
+    private static final class Progress {
+        final long portfolioId;
+        final OffsetDateTime archivedBefore;
+        final Set<Long> knownNameIds = new HashSet<>();
+        final Set<Long> missingNameIds = new HashSet<>();
+        final Set<Long> touched = new TreeSet<>();
+        final List<String> errors = new ArrayList<>();
+        long totalRows;
+        long inserted;
+        long rejected;
+
+        Progress(long portfolioId, OffsetDateTime archivedBefore) {
+            this.portfolioId = portfolioId;
+            this.archivedBefore = archivedBefore;
+        }
+
+        void reject(TradeCsvReader.Row row, String reason) {
+            rejected++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add("第 " + row.line() + " 行: " + reason);
+            }
+        }
+    }
+
+    /**
+     * 回填结果
+     *
+     * @param errors              前 100 条被跳过的行及原因
+     * @param replayedItems       重放库存的物品数
+     * @param inconsistentNameIds 重放时卖出数量超过持有数量、库存未更新的物品
+     */
+    public record BackfillResult(
+            long totalRows,
+            long insertedTrades,
+            long rejectedRows,
+            List<String> errors,
+            int replayedItems,
+            List<Long> inconsistentNameIds
+    ) {
+    }
+}
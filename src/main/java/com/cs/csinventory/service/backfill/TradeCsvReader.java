@@ -0,0 +1,136 @@
+package com.cs.csinventory.service.backfill;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.money.Money;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 交易 CSV 流式读取器 - 每次只解析一行，内存占用与文件大小无关
+ *
+ * 首行为表头，需包含 nameId、type、unitPrice、quantity、createdAt 五列（不区分大小写，允许下划线写法，
+ * 列顺序任意，多余的列忽略）。createdAt 为 ISO-8601 时间，不带时区偏移时按 UTC 处理。
+ */
+class TradeCsvReader implements Closeable {
+
+    private static final String[] COLUMNS = {"nameid", "type", "unitprice", "quantity", "createdat"};
+
+    private final BufferedReader reader;
+    private final int[] positions = new int[COLUMNS.length];
+    private int lineNumber;
+
+    TradeCsvReader(Reader reader) throws IOException {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 1 << 16);
+        String header = this.reader.readLine();
+        lineNumber = 1;
+        if (header == null) {
+            throw new IllegalArgumentException("CSV文件为空");
+        }
+        if (header.startsWith("\uFEFF")) { // UTF-8 BOM
+            header = header.substring(1);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        String[] names = header.split(",", -1);
+        for (int i = 0; i < names.length; i++) {
+            columns.put(unquote(names[i]).replace("_", "").toLowerCase(Locale.ROOT), i);
+        }
+        for (int i = 0; i < COLUMNS.length; i++) {
+            Integer position = columns.get(COLUMNS[i]);
+            if (position == null) {
+                throw new IllegalArgumentException("CSV表头缺少列: " + COLUMNS[i]);
+            }
+            positions[i] = position;
+        }
+    }
+
+    /**
+     * 读取下一行，文件结束时返回 null；空行跳过，格式错误的行返回带错误信息的 Row
+     */
+    Row next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        String[] fields = line.split(",", -1);
+        try {
+            long nameId = Long.parseLong(field(fields, 0));
+            Trade.Type type = Trade.Type.valueOf(field(fields, 1).toUpperCase(Locale.ROOT));
+            BigDecimal unitPrice = new BigDecimal(field(fields, 2));
+            int quantity = Integer.parseInt(field(fields, 3));
+            OffsetDateTime createdAt = parseTime(field(fields, 4));
+            // 按写入时的4位小数舍入后校验，与创建交易一致；溢出只影响本行
+            long price;
+            try {
+                price = Money.of(unitPrice);
+            } catch (ArithmeticException e) {
+                return Row.invalid(lineNumber, "单价超出范围");
+            }
+            if (price <= 0) {
+                return Row.invalid(lineNumber, "单价必须大于0");
+            }
+            if (quantity <= 0) {
+                return Row.invalid(lineNumber, "数量必须大于0");
+            }
+            try {
+                Money.times(price, quantity);
+            } catch (ArithmeticException e) {
+                return Row.invalid(lineNumber, "总金额超出范围");
+            }
+            return new Row(lineNumber, nameId, type, unitPrice, quantity, createdAt, null);
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            return Row.invalid(lineNumber, "格式错误: " + line);
+        }
+    }
+
+    private String field(String[] fields, int column) {
+        return unquote(fields[positions[column]]);
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+
+    private static OffsetDateTime parseTime(String value) {
+        try {
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(value).atOffset(ZoneOffset.UTC);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * CSV 中的一笔交易，error 不为 null 时表示该行无效
+     */
+    record Row(int line, long nameId, Trade.Type type, BigDecimal unitPrice, int quantity,
+               OffsetDateTime createdAt, String error) {
+
+        static Row invalid(int line, String error) {
+            return new Row(line, 0, null, null, 0, null, error);
+        }
+    }
+}
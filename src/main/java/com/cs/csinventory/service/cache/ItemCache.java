@@ -0,0 +1,161 @@
+package com.cs.csinventory.service.cache;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.service.sync.ChangeLog;
+import com.cs.csinventory.service.sync.DataChangedEvent;
+import com.cs.csinventory.service.sync.DataVersions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 物品缓存 - 按 nameId 缓存物品，创建交易校验物品、推送和合并归档交易时查物品名称都先查这里
+ * （另记 marketHashName -> nameId，按名称批量查找时也先查缓存）
+ *
+ * 物品变更（本节点或集群其他节点）通过 {@link DataChangedEvent} 按物品ID精确失效；
+ * 集群轮询落后超过允许的最大延迟时直接查库。不存在的 nameId 不缓存，新建物品无需失效。
+ * 返回的是脱管实体，调用方只读不改。缓存条数有上限，超出后新查到的物品不再缓存。
+ */
+@Component
+public class ItemCache {
+
+    /** 未缓存的 key 每次 IN 查询的最大个数 */
+    static final int IN_CHUNK = 1000;
+
+    private final ItemRepository itemRepository;
+    private final DataVersions dataVersions;
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<Long, Item> byNameId = new ConcurrentHashMap<>();
+    /** 物品ID -> nameId，变更日志中物品的键是ID */
+    private final ConcurrentHashMap<Long, Long> nameIdById = new ConcurrentHashMap<>();
+    /** marketHashName -> nameId，命中后还要核对缓存物品的名称（物品改名后旧映射自然失效） */
+    private final ConcurrentHashMap<String, Long> nameIdByMarketHashName = new ConcurrentHashMap<>();
+    /** 每次失效递增：查库期间发生过失效时，查到的结果可能已过期，不放入缓存 */
+    private final AtomicLong generation = new AtomicLong();
+
+    public ItemCache(ItemRepository itemRepository, DataVersions dataVersions,
+                     @Value("${app.cache.items.max-entries:100000}") int maxEntries) {
+        this.itemRepository = itemRepository;
+        this.dataVersions = dataVersions;
+        this.maxEntries = maxEntries;
+    }
+
+    public Optional<Item> findByNameId(long nameId) {
+        if (dataVersions.coherent()) {
+            Item cached = byNameId.get(nameId);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        long loadedAt = generation.get();
+        Optional<Item> item = itemRepository.findByNameId(nameId);
+        item.ifPresent(found -> put(found, loadedAt));
+        return item;
+    }
+
+    /**
+     * 批量查找，未缓存的 nameId 按 IN_CHUNK 个一次 IN 查询
+     */
+    public Map<Long, Item> findByNameIdIn(Collection<Long> nameIds) {
+        Map<Long, Item> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        boolean useCache = dataVersions.coherent();
+        for (Long nameId : nameIds) {
+            Item cached = useCache ? byNameId.get(nameId) : null;
+            if (cached != null) {
+                result.put(nameId, cached);
+            } else {
+                missing.add(nameId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long loadedAt = generation.get();
+            for (int from = 0; from < missing.size(); from += IN_CHUNK) {
+                List<Long> chunk = missing.subList(from, Math.min(missing.size(), from + IN_CHUNK));
+                for (Item item : itemRepository.findByNameIdIn(chunk)) {
+                    result.put(item.getNameId(), item);
+                    put(item, loadedAt);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按 marketHashName 批量查找，未缓存的名称按 IN_CHUNK 个一次 IN 查询
+     */
+    public Map<String, Item> findByMarketHashNameIn(Collection<String> marketHashNames) {
+        Map<String, Item> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        boolean useCache = dataVersions.coherent();
+        for (String marketHashName : marketHashNames) {
+            Long nameId = useCache ? nameIdByMarketHashName.get(marketHashName) : null;
+            Item cached = nameId != null ? byNameId.get(nameId) : null;
+            if (cached != null && marketHashName.equals(cached.getMarketHashName())) {
+                result.put(marketHashName, cached);
+            } else {
+                missing.add(marketHashName);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long loadedAt = generation.get();
+            for (int from = 0; from < missing.size(); from += IN_CHUNK) {
+                List<String> chunk = missing.subList(from, Math.min(missing.size(), from + IN_CHUNK));
+                for (Item item : itemRepository.findByMarketHashNameIn(chunk)) {
+                    result.put(item.getMarketHashName(), item);
+                    put(item, loadedAt);
+                }
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return byNameId.size();
+    }
+
+    @EventListener
+    public void onDataChanged(DataChangedEvent event) {
+        if (event.everythingChanged()) {
+            generation.incrementAndGet();
+            byNameId.clear();
+            nameIdById.clear();
+            nameIdByMarketHashName.clear();
+            return;
+        }
+        for (ChangeLog.Change change : event.changes()) {
+            if (change.entity() == ChangeLog.Entity.ITEM) {
+                generation.incrementAndGet();
+                Long nameId = nameIdById.remove(change.key());
+                Item removed = nameId != null ? byNameId.remove(nameId) : null;
+                if (removed != null) {
+                    nameIdByMarketHashName.remove(removed.getMarketHashName(), nameId);
+                }
+            }
+        }
+    }
+
+    private void put(Item item, long loadedAt) {
+        if (byNameId.size() >= maxEntries) {
+            return;
+        }
+        nameIdById.put(item.getId(), item.getNameId());
+        nameIdByMarketHashName.put(item.getMarketHashName(), item.getNameId());
+        byNameId.put(item.getNameId(), item);
+        // 放入期间发生了失效：撤销，下次重新查库
+        if (generation.get() != loadedAt) {
+            byNameId.remove(item.getNameId(), item);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.cs.csinventory.service.cache;
+
+import com.cs.csinventory.service.sync.DataVersions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 相同计算合并（single-flight）- 同时到达的相同统计请求只计算一次，其余请求等待并共享结果
+ *
+ * 键为 (操作, 参数, 组合的 {@link DataVersions} 版本)：版本变化后开始的请求不会拿到写入提交前开始的计算结果。
+ * 第一个请求在自己的线程上计算，计算完成（或失败）后移除，后到的请求发起新的计算，不缓存结果。
+ * 计算失败时所有等待者收到同一个异常；等待超过 timeout 的请求收到超时异常，计算本身不受影响。
+ * 集群轮询落后时（{@link DataVersions#coherent} 为 false）版本不可靠，不合并。
+ */
+@Component
+public class SingleFlight {
+
+    private final DataVersions dataVersions;
+    private final Duration timeout;
+
+    private final ConcurrentHashMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+    public SingleFlight(DataVersions dataVersions, @Value("${app.stats.coalesce-timeout:30s}") Duration timeout) {
+        this.dataVersions = dataVersions;
+        this.timeout = timeout;
+    }
+
+    private record Key(String operation, List<?> args, long portfolioId, long version) {
+    }
+
+    /**
+     * 各操作的计数：实际计算次数、合并（省去）的计算次数、计算失败次数、等待超时次数
+     */
+    public record OperationStats(long executions, long coalesced, long failures, long timeouts) {
+    }
+
+    public record Stats(int inFlight, Map<String, OperationStats> operations) {
+    }
+
+    private static final class Counters {
+        final LongAdder executions = new LongAdder();
+        final LongAdder coalesced = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+
+        OperationStats snapshot() {
+            return new OperationStats(executions.sum(), coalesced.sum(), failures.sum(), timeouts.sum());
+        }
+    }
+
+    /**
+     * 执行或加入相同的进行中计算
+     *
+     * @param operation   操作名（通常为 服务.方法）
+     * @param portfolioId 结果所属的组合，版本取该组合的当前版本
+     * @param args        区分结果的参数，需实现 equals/hashCode
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, long portfolioId, List<?> args, Supplier<T> computation) {
+        Counters counter = counters.computeIfAbsent(operation, name -> new Counters());
+        if (!dataVersions.coherent()) {
+            counter.executions.increment();
+            return computation.get();
+        }
+        Key key = new Key(operation, args, portfolioId, dataVersions.current(portfolioId));
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            counter.coalesced.increment();
+            return (T) await(existing, operation, counter);
+        }
+        counter.executions.increment();
+        try {
+            T result = computation.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            counter.failures.increment();
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> flight, String operation, Counters counter) {
+        try {
+            return flight.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // 与发起计算的请求收到同一个异常
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("统计计算失败: " + operation, e.getCause());
+        } catch (TimeoutException e) {
+            counter.timeouts.increment();
+            throw new IllegalStateException("等待进行中的统计计算超时: " + operation + "，超过 " + timeout.toMillis() + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待统计计算时被中断: " + operation, e);
+        }
+    }
+
+    public Stats stats() {
+        Map<String, OperationStats> operations = new TreeMap<>();
+        counters.forEach((operation, counter) -> operations.put(operation, counter.snapshot()));
+        return new Stats(inFlight.size(), operations);
+    }
+}
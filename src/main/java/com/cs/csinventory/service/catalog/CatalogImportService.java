@@ -0,0 +1,263 @@
+package com.cs.csinventory.service.catalog;
+
+import com.cs.csinventory.service.IdReservationService;
+import com.cs.csinventory.service.ItemService;
+import com.cs.csinventory.service.sync.ChangeLog;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 物品目录增量导入 - 按内容哈希比较，只写入新增和变化的物品
+ *
+ * 整个文件的 SHA-256 与最近一次导入相同时不解析、不查物品表，直接返回。否则流式解析目录，
+ * 一次查询读出已有物品的 nameId、名称和内容哈希，在内存中比较：nameId 不存在的新增，哈希不同的更新名称
+ * （物品以 nameId 为准，marketHashName 也可以变化），其余不写。新增和更新按批（每批一个事务）用 JDBC 批量写入，
+ * 新增的主键从 id_generators 预留，变更日志显式记录。marketHashName 已属于其他物品、或文件内重复的条目跳过。
+ *
+ * 内容哈希只在导入时写入，通过接口新建的物品哈希为空，下次导入时按字段比较并补上哈希（不计为更新）。
+ */
+@Service
+@Slf4j
+public class CatalogImportService {
+
+    /** 结果中最多返回的跳过明细条数 */
+    private static final int MAX_SKIPPED_DETAILS = 100;
+
+    private static final String EXISTING_SQL = """
+            SELECT id, name_id, market_hash_name, content_hash,
+                   CASE WHEN content_hash IS NULL THEN cn_name END AS cn_name,
+                   CASE WHEN content_hash IS NULL THEN en_name END AS en_name
+            FROM items
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ChangeLog changeLog;
+    private final IdReservationService idReservation;
+    private final TransactionTemplate transaction;
+
+    @Value("${app.items.import.batch-rows:1000}")
+    private int batchRows;
+
+    public CatalogImportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, ChangeLog changeLog,
+                                IdReservationService idReservation, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.changeLog = changeLog;
+        this.idReservation = idReservation;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /** 目录中的一个物品 */
+    record Entry(String marketHashName, String enName, String cnName, long nameId, long hash) {
+    }
+
+    /** 数据库中已有的物品（cnName/enName 只在没有内容哈希时读取） */
+    private record Existing(long id, String marketHashName, Long hash, String cnName, String enName) {
+    }
+
+    /**
+     * 导入 JSON 目录：{"marketHashName": {"en_name": ..., "cn_name": ..., "name_id": ...}, ...}
+     */
+    public ItemService.ImportResult importCatalog(byte[] json) {
+        long start = System.nanoTime();
+        String fileHash = HexFormat.of().formatHex(sha256().digest(json));
+        List<Map<String, Object>> last = jdbcTemplate.queryForList(
+                "SELECT file_hash, total_items FROM catalog_imports ORDER BY id DESC LIMIT 1");
+        if (!last.isEmpty() && fileHash.equals(last.get(0).get("file_hash"))) {
+            int total = ((Number) last.get(0).get("total_items")).intValue();
+            log.info("物品目录与上次导入相同（{}），跳过", fileHash);
+            return new ItemService.ImportResult(0, 0, total, 0, List.of(), total, true);
+        }
+
+        Diff diff = new Diff();
+        Map<Long, Existing> byNameId = new HashMap<>();
+        Map<String, Long> nameIdByMarketHashName = new HashMap<>();
+        jdbcTemplate.query(EXISTING_SQL, rs -> {
+            long nameId = rs.getLong("name_id");
+            long hash = rs.getLong("content_hash");
+            Long contentHash = rs.wasNull() ? null : hash;
+            Existing existing = new Existing(rs.getLong("id"), rs.getString("market_hash_name"), contentHash,
+                    rs.getString("cn_name"), rs.getString("en_name"));
+            byNameId.put(nameId, existing);
+            nameIdByMarketHashName.put(existing.marketHashName(), nameId);
+        });
+
+        Map<Long, String> seenNameIds = new HashMap<>();
+        Map<String, Long> seenMarketHashNames = new HashMap<>();
+        int total = parse(json, diff, entry -> {
+            if (seenNameIds.putIfAbsent(entry.nameId(), entry.marketHashName()) != null
+                    || seenMarketHashNames.putIfAbsent(entry.marketHashName(), entry.nameId()) != null) {
+                diff.skip(entry.marketHashName() + " (文件内重复)");
+                return;
+            }
+            Long owner = nameIdByMarketHashName.get(entry.marketHashName());
+            if (owner != null && owner != entry.nameId()) {
+                diff.skip(entry.marketHashName() + " (已被 nameId " + owner + " 使用)");
+                return;
+            }
+            Existing existing = byNameId.get(entry.nameId());
+            if (existing == null) {
+                diff.added.add(entry);
+            } else if (existing.hash() != null ? existing.hash() == entry.hash() : sameContent(existing, entry)) {
+                diff.unchanged++;
+                if (existing.hash() == null) {
+                    diff.hashOnly.add(new Object[]{entry.hash(), existing.id()});
+                }
+            } else {
+                diff.updated.add(new Object[]{entry.marketHashName(), entry.cnName(), entry.enName(), entry.hash(),
+                        existing.id()});
+            }
+        });
+
+        write(diff);
+        jdbcTemplate.update("""
+                INSERT INTO catalog_imports (file_hash, total_items, added, updated, unchanged, skipped, imported_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """, fileHash, total, diff.added.size(), diff.updated.size(), diff.unchanged, diff.skipped,
+                LocalDateTime.now(ZoneOffset.UTC));
+        log.info("物品目录导入完成: 共 {} 个，新增 {}，更新 {}，未变化 {}，跳过 {}，耗时 {} ms", total, diff.added.size(),
+                diff.updated.size(), diff.unchanged, diff.skipped, (System.nanoTime() - start) / 1_000_000);
+        return new ItemService.ImportResult(diff.added.size(), diff.updated.size(), diff.unchanged, diff.skipped,
+                diff.skippedItems, total, false);
+    }
+
+    /**
+     * 流式解析目录，逐条交给 consumer，返回条目总数；格式错误的条目记为跳过
+     */
+    private int parse(byte[] json, Diff diff, Consumer<Entry> consumer) {
+        int total = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("物品目录必须是以 marketHashName 为键的 JSON 对象");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String marketHashName = parser.currentName();
+                parser.nextToken();
+                JsonNode data = parser.readValueAsTree();
+                total++;
+                JsonNode enName = data != null ? data.get("en_name") : null;
+                JsonNode cnName = data != null ? data.get("cn_name") : null;
+                JsonNode nameId = data != null ? data.get("name_id") : null;
+                if (enName == null || cnName == null || nameId == null) {
+                    diff.skip(marketHashName + " (缺少 en_name、cn_name 或 name_id)");
+                    continue;
+                }
+                consumer.accept(entry(marketHashName, enName.asText(), cnName.asText(), nameId.asLong()));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("解析物品目录失败: " + e.getMessage(), e);
+        }
+        return total;
+    }
+
+    /**
+     * 新增和更新按批写入，每批一个事务
+     */
+    private void write(Diff diff) {
+        for (int from = 0; from < diff.added.size(); from += batchRows) {
+            List<Entry> batch = diff.added.subList(from, Math.min(diff.added.size(), from + batchRows));
+            transaction.executeWithoutResult(status -> {
+                long firstId = idReservation.reserve("items", batch.size());
+                List<Object[]> values = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    Entry entry = batch.get(i);
+                    values.add(new Object[]{firstId + i, entry.marketHashName(), entry.cnName(), entry.enName(),
+                            entry.nameId(), entry.hash()});
+                }
+                jdbcTemplate.batchUpdate("""
+                        INSERT INTO items (id, market_hash_name, cn_name, en_name, name_id, content_hash)
+                        VALUES (?, ?, ?, ?, ?, ?)
+                        """, values);
+                // JDBC 写入不经过实体回调，显式记录变更日志
+                for (int i = 0; i < batch.size(); i++) {
+                    changeLog.record(ChangeLog.Entity.ITEM, null, firstId + i, ChangeLog.Op.UPSERT);
+                }
+            });
+        }
+        for (int from = 0; from < diff.updated.size(); from += batchRows) {
+            List<Object[]> batch = diff.updated.subList(from, Math.min(diff.updated.size(), from + batchRows));
+            transaction.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(
+                        "UPDATE items SET market_hash_name = ?, cn_name = ?, en_name = ?, content_hash = ? WHERE id = ?",
+                        batch);
+                batch.forEach(row -> changeLog.record(ChangeLog.Entity.ITEM, null, (Long) row[4], ChangeLog.Op.UPSERT));
+            });
+        }
+        // 只补内容哈希，物品本身没有变化，不记变更日志
+        for (int from = 0; from < diff.hashOnly.size(); from += batchRows) {
+            List<Object[]> batch = diff.hashOnly.subList(from, Math.min(diff.hashOnly.size(), from + batchRows));
+            jdbcTemplate.batchUpdate("UPDATE items SET content_hash = ? WHERE id = ?", batch);
+        }
+    }
+
+    private static boolean sameContent(Existing existing, Entry entry) {
+        return existing.marketHashName().equals(entry.marketHashName()) && Objects.equals(existing.cnName(), entry.cnName())
+                && Objects.equals(existing.enName(), entry.enName());
+    }
+
+    /**
+     * 条目的内容哈希：各字段 SHA-256 的前 8 字节
+     */
+    static Entry entry(String marketHashName, String enName, String cnName, long nameId) {
+        MessageDigest digest = sha256();
+        for (String field : new String[]{marketHashName, enName, cnName}) {
+            byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+            digest.update(bytes);
+        }
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(nameId).array());
+        long hash = ByteBuffer.wrap(digest.digest()).getLong();
+        return new Entry(marketHashName, enName, cnName, nameId, hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 比较结果：待新增、待更新（名称、哈希、ID）、只需补哈希（哈希、ID）、未变化数、跳过数
+     */
+    private static class Diff {
+        final List<Entry> added = new ArrayList<>();
+        final List<Object[]> updated = new ArrayList<>();
+        final List<Object[]> hashOnly = new ArrayList<>();
+        final List<String> skippedItems = new ArrayList<>();
+        int unchanged;
+        int skipped;
+
+        void skip(String detail) {
+            skipped++;
+            if (skippedItems.size() < MAX_SKIPPED_DETAILS) {
+                skippedItems.add(detail);
+            }
+        }
+    }
+}
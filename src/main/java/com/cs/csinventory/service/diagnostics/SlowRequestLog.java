@@ -0,0 +1,229 @@
+package com.cs.csinventory.service.diagnostics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 慢请求记录 - 耗时超过阈值的请求连同其执行的 SQL（绑定参数、耗时）保存在固定大小的环形缓冲区中
+ *
+ * 请求结束时才知道是否超过阈值，所以每个请求都开启 {@link SqlCapture}；未超过阈值时直接丢弃，
+ * 参数不格式化。超过阈值时在虚拟线程上对最慢的查询语句执行 EXPLAIN（带原绑定参数，不占用请求线程），
+ * 完成后放入缓冲区，缓冲区满时覆盖最早的记录。
+ *
+ * 同一时间最多执行一个 EXPLAIN：数据库变慢时几乎每个请求都超过阈值，不限制会使语句数翻倍并与请求争用连接池。
+ * 已有 EXPLAIN 在执行时，记录不带执行计划，explainError 为 {@value #EXPLAIN_BUSY}。
+ */
+@Component
+@EnableConfigurationProperties(SlowRequestProperties.class)
+@Slf4j
+public class SlowRequestLog {
+
+    /** 单个绑定参数格式化后的最大长度 */
+    private static final int MAX_PARAMETER_LENGTH = 200;
+
+    static final String EXPLAIN_BUSY = "explain skipped: busy";
+
+    private final SlowRequestProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecutorService explainer = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore explainPermit = new Semaphore(1);
+
+    private final SlowRequest[] ring;
+    private int next;
+    private final LongAdder captured = new LongAdder();
+
+    public SlowRequestLog(SlowRequestProperties properties, JdbcTemplate jdbcTemplate) {
+        if (properties.capacity() <= 0) {
+            throw new IllegalArgumentException("慢请求记录条数必须大于0");
+        }
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ring = new SlowRequest[properties.capacity()];
+    }
+
+    /**
+     * 一条 SQL 语句
+     *
+     * @param batchSize 批量执行的参数组数（parameters 为第一组），非批量为 0
+     */
+    public record CapturedStatement(String sql, List<String> parameters, long micros, int batchSize) {
+    }
+
+    /**
+     * 一个慢请求
+     *
+     * @param sqlMicros    全部语句的执行耗时之和（不含读取结果集）
+     * @param dropped      超出每个请求最大记录数而未记录的语句数
+     * @param slowest      最慢语句在 statements 中的下标，没有语句时为空
+     * @param explain      最慢语句的执行计划（第一行为列名），不是查询语句或未启用时为空
+     * @param explainError 执行 EXPLAIN 失败或跳过的原因
+     */
+    public record SlowRequest(OffsetDateTime at, String method, String uri, int status, long millis, long sqlMicros,
+                              int statementCount, int dropped, List<CapturedStatement> statements, Integer slowest,
+                              List<String> explain, String explainError) {
+    }
+
+    public record SlowRequests(boolean enabled, long thresholdMillis, long captured, List<SlowRequest> requests) {
+    }
+
+    /**
+     * 在当前请求线程开始记录 SQL，未启用时返回 null
+     */
+    public SqlCapture begin() {
+        return properties.enabled() ? SqlCapture.start(properties.maxStatements()) : null;
+    }
+
+    /**
+     * 请求结束：停止记录，耗时超过阈值时保存
+     *
+     * @param uri 请求路径（含查询参数）
+     */
+    public void end(SqlCapture capture, String method, String uri, int status, long nanos) {
+        capture.stop();
+        if (nanos < properties.threshold().toNanos()) {
+            return;
+        }
+        captured.increment();
+        OffsetDateTime at = OffsetDateTime.now();
+        List<SqlCapture.Statement> statements = capture.statements();
+        try {
+            explainer.execute(() -> store(toRecord(at, method, uri, status, nanos, capture, statements)));
+        } catch (RejectedExecutionException e) {
+            // 应用关闭中
+        }
+    }
+
+    private SlowRequest toRecord(OffsetDateTime at, String method, String uri, int status, long nanos,
+                                 SqlCapture capture, List<SqlCapture.Statement> statements) {
+        Integer slowest = null;
+        for (int i = 0; i < statements.size(); i++) {
+            if (slowest == null || statements.get(i).nanos() > statements.get(slowest).nanos()) {
+                slowest = i;
+            }
+        }
+        List<String> explain = null;
+        String explainError = null;
+        if (slowest != null && properties.explain() && isQuery(statements.get(slowest).sql())) {
+            if (explainPermit.tryAcquire()) {
+                try {
+                    explain = explain(statements.get(slowest));
+                } catch (RuntimeException e) {
+                    explainError = e.getMessage();
+                } finally {
+                    explainPermit.release();
+                }
+            } else {
+                explainError = EXPLAIN_BUSY;
+            }
+        }
+        List<CapturedStatement> captured = statements.stream()
+                .map(statement -> new CapturedStatement(statement.sql(),
+                        Arrays.stream(statement.parameters()).map(SlowRequestLog::format).toList(),
+                        TimeUnit.NANOSECONDS.toMicros(statement.nanos()), statement.batchSize()))
+                .toList();
+        SlowRequest request = new SlowRequest(at, method, uri, status, TimeUnit.NANOSECONDS.toMillis(nanos),
+                TimeUnit.NANOSECONDS.toMicros(capture.totalNanos()), statements.size() + capture.dropped(),
+                capture.dropped(), captured, slowest, explain, explainError);
+        log.warn("慢请求: {} {}，耗时 {} ms，SQL {} 条共 {} ms，最慢: {}", method, uri, request.millis(),
+                request.statementCount(), request.sqlMicros() / 1000,
+                slowest != null ? captured.get(slowest).sql() : "-");
+        return request;
+    }
+
+    /**
+     * 用原绑定参数执行 EXPLAIN，每行各列以 | 分隔
+     */
+    private List<String> explain(SqlCapture.Statement statement) {
+        return jdbcTemplate.query("EXPLAIN " + statement.sql(), (ResultSet rs) -> {
+            ResultSetMetaData meta = rs.getMetaData();
+            List<String> lines = new ArrayList<>();
+            List<String> columns = new ArrayList<>();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                columns.add(meta.getColumnLabel(i));
+            }
+            lines.add(String.join(" | ", columns));
+            while (rs.next()) {
+                lines.add(row(rs, meta.getColumnCount()));
+            }
+            return lines;
+        }, statement.parameters());
+    }
+
+    private static String row(ResultSet rs, int columns) throws SQLException {
+        List<String> values = new ArrayList<>(columns);
+        for (int i = 1; i <= columns; i++) {
+            values.add(String.valueOf(rs.getObject(i)));
+        }
+        return String.join(" | ", values);
+    }
+
+    private static boolean isQuery(String sql) {
+        String head = sql.stripLeading().toLowerCase(Locale.ROOT);
+        return head.startsWith("select") || head.startsWith("with");
+    }
+
+    private static String format(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof byte[] bytes) {
+            return "<" + bytes.length + " bytes>";
+        }
+        String text = value instanceof CharSequence ? "'" + value + "'" : String.valueOf(value);
+        return text.length() > MAX_PARAMETER_LENGTH ? text.substring(0, MAX_PARAMETER_LENGTH) + "..." : text;
+    }
+
+    private synchronized void store(SlowRequest request) {
+        ring[next] = request;
+        next = (next + 1) % ring.length;
+    }
+
+    /**
+     * 最近的慢请求，最新的在前
+     */
+    public SlowRequests recent() {
+        List<SlowRequest> requests = new ArrayList<>(ring.length);
+        synchronized (this) {
+            for (int i = 1; i <= ring.length; i++) {
+                SlowRequest request = ring[Math.floorMod(next - i, ring.length)];
+                if (request != null) {
+                    requests.add(request);
+                }
+            }
+        }
+        return new SlowRequests(properties.enabled(), properties.threshold().toMillis(), captured.sum(), requests);
+    }
+
+    /**
+     * 清空缓冲区（累计计数保留）
+     */
+    public synchronized void clear() {
+        Arrays.fill(ring, null);
+        next = 0;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        explainer.shutdownNow();
+    }
+}
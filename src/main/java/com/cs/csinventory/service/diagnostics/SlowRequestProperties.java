@@ -0,0 +1,24 @@
+package com.cs.csinventory.service.diagnostics;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * 慢请求诊断配置（app.diagnostics.slow-requests.*）
+ *
+ * @param threshold     请求耗时超过该值时保存记录
+ * @param capacity      环形缓冲区保存的最近慢请求条数
+ * @param maxStatements 每个请求最多记录的语句数，超出的只计数
+ * @param explain       是否对最慢的查询语句执行 EXPLAIN
+ */
+@ConfigurationProperties("app.diagnostics.slow-requests")
+public record SlowRequestProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1s") Duration threshold,
+        @DefaultValue("50") int capacity,
+        @DefaultValue("500") int maxStatements,
+        @DefaultValue("true") boolean explain
+) {
+}
@@ -0,0 +1,86 @@
+package com.cs.csinventory.service.diagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个请求线程上执行的 SQL 语句记录
+ *
+ * 由慢请求过滤器在请求开始时开启、结束时关闭，{@link SqlCaptureDataSource} 只在当前线程有开启的记录时
+ * 包装连接。绑定参数保存原始对象，只有请求确实超过阈值时才格式化，未超过阈值的请求只付出记录引用的开销。
+ * 只记录请求线程上的语句，统计接口在其他线程上并行执行的查询不在其中。
+ */
+public final class SqlCapture {
+
+    private static final ThreadLocal<SqlCapture> CURRENT = new ThreadLocal<>();
+
+    private final int maxStatements;
+    private final List<Statement> statements = new ArrayList<>();
+    private int dropped;
+    private long totalNanos;
+
+    private SqlCapture(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * 一次语句执行
+     *
+     * @param parameters 绑定参数（下标从 0 开始，对应 JDBC 参数 1 起），普通 Statement 为空数组
+     * @param batchSize  批量执行的参数组数，非批量为 0
+     */
+    public record Statement(String sql, Object[] parameters, int batchSize, long nanos) {
+    }
+
+    /**
+     * 在当前线程开启记录
+     */
+    public static SqlCapture start(int maxStatements) {
+        SqlCapture capture = new SqlCapture(maxStatements);
+        CURRENT.set(capture);
+        return capture;
+    }
+
+    /**
+     * 当前线程正在进行的记录，没有时为 null
+     */
+    static SqlCapture current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 关闭当前线程的记录
+     */
+    public void stop() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    void record(String sql, Object[] parameters, int batchSize, long nanos) {
+        totalNanos += nanos;
+        if (statements.size() < maxStatements) {
+            statements.add(new Statement(sql, parameters, batchSize, nanos));
+        } else {
+            dropped++;
+        }
+    }
+
+    public List<Statement> statements() {
+        return statements;
+    }
+
+    /**
+     * 超出 maxStatements 未记录的语句数
+     */
+    public int dropped() {
+        return dropped;
+    }
+
+    /**
+     * 全部语句（含未记录的）的执行耗时之和
+     */
+    public long totalNanos() {
+        return totalNanos;
+    }
+}
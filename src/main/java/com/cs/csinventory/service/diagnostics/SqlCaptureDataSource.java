@@ -0,0 +1,214 @@
+package com.cs.csinventory.service.diagnostics;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * 记录 SQL 的数据源包装 - 当前线程有开启的 {@link SqlCapture} 时，返回的连接记录每条语句的 SQL、绑定参数和执行耗时
+ *
+ * 没有开启记录时直接返回原连接，只多一次 ThreadLocal 读取。只包装应用使用的 dataSource（配置了只读副本时是
+ * 读写路由数据源），主库和副本连接池本身不包装，避免同一条语句记两次。耗时只含 execute 调用，不含读取结果集。
+ */
+@Component
+public class SqlCaptureDataSource implements BeanPostProcessor {
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+    private static final Set<String> EXECUTE = Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate");
+    private static final Set<String> EXECUTE_BATCH = Set.of("executeBatch", "executeLargeBatch");
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && DATA_SOURCE_BEAN.equals(beanName)) {
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return capturing(super.getConnection());
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return capturing(super.getConnection(username, password));
+                }
+            };
+        }
+        return bean;
+    }
+
+    private static Connection capturing(Connection connection) {
+        if (SqlCapture.current() == null) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(SqlCaptureDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof CallableStatement statement) {
+                        return proxy(CallableStatement.class, new PreparedHandler(statement, (String) args[0]));
+                    }
+                    if (result instanceof PreparedStatement statement) {
+                        return proxy(PreparedStatement.class, new PreparedHandler(statement, (String) args[0]));
+                    }
+                    if (result instanceof Statement statement) {
+                        return proxy(Statement.class, new StatementHandler(statement));
+                    }
+                    return result;
+                });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SqlCaptureDataSource.class.getClassLoader(), new Class<?>[]{type},
+                handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void record(String sql, Object[] parameters, int batchSize, long startNanos) {
+        SqlCapture capture = SqlCapture.current();
+        if (capture != null && sql != null) {
+            capture.record(sql, parameters, batchSize, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * PreparedStatement：记录 setXxx(下标, 值) 设置的参数，批量执行时记录第一组参数和组数
+     */
+    private static final class PreparedHandler implements InvocationHandler {
+
+        private final PreparedStatement statement;
+        private final String sql;
+        private Object[] parameters = NO_PARAMETERS;
+        /** 已设置的最大参数下标 */
+        private int count;
+        private Object[] firstBatch;
+        private int batchSize;
+
+        PreparedHandler(PreparedStatement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (args != null && args.length >= 2 && args[0] instanceof Integer index && name.startsWith("set")) {
+                bind(index, name.equals("setNull") ? null : value(args[1]));
+                return SqlCaptureDataSource.invoke(statement, method, args);
+            }
+            if (args == null || args.length == 0) {
+                if (EXECUTE.contains(name)) {
+                    long start = System.nanoTime();
+                    try {
+                        return SqlCaptureDataSource.invoke(statement, method, args);
+                    } finally {
+                        record(sql, Arrays.copyOf(parameters, count), 0, start);
+                    }
+                }
+                if (EXECUTE_BATCH.contains(name)) {
+                    long start = System.nanoTime();
+                    try {
+                        return SqlCaptureDataSource.invoke(statement, method, args);
+                    } finally {
+                        record(sql, firstBatch != null ? firstBatch : NO_PARAMETERS, batchSize, start);
+                        firstBatch = null;
+                        batchSize = 0;
+                    }
+                }
+                if (name.equals("addBatch")) {
+                    if (batchSize++ == 0) {
+                        firstBatch = Arrays.copyOf(parameters, count);
+                    }
+                } else if (name.equals("clearParameters")) {
+                    Arrays.fill(parameters, null);
+                    count = 0;
+                } else if (name.equals("clearBatch")) {
+                    firstBatch = null;
+                    batchSize = 0;
+                }
+            }
+            return SqlCaptureDataSource.invoke(statement, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+            count = Math.max(count, index);
+        }
+
+        /**
+         * 流和大对象只记类型，不保留引用
+         */
+        private static Object value(Object value) {
+            if (value instanceof InputStream || value instanceof Reader || value instanceof Blob || value instanceof Clob) {
+                return "<" + value.getClass().getSimpleName() + ">";
+            }
+            return value;
+        }
+    }
+
+    /**
+     * 普通 Statement：SQL 在执行时传入，批量执行时记录第一条 SQL 和条数
+     */
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+        private String firstBatch;
+        private int batchSize;
+
+        StatementHandler(Statement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (EXECUTE.contains(name) && args != null && args.length > 0 && args[0] instanceof String sql) {
+                long start = System.nanoTime();
+                try {
+                    return SqlCaptureDataSource.invoke(statement, method, args);
+                } finally {
+                    record(sql, NO_PARAMETERS, 0, start);
+                }
+            }
+            if (EXECUTE_BATCH.contains(name)) {
+                long start = System.nanoTime();
+                try {
+                    return SqlCaptureDataSource.invoke(statement, method, args);
+                } finally {
+                    record(firstBatch, NO_PARAMETERS, batchSize, start);
+                    firstBatch = null;
+                    batchSize = 0;
+                }
+            }
+            if (name.equals("addBatch") && args != null && args.length == 1 && batchSize++ == 0) {
+                firstBatch = (String) args[0];
+            }
+            return SqlCaptureDataSource.invoke(statement, method, args);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.cs.csinventory.service.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * 当前持仓汇总（按加权平均成本计算的持仓成本、持有物品种类数）
+ */
+public record HoldingSummaryDTO(
+        BigDecimal holdingCost,
+        Long holdingItems
+) {
+    public HoldingSummaryDTO {
+        // 没有持仓时 SUM 返回 null
+        holdingCost = holdingCost != null ? holdingCost : BigDecimal.ZERO;
+        holdingItems = holdingItems != null ? holdingItems : 0L;
+    }
+}
@@ -1,5 +1,6 @@
 package com.cs.csinventory.service.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 
 import java.math.BigDecimal;
@@ -7,8 +8,11 @@ import java.time.LocalDate;
 
 /**
  * 投资池统计DTO - 把CS物品交易看作一个动态投资池
+ *
+ * 只请求部分字段（?fields=）时，未请求的字段为空且不输出。
  */
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record InvestmentPoolDTO(
         // 资金流统计
         BigDecimal totalInvestment,     // 累计投入资金 (所有买入金额总和) - 已废弃，保留用于兼容
@@ -0,0 +1,12 @@
+package com.cs.csinventory.service.dto;
+
+import java.util.List;
+
+/**
+ * 跨组合投资池统计 - 合并各组合聚合后的总计，以及各组合各自的统计
+ */
+public record InvestmentPoolSummaryDTO(
+        InvestmentPoolDTO total,
+        List<PortfolioPoolDTO> portfolios
+) {
+}
@@ -0,0 +1,37 @@
+package com.cs.csinventory.service.dto;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * 单个物品的交易表现（组合内，包含已归档交易）
+ */
+@Builder
+public record ItemAnalyticsDTO(
+        Long nameId,
+        String cnName,
+        String enName,
+
+        // 交易量
+        Long buyTrades,                 // 买入笔数
+        Long sellTrades,                // 卖出笔数
+        Long buyQuantity,               // 累计买入数量
+        Long sellQuantity,              // 累计卖出数量
+        Integer currentQuantity,        // 当前持有数量
+
+        // 价格与盈利
+        BigDecimal averageBuyPrice,     // 平均买入价 (买入金额 / 买入数量)
+        BigDecimal averageSellPrice,    // 平均卖出价 (卖出金额 / 卖出数量)，未卖出时为空
+        BigDecimal realizedProfit,      // 已实现盈利 (卖出金额 - 已卖出部分的成本)，与投资池口径一致
+        BigDecimal realizedMargin,      // 已实现利润率 (已实现盈利 / 已卖出部分的成本)，未卖出时为空
+
+        // 周转与频率
+        BigDecimal turnover,            // 周转率 (卖出数量 / 买入数量)
+        BigDecimal holdingDays,         // 持有天数 (持仓数量大于0的累计时长)
+        BigDecimal tradesPerMonth,      // 交易频率 (每30天的交易笔数，按首笔到最后一笔交易的时间跨度计算)
+        OffsetDateTime firstTradeAt,
+        OffsetDateTime lastTradeAt
+) {
+}
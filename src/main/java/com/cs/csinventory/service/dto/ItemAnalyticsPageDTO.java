@@ -0,0 +1,16 @@
+package com.cs.csinventory.service.dto;
+
+import java.util.List;
+
+/**
+ * 物品交易表现分页结果
+ */
+public record ItemAnalyticsPageDTO(
+        long total,         // 组合内交易过的物品总数
+        int page,           // 页码，从0开始
+        int size,
+        String sort,
+        String direction,
+        List<ItemAnalyticsDTO> items
+) {
+}
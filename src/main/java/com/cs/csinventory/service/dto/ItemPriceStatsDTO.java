@@ -0,0 +1,13 @@
+package com.cs.csinventory.service.dto;
+
+/**
+ * 单个物品的买入、卖出成交价格统计（组合内，包含已归档交易），没有对应方向的交易时为空
+ */
+public record ItemPriceStatsDTO(
+        Long nameId,
+        String cnName,
+        String enName,
+        PriceStatsDTO buy,
+        PriceStatsDTO sell
+) {
+}
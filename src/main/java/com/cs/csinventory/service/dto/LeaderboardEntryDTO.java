@@ -0,0 +1,15 @@
+package com.cs.csinventory.service.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * 排行榜中的一个物品
+ */
+public record LeaderboardEntryDTO(
+        int rank,           // 名次，从1开始
+        Long nameId,
+        String cnName,
+        String enName,
+        BigDecimal value    // 排名依据的数值（金额或交易笔数）
+) {
+}
@@ -0,0 +1,16 @@
+package com.cs.csinventory.service.dto;
+
+import java.util.List;
+
+/**
+ * 组合的实时排行榜
+ */
+public record LeaderboardsDTO(
+        Long portfolioId,
+        List<LeaderboardEntryDTO> largestPositions,   // 持仓成本最高
+        List<LeaderboardEntryDTO> topRealizedProfit,  // 已实现盈利最高
+        List<LeaderboardEntryDTO> bestRealizedMargin, // 已实现利润率最高（已实现盈利 / 已卖出部分的成本）
+        List<LeaderboardEntryDTO> mostTraded,         // 交易笔数最多（含已归档）
+        List<LeaderboardEntryDTO> mostTradedThisWeek  // 最近 7 天（含今天，UTC）交易笔数最多
+) {
+}
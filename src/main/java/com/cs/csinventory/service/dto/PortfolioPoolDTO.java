@@ -0,0 +1,11 @@
+package com.cs.csinventory.service.dto;
+
+/**
+ * 单个投资组合的投资池统计
+ */
+public record PortfolioPoolDTO(
+        Long portfolioId,
+        String name,
+        InvestmentPoolDTO pool
+) {
+}
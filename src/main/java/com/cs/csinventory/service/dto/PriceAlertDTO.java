@@ -0,0 +1,24 @@
+package com.cs.csinventory.service.dto;
+
+import com.cs.csinventory.service.alerts.PriceAlertType;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * 价格提醒
+ */
+@Builder
+public record PriceAlertDTO(
+        long id,
+        long portfolioId,
+        long nameId,
+        PriceAlertType type,
+        BigDecimal target,          // 提醒价格，DRAWDOWN 为相对加权平均成本的跌幅百分比
+        BigDecimal threshold,       // 当前触发价格（DRAWDOWN 按当前加权平均成本计算，未持有时为空）
+        OffsetDateTime createdAt,
+        OffsetDateTime triggeredAt, // 未触发时为空
+        BigDecimal triggeredPrice
+) {
+}
@@ -0,0 +1,24 @@
+package com.cs.csinventory.service.dto;
+
+import com.cs.csinventory.service.alerts.PriceAlertType;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * 一次价格提醒触发，sequence 在本节点内递增，客户端按 sequence 增量拉取
+ */
+@Builder
+public record PriceAlertEventDTO(
+        long sequence,
+        long alertId,
+        long portfolioId,
+        long nameId,
+        PriceAlertType type,
+        BigDecimal target,
+        BigDecimal threshold,   // 触发时的触发价格
+        BigDecimal price,       // 触发提醒的价格
+        OffsetDateTime firedAt
+) {
+}
@@ -0,0 +1,26 @@
+package com.cs.csinventory.service.dto;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * 物品一个方向（买入或卖出）的成交价格统计，分位数按成交数量加权
+ */
+@Builder
+public record PriceStatsDTO(
+        long trades,                // 成交笔数
+        long quantity,              // 成交数量
+        BigDecimal vwap,            // 成交量加权均价 (成交金额 / 成交数量)
+        BigDecimal min,             // 最低成交价
+        BigDecimal max,             // 最高成交价
+        BigDecimal last,            // 最近一笔成交价
+        OffsetDateTime lastTradeAt, // 最近一笔成交时间
+        BigDecimal p10,             // 10% 分位价（近似）
+        BigDecimal median,          // 中位价（近似）
+        BigDecimal p90,             // 90% 分位价（近似）
+        // 为 false 时有交易被删除、尚未重建：笔数、数量、均价准确，最值、最近成交价和分位数仍包含已删除的交易
+        boolean exact
+) {
+}
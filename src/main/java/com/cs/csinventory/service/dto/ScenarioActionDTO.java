@@ -0,0 +1,18 @@
+package com.cs.csinventory.service.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * 假设操作：买入、卖出（按单价和数量），或设定物品的市场单价（持仓按该价格估值）
+ */
+public record ScenarioActionDTO(
+        Type type,
+        Long nameId,
+        Integer quantity,       // SET_PRICE 时不需要
+        BigDecimal unitPrice
+) {
+
+    public enum Type {
+        BUY, SELL, SET_PRICE
+    }
+}
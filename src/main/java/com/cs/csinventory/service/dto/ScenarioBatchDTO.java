@@ -0,0 +1,13 @@
+package com.cs.csinventory.service.dto;
+
+import java.util.List;
+
+/**
+ * 一批场景的结果，所有场景基于同一个组合快照（dataVersion 为快照对应的数据版本）
+ */
+public record ScenarioBatchDTO(
+        Long portfolioId,
+        long dataVersion,
+        List<ScenarioResultDTO> results
+) {
+}
@@ -0,0 +1,14 @@
+package com.cs.csinventory.service.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 假设场景：在组合当前状态上依次执行的假设操作
+ */
+public record ScenarioDTO(
+        String name,                        // 场景名称（原样返回）
+        List<ScenarioActionDTO> actions,    // 依次执行的假设操作
+        BigDecimal marketValue              // 持仓总估值，非空时覆盖按物品估值的结果（同手动输入市场价值）
+) {
+}
@@ -0,0 +1,11 @@
+package com.cs.csinventory.service.dto;
+
+/**
+ * 一个场景的结果：执行假设操作后的投资池统计；操作无效（如卖出数量超过持仓）时 pool 为空，error 为原因
+ */
+public record ScenarioResultDTO(
+        String name,
+        InvestmentPoolDTO pool,
+        String error
+) {
+}
@@ -0,0 +1,28 @@
+package com.cs.csinventory.service.dto;
+
+import com.cs.csinventory.domain.Item;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * 增量同步结果 - since 之后的一页变更
+ *
+ * 客户端把 upsert 合并进本地缓存、删除 deleted* 中的记录，然后用 nextSince 继续请求，直到 hasMore 为 false。
+ * resetRequired 为 true 表示 since 之前的变更日志已被清理，需要重新全量下载后从 latest 开始同步。
+ */
+@Builder
+public record SyncPageDTO(
+        long since,
+        long nextSince,
+        long latest,
+        boolean hasMore,
+        boolean resetRequired,
+        List<Item> items,
+        List<InventoryWithItemDTO> inventory,
+        List<TradeWithItemDTO> trades,
+        List<Long> deletedItems,        // 物品ID
+        List<Long> deletedInventory,    // 库存按 nameId 标识
+        List<Long> deletedTrades        // 交易ID
+) {
+}
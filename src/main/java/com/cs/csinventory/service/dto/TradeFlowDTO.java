@@ -0,0 +1,14 @@
+package com.cs.csinventory.service.dto;
+
+import com.cs.csinventory.domain.Trade;
+
+import java.math.BigDecimal;
+
+/**
+ * 资金流水投影 - 只包含计算峰值净投入所需的交易类型和金额
+ */
+public record TradeFlowDTO(
+        Trade.Type type,
+        BigDecimal totalAmount
+) {
+}
@@ -0,0 +1,18 @@
+package com.cs.csinventory.service.dto;
+
+import com.cs.csinventory.domain.Trade;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * 按交易类型汇总的交易统计（总金额、笔数、最早/最晚交易时间）
+ */
+public record TradeTypeSummaryDTO(
+        Trade.Type type,
+        BigDecimal totalAmount,
+        Long tradeCount,
+        OffsetDateTime firstTradeAt,
+        OffsetDateTime lastTradeAt
+) {
+}
@@ -0,0 +1,58 @@
+package com.cs.csinventory.service.leaderboard;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.money.Money;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * 库存变更事件 - 在处理/回滚交易的事务内发布，内容均为增量（定点金额），提交顺序不同也可以直接累加
+ *
+ * nameId 为空表示组合的库存被批量重建（例如历史回填），监听方应整体重新计算。
+ */
+public record InventoryChangedEvent(
+        long portfolioId,
+        Long nameId,
+        long buyAmount,         // 买入金额增量
+        long sellAmount,        // 卖出金额增量
+        long holdingCost,       // 持仓成本增量
+        int trades,             // 交易笔数增量（+1 处理，-1 回滚）
+        LocalDate tradeDate     // 交易日期（UTC），批量重建时为 null
+) {
+
+    /**
+     * 交易已计入库存
+     */
+    public static InventoryChangedEvent applied(Trade trade, long holdingCostDelta) {
+        return of(trade, 1, holdingCostDelta);
+    }
+
+    /**
+     * 交易已从库存中回滚
+     */
+    public static InventoryChangedEvent rolledBack(Trade trade, long holdingCostDelta) {
+        return of(trade, -1, holdingCostDelta);
+    }
+
+    /**
+     * 组合的库存被批量重建
+     */
+    public static InventoryChangedEvent rebuilt(long portfolioId) {
+        return new InventoryChangedEvent(portfolioId, null, 0, 0, 0, 0, null);
+    }
+
+    public boolean bulk() {
+        return nameId == null;
+    }
+
+    private static InventoryChangedEvent of(Trade trade, int sign, long holdingCostDelta) {
+        long amount = sign * Money.of(trade.getTotalAmount());
+        boolean buy = trade.getType() == Trade.Type.BUY;
+        LocalDate tradeDate = trade.getCreatedAt() != null
+                ? trade.getCreatedAt().withOffsetSameInstant(ZoneOffset.UTC).toLocalDate()
+                : LocalDate.now(ZoneOffset.UTC);
+        return new InventoryChangedEvent(trade.getPortfolioId(), trade.getNameId(), buy ? amount : 0, buy ? 0 : amount,
+                holdingCostDelta, sign, tradeDate);
+    }
+}
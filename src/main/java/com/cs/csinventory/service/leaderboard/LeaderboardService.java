@@ -0,0 +1,349 @@
+package com.cs.csinventory.service.leaderboard;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.service.PortfolioService;
+import com.cs.csinventory.service.cache.ItemCache;
+import com.cs.csinventory.service.dto.LeaderboardEntryDTO;
+import com.cs.csinventory.service.dto.LeaderboardsDTO;
+import com.cs.csinventory.service.money.Money;
+import com.cs.csinventory.service.sync.ChangeLog;
+import com.cs.csinventory.service.sync.DataChangedEvent;
+import com.cs.csinventory.service.sync.DataVersions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * 实时排行榜 - 每个组合在内存中维护持仓成本、已实现盈利、已实现利润率、累计交易笔数、最近 7 天交易笔数五个榜单
+ *
+ * 启动时从数据库（未归档交易 + 归档汇总 + 库存）重建；之后由 InventoryService 处理/回滚交易时发布的
+ * {@link InventoryChangedEvent} 在提交后增量更新，每次更新 O(log n)，读取前 k 名 O(log n + k)，不查库。
+ * 已实现盈利与投资池口径一致：卖出金额 - (买入金额 - 当前持仓成本)；利润率 = 已实现盈利 / (买入金额 - 当前持仓成本)，
+ * 与物品分析的 realizedMargin 一致。最近 7 天按 UTC 日期分桶计数，日期变化时移出过期的桶（每个桶只移出一次）。
+ *
+ * 批量重建库存（历史回填）、集群其他节点的写入无法增量得到，只把组合标记为过期，下次读取时重建；
+ * 重建期间有新的提交时同样标记为过期。集群轮询落后时（{@link DataVersions#coherent} 为 false）直接按数据库计算。
+ */
+@Service
+@Slf4j
+public class LeaderboardService {
+
+    public static final int MAX_LIMIT = 100;
+
+    private static final String LOAD_SQL = """
+            SELECT p.name_id, p.buy_amount, p.sell_amount, p.trade_count,
+                   COALESCE(inv.total_investment_cost, 0) AS total_investment_cost
+            FROM (
+                SELECT name_id,
+                       SUM(CASE WHEN type = 'BUY' THEN total_amount ELSE 0 END) AS buy_amount,
+                       SUM(CASE WHEN type = 'SELL' THEN total_amount ELSE 0 END) AS sell_amount,
+                       SUM(trade_count) AS trade_count
+                FROM (
+                    SELECT name_id, type, total_amount, 1 AS trade_count
+                    FROM trades
+                    WHERE portfolio_id = ?
+                    UNION ALL
+                    SELECT name_id, type, total_amount, trade_count
+                    FROM trade_archive_rollups
+                    WHERE portfolio_id = ?
+                ) activity
+                GROUP BY name_id
+            ) p
+            LEFT JOIN inventory inv ON inv.portfolio_id = ? AND inv.name_id = p.name_id
+            """;
+
+    /** 最近 7 天每个物品每天的交易笔数 */
+    private static final String LOAD_RECENT_SQL = """
+            SELECT name_id, trade_date, SUM(trade_count) AS trade_count
+            FROM (
+                SELECT name_id, trade_date, 1 AS trade_count
+                FROM trades
+                WHERE portfolio_id = ? AND created_at >= ?
+                UNION ALL
+                SELECT name_id, trade_date, trade_count
+                FROM trade_archive_rollups
+                WHERE portfolio_id = ? AND trade_date >= ?
+            ) recent
+            GROUP BY name_id, trade_date
+            """;
+
+    /** 交易笔数滚动窗口的天数（含今天） */
+    static final int RECENT_DAYS = 7;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PortfolioService portfolioService;
+    private final DataVersions dataVersions;
+    private final ItemCache itemCache;
+
+    private final ConcurrentHashMap<Long, Board> boards = new ConcurrentHashMap<>();
+
+    public LeaderboardService(JdbcTemplate jdbcTemplate, PortfolioService portfolioService, DataVersions dataVersions,
+                              ItemCache itemCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.portfolioService = portfolioService;
+        this.dataVersions = dataVersions;
+        this.itemCache = itemCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            for (Portfolio portfolio : portfolioService.getAllPortfolios()) {
+                rebuild(portfolio.getId());
+            }
+            log.info("排行榜已从数据库重建，组合数: {}", boards.size());
+        } catch (RuntimeException e) {
+            // 启动时重建失败不影响服务，读取时再重建
+            log.warn("启动时重建排行榜失败", e);
+        }
+    }
+
+    /**
+     * 组合的各个排行榜，各取前 limit 名（最多 100）
+     */
+    public LeaderboardsDTO getLeaderboards(Long portfolioId, int limit) {
+        long id = portfolioService.requirePortfolio(portfolioId);
+        int top = Math.max(1, Math.min(limit, MAX_LIMIT));
+        Board board = dataVersions.coherent() ? board(id) : load(id);
+
+        List<RankedSet.Ranked> positions;
+        List<RankedSet.Ranked> profit;
+        List<RankedSet.Ranked> margin;
+        List<RankedSet.Ranked> traded;
+        List<RankedSet.Ranked> tradedRecently;
+        synchronized (board) {
+            board.expire(today());
+            positions = board.positions.top(top);
+            profit = board.profit.top(top);
+            margin = board.margin.top(top);
+            traded = board.traded.top(top);
+            tradedRecently = board.tradedRecently.top(top);
+        }
+        Set<Long> nameIds = new HashSet<>();
+        for (List<RankedSet.Ranked> ranked : List.of(positions, profit, margin, traded, tradedRecently)) {
+            ranked.forEach(entry -> nameIds.add(entry.nameId()));
+        }
+        Map<Long, Item> items = nameIds.isEmpty() ? Map.of() : itemCache.findByNameIdIn(nameIds);
+        return new LeaderboardsDTO(id,
+                entries(positions, items, Money::toBigDecimal),
+                entries(profit, items, Money::toBigDecimal),
+                entries(margin, items, Money::toBigDecimal),
+                entries(traded, items, BigDecimal::valueOf),
+                entries(tradedRecently, items, BigDecimal::valueOf));
+    }
+
+    /**
+     * 交易处理或回滚已提交：增量更新对应物品在各榜单中的位置
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        Board board = boards.get(event.portfolioId());
+        if (board == null) {
+            // 尚未构建，读取时从数据库重建
+            return;
+        }
+        if (event.bulk()) {
+            board.stale = true;
+            return;
+        }
+        synchronized (board) {
+            board.apply(event, today());
+        }
+    }
+
+    /**
+     * 集群其他节点的写入：受影响的组合标记为过期
+     */
+    @EventListener
+    public void onDataChanged(DataChangedEvent event) {
+        if (!event.remote()) {
+            return;
+        }
+        if (event.everythingChanged()) {
+            boards.values().forEach(board -> board.stale = true);
+            return;
+        }
+        for (ChangeLog.Change change : event.changes()) {
+            if (change.entity() != ChangeLog.Entity.ITEM && change.portfolioId() != null) {
+                Board board = boards.get(change.portfolioId());
+                if (board != null) {
+                    board.stale = true;
+                }
+            }
+        }
+    }
+
+    private Board board(long portfolioId) {
+        Board board = boards.get(portfolioId);
+        if (board != null && !board.stale) {
+            return board;
+        }
+        return rebuild(portfolioId);
+    }
+
+    /**
+     * 从数据库重建组合的排行榜；同一时间只有一个重建，已被其他线程重建好的直接返回
+     */
+    synchronized Board rebuild(long portfolioId) {
+        Board current = boards.get(portfolioId);
+        if (current != null && !current.stale) {
+            return current;
+        }
+        long version = dataVersions.current(portfolioId);
+        Board board = load(portfolioId);
+        boards.put(portfolioId, board);
+        // 查询后、放入前提交的增量落在了旧榜单上，下次读取重新构建
+        if (dataVersions.current(portfolioId) != version) {
+            board.stale = true;
+        }
+        return board;
+    }
+
+    private Board load(long portfolioId) {
+        long start = System.nanoTime();
+        LocalDate today = today();
+        Board board = new Board(today);
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            board.put(rs.getLong("name_id"), new long[]{
+                    Money.of(rs.getBigDecimal("buy_amount")),
+                    Money.of(rs.getBigDecimal("sell_amount")),
+                    Money.of(rs.getBigDecimal("total_investment_cost")),
+                    rs.getLong("trade_count")});
+        }, portfolioId, portfolioId, portfolioId);
+        LocalDate windowStart = board.windowStart;
+        jdbcTemplate.query(LOAD_RECENT_SQL, rs -> {
+            board.count(rs.getLong("name_id"), rs.getObject("trade_date", LocalDate.class), rs.getLong("trade_count"));
+        }, portfolioId, windowStart.atStartOfDay(), portfolioId, windowStart);
+        log.debug("重建排行榜，组合: {}, 物品数: {}, 耗时 {} ms", portfolioId, board.items.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return board;
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+
+    private static List<LeaderboardEntryDTO> entries(List<RankedSet.Ranked> ranked, Map<Long, Item> items,
+                                                     Function<Long, BigDecimal> value) {
+        return IntStream.range(0, ranked.size()).mapToObj(i -> {
+            RankedSet.Ranked entry = ranked.get(i);
+            Item item = items.get(entry.nameId());
+            return new LeaderboardEntryDTO(i + 1, entry.nameId(), item != null ? item.getCnName() : null,
+                    item != null ? item.getEnName() : null, value.apply(entry.score()));
+        }).toList();
+    }
+
+    /**
+     * 一个组合的榜单：物品累计值 [买入金额, 卖出金额, 持仓成本, 交易笔数]、最近 7 天按日的交易笔数，和由此得出的各个排名
+     */
+    static class Board {
+
+        private static final int BUY = 0;
+        private static final int SELL = 1;
+        private static final int HOLDING = 2;
+        private static final int TRADES = 3;
+
+        private final Map<Long, long[]> items = new HashMap<>();
+        private final RankedSet positions = new RankedSet();
+        private final RankedSet profit = new RankedSet();
+        private final RankedSet margin = new RankedSet();
+        private final RankedSet traded = new RankedSet();
+
+        /** 日期 -> (nameId -> 当天交易笔数)，只保留 windowStart 及之后的 */
+        private final TreeMap<LocalDate, Map<Long, Long>> days = new TreeMap<>();
+        /** nameId -> 窗口内交易笔数 */
+        private final Map<Long, Long> recent = new HashMap<>();
+        private final RankedSet tradedRecently = new RankedSet();
+        private LocalDate windowStart;
+
+        /** 需要从数据库重建 */
+        private volatile boolean stale;
+
+        Board(LocalDate today) {
+            windowStart = today.minusDays(RECENT_DAYS - 1);
+        }
+
+        void apply(InventoryChangedEvent event, LocalDate today) {
+            long[] totals = items.computeIfAbsent(event.nameId(), nameId -> new long[4]);
+            totals[BUY] = Money.add(totals[BUY], event.buyAmount());
+            totals[SELL] = Money.add(totals[SELL], event.sellAmount());
+            totals[HOLDING] = Money.add(totals[HOLDING], event.holdingCost());
+            totals[TRADES] += event.trades();
+            put(event.nameId(), totals);
+            expire(today);
+            count(event.nameId(), event.tradeDate(), event.trades());
+        }
+
+        /**
+         * 窗口内某天的交易笔数增量；窗口之前的日期（历史交易、回滚旧交易）不计
+         */
+        void count(long nameId, LocalDate date, long trades) {
+            if (date == null || date.isBefore(windowStart) || trades == 0) {
+                return;
+            }
+            days.computeIfAbsent(date, day -> new HashMap<>()).merge(nameId, trades, Long::sum);
+            rankRecent(nameId, trades);
+        }
+
+        /**
+         * 窗口移到以 today 结束的 7 天，移出过期日期的交易笔数
+         */
+        void expire(LocalDate today) {
+            LocalDate start = today.minusDays(RECENT_DAYS - 1);
+            if (!start.isAfter(windowStart)) {
+                return;
+            }
+            windowStart = start;
+            NavigableMap<LocalDate, Map<Long, Long>> expired = days.headMap(start, false);
+            for (Map<Long, Long> day : expired.values()) {
+                day.forEach((nameId, trades) -> rankRecent(nameId, -trades));
+            }
+            expired.clear();
+        }
+
+        RankedSet tradedRecently() {
+            return tradedRecently;
+        }
+
+        private void rankRecent(long nameId, long delta) {
+            long trades = recent.merge(nameId, delta, Long::sum);
+            if (trades <= 0) {
+                recent.remove(nameId);
+            }
+            tradedRecently.put(nameId, trades, trades > 0);
+        }
+
+        private void put(long nameId, long[] totals) {
+            items.put(nameId, totals);
+            positions.put(nameId, totals[HOLDING], totals[HOLDING] > 0);
+            // 未卖出过的物品没有已实现盈利，不参与排名
+            long soldCost = Money.subtract(totals[BUY], totals[HOLDING]);
+            long realized = Money.subtract(totals[SELL], soldCost);
+            profit.put(nameId, realized, totals[SELL] > 0);
+            margin.put(nameId, soldCost > 0 ? Money.ratio(realized, soldCost) : 0, totals[SELL] > 0 && soldCost > 0);
+            traded.put(nameId, totals[TRADES], totals[TRADES] > 0);
+            if (totals[TRADES] <= 0 && totals[HOLDING] == 0) {
+                items.remove(nameId);
+            }
+        }
+    }
+}
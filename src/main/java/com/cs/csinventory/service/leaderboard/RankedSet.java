@@ -0,0 +1,56 @@
+package com.cs.csinventory.service.leaderboard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 按分数从高到低排列的物品集合 - 红黑树保存 (分数, nameId)，散列表记录每个物品当前的分数
+ *
+ * 更新分数先按旧分数从树中删除再插入，O(log n)；读取前 k 名从树头顺序遍历，O(log n + k)。
+ * 分数相同时 nameId 小的在前，排名稳定。非线程安全，由调用方加锁。
+ */
+class RankedSet {
+
+    record Ranked(long nameId, long score) {
+    }
+
+    private static final Comparator<Ranked> ORDER = Comparator.comparingLong(Ranked::score).reversed()
+            .thenComparingLong(Ranked::nameId);
+
+    private final TreeSet<Ranked> ranking = new TreeSet<>(ORDER);
+    private final Map<Long, Long> scores = new HashMap<>();
+
+    /**
+     * 设置物品的分数，include 为 false 时把物品移出榜单
+     */
+    void put(long nameId, long score, boolean include) {
+        Long previous = include ? scores.put(nameId, score) : scores.remove(nameId);
+        if (previous != null) {
+            if (include && previous == score) {
+                return;
+            }
+            ranking.remove(new Ranked(nameId, previous));
+        }
+        if (include) {
+            ranking.add(new Ranked(nameId, score));
+        }
+    }
+
+    List<Ranked> top(int limit) {
+        List<Ranked> top = new ArrayList<>(Math.min(limit, ranking.size()));
+        Iterator<Ranked> iterator = ranking.iterator();
+        while (top.size() < limit && iterator.hasNext()) {
+            top.add(iterator.next());
+        }
+        return top;
+    }
+
+    int size() {
+        return scores.size();
+    }
+}
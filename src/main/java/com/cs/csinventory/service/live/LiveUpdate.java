@@ -0,0 +1,33 @@
+package com.cs.csinventory.service.live;
+
+/**
+ * 推送给订阅者的一条增量消息，对应一个 SSE 事件
+ *
+ * @param event       事件名，为 null 时作为注释发送（心跳）
+ * @param data        事件数据，序列化为 JSON
+ * @param portfolioId 所属投资组合，只推送给订阅了该组合（或全部组合）的订阅者；为 null 时推送给所有订阅者
+ */
+public record LiveUpdate(String event, Object data, Long portfolioId) {
+
+    public static final String TRADE_CREATED = "trade-created";
+    public static final String TRADE_DELETED = "trade-deleted";
+    public static final String INVENTORY = "inventory";
+    public static final String INVENTORY_DELETED = "inventory-deleted";
+    public static final String POOL = "pool";
+    public static final String PRICE_ALERT = "price-alert";
+    /** 客户端处理不过来、增量已被丢弃，需要重新拉取完整数据 */
+    public static final String RESYNC = "resync";
+
+    static final LiveUpdate HEARTBEAT = new LiveUpdate(null, "ping");
+
+    /**
+     * 不属于特定组合的消息，推送给所有订阅者
+     */
+    public LiveUpdate(String event, Object data) {
+        this(event, data, null);
+    }
+
+    public boolean heartbeat() {
+        return event == null;
+    }
+}
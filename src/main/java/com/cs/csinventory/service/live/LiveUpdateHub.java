@@ -0,0 +1,203 @@
+package com.cs.csinventory.service.live;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 实时增量推送中心 - 管理 SSE 订阅者并向所有订阅者广播增量消息
+ *
+ * 订阅者可以只订阅一个投资组合，广播时属于其他组合的消息直接跳过，不进入它的队列。
+ *
+ * 每个订阅者有一个有界缓冲队列和一个虚拟线程负责写出：空闲订阅者只占用一个阻塞在队列上的虚拟线程，
+ * 不占用 Servlet 请求线程（SseEmitter 基于异步 Servlet）。广播从不阻塞：某个客户端处理不过来导致队列已满时，
+ * 丢弃它积压的增量，只留一条 resync 消息，客户端收到后重新拉取完整数据。
+ */
+@Component
+@Slf4j
+public class LiveUpdateHub implements DisposableBean {
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+    private final int bufferSize;
+
+    public LiveUpdateHub(@Value("${app.live.client-buffer:64}") int bufferSize) {
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("推送缓冲区大小至少为2");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * 新建一个 SSE 订阅（不超时，客户端断开或写出失败时移除）
+     *
+     * @param portfolioId 只接收该组合的增量，为 null 时接收所有组合的增量
+     */
+    public SseEmitter subscribe(Long portfolioId) {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = subscribe(portfolioId, update -> {
+            SseEmitter.SseEventBuilder event = SseEmitter.event();
+            if (update.heartbeat()) {
+                event.comment(String.valueOf(update.data()));
+            } else {
+                event.id(String.valueOf(sequence.incrementAndGet())).name(update.event())
+                        .data(update.data(), MediaType.APPLICATION_JSON);
+            }
+            emitter.send(event);
+        });
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        subscriber.onClose(emitter::complete);
+        return emitter;
+    }
+
+    Subscriber subscribe(Sink sink) {
+        return subscribe(null, sink);
+    }
+
+    Subscriber subscribe(Long portfolioId, Sink sink) {
+        Subscriber subscriber = new Subscriber(portfolioId, sink, bufferSize);
+        subscribers.add(subscriber);
+        subscriber.start();
+        return subscriber;
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * 因客户端积压而发出的 resync 次数
+     */
+    public long resyncCount() {
+        return resyncs.get();
+    }
+
+    /**
+     * 向所有订阅者广播（组合消息只发给订阅了该组合或全部组合的订阅者），不阻塞调用方
+     */
+    public void broadcast(LiveUpdate update) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.accepts(update)) {
+                subscriber.offer(update);
+            }
+        }
+    }
+
+    /**
+     * 定期发送心跳注释，及时发现已断开的连接（队列已满时跳过，不触发 resync）
+     */
+    @Scheduled(fixedDelayString = "${app.live.heartbeat:30s}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.queue.offer(LiveUpdate.HEARTBEAT);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        subscribers.forEach(Subscriber::close);
+    }
+
+    /**
+     * 订阅者的写出目标
+     */
+    @FunctionalInterface
+    interface Sink {
+        void send(LiveUpdate update) throws IOException;
+    }
+
+    /**
+     * 单个订阅者：有界队列 + 写出虚拟线程
+     */
+    final class Subscriber {
+
+        private final Long portfolioId;
+        private final Sink sink;
+        private final BlockingQueue<LiveUpdate> queue;
+        private volatile Thread writer;
+        private volatile Runnable closeHook = () -> { };
+        private volatile boolean closed;
+
+        private Subscriber(Long portfolioId, Sink sink, int bufferSize) {
+            this.portfolioId = portfolioId;
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private void start() {
+            writer = Thread.ofVirtual().name("live-update-writer").start(this::drain);
+        }
+
+        boolean accepts(LiveUpdate update) {
+            return portfolioId == null || update.portfolioId() == null || portfolioId.equals(update.portfolioId());
+        }
+
+        void offer(LiveUpdate update) {
+            if (queue.offer(update)) {
+                return;
+            }
+            synchronized (this) {
+                // 客户端落后：丢弃积压的增量，只保留一条 resync
+                if (queue.offer(update)) {
+                    return;
+                }
+                queue.clear();
+                queue.offer(new LiveUpdate(LiveUpdate.RESYNC, "客户端处理过慢，已丢弃积压的增量，请重新拉取完整数据"));
+                resyncs.incrementAndGet();
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!closed) {
+                    sink.send(queue.take());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                log.debug("推送连接已断开: {}", e.getMessage());
+            } finally {
+                close();
+            }
+        }
+
+        private void onClose(Runnable hook) {
+            this.closeHook = hook;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.remove(this);
+            Thread thread = writer;
+            if (thread != null && thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+            try {
+                closeHook.run();
+            } catch (RuntimeException e) {
+                log.debug("关闭推送连接失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.cs.csinventory.service.live;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.InventoryRepository;
+import com.cs.csinventory.service.InvestmentPoolService;
+import com.cs.csinventory.service.cache.ItemCache;
+import com.cs.csinventory.service.dto.TradeWithItemDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 交易提交后生成增量消息：交易本身、对应物品的最新库存行、投资池核心指标
+ *
+ * 只在有订阅者时工作。库存在新的读写事务中读取（走主库，读到刚提交的数据）；
+ * 投资池指标计算较重，同一组合连续多次提交只在一个虚拟线程上合并计算一次
+ * （统计走只读副本时可能略微滞后，下一次推送会更正）。所有消息都带有交易所属的投资组合。
+ */
+@Component
+@Slf4j
+public class LiveUpdatePublisher {
+
+    private final LiveUpdateHub hub;
+    private final ItemCache itemCache;
+    private final InventoryRepository inventoryRepository;
+    private final InvestmentPoolService investmentPoolService;
+    private final TransactionTemplate primaryRead;
+    /** 投资池指标已在排队计算的组合 */
+    private final Set<Long> poolRefreshPending = ConcurrentHashMap.newKeySet();
+
+    public LiveUpdatePublisher(LiveUpdateHub hub, ItemCache itemCache,
+                               InventoryRepository inventoryRepository, InvestmentPoolService investmentPoolService,
+                               PlatformTransactionManager transactionManager) {
+        this.hub = hub;
+        this.itemCache = itemCache;
+        this.inventoryRepository = inventoryRepository;
+        this.investmentPoolService = investmentPoolService;
+        this.primaryRead = new TransactionTemplate(transactionManager);
+        this.primaryRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTradeChanged(TradeChangedEvent event) {
+        if (!hub.hasSubscribers()) {
+            return;
+        }
+        try {
+            List<LiveUpdate> updates = primaryRead.execute(status -> buildUpdates(event));
+            updates.forEach(hub::broadcast);
+        } catch (RuntimeException e) {
+            // 推送失败不影响已提交的交易，客户端可通过 resync 恢复
+            log.warn("生成实时增量失败，交易ID: {}", event.trade().getId(), e);
+            hub.broadcast(new LiveUpdate(LiveUpdate.RESYNC, "生成增量失败，请重新拉取完整数据",
+                    event.trade().getPortfolioId()));
+        }
+        schedulePoolRefresh(event.trade().getPortfolioId());
+    }
+
+    private List<LiveUpdate> buildUpdates(TradeChangedEvent event) {
+        Trade trade = event.trade();
+        Long portfolioId = trade.getPortfolioId();
+        List<LiveUpdate> updates = new ArrayList<>(2);
+        if (event.change() == TradeChangedEvent.Change.CREATED) {
+            var item = itemCache.findByNameId(trade.getNameId());
+            updates.add(new LiveUpdate(LiveUpdate.TRADE_CREATED, TradeWithItemDTO.builder()
+                    .id(trade.getId())
+                    .nameId(trade.getNameId())
+                    .cnName(item.map(Item::getCnName).orElse(null))
+                    .enName(item.map(Item::getEnName).orElse(null))
+                    .type(trade.getType())
+                    .unitPrice(trade.getUnitPrice())
+                    .quantity(trade.getQuantity())
+                    .totalAmount(trade.getTotalAmount())
+                    .createdAt(trade.getCreatedAt())
+                    .build(), portfolioId));
+        } else {
+            updates.add(new LiveUpdate(LiveUpdate.TRADE_DELETED,
+                    Map.of("id", trade.getId(), "nameId", trade.getNameId()), portfolioId));
+        }
+        updates.add(inventoryRepository.findInventoryWithItemByNameId(portfolioId, trade.getNameId())
+                .map(inventory -> new LiveUpdate(LiveUpdate.INVENTORY, inventory, portfolioId))
+                .orElseGet(() -> new LiveUpdate(LiveUpdate.INVENTORY_DELETED,
+                        Map.of("nameId", trade.getNameId()), portfolioId)));
+        return updates;
+    }
+
+    /**
+     * 合并计算组合的投资池指标：该组合已有计算在排队时不再重复提交
+     */
+    private void schedulePoolRefresh(Long portfolioId) {
+        if (!poolRefreshPending.add(portfolioId)) {
+            return;
+        }
+        Thread.ofVirtual().name("live-pool-refresh").start(() -> {
+            poolRefreshPending.remove(portfolioId);
+            try {
+                hub.broadcast(new LiveUpdate(LiveUpdate.POOL,
+                        PoolHeadlineDTO.of(investmentPoolService.getInvestmentPoolStatistics(portfolioId)), portfolioId));
+            } catch (RuntimeException e) {
+                log.warn("计算投资池实时指标失败，组合: {}", portfolioId, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package com.cs.csinventory.service.live;
+
+import com.cs.csinventory.service.dto.InvestmentPoolDTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 推送用的投资池核心指标（完整数据仍通过 /api/stats/investment-pool 获取）
+ */
+public record PoolHeadlineDTO(
+        BigDecimal peakNetInvestment,
+        BigDecimal staticCost,
+        BigDecimal currentHoldingValue,
+        BigDecimal totalProfit,
+        BigDecimal realReturnRate,
+        Integer currentHoldingItems,
+        Integer totalBuyTrades,
+        Integer totalSellTrades,
+        LocalDate lastTradeDate
+) {
+
+    public static PoolHeadlineDTO of(InvestmentPoolDTO pool) {
+        return new PoolHeadlineDTO(pool.peakNetInvestment(), pool.staticCost(), pool.currentHoldingValue(),
+                pool.totalProfit(), pool.realReturnRate(), pool.currentHoldingItems(),
+                pool.totalBuyTrades(), pool.totalSellTrades(), pool.lastTradeDate());
+    }
+}
@@ -0,0 +1,19 @@
+package com.cs.csinventory.service.live;
+
+import com.cs.csinventory.domain.Trade;
+
+/**
+ * 交易变更事件 - 在创建/删除交易的事务内发布，监听方按需在事务提交后处理
+ */
+public record TradeChangedEvent(Change change, Trade trade) {
+
+    public enum Change { CREATED, DELETED }
+
+    public static TradeChangedEvent created(Trade trade) {
+        return new TradeChangedEvent(Change.CREATED, trade);
+    }
+
+    public static TradeChangedEvent deleted(Trade trade) {
+        return new TradeChangedEvent(Change.DELETED, trade);
+    }
+}
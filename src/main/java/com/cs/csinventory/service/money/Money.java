@@ -0,0 +1,141 @@
+package com.cs.csinventory.service.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 定点金额运算工具 - 以 long 表示万分之一单位（与数据库 precision = 19, scale = 4 的金额列一致）
+ *
+ * 内部聚合与库存计算全部使用 long，避免每一步都分配 BigDecimal；
+ * 只在实体/接口边界通过 {@link #of(BigDecimal)} 与 {@link #toBigDecimal(long)} 转换。
+ * 所有运算溢出时抛出 ArithmeticException，除法统一使用 HALF_UP 舍入，与原 BigDecimal 实现保持一致。
+ */
+public final class Money {
+
+    /** 金额小数位数，与数据库列的 scale 一致 */
+    public static final int SCALE = 4;
+
+    /** 1 元对应的定点单位数 */
+    public static final long ONE = 10_000L;
+
+    /** 统一舍入模式 */
+    public static final RoundingMode ROUNDING = RoundingMode.HALF_UP;
+
+    private static final BigDecimal ZERO_AMOUNT = BigDecimal.valueOf(0, SCALE);
+
+    private Money() {
+    }
+
+    /**
+     * BigDecimal 转定点单位，超出4位小数时按 HALF_UP 舍入（与写入数据库时的舍入一致）
+     */
+    public static long of(BigDecimal value) {
+        if (value == null) {
+            throw new IllegalArgumentException("金额不能为空");
+        }
+        BigDecimal scaled = value.scale() == SCALE ? value : value.setScale(SCALE, ROUNDING);
+        return scaled.unscaledValue().longValueExact();
+    }
+
+    /**
+     * 整数（数量、笔数等）转定点单位
+     */
+    public static long ofWhole(long value) {
+        return Math.multiplyExact(value, ONE);
+    }
+
+    /**
+     * 定点单位转 BigDecimal，结果 scale 固定为4
+     */
+    public static BigDecimal toBigDecimal(long units) {
+        return units == 0 ? ZERO_AMOUNT : BigDecimal.valueOf(units, SCALE);
+    }
+
+    /**
+     * 将 BigDecimal 规范化为4位小数（接口入参进入系统时使用）
+     */
+    public static BigDecimal normalize(BigDecimal value) {
+        return toBigDecimal(of(value));
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * 金额乘以数量，例如 单价 × 数量
+     */
+    public static long times(long units, long quantity) {
+        return Math.multiplyExact(units, quantity);
+    }
+
+    /**
+     * 金额除以数量，结果保留4位小数，例如 总成本 / 数量 = 加权平均成本
+     */
+    public static long divide(long units, long divisor) {
+        return roundDiv(units, divisor);
+    }
+
+    /**
+     * 计算两个同单位数值之比，结果为保留4位小数的比率（以定点单位表示）
+     * 等价于 BigDecimal.valueOf(numerator).divide(BigDecimal.valueOf(denominator), 4, HALF_UP)
+     */
+    public static long ratio(long numerator, long denominator) {
+        long scaled;
+        try {
+            scaled = Math.multiplyExact(numerator, ONE);
+        } catch (ArithmeticException overflow) {
+            // 极大数值时退回 BigDecimal 计算，结果本身仍需落在 long 范围内
+            return BigDecimal.valueOf(numerator)
+                    .divide(BigDecimal.valueOf(denominator), SCALE, ROUNDING)
+                    .unscaledValue().longValueExact();
+        }
+        return roundDiv(scaled, denominator);
+    }
+
+    /**
+     * 金额乘以比率（均为定点单位），结果保留4位小数
+     * 等价于 amount.multiply(ratio).setScale(4, HALF_UP)
+     */
+    public static long applyRatio(long units, long ratio) {
+        long product;
+        try {
+            product = Math.multiplyExact(units, ratio);
+        } catch (ArithmeticException overflow) {
+            return toBigDecimal(units).multiply(toBigDecimal(ratio))
+                    .setScale(SCALE, ROUNDING)
+                    .unscaledValue().longValueExact();
+        }
+        return roundDiv(product, ONE);
+    }
+
+    /**
+     * 带 HALF_UP 舍入的整数除法（0.5 远离零舍入）
+     */
+    static long roundDiv(long dividend, long divisor) {
+        if (divisor == 0) {
+            throw new ArithmeticException("除数不能为0");
+        }
+        if (divisor == Long.MIN_VALUE || (dividend == Long.MIN_VALUE && divisor == -1)) {
+            return BigDecimal.valueOf(dividend)
+                    .divide(BigDecimal.valueOf(divisor), 0, ROUNDING)
+                    .longValueExact();
+        }
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        long absRemainder = Math.abs(remainder);
+        long absDivisor = Math.abs(divisor);
+        // 2 * |余数| >= |除数| 时进位，写成减法避免溢出
+        if (absRemainder >= absDivisor - absRemainder) {
+            return (dividend < 0) == (divisor < 0) ? quotient + 1 : quotient - 1;
+        }
+        return quotient;
+    }
+}
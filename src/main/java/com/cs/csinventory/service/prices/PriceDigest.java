@@ -0,0 +1,274 @@
+package com.cs.csinventory.service.prices;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 价格分布摘要（合并式 t-digest）- 用有限个质心（均值 + 权重）近似任意多个价格的分布，可合并，可估计分位数
+ *
+ * 新值先进入缓冲区，缓冲区满或读取时按均值排序与已有质心合并：质心大小受 k1 尺度函数
+ * k(q) = δ/2π · asin(2q - 1) 约束，每个质心跨度不超过一个 k 单位，因此两端（p1、p99 附近）的质心小、精度高，
+ * 中间的质心大。质心数不超过压缩系数 δ 的量级，与输入个数无关。
+ *
+ * 数值为 {@link com.cs.csinventory.service.money.Money} 定点单位，权重为成交数量（按件统计分布，而不是按笔）。
+ * 非线程安全，由调用方同步。
+ */
+public final class PriceDigest {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final int compression;
+
+    private double[] means = new double[0];
+    private long[] weights = new long[0];
+    private int size;
+
+    private final double[] bufferMeans;
+    private final long[] bufferWeights;
+    private int buffered;
+
+    private long totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public PriceDigest(int compression) {
+        if (compression < 10 || compression > 1000) {
+            throw new IllegalArgumentException("压缩系数必须在10到1000之间: " + compression);
+        }
+        this.compression = compression;
+        this.bufferMeans = new double[compression * 5];
+        this.bufferWeights = new long[compression * 5];
+    }
+
+    /**
+     * 加入一个值，weight 为它出现的次数
+     */
+    public void add(double value, long weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("权重必须大于0: " + weight);
+        }
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = value;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        totalWeight += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * 合并另一个摘要（例如跨组合汇总），结果等同于把两边的输入加入同一个摘要后的近似
+     */
+    public void merge(PriceDigest other) {
+        other.compress();
+        for (int i = 0; i < other.size; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long totalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * 当前质心数（合并缓冲区后）
+     */
+    public int centroids() {
+        compress();
+        return size;
+    }
+
+    /**
+     * 估计分位数 q（0 到 1），相邻质心之间线性插值，两端用最小值和最大值；没有数据时返回 NaN
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("分位数必须在0到1之间: " + q);
+        }
+        compress();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        if (size == 1) {
+            return means[0];
+        }
+        double index = q * totalWeight;
+        double firstHalf = weights[0] / 2.0;
+        if (index <= firstHalf) {
+            return min + (means[0] - min) * (index / firstHalf);
+        }
+        double lastHalf = weights[size - 1] / 2.0;
+        if (index >= totalWeight - lastHalf) {
+            return max - (max - means[size - 1]) * ((totalWeight - index) / lastHalf);
+        }
+        // 质心 i 的权重中点位于累计权重 soFar 处，在相邻两个中点之间插值
+        double soFar = firstHalf;
+        for (int i = 0; i < size - 1; i++) {
+            double gap = (weights[i] + weights[i + 1]) / 2.0;
+            if (soFar + gap >= index) {
+                double t = (index - soFar) / gap;
+                return means[i] + t * (means[i + 1] - means[i]);
+            }
+            soFar += gap;
+        }
+        return max;
+    }
+
+    /**
+     * 合并缓冲区：缓冲区排序后与已有质心（已有序）归并，再按 k1 尺度函数贪心合并相邻质心
+     */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        sortBuffer();
+        int total = size + buffered;
+        double[] mergedMeans = new double[total];
+        long[] mergedWeights = new long[total];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        double weightSoFar = 0;
+        double limit = 0;
+        while (i < size || j < buffered) {
+            double mean;
+            long weight;
+            if (j >= buffered || (i < size && means[i] <= bufferMeans[j])) {
+                mean = means[i];
+                weight = weights[i++];
+            } else {
+                mean = bufferMeans[j];
+                weight = bufferWeights[j++];
+            }
+            if (n > 0 && weightSoFar + mergedWeights[n - 1] + weight <= limit) {
+                long combined = mergedWeights[n - 1] + weight;
+                mergedMeans[n - 1] += (mean - mergedMeans[n - 1]) * weight / combined;
+                mergedWeights[n - 1] = combined;
+            } else {
+                if (n > 0) {
+                    weightSoFar += mergedWeights[n - 1];
+                }
+                limit = totalWeight * inverseScale(scale(weightSoFar / totalWeight) + 1);
+                mergedMeans[n] = mean;
+                mergedWeights[n] = weight;
+                n++;
+            }
+        }
+        means = mergedMeans;
+        weights = mergedWeights;
+        size = n;
+        buffered = 0;
+    }
+
+    private void sortBuffer() {
+        // 缓冲区不大（5δ），按均值对下标排序后重排两个数组
+        Integer[] order = new Integer[buffered];
+        for (int k = 0; k < buffered; k++) {
+            order[k] = k;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(bufferMeans[a], bufferMeans[b]));
+        double[] sortedMeans = new double[buffered];
+        long[] sortedWeights = new long[buffered];
+        for (int k = 0; k < buffered; k++) {
+            sortedMeans[k] = bufferMeans[order[k]];
+            sortedWeights[k] = bufferWeights[order[k]];
+        }
+        System.arraycopy(sortedMeans, 0, bufferMeans, 0, buffered);
+        System.arraycopy(sortedWeights, 0, bufferWeights, 0, buffered);
+    }
+
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+
+    private double inverseScale(double k) {
+        double angle = Math.min(Math.PI / 2, k * 2 * Math.PI / compression);
+        return (1 + Math.sin(angle)) / 2;
+    }
+
+    /**
+     * 紧凑编码：质心均值四舍五入到定点单位后按差值变长编码（质心有序，差值非负），权重变长编码。
+     * 通常每个质心 2 到 4 字节
+     */
+    public byte[] toBytes() {
+        compress();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + size * 4);
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, compression);
+        writeVarLong(out, size);
+        if (size == 0) {
+            return out.toByteArray();
+        }
+        long low = Math.round(min);
+        writeVarLong(out, zigZag(low));
+        writeVarLong(out, Math.round(max) - low);
+        long previous = low;
+        for (int i = 0; i < size; i++) {
+            long mean = Math.max(previous, Math.round(means[i]));
+            writeVarLong(out, mean - previous);
+            writeVarLong(out, weights[i]);
+            previous = mean;
+        }
+        return out.toByteArray();
+    }
+
+    public static PriceDigest fromBytes(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        byte version = in.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("不支持的价格摘要格式版本: " + version);
+        }
+        PriceDigest digest = new PriceDigest((int) readVarLong(in));
+        int size = (int) readVarLong(in);
+        if (size == 0) {
+            return digest;
+        }
+        long low = unZigZag(readVarLong(in));
+        digest.min = low;
+        digest.max = low + readVarLong(in);
+        digest.means = new double[size];
+        digest.weights = new long[size];
+        long previous = low;
+        for (int i = 0; i < size; i++) {
+            previous += readVarLong(in);
+            digest.means[i] = previous;
+            digest.weights[i] = readVarLong(in);
+            digest.totalWeight += digest.weights[i];
+        }
+        digest.size = size;
+        return digest;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("价格摘要数据损坏");
+    }
+}
@@ -0,0 +1,82 @@
+package com.cs.csinventory.service.prices;
+
+import com.cs.csinventory.service.dto.PriceStatsDTO;
+import com.cs.csinventory.service.money.Money;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 一个组合中一个物品一个方向的价格统计：笔数、数量、金额（定点）、最值、最近成交价和分布摘要
+ *
+ * 新增交易 O(1) 累加（摘要的缓冲区满时合并一次）；删除交易只能精确扣减笔数、数量和金额，
+ * 最值、最近成交价和摘要无法撤销，标记为不精确，等待从交易明细重建。非线程安全，由调用方同步。
+ */
+final class PriceSketch {
+
+    long trades;
+    long quantity;
+    long amount;
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    long last;
+    long lastTradeAtMicros = Long.MIN_VALUE;
+    boolean exact = true;
+    final PriceDigest digest;
+
+    PriceSketch(int compression) {
+        this.digest = new PriceDigest(compression);
+    }
+
+    PriceSketch(PriceDigest digest) {
+        this.digest = digest;
+    }
+
+    void add(long unitPrice, int tradeQuantity, long totalAmount, long createdAtMicros) {
+        trades++;
+        quantity += tradeQuantity;
+        amount = Money.add(amount, totalAmount);
+        min = Math.min(min, unitPrice);
+        max = Math.max(max, unitPrice);
+        // 同一时刻的交易以后处理的为准
+        if (createdAtMicros >= lastTradeAtMicros) {
+            last = unitPrice;
+            lastTradeAtMicros = createdAtMicros;
+        }
+        digest.add(unitPrice, tradeQuantity);
+    }
+
+    void remove(int tradeQuantity, long totalAmount) {
+        trades--;
+        quantity -= tradeQuantity;
+        amount = Money.subtract(amount, totalAmount);
+        exact = false;
+    }
+
+    boolean empty() {
+        return trades <= 0;
+    }
+
+    PriceStatsDTO toDTO() {
+        return PriceStatsDTO.builder()
+                .trades(trades)
+                .quantity(quantity)
+                .vwap(quantity > 0 ? Money.toBigDecimal(Money.divide(amount, quantity)) : null)
+                .min(Money.toBigDecimal(min))
+                .max(Money.toBigDecimal(max))
+                .last(Money.toBigDecimal(last))
+                .lastTradeAt(Instant.EPOCH.plus(lastTradeAtMicros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC))
+                .p10(quantile(0.1))
+                .median(quantile(0.5))
+                .p90(quantile(0.9))
+                .exact(exact)
+                .build();
+    }
+
+    private BigDecimal quantile(double q) {
+        double value = digest.quantile(q);
+        return Double.isNaN(value) ? null : Money.toBigDecimal(Math.round(value));
+    }
+}
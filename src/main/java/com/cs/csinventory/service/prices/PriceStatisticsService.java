@@ -0,0 +1,424 @@
+package com.cs.csinventory.service.prices;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.PortfolioService;
+import com.cs.csinventory.service.archive.ArchivedTrade;
+import com.cs.csinventory.service.archive.TradeSegmentStore;
+import com.cs.csinventory.service.cache.ItemCache;
+import com.cs.csinventory.service.dto.ItemPriceStatsDTO;
+import com.cs.csinventory.service.dto.PriceStatsDTO;
+import com.cs.csinventory.service.leaderboard.InventoryChangedEvent;
+import com.cs.csinventory.service.live.TradeChangedEvent;
+import com.cs.csinventory.service.money.Money;
+import com.cs.csinventory.service.sync.ChangeLog;
+import com.cs.csinventory.service.sync.DataChangedEvent;
+import com.cs.csinventory.service.sync.DataVersions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 成交价格统计 - 每个组合的每个物品按买入/卖出分别在内存中维护价格统计（{@link PriceSketch}），查询不访问数据库
+ *
+ * 交易创建提交后增量累加；交易删除后精确扣减笔数、数量和金额，最值、最近成交价和分布摘要由定时维护任务
+ * 从交易明细（未归档交易 + 归档段文件）重建。统计持久化在 price_sketches 表中，定时写入有变化的条目，
+ * 启动时读取后按 未归档交易 + 归档汇总 的笔数、数量、金额逐条校验，不一致或缺失的条目重建。
+ * 历史回填、集群其他节点的写入同样只标记组合待校验。
+ */
+@Service
+@Slf4j
+public class PriceStatisticsService {
+
+    public static final int MAX_ITEMS = 500;
+
+    /** 组合内每个物品、每个方向的笔数、数量、金额，与价格统计逐条校验 */
+    private static final String TOTALS_SQL = """
+            SELECT name_id, type, SUM(trade_count) AS trade_count, SUM(total_quantity) AS total_quantity,
+                   SUM(total_amount) AS total_amount
+            FROM (
+                SELECT name_id, type, 1 AS trade_count, quantity AS total_quantity, total_amount
+                FROM trades
+                WHERE portfolio_id = ?
+                UNION ALL
+                SELECT name_id, type, trade_count, total_quantity, total_amount
+                FROM trade_archive_rollups
+                WHERE portfolio_id = ?
+            ) activity
+            GROUP BY name_id, type
+            """;
+
+    private static final String ITEM_TRADES_SQL = """
+            SELECT type, unit_price, quantity, total_amount, created_at
+            FROM trades
+            WHERE portfolio_id = ? AND name_id = ?
+            """;
+
+    private static final String LOAD_SQL = """
+            SELECT portfolio_id, name_id, type, trade_count, total_quantity, total_amount,
+                   min_price, max_price, last_price, last_trade_at, exact, digest
+            FROM price_sketches
+            """;
+
+    private static final String DELETE_SQL =
+            "DELETE FROM price_sketches WHERE portfolio_id = ? AND name_id = ? AND type = ?";
+
+    private static final String INSERT_SQL = """
+            INSERT INTO price_sketches (portfolio_id, name_id, type, trade_count, total_quantity, total_amount,
+                                        min_price, max_price, last_price, last_trade_at, exact, digest)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TradeSegmentStore tradeSegmentStore;
+    private final PortfolioService portfolioService;
+    private final DataVersions dataVersions;
+    private final ItemCache itemCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int compression;
+
+    private final ConcurrentHashMap<Key, PriceSketch> sketches = new ConcurrentHashMap<>();
+    /** 有变化、尚未写入 price_sketches 的条目 */
+    private final Set<Key> dirty = ConcurrentHashMap.newKeySet();
+    /** 有交易被删除、需要从明细重建的物品 */
+    private final Set<ItemKey> pendingRebuild = ConcurrentHashMap.newKeySet();
+    /** 需要与数据库逐条校验的组合 */
+    private final Set<Long> pendingValidation = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    public PriceStatisticsService(JdbcTemplate jdbcTemplate, TradeSegmentStore tradeSegmentStore,
+                                  PortfolioService portfolioService, DataVersions dataVersions, ItemCache itemCache,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.prices.compression:100}") int compression) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tradeSegmentStore = tradeSegmentStore;
+        this.portfolioService = portfolioService;
+        this.dataVersions = dataVersions;
+        this.itemCache = itemCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.compression = compression;
+    }
+
+    record Key(long portfolioId, long nameId, Trade.Type type) {
+    }
+
+    record ItemKey(long portfolioId, long nameId) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            load();
+        } catch (RuntimeException e) {
+            // 启动时加载失败不影响服务，查询时再加载
+            log.warn("启动时加载价格统计失败", e);
+        }
+    }
+
+    /**
+     * 组合内一组物品的买入、卖出价格统计，按请求顺序返回（重复的 nameId 只返回一次），最多 500 个
+     */
+    public List<ItemPriceStatsDTO> getPriceStatistics(Long portfolioId, List<Long> nameIds) {
+        long id = portfolioService.requirePortfolio(portfolioId);
+        if (nameIds == null || nameIds.isEmpty()) {
+            throw new IllegalArgumentException("nameIds不能为空");
+        }
+        Set<Long> requested = new LinkedHashSet<>(nameIds);
+        if (requested.size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("一次最多查询 " + MAX_ITEMS + " 个物品");
+        }
+        if (!loaded) {
+            load();
+        }
+        Map<Long, Item> items = itemCache.findByNameIdIn(requested);
+        List<ItemPriceStatsDTO> result = new ArrayList<>(requested.size());
+        for (Long nameId : requested) {
+            Item item = items.get(nameId);
+            result.add(new ItemPriceStatsDTO(nameId, item != null ? item.getCnName() : null,
+                    item != null ? item.getEnName() : null,
+                    stats(new Key(id, nameId, Trade.Type.BUY)), stats(new Key(id, nameId, Trade.Type.SELL))));
+        }
+        return result;
+    }
+
+    private PriceStatsDTO stats(Key key) {
+        PriceSketch sketch = sketches.get(key);
+        if (sketch == null) {
+            return null;
+        }
+        synchronized (sketch) {
+            return sketch.empty() ? null : sketch.toDTO();
+        }
+    }
+
+    /**
+     * 交易创建或删除已提交：创建时累加，删除时扣减并等待重建
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTradeChanged(TradeChangedEvent event) {
+        if (!loaded) {
+            // 尚未加载，加载时按数据库校验
+            return;
+        }
+        Trade trade = event.trade();
+        Key key = new Key(trade.getPortfolioId(), trade.getNameId(), trade.getType());
+        long totalAmount = Money.of(trade.getTotalAmount());
+        if (event.change() == TradeChangedEvent.Change.CREATED) {
+            PriceSketch sketch = sketches.computeIfAbsent(key, k -> new PriceSketch(compression));
+            synchronized (sketch) {
+                sketch.add(Money.of(trade.getUnitPrice()), trade.getQuantity(), totalAmount,
+                        ArchivedTrade.toMicros(trade.getCreatedAt()));
+            }
+        } else {
+            PriceSketch sketch = sketches.get(key);
+            if (sketch != null) {
+                synchronized (sketch) {
+                    sketch.remove(trade.getQuantity(), totalAmount);
+                }
+            }
+            pendingRebuild.add(new ItemKey(key.portfolioId(), key.nameId()));
+        }
+        dirty.add(key);
+    }
+
+    /**
+     * 组合的库存被批量重建（历史回填）：交易是批量写入的，没有逐笔事件，整体校验
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (event.bulk()) {
+            pendingValidation.add(event.portfolioId());
+        }
+    }
+
+    /**
+     * 集群其他节点的写入：受影响的组合待校验
+     */
+    @EventListener
+    public void onDataChanged(DataChangedEvent event) {
+        if (!event.remote()) {
+            return;
+        }
+        if (event.everythingChanged()) {
+            portfolioService.getAllPortfolios().forEach(portfolio -> pendingValidation.add(portfolio.getId()));
+            return;
+        }
+        for (ChangeLog.Change change : event.changes()) {
+            if (change.entity() == ChangeLog.Entity.TRADE && change.portfolioId() != null) {
+                pendingValidation.add(change.portfolioId());
+            }
+        }
+    }
+
+    /**
+     * 定时维护：校验待校验的组合，重建有交易被删除或校验不一致的物品，再写入有变化的条目
+     */
+    @Scheduled(fixedDelayString = "${app.prices.maintenance-interval:30s}")
+    public void maintain() {
+        if (!loaded) {
+            return;
+        }
+        for (Long portfolioId : drain(pendingValidation)) {
+            validate(portfolioId);
+        }
+        for (ItemKey item : drain(pendingRebuild)) {
+            rebuild(item);
+        }
+        flush();
+    }
+
+    /**
+     * 读取持久化的统计，并与数据库逐条校验；同一时间只有一个加载
+     */
+    synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<Key, PriceSketch> persisted = new HashMap<>();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            Key key = new Key(rs.getLong("portfolio_id"), rs.getLong("name_id"),
+                    Trade.Type.valueOf(rs.getString("type")));
+            persisted.put(key, read(rs));
+        });
+        sketches.putAll(persisted);
+        loaded = true;
+        for (Portfolio portfolio : portfolioService.getAllPortfolios()) {
+            validate(portfolio.getId());
+        }
+        for (ItemKey item : drain(pendingRebuild)) {
+            rebuild(item);
+        }
+        flush();
+        log.info("价格统计已加载，条目数: {}, 耗时 {} ms", sketches.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 按 未归档交易 + 归档汇总 校验组合内各条目的笔数、数量和金额，不一致、缺失或不精确的物品待重建，
+     * 数据库中已没有交易的条目删除
+     */
+    private void validate(long portfolioId) {
+        Set<Key> expected = new HashSet<>();
+        jdbcTemplate.query(TOTALS_SQL, rs -> {
+            Key key = new Key(portfolioId, rs.getLong("name_id"), Trade.Type.valueOf(rs.getString("type")));
+            expected.add(key);
+            PriceSketch sketch = sketches.get(key);
+            boolean matches = false;
+            if (sketch != null) {
+                synchronized (sketch) {
+                    matches = sketch.exact && sketch.trades == rs.getLong("trade_count")
+                            && sketch.quantity == rs.getLong("total_quantity")
+                            && sketch.amount == Money.of(rs.getBigDecimal("total_amount"));
+                }
+            }
+            if (!matches) {
+                pendingRebuild.add(new ItemKey(portfolioId, key.nameId()));
+            }
+        }, portfolioId, portfolioId);
+        for (Key key : sketches.keySet()) {
+            if (key.portfolioId() == portfolioId && !expected.contains(key)) {
+                sketches.remove(key);
+                dirty.add(key);
+            }
+        }
+    }
+
+    /**
+     * 从交易明细重建物品的买入、卖出统计；重建期间有新的提交时组合待校验
+     */
+    private void rebuild(ItemKey item) {
+        long version = dataVersions.current(item.portfolioId());
+        Map<Trade.Type, PriceSketch> rebuilt = new HashMap<>();
+        jdbcTemplate.query(ITEM_TRADES_SQL, rs -> {
+            Trade.Type type = Trade.Type.valueOf(rs.getString("type"));
+            long createdAt = ChronoUnit.MICROS.between(Instant.EPOCH,
+                    rs.getObject("created_at", LocalDateTime.class).toInstant(ZoneOffset.UTC));
+            rebuilt.computeIfAbsent(type, t -> new PriceSketch(compression)).add(
+                    Money.of(rs.getBigDecimal("unit_price")), rs.getInt("quantity"),
+                    Money.of(rs.getBigDecimal("total_amount")), createdAt);
+        }, item.portfolioId(), item.nameId());
+        for (ArchivedTrade trade : tradeSegmentStore.findByNameId(item.portfolioId(), item.nameId())) {
+            rebuilt.computeIfAbsent(trade.type(), t -> new PriceSketch(compression))
+                    .add(trade.unitPrice(), trade.quantity(), trade.totalAmount(), trade.createdAtMicros());
+        }
+        for (Trade.Type type : Trade.Type.values()) {
+            Key key = new Key(item.portfolioId(), item.nameId(), type);
+            PriceSketch sketch = rebuilt.get(type);
+            if (sketch != null) {
+                sketches.put(key, sketch);
+            } else {
+                sketches.remove(key);
+            }
+            dirty.add(key);
+        }
+        // 查询后、替换前提交的交易落在了旧条目上
+        if (dataVersions.current(item.portfolioId()) != version) {
+            pendingValidation.add(item.portfolioId());
+        }
+    }
+
+    /**
+     * 把有变化的条目写入 price_sketches（先删后插，一个事务）
+     */
+    private void flush() {
+        List<Key> keys = drain(dirty);
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<Object[]> deletes = new ArrayList<>(keys.size());
+        List<Object[]> inserts = new ArrayList<>();
+        for (Key key : keys) {
+            deletes.add(new Object[]{key.portfolioId(), key.nameId(), key.type().name()});
+            PriceSketch sketch = sketches.get(key);
+            if (sketch == null) {
+                continue;
+            }
+            synchronized (sketch) {
+                if (!sketch.empty()) {
+                    inserts.add(row(key, sketch));
+                }
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+                jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+            });
+        } catch (RuntimeException e) {
+            // 下次维护时重试
+            dirty.addAll(keys);
+            throw e;
+        }
+        log.debug("写入价格统计，条目数: {}", keys.size());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        try {
+            if (loaded) {
+                flush();
+            }
+        } catch (RuntimeException e) {
+            // 未写入的条目在下次启动时校验重建
+            log.warn("关闭时写入价格统计失败", e);
+        }
+    }
+
+    private static Object[] row(Key key, PriceSketch sketch) {
+        return new Object[]{key.portfolioId(), key.nameId(), key.type().name(), sketch.trades, sketch.quantity,
+                Money.toBigDecimal(sketch.amount), Money.toBigDecimal(sketch.min), Money.toBigDecimal(sketch.max),
+                Money.toBigDecimal(sketch.last),
+                LocalDateTime.ofInstant(Instant.EPOCH.plus(sketch.lastTradeAtMicros, ChronoUnit.MICROS), ZoneOffset.UTC),
+                sketch.exact, sketch.digest.toBytes()};
+    }
+
+    private static PriceSketch read(ResultSet rs) throws SQLException {
+        PriceSketch sketch = new PriceSketch(PriceDigest.fromBytes(rs.getBytes("digest")));
+        sketch.trades = rs.getLong("trade_count");
+        sketch.quantity = rs.getLong("total_quantity");
+        sketch.amount = Money.of(rs.getBigDecimal("total_amount"));
+        sketch.min = Money.of(rs.getBigDecimal("min_price"));
+        sketch.max = Money.of(rs.getBigDecimal("max_price"));
+        sketch.last = Money.of(rs.getBigDecimal("last_price"));
+        sketch.lastTradeAtMicros = ChronoUnit.MICROS.between(Instant.EPOCH,
+                rs.getObject("last_trade_at", LocalDateTime.class).toInstant(ZoneOffset.UTC));
+        sketch.exact = rs.getBoolean("exact");
+        return sketch;
+    }
+
+    private static <T> List<T> drain(Set<T> pending) {
+        List<T> drained = new ArrayList<>();
+        for (T value : pending) {
+            if (pending.remove(value)) {
+                drained.add(value);
+            }
+        }
+        return drained;
+    }
+}
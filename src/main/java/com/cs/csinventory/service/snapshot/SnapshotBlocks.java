@@ -0,0 +1,302 @@
+package com.cs.csinventory.service.snapshot;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.archive.ArchivedTrade;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 快照数据块的列式编码：同一列的值连续存放（定长整数列压缩率高），字符串为 长度 + UTF-8（长度 -1 为 null）
+ *
+ * 金额为 Money 定点单位，时间为 UTC 纪元微秒。主键不导出，导入时重新分配（见 {@link SnapshotService}）；
+ * 交易保留原始ID只用于同一时刻交易的排序。
+ */
+final class SnapshotBlocks {
+
+    private static final Trade.Type[] TYPES = Trade.Type.values();
+
+    private SnapshotBlocks() {
+    }
+
+    record PortfolioRow(long id, String name) {
+    }
+
+    record ItemRow(long nameId, String marketHashName, String cnName, String enName, Long contentHash) {
+    }
+
+    record InventoryRow(long portfolioId, long nameId, int currentQuantity, long weightedAverageCost,
+                        long totalInvestmentCost, long createdAtMicros, long lastUpdatedAtMicros) {
+    }
+
+    /**
+     * trade_archive_rollups 的一行，tradeDay 为 UTC 日期的纪元日
+     */
+    record RollupRow(long portfolioId, long tradeDay, Trade.Type type, long nameId, long tradeCount,
+                     long totalQuantity, long totalAmount, long firstTradeAtMicros, long lastTradeAtMicros) {
+    }
+
+    /**
+     * trade_archive_checkpoint 的一行
+     */
+    record CheckpointRow(long portfolioId, long archivedBeforeMicros, long netFlow, long peakNetInvestment,
+                         Long firstBuyAmount) {
+    }
+
+    static ByteBuffer encodePortfolios(List<PortfolioRow> rows) {
+        Columns out = new Columns(rows.size() * 32);
+        rows.forEach(row -> out.putLong(row.id()));
+        rows.forEach(row -> out.putString(row.name()));
+        return out.finish();
+    }
+
+    static List<PortfolioRow> decodePortfolios(SnapshotFile.Block block) {
+        ByteBuffer in = block.data();
+        long[] ids = longs(in, block.rows());
+        List<PortfolioRow> rows = new ArrayList<>(block.rows());
+        for (int i = 0; i < block.rows(); i++) {
+            rows.add(new PortfolioRow(ids[i], getString(in)));
+        }
+        return rows;
+    }
+
+    static ByteBuffer encodeItems(List<ItemRow> rows) {
+        Columns out = new Columns(rows.size() * 128);
+        rows.forEach(row -> out.putLong(row.nameId()));
+        rows.forEach(row -> out.putString(row.marketHashName()));
+        rows.forEach(row -> out.putString(row.cnName()));
+        rows.forEach(row -> out.putString(row.enName()));
+        rows.forEach(row -> out.putByte(row.contentHash() != null ? 1 : 0));
+        rows.stream().filter(row -> row.contentHash() != null).forEach(row -> out.putLong(row.contentHash()));
+        return out.finish();
+    }
+
+    static List<ItemRow> decodeItems(SnapshotFile.Block block) {
+        ByteBuffer in = block.data();
+        int n = block.rows();
+        long[] nameIds = longs(in, n);
+        String[] marketHashNames = strings(in, n);
+        String[] cnNames = strings(in, n);
+        String[] enNames = strings(in, n);
+        byte[] hasHash = new byte[n];
+        in.get(hasHash);
+        List<ItemRow> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(new ItemRow(nameIds[i], marketHashNames[i], cnNames[i], enNames[i], null));
+        }
+        for (int i = 0; i < n; i++) {
+            if (hasHash[i] != 0) {
+                ItemRow row = rows.get(i);
+                rows.set(i, new ItemRow(row.nameId(), row.marketHashName(), row.cnName(), row.enName(), in.getLong()));
+            }
+        }
+        return rows;
+    }
+
+    static ByteBuffer encodeInventory(List<InventoryRow> rows) {
+        Columns out = new Columns(rows.size() * 52);
+        rows.forEach(row -> out.putLong(row.portfolioId()));
+        rows.forEach(row -> out.putLong(row.nameId()));
+        rows.forEach(row -> out.putInt(row.currentQuantity()));
+        rows.forEach(row -> out.putLong(row.weightedAverageCost()));
+        rows.forEach(row -> out.putLong(row.totalInvestmentCost()));
+        rows.forEach(row -> out.putLong(row.createdAtMicros()));
+        rows.forEach(row -> out.putLong(row.lastUpdatedAtMicros()));
+        return out.finish();
+    }
+
+    static List<InventoryRow> decodeInventory(SnapshotFile.Block block) {
+        ByteBuffer in = block.data();
+        int n = block.rows();
+        long[] portfolioIds = longs(in, n);
+        long[] nameIds = longs(in, n);
+        int[] quantities = ints(in, n);
+        long[] averageCosts = longs(in, n);
+        long[] totalCosts = longs(in, n);
+        long[] createdAt = longs(in, n);
+        long[] lastUpdatedAt = longs(in, n);
+        List<InventoryRow> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(new InventoryRow(portfolioIds[i], nameIds[i], quantities[i], averageCosts[i], totalCosts[i],
+                    createdAt[i], lastUpdatedAt[i]));
+        }
+        return rows;
+    }
+
+    /**
+     * 交易按 (组合, nameId, createdAt, id) 排序，组合和 nameId 列大量重复，压缩后几乎不占空间
+     */
+    static ByteBuffer encodeTrades(List<ArchivedTrade> trades) {
+        Columns out = new Columns(trades.size() * 53);
+        trades.forEach(trade -> out.putLong(trade.id()));
+        trades.forEach(trade -> out.putLong(trade.portfolioId()));
+        trades.forEach(trade -> out.putLong(trade.nameId()));
+        trades.forEach(trade -> out.putByte(trade.type().ordinal()));
+        trades.forEach(trade -> out.putLong(trade.unitPrice()));
+        trades.forEach(trade -> out.putInt(trade.quantity()));
+        trades.forEach(trade -> out.putLong(trade.totalAmount()));
+        trades.forEach(trade -> out.putLong(trade.createdAtMicros()));
+        return out.finish();
+    }
+
+    static List<ArchivedTrade> decodeTrades(SnapshotFile.Block block) {
+        ByteBuffer in = block.data();
+        int n = block.rows();
+        long[] ids = longs(in, n);
+        long[] portfolioIds = longs(in, n);
+        long[] nameIds = longs(in, n);
+        byte[] types = new byte[n];
+        in.get(types);
+        long[] unitPrices = longs(in, n);
+        int[] quantities = ints(in, n);
+        long[] totalAmounts = longs(in, n);
+        long[] createdAt = longs(in, n);
+        List<ArchivedTrade> trades = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            trades.add(new ArchivedTrade(ids[i], portfolioIds[i], nameIds[i], TYPES[types[i]], unitPrices[i],
+                    quantities[i], totalAmounts[i], createdAt[i]));
+        }
+        return trades;
+    }
+
+    static ByteBuffer encodeRollups(List<RollupRow> rows) {
+        Columns out = new Columns(rows.size() * 65);
+        rows.forEach(row -> out.putLong(row.portfolioId()));
+        rows.forEach(row -> out.putLong(row.tradeDay()));
+        rows.forEach(row -> out.putByte(row.type().ordinal()));
+        rows.forEach(row -> out.putLong(row.nameId()));
+        rows.forEach(row -> out.putLong(row.tradeCount()));
+        rows.forEach(row -> out.putLong(row.totalQuantity()));
+        rows.forEach(row -> out.putLong(row.totalAmount()));
+        rows.forEach(row -> out.putLong(row.firstTradeAtMicros()));
+        rows.forEach(row -> out.putLong(row.lastTradeAtMicros()));
+        return out.finish();
+    }
+
+    static List<RollupRow> decodeRollups(SnapshotFile.Block block) {
+        ByteBuffer in = block.data();
+        int n = block.rows();
+        long[] portfolioIds = longs(in, n);
+        long[] days = longs(in, n);
+        byte[] types = new byte[n];
+        in.get(types);
+        long[] nameIds = longs(in, n);
+        long[] counts = longs(in, n);
+        long[] quantities = longs(in, n);
+        long[] amounts = longs(in, n);
+        long[] first = longs(in, n);
+        long[] last = longs(in, n);
+        List<RollupRow> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(new RollupRow(portfolioIds[i], days[i], TYPES[types[i]], nameIds[i], counts[i], quantities[i],
+                    amounts[i], first[i], last[i]));
+        }
+        return rows;
+    }
+
+    static ByteBuffer encodeCheckpoints(List<CheckpointRow> rows) {
+        Columns out = new Columns(rows.size() * 41);
+        rows.forEach(row -> out.putLong(row.portfolioId()));
+        rows.forEach(row -> out.putLong(row.archivedBeforeMicros()));
+        rows.forEach(row -> out.putLong(row.netFlow()));
+        rows.forEach(row -> out.putLong(row.peakNetInvestment()));
+        rows.forEach(row -> out.putByte(row.firstBuyAmount() != null ? 1 : 0));
+        rows.stream().filter(row -> row.firstBuyAmount() != null).forEach(row -> out.putLong(row.firstBuyAmount()));
+        return out.finish();
+    }
+
+    static List<CheckpointRow> decodeCheckpoints(SnapshotFile.Block block) {
+        ByteBuffer in = block.data();
+        int n = block.rows();
+        long[] portfolioIds = longs(in, n);
+        long[] archivedBefore = longs(in, n);
+        long[] netFlows = longs(in, n);
+        long[] peaks = longs(in, n);
+        byte[] hasFirstBuy = new byte[n];
+        in.get(hasFirstBuy);
+        List<CheckpointRow> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(new CheckpointRow(portfolioIds[i], archivedBefore[i], netFlows[i], peaks[i],
+                    hasFirstBuy[i] != 0 ? in.getLong() : null));
+        }
+        return rows;
+    }
+
+    private static long[] longs(ByteBuffer in, int n) {
+        long[] values = new long[n];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + n * Long.BYTES);
+        return values;
+    }
+
+    private static int[] ints(ByteBuffer in, int n) {
+        int[] values = new int[n];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + n * Integer.BYTES);
+        return values;
+    }
+
+    private static String[] strings(ByteBuffer in, int n) {
+        String[] values = new String[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = getString(in);
+        }
+        return values;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * 按需扩容的写缓冲区
+     */
+    private static final class Columns {
+
+        private ByteBuffer buffer;
+
+        Columns(int initialCapacity) {
+            buffer = ByteBuffer.allocate(Math.max(64, initialCapacity));
+        }
+
+        void putLong(long value) {
+            ensure(Long.BYTES).putLong(value);
+        }
+
+        void putInt(int value) {
+            ensure(Integer.BYTES).putInt(value);
+        }
+
+        void putByte(int value) {
+            ensure(1).put((byte) value);
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes);
+        }
+
+        ByteBuffer finish() {
+            return buffer.flip();
+        }
+
+        private ByteBuffer ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                buffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes)).put(buffer.flip());
+            }
+            return buffer;
+        }
+    }
+}
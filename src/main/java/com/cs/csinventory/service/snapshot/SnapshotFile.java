@@ -0,0 +1,277 @@
+package com.cs.csinventory.service.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 数据库快照文件 - 由若干带长度前缀的列式块组成，每块单独 Deflate 压缩并带 CRC32，通过 FileChannel 顺序读写
+ *
+ * 文件布局（大端序）：
+ * <pre>
+ * 头部：magic | version | 导出时间（UTC 纪元微秒）
+ * 数据块：表 | 行数 | 原始长度 | 压缩长度 | CRC32(原始数据) | 压缩数据
+ * 结尾块：表 = 0 | 表数 | (表, 总行数)...
+ * </pre>
+ * 块的列编码见 {@link SnapshotBlocks}。读取时逐块校验 CRC，缺少结尾块或总行数与数据块不符时视为文件不完整。
+ * 版本 2 增加了归档数据（归档进度、归档汇总、已归档交易）的块，版本 1 的文件仍可读取。
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x43535350; // "CSSP"
+    private static final short VERSION = 2;
+    private static final int HEADER_BYTES = Integer.BYTES + Short.BYTES + Long.BYTES;
+    private static final int BLOCK_HEADER_BYTES = 1 + Integer.BYTES * 4;
+    private static final byte END = 0;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * 快照中的表，code 为文件中的表编号；按导入顺序排列（交易重放校验需要先读到库存和已归档交易）
+     */
+    enum Table {
+        PORTFOLIOS(1), ITEMS(2), INVENTORY(3), ARCHIVE_CHECKPOINTS(5), ARCHIVE_ROLLUPS(6), ARCHIVED_TRADES(7),
+        TRADES(4);
+
+        final byte code;
+
+        Table(int code) {
+            this.code = (byte) code;
+        }
+
+        static Table of(byte code) {
+            for (Table table : values()) {
+                if (table.code == code) {
+                    return table;
+                }
+            }
+            throw new IllegalStateException("快照文件中有未知的表编号: " + code);
+        }
+    }
+
+    /**
+     * 解压并通过校验的一个数据块
+     */
+    record Block(Table table, int rows, ByteBuffer data) {
+    }
+
+    /**
+     * 顺序写入快照；close 时写入结尾块并刷盘
+     */
+    static final class Writer implements Closeable {
+
+        private final Path file;
+        private final FileChannel channel;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final Map<Table, Long> rows = new EnumMap<>(Table.class);
+
+        Writer(Path file, long createdAtMicros) {
+            this.file = file;
+            try {
+                this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putShort(VERSION).putLong(createdAtMicros).flip());
+            } catch (IOException e) {
+                deflater.end();
+                throw new UncheckedIOException("创建快照文件失败: " + file, e);
+            }
+        }
+
+        void writeBlock(Table table, int rowCount, ByteBuffer raw) {
+            CRC32 checksum = new CRC32();
+            checksum.update(raw.duplicate());
+            int rawLength = raw.remaining();
+            ByteBuffer compressed = deflate(raw);
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES)
+                    .put(table.code)
+                    .putInt(rowCount)
+                    .putInt(rawLength)
+                    .putInt(compressed.remaining())
+                    .putInt((int) checksum.getValue())
+                    .flip();
+            try {
+                write(header, compressed);
+            } catch (IOException e) {
+                throw new UncheckedIOException("写入快照文件失败: " + file, e);
+            }
+            rows.merge(table, (long) rowCount, Long::sum);
+        }
+
+        private ByteBuffer deflate(ByteBuffer raw) {
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteBuffer output = ByteBuffer.allocate(Math.max(64, raw.remaining() / 2));
+            while (!deflater.finished()) {
+                if (!output.hasRemaining()) {
+                    output = ByteBuffer.allocate(output.capacity() * 2).put(output.flip());
+                }
+                deflater.deflate(output);
+            }
+            return output.flip();
+        }
+
+        private void write(ByteBuffer... buffers) throws IOException {
+            while (Arrays.stream(buffers).anyMatch(ByteBuffer::hasRemaining)) {
+                channel.write(buffers);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                ByteBuffer footer = ByteBuffer.allocate(2 + rows.size() * (1 + Long.BYTES)).put(END).put((byte) rows.size());
+                rows.forEach((table, count) -> footer.put(table.code).putLong(count));
+                write(footer.flip());
+                channel.force(true);
+            } catch (IOException e) {
+                throw new UncheckedIOException("写入快照文件失败: " + file, e);
+            } finally {
+                deflater.end();
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // 已刷盘或已失败，关闭异常不再覆盖
+                }
+            }
+        }
+    }
+
+    /**
+     * 顺序读取快照，每次返回一个解压并校验过的数据块
+     */
+    static final class Reader implements Closeable {
+
+        private final Path file;
+        private final FileChannel channel;
+        private final Inflater inflater = new Inflater();
+        private final Map<Table, Long> rows = new EnumMap<>(Table.class);
+        private ByteBuffer compressed = ByteBuffer.allocate(0);
+
+        Reader(Path file) {
+            this.file = file;
+            try {
+                this.channel = FileChannel.open(file, StandardOpenOption.READ);
+                ByteBuffer header = read(HEADER_BYTES);
+                if (header.getInt() != MAGIC) {
+                    throw new IllegalArgumentException("不是有效的快照文件: " + file.getFileName());
+                }
+                short version = header.getShort();
+                if (version < 1 || version > VERSION) {
+                    throw new IllegalArgumentException("不支持的快照版本: " + version);
+                }
+            } catch (IOException e) {
+                inflater.end();
+                throw new UncheckedIOException("打开快照文件失败: " + file, e);
+            }
+        }
+
+        long size() {
+            try {
+                return channel.size();
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取快照文件失败: " + file, e);
+            }
+        }
+
+        /**
+         * 下一个数据块，读到结尾块时校验各表总行数并返回 null
+         */
+        Block next() {
+            try {
+                byte code = read(1).get();
+                if (code == END) {
+                    verifyFooter();
+                    return null;
+                }
+                Table table = Table.of(code);
+                ByteBuffer header = read(BLOCK_HEADER_BYTES - 1);
+                int rowCount = header.getInt();
+                int rawLength = header.getInt();
+                int compressedLength = header.getInt();
+                int crc = header.getInt();
+                if (compressed.capacity() < compressedLength) {
+                    compressed = ByteBuffer.allocate(compressedLength);
+                }
+                compressed.clear().limit(compressedLength);
+                readFully(compressed);
+                ByteBuffer raw = inflate(compressed.flip(), rawLength);
+                CRC32 checksum = new CRC32();
+                checksum.update(raw.duplicate());
+                if ((int) checksum.getValue() != crc) {
+                    throw new IllegalStateException("快照数据块校验失败: " + table + "，文件: " + file.getFileName());
+                }
+                rows.merge(table, (long) rowCount, Long::sum);
+                return new Block(table, rowCount, raw);
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取快照文件失败: " + file, e);
+            }
+        }
+
+        private void verifyFooter() throws IOException {
+            int tables = read(1).get();
+            ByteBuffer footer = read(tables * (1 + Long.BYTES));
+            Map<Table, Long> expected = new EnumMap<>(Table.class);
+            for (int i = 0; i < tables; i++) {
+                expected.put(Table.of(footer.get()), footer.getLong());
+            }
+            if (!expected.equals(rows) || channel.position() != channel.size()) {
+                throw new IllegalStateException("快照文件不完整: " + file.getFileName());
+            }
+        }
+
+        private ByteBuffer inflate(ByteBuffer input, int rawLength) {
+            ByteBuffer raw = ByteBuffer.allocate(rawLength);
+            inflater.reset();
+            inflater.setInput(input);
+            try {
+                while (!inflater.finished() && raw.hasRemaining()) {
+                    if (inflater.inflate(raw) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("快照数据损坏: " + file.getFileName(), e);
+            }
+            if (raw.hasRemaining() || !inflater.finished()) {
+                throw new IllegalStateException("快照数据损坏: " + file.getFileName());
+            }
+            return raw.flip();
+        }
+
+        private ByteBuffer read(int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            readFully(buffer);
+            return buffer.flip();
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IllegalStateException("快照文件不完整: " + file.getFileName());
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            inflater.end();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("关闭快照文件失败: " + file, e);
+            }
+        }
+    }
+}
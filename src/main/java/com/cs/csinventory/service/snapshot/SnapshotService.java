@@ -0,0 +1,624 @@
+package com.cs.csinventory.service.snapshot;
+
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.IdReservationService;
+import com.cs.csinventory.service.PortfolioService;
+import com.cs.csinventory.service.archive.ArchivedTrade;
+import com.cs.csinventory.service.archive.TradeSegment;
+import com.cs.csinventory.service.archive.TradeSegmentStore;
+import com.cs.csinventory.service.backfill.InventoryReplay;
+import com.cs.csinventory.service.money.Money;
+import com.cs.csinventory.service.snapshot.SnapshotBlocks.CheckpointRow;
+import com.cs.csinventory.service.snapshot.SnapshotBlocks.InventoryRow;
+import com.cs.csinventory.service.snapshot.SnapshotBlocks.ItemRow;
+import com.cs.csinventory.service.snapshot.SnapshotBlocks.PortfolioRow;
+import com.cs.csinventory.service.snapshot.SnapshotBlocks.RollupRow;
+import com.cs.csinventory.service.snapshot.SnapshotFile.Table;
+import com.cs.csinventory.service.sync.ChangeLog;
+import com.cs.csinventory.service.sync.DataChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 数据库快照导出/导入 - 组合、物品、库存、交易和归档数据（归档进度、归档汇总、段文件中的已归档交易）写入一个紧凑的
+ * 二进制快照文件（{@link SnapshotFile}），用于备份和测试环境初始化
+ *
+ * 导出在一个可重复读事务中按主键顺序分页读取（一致的快照），每页编码为一个列式块写出，内存只与块大小有关；
+ * 已归档交易逐段读取，每段拆成若干块。
+ * 导入要求目标库没有物品、交易、库存和归档数据：组合按名称对应（不存在时创建），物品、库存、交易的主键从 id_generators
+ * 预留后用 JDBC 批量插入，每块一个事务；已归档交易按块写成目标环境中的新段。交易在快照中按 (组合, nameId, createdAt, id)
+ * 排序，导入时顺带按时间顺序重放每个物品的库存（与刚导入的已归档交易合并），与快照中的库存逐条比较，
+ * 不一致的物品在结果中列出。
+ *
+ * 导入的物品、库存和交易在各块的事务内记录到变更日志，增量同步客户端和其他节点与普通写入一样收到这些变更；
+ * 归档数据不在变更日志中，完成后另外在本节点发布全部失效事件。
+ */
+@Service
+@Slf4j
+public class SnapshotService {
+
+    static final String EXTENSION = ".snap";
+    private static final String TEMP_SUFFIX = ".tmp";
+    /** 结果中最多返回的不一致明细条数 */
+    private static final int MAX_ERRORS = 100;
+
+    private static final Comparator<ArchivedTrade> CHRONOLOGICAL =
+            Comparator.comparingLong(ArchivedTrade::createdAtMicros).thenComparingLong(ArchivedTrade::id);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PortfolioService portfolioService;
+    private final IdReservationService idReservation;
+    private final TradeSegmentStore segmentStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChangeLog changeLog;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate consistentRead;
+
+    @Value("${app.snapshot.directory:data/snapshots}")
+    private Path directory;
+
+    @Value("${app.snapshot.block-rows:20000}")
+    private int blockRows;
+
+    public SnapshotService(JdbcTemplate jdbcTemplate, PortfolioService portfolioService,
+                           IdReservationService idReservation, TradeSegmentStore segmentStore,
+                           ApplicationEventPublisher eventPublisher, ChangeLog changeLog,
+                           PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.portfolioService = portfolioService;
+        this.idReservation = idReservation;
+        this.segmentStore = segmentStore;
+        this.eventPublisher = eventPublisher;
+        this.changeLog = changeLog;
+        this.transaction = new TransactionTemplate(transactionManager);
+        // 走主库：各表分页读取看到同一个时间点的数据
+        this.consistentRead = new TransactionTemplate(transactionManager);
+        this.consistentRead.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * 导出快照到快照目录（app.snapshot.directory）中的新文件，先写临时文件，完成后原子重命名
+     */
+    public synchronized ExportResult export(String fileName) {
+        long start = System.nanoTime();
+        Path file = resolve(fileName);
+        if (Files.exists(file)) {
+            throw new IllegalArgumentException("快照文件已存在: " + fileName);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建快照目录失败: " + directory, e);
+        }
+        long[] counts = new long[Table.values().length];
+        try (SnapshotFile.Writer writer = new SnapshotFile.Writer(temp, ArchivedTrade.toMicros(OffsetDateTime.now()))) {
+            consistentRead.executeWithoutResult(status -> {
+                counts[Table.PORTFOLIOS.ordinal()] = exportPortfolios(writer);
+                counts[Table.ITEMS.ordinal()] = exportPaged(writer, Table.ITEMS,
+                        "SELECT name_id, market_hash_name, cn_name, en_name, content_hash FROM items",
+                        "name_id > ?", "name_id",
+                        (rs, rowNum) -> new ItemRow(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                                rs.getObject(5) != null ? rs.getLong(5) : null),
+                        row -> new Object[]{row.nameId()}, SnapshotBlocks::encodeItems);
+                counts[Table.INVENTORY.ordinal()] = exportPaged(writer, Table.INVENTORY, """
+                                SELECT portfolio_id, name_id, current_quantity, weighted_average_cost, total_investment_cost,
+                                       created_at, last_updated_at
+                                FROM inventory""",
+                        "(portfolio_id, name_id) > (?, ?)", "portfolio_id, name_id",
+                        (rs, rowNum) -> new InventoryRow(rs.getLong(1), rs.getLong(2), rs.getInt(3),
+                                Money.of(rs.getBigDecimal(4)), Money.of(rs.getBigDecimal(5)), micros(rs, 6), micros(rs, 7)),
+                        row -> new Object[]{row.portfolioId(), row.nameId()}, SnapshotBlocks::encodeInventory);
+                counts[Table.ARCHIVE_CHECKPOINTS.ordinal()] = exportCheckpoints(writer);
+                counts[Table.ARCHIVE_ROLLUPS.ordinal()] = exportPaged(writer, Table.ARCHIVE_ROLLUPS, """
+                                SELECT portfolio_id, trade_date, type, name_id, trade_count, total_quantity, total_amount,
+                                       first_trade_at, last_trade_at
+                                FROM trade_archive_rollups""",
+                        "(portfolio_id, trade_date, type, name_id) > (?, ?, ?, ?)", "portfolio_id, trade_date, type, name_id",
+                        (rs, rowNum) -> new RollupRow(rs.getLong(1), rs.getObject(2, LocalDate.class).toEpochDay(),
+                                Trade.Type.valueOf(rs.getString(3)), rs.getLong(4), rs.getLong(5), rs.getLong(6),
+                                Money.of(rs.getBigDecimal(7)), micros(rs, 8), micros(rs, 9)),
+                        row -> new Object[]{row.portfolioId(), LocalDate.ofEpochDay(row.tradeDay()), row.type().name(),
+                                row.nameId()},
+                        SnapshotBlocks::encodeRollups);
+                counts[Table.ARCHIVED_TRADES.ordinal()] = exportArchivedTrades(writer);
+                counts[Table.TRADES.ordinal()] = exportPaged(writer, Table.TRADES, """
+                                SELECT id, portfolio_id, name_id, type, unit_price, quantity, total_amount, created_at
+                                FROM trades""",
+                        "(portfolio_id, name_id, created_at, id) > (?, ?, ?, ?)", "portfolio_id, name_id, created_at, id",
+                        (rs, rowNum) -> new ArchivedTrade(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                                Trade.Type.valueOf(rs.getString(4)), Money.of(rs.getBigDecimal(5)), rs.getInt(6),
+                                Money.of(rs.getBigDecimal(7)), micros(rs, 8)),
+                        trade -> new Object[]{trade.portfolioId(), trade.nameId(), trade.createdAt().toLocalDateTime(),
+                                trade.id()},
+                        SnapshotBlocks::encodeTrades);
+            });
+        } catch (RuntimeException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+        long bytes;
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            bytes = Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("发布快照文件失败: " + fileName, e);
+        }
+        ExportResult result = new ExportResult(file.getFileName().toString(), bytes,
+                counts[Table.PORTFOLIOS.ordinal()], counts[Table.ITEMS.ordinal()],
+                counts[Table.INVENTORY.ordinal()], counts[Table.TRADES.ordinal()],
+                counts[Table.ARCHIVED_TRADES.ordinal()], counts[Table.ARCHIVE_ROLLUPS.ordinal()],
+                counts[Table.ARCHIVE_CHECKPOINTS.ordinal()], millisSince(start));
+        log.info("导出快照完成: {}", result);
+        return result;
+    }
+
+    private long exportPortfolios(SnapshotFile.Writer writer) {
+        List<PortfolioRow> rows = jdbcTemplate.query("SELECT id, name FROM portfolios ORDER BY id",
+                (rs, rowNum) -> new PortfolioRow(rs.getLong(1), rs.getString(2)));
+        writer.writeBlock(Table.PORTFOLIOS, rows.size(), SnapshotBlocks.encodePortfolios(rows));
+        return rows.size();
+    }
+
+    private long exportCheckpoints(SnapshotFile.Writer writer) {
+        List<CheckpointRow> rows = jdbcTemplate.query("""
+                SELECT portfolio_id, archived_before, net_flow, peak_net_investment, first_buy_amount
+                FROM trade_archive_checkpoint ORDER BY portfolio_id
+                """, (rs, rowNum) -> {
+            BigDecimal firstBuy = rs.getBigDecimal(5);
+            return new CheckpointRow(rs.getLong(1), micros(rs, 2), Money.of(rs.getBigDecimal(3)),
+                    Money.of(rs.getBigDecimal(4)), firstBuy != null ? Money.of(firstBuy) : null);
+        });
+        if (!rows.isEmpty()) {
+            writer.writeBlock(Table.ARCHIVE_CHECKPOINTS, rows.size(), SnapshotBlocks.encodeCheckpoints(rows));
+        }
+        return rows.size();
+    }
+
+    /**
+     * 逐段导出已归档交易，每段按块大小拆分（一个块只有一个组合的交易，按时间顺序）
+     *
+     * 段列表在事务已读到快照之后获取：之后才发布的段中的交易在快照里仍在 trades 中，归档中途崩溃时同一笔交易也可能
+     * 同时在两处。这些交易只随 trades 导出，导入后不会重复。
+     */
+    private long exportArchivedTrades(SnapshotFile.Writer writer) {
+        List<TradeSegment> segments = segmentStore.segments();
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        long latest = segments.stream().mapToLong(TradeSegment::maxCreatedAtMicros).max().orElseThrow();
+        Set<Long> live = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM trades WHERE created_at <= ?",
+                Long.class, utc(latest)));
+        long total = 0;
+        for (TradeSegment segment : segments) {
+            List<ArchivedTrade> rows = segment.read().stream().filter(trade -> !live.contains(trade.id())).toList();
+            for (int from = 0; from < rows.size(); from += blockRows) {
+                List<ArchivedTrade> block = rows.subList(from, Math.min(rows.size(), from + blockRows));
+                writer.writeBlock(Table.ARCHIVED_TRADES, block.size(), SnapshotBlocks.encodeTrades(block));
+            }
+            total += rows.size();
+        }
+        return total;
+    }
+
+    /**
+     * 按键集分页读取一张表，每页写成一个块
+     *
+     * @param keyset  取下一页的条件（参数为上一页最后一行的键）
+     * @param orderBy 与 keyset 一致的排序
+     */
+    private <T> long exportPaged(SnapshotFile.Writer writer, Table table, String select, String keyset, String orderBy,
+                                 RowMapper<T> mapper, Function<T, Object[]> key,
+                                 Function<List<T>, ByteBuffer> encoder) {
+        long total = 0;
+        Object[] after = null;
+        while (true) {
+            List<Object> params = new ArrayList<>();
+            if (after != null) {
+                params.addAll(List.of(after));
+            }
+            params.add(blockRows);
+            List<T> page = jdbcTemplate.query(select + (after != null ? " WHERE " + keyset : "")
+                    + " ORDER BY " + orderBy + " LIMIT ?", mapper, params.toArray());
+            if (!page.isEmpty()) {
+                writer.writeBlock(table, page.size(), encoder.apply(page));
+                total += page.size();
+            }
+            if (page.size() < blockRows) {
+                return total;
+            }
+            after = key.apply(page.get(page.size() - 1));
+        }
+    }
+
+    /**
+     * 从快照目录中的文件导入，目标库必须没有物品、交易、库存和归档数据
+     */
+    public synchronized ImportResult importSnapshot(String fileName) {
+        long start = System.nanoTime();
+        Path file = resolve(fileName);
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("快照文件不存在: " + fileName);
+        }
+        Long existing = jdbcTemplate.queryForObject("SELECT (SELECT COUNT(*) FROM items) + (SELECT COUNT(*) FROM trades)"
+                + " + (SELECT COUNT(*) FROM inventory) + (SELECT COUNT(*) FROM trade_archive_rollups)"
+                + " + (SELECT COUNT(*) FROM trade_archive_checkpoint)", Long.class);
+        // 已有的归档数据会与导入的重复计入统计，库存校验也只应重放快照中的归档交易
+        if (existing != null && existing > 0 || !segmentStore.segments().isEmpty()) {
+            throw new IllegalStateException("导入快照要求目标数据库没有物品、交易、库存和归档数据");
+        }
+
+        Load load = new Load();
+        long bytes;
+        try (SnapshotFile.Reader reader = new SnapshotFile.Reader(file)) {
+            bytes = reader.size();
+            SnapshotFile.Block block;
+            while ((block = reader.next()) != null) {
+                switch (block.table()) {
+                    case PORTFOLIOS -> importPortfolios(SnapshotBlocks.decodePortfolios(block), load);
+                    case ITEMS -> importItems(SnapshotBlocks.decodeItems(block), load);
+                    case INVENTORY -> importInventory(SnapshotBlocks.decodeInventory(block), load);
+                    case ARCHIVE_CHECKPOINTS -> importCheckpoints(SnapshotBlocks.decodeCheckpoints(block), load);
+                    case ARCHIVE_ROLLUPS -> importRollups(SnapshotBlocks.decodeRollups(block), load);
+                    case ARCHIVED_TRADES -> importArchivedTrades(SnapshotBlocks.decodeTrades(block), load);
+                    case TRADES -> importTrades(SnapshotBlocks.decodeTrades(block), load);
+                }
+            }
+        } finally {
+            if (load.items + load.inventory + load.trades + load.archivedTrades + load.rollups + load.checkpoints > 0) {
+                // 即使中途失败，已提交的块也已改变数据
+                eventPublisher.publishEvent(DataChangedEvent.everything());
+            }
+        }
+        load.check.complete();
+        verifyCounts(load);
+
+        ImportResult result = new ImportResult(file.getFileName().toString(), bytes, load.portfolioIds.size(),
+                load.items, load.inventory, load.trades, load.archivedTrades, load.rollups, load.checkpoints,
+                millisSince(start), load.check.inconsistent, List.copyOf(load.check.errors));
+        log.info("导入快照完成: 文件 {}，组合 {}，物品 {}，库存 {}，交易 {}，已归档交易 {}，归档汇总 {}，不一致物品 {}，耗时 {} ms",
+                result.file(), result.portfolios(), result.items(), result.inventory(), result.trades(),
+                result.archivedTrades(), result.archiveRollups(), result.inconsistentItems(), result.millis());
+        return result;
+    }
+
+    /**
+     * 组合按名称对应到目标库中的组合，不存在时创建
+     */
+    private void importPortfolios(List<PortfolioRow> rows, Load load) {
+        Map<String, Long> byName = new HashMap<>();
+        for (Portfolio portfolio : portfolioService.getAllPortfolios()) {
+            byName.put(portfolio.getName(), portfolio.getId());
+        }
+        for (PortfolioRow row : rows) {
+            Long id = byName.get(row.name());
+            load.portfolioIds.put(row.id(), id != null ? id : portfolioService.createPortfolio(row.name()).getId());
+        }
+    }
+
+    private void importItems(List<ItemRow> rows, Load load) {
+        transaction.executeWithoutResult(status -> {
+            long firstId = idReservation.reserve("items", rows.size());
+            List<Object[]> values = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                ItemRow row = rows.get(i);
+                values.add(new Object[]{firstId + i, row.marketHashName(), row.cnName(), row.enName(), row.nameId(),
+                        row.contentHash()});
+            }
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO items (id, market_hash_name, cn_name, en_name, name_id, content_hash)
+                    VALUES (?, ?, ?, ?, ?, ?)
+                    """, values);
+            // JDBC 写入不经过实体回调，显式记录变更日志
+            for (int i = 0; i < rows.size(); i++) {
+                changeLog.record(ChangeLog.Entity.ITEM, null, firstId + i, ChangeLog.Op.UPSERT);
+            }
+        });
+        load.items += rows.size();
+    }
+
+    private void importInventory(List<InventoryRow> rows, Load load) {
+        transaction.executeWithoutResult(status -> {
+            long firstId = idReservation.reserve("inventory", rows.size());
+            List<Object[]> values = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                InventoryRow row = rows.get(i);
+                long portfolioId = load.portfolioId(row.portfolioId());
+                values.add(new Object[]{firstId + i, portfolioId, row.nameId(), row.currentQuantity(),
+                        Money.toBigDecimal(row.weightedAverageCost()), Money.toBigDecimal(row.totalInvestmentCost()),
+                        utc(row.createdAtMicros()), utc(row.lastUpdatedAtMicros())});
+                load.check.expect(portfolioId, row);
+            }
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO inventory (id, portfolio_id, name_id, current_quantity, weighted_average_cost,
+                                           total_investment_cost, created_at, last_updated_at)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                    """, values);
+            // 库存在组合内按 nameId 记录，与实体回调一致
+            for (InventoryRow row : rows) {
+                changeLog.record(ChangeLog.Entity.INVENTORY, load.portfolioId(row.portfolioId()), row.nameId(),
+                        ChangeLog.Op.UPSERT);
+            }
+        });
+        load.inventory += rows.size();
+    }
+
+    private void importCheckpoints(List<CheckpointRow> rows, Load load) {
+        transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate("""
+                INSERT INTO trade_archive_checkpoint
+                    (portfolio_id, archived_before, net_flow, peak_net_investment, first_buy_amount)
+                VALUES (?, ?, ?, ?, ?)
+                """, rows.stream().map(row -> new Object[]{load.portfolioId(row.portfolioId()),
+                utc(row.archivedBeforeMicros()), Money.toBigDecimal(row.netFlow()),
+                Money.toBigDecimal(row.peakNetInvestment()),
+                row.firstBuyAmount() != null ? Money.toBigDecimal(row.firstBuyAmount()) : null}).toList()));
+        load.checkpoints += rows.size();
+    }
+
+    private void importRollups(List<RollupRow> rows, Load load) {
+        transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate("""
+                INSERT INTO trade_archive_rollups (portfolio_id, trade_date, type, name_id, trade_count, total_quantity,
+                                                   total_amount, first_trade_at, last_trade_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, rows.stream().map(row -> new Object[]{load.portfolioId(row.portfolioId()),
+                LocalDate.ofEpochDay(row.tradeDay()), row.type().name(), row.nameId(), row.tradeCount(),
+                row.totalQuantity(), Money.toBigDecimal(row.totalAmount()), utc(row.firstTradeAtMicros()),
+                utc(row.lastTradeAtMicros())}).toList()));
+        load.rollups += rows.size();
+    }
+
+    /**
+     * 已归档交易写成目标环境中的新段；主键从 trades 的序列预留，与导入的未归档交易不重复（查询合并时按ID去重）
+     */
+    private void importArchivedTrades(List<ArchivedTrade> trades, Load load) {
+        long firstId = idReservation.reserve("trades", trades.size());
+        List<ArchivedTrade> rows = new ArrayList<>(trades.size());
+        for (int i = 0; i < trades.size(); i++) {
+            ArchivedTrade trade = trades.get(i);
+            rows.add(new ArchivedTrade(firstId + i, load.portfolioId(trade.portfolioId()), trade.nameId(),
+                    trade.type(), trade.unitPrice(), trade.quantity(), trade.totalAmount(), trade.createdAtMicros()));
+        }
+        segmentStore.append(rows);
+        load.archivedTrades += rows.size();
+    }
+
+    private void importTrades(List<ArchivedTrade> trades, Load load) {
+        transaction.executeWithoutResult(status -> {
+            long firstId = idReservation.reserve("trades", trades.size());
+            List<Object[]> values = new ArrayList<>(trades.size());
+            for (int i = 0; i < trades.size(); i++) {
+                ArchivedTrade trade = trades.get(i);
+                values.add(new Object[]{firstId + i, load.portfolioId(trade.portfolioId()), trade.nameId(),
+                        trade.type().name(), Money.toBigDecimal(trade.unitPrice()), trade.quantity(),
+                        Money.toBigDecimal(trade.totalAmount()), utc(trade.createdAtMicros())});
+            }
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO trades (id, portfolio_id, name_id, type, unit_price, quantity, total_amount, created_at)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                    """, values);
+            for (int i = 0; i < trades.size(); i++) {
+                changeLog.record(ChangeLog.Entity.TRADE, load.portfolioId(trades.get(i).portfolioId()), firstId + i,
+                        ChangeLog.Op.UPSERT);
+            }
+        });
+        for (ArchivedTrade trade : trades) {
+            load.check.apply(load.portfolioId(trade.portfolioId()), trade);
+        }
+        load.trades += trades.size();
+    }
+
+    /**
+     * 导入后的行数与快照中的行数一致（目标库导入前为空）
+     */
+    private void verifyCounts(Load load) {
+        Map<String, Long> expected = new LinkedHashMap<>();
+        expected.put("items", load.items);
+        expected.put("inventory", load.inventory);
+        expected.put("trades", load.trades);
+        expected.put("trade_archive_rollups", load.rollups);
+        expected.put("trade_archive_checkpoint", load.checkpoints);
+        expected.forEach((table, rows) -> {
+            Long actual = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+            if (actual == null || actual != rows) {
+                throw new IllegalStateException("导入后 " + table + " 行数为 " + actual + "，快照中为 " + rows);
+            }
+        });
+        long archived = segmentStore.segments().stream().mapToLong(TradeSegment::rowCount).sum();
+        if (archived != load.archivedTrades) {
+            throw new IllegalStateException("导入后已归档交易为 " + archived + " 笔，快照中为 " + load.archivedTrades);
+        }
+    }
+
+    private Path resolve(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("快照文件名不能为空");
+        }
+        String name = fileName.endsWith(EXTENSION) ? fileName : fileName + EXTENSION;
+        Path base = directory.toAbsolutePath().normalize();
+        Path file = base.resolve(name).normalize();
+        if (!file.getParent().equals(base)) {
+            throw new IllegalArgumentException("快照文件名无效: " + fileName);
+        }
+        return file;
+    }
+
+    private static long micros(ResultSet rs, int column) throws SQLException {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, rs.getObject(column, LocalDateTime.class).toInstant(ZoneOffset.UTC));
+    }
+
+    private static LocalDateTime utc(long micros) {
+        return LocalDateTime.ofInstant(Instant.EPOCH.plus(micros, ChronoUnit.MICROS), ZoneOffset.UTC);
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除未完成的快照文件失败: {}", file, e);
+        }
+    }
+
+    /**
+     * 一次导入的累计状态
+     */
+    private final class Load {
+        /** 快照中的组合ID -> 目标库中的组合ID */
+        final Map<Long, Long> portfolioIds = new HashMap<>();
+        final InventoryCheck check = new InventoryCheck();
+        long items;
+        long inventory;
+        long trades;
+        long archivedTrades;
+        long rollups;
+        long checkpoints;
+
+        long portfolioId(long snapshotId) {
+            Long id = portfolioIds.get(snapshotId);
+            if (id == null) {
+                throw new IllegalStateException("快照中的数据引用了不存在的组合: " + snapshotId);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * 按快照中交易的顺序逐个物品重放库存（与该物品已导入的归档交易按时间合并），与快照中的库存比较
+     *
+     * 目标环境导入前没有归档段，段中的交易都来自本次导入的快照。
+     */
+    private final class InventoryCheck {
+        private final Map<ItemKey, InventoryRow> expected = new HashMap<>();
+        private final List<String> errors = new ArrayList<>();
+        private long inconsistent;
+        private ItemKey current;
+        private InventoryReplay replay;
+        /** 当前物品的已归档交易（按时间顺序）和下一笔未重放的位置 */
+        private List<ArchivedTrade> archived;
+        private int nextArchived;
+
+        void expect(long portfolioId, InventoryRow row) {
+            expected.put(new ItemKey(portfolioId, row.nameId()), row);
+        }
+
+        void apply(long portfolioId, ArchivedTrade trade) {
+            ItemKey key = new ItemKey(portfolioId, trade.nameId());
+            if (!key.equals(current)) {
+                finish();
+                start(key);
+            }
+            // 回填的交易可能早于已归档的交易
+            while (nextArchived < archived.size() && CHRONOLOGICAL.compare(archived.get(nextArchived), trade) < 0) {
+                replay.apply(archived.get(nextArchived++));
+            }
+            replay.apply(trade);
+        }
+
+        void complete() {
+            finish();
+            // 快照中有库存但没有未归档交易的物品
+            for (ItemKey key : List.copyOf(expected.keySet())) {
+                start(key);
+                finish();
+            }
+        }
+
+        private void start(ItemKey key) {
+            current = key;
+            replay = new InventoryReplay();
+            archived = segmentStore.segments().isEmpty() ? List.of()
+                    : segmentStore.findByNameId(key.portfolioId(), key.nameId()).stream().sorted(CHRONOLOGICAL).toList();
+            nextArchived = 0;
+        }
+
+        private void finish() {
+            if (current == null) {
+                return;
+            }
+            while (nextArchived < archived.size()) {
+                replay.apply(archived.get(nextArchived++));
+            }
+            InventoryRow row = expected.remove(current);
+            int quantity = row != null ? row.currentQuantity() : 0;
+            long totalCost = row != null ? row.totalInvestmentCost() : 0;
+            String problem = null;
+            if (replay.oversold()) {
+                problem = "按交易重放时卖出数量超过持有数量";
+            } else if (replay.quantity() != quantity || replay.totalCost() != totalCost) {
+                problem = "库存 " + quantity + " 件/成本 " + Money.toBigDecimal(totalCost) + "，按交易重放为 "
+                        + replay.quantity() + " 件/成本 " + Money.toBigDecimal(replay.totalCost());
+            }
+            if (problem != null) {
+                inconsistent++;
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add("组合 " + current.portfolioId() + " 物品 " + current.nameId() + ": " + problem);
+                }
+            }
+            current = null;
+            replay = null;
+            archived = null;
+        }
+    }
+
+    private record ItemKey(long portfolioId, long nameId) {
+    }
+
+    /**
+     * 导出结果
+     *
+     * @param archivedTrades     段文件中的已归档交易数
+     * @param archiveRollups     归档汇总行数
+     * @param archiveCheckpoints 有归档进度的组合数
+     */
+    public record ExportResult(String file, long bytes, long portfolios, long items, long inventory, long trades,
+                               long archivedTrades, long archiveRollups, long archiveCheckpoints, long millis) {
+    }
+
+    /**
+     * 导入结果
+     *
+     * @param inconsistentItems 库存与按交易重放结果不一致的物品数
+     * @param inconsistencies   前 100 个不一致物品的说明
+     */
+    public record ImportResult(String file, long bytes, long portfolios, long items, long inventory, long trades,
+                               long archivedTrades, long archiveRollups, long archiveCheckpoints, long millis,
+                               long inconsistentItems, List<String> inconsistencies) {
+    }
+}
@@ -0,0 +1,172 @@
+package com.cs.csinventory.service.sync;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 变更日志 - 收集当前事务内的实体变更，在提交前一次性写入 change_log
+ *
+ * 同一事务内对同一实体的多次变更只保留最后一次。序号在提交前最后一步通过更新 change_log_sequence
+ * 单行分配，该行锁一直持有到提交，因此序号顺序与提交顺序一致：客户端看到序号 N 时，
+ * 所有小于 N 的变更都已提交，不会因为并发事务乱序提交而漏掉变更。
+ *
+ * 变更日志同时是集群内的缓存失效通道：每行记录写入它的节点（origin），提交后本节点直接发布
+ * {@link DataChangedEvent}，其他节点由 {@link ChangeLogTailer} 轮询到后发布。
+ */
+@Component
+public class ChangeLog implements TransactionExecutionListener {
+
+    public enum Entity { ITEM, INVENTORY, TRADE }
+
+    public enum Op { UPSERT, DELETE }
+
+    private static final int SEQUENCE_ROW = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    /** 本节点标识，每次启动不同 */
+    private final String origin = UUID.randomUUID().toString();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ChangeLog(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * 每个新开启的读写事务都预先注册提交回调：JPA 的插入/更新回调可能要到提交时的 flush 才触发，
+     * 那时再注册已经赶不上 beforeCommit
+     */
+    @Override
+    public void afterBegin(TransactionExecution transaction, @Nullable Throwable beginFailure) {
+        if (beginFailure == null && !transaction.isReadOnly()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending();
+        }
+    }
+
+    /**
+     * 记录一次变更，必须在事务内调用（JPA 实体回调和 JDBC 批量写入都在事务内）
+     *
+     * @param portfolioId 交易和库存所属的组合，物品为 null
+     */
+    public void record(Entity entity, Long portfolioId, long key, Op op) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("变更日志必须在事务内记录: " + entity + " " + key);
+        }
+        Pending pending = pending();
+        if (pending.written) {
+            throw new IllegalStateException("事务已写入变更日志，无法再记录: " + entity + " " + key);
+        }
+        pending.changes.put(new Change(entity, portfolioId, key), op);
+    }
+
+    private Pending pending() {
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    /**
+     * 本节点写入的变更日志的 origin
+     */
+    public String origin() {
+        return origin;
+    }
+
+    /**
+     * 当前最大序号
+     */
+    public long latestSeq() {
+        return jdbcTemplate.queryForObject(
+                "SELECT last_seq FROM change_log_sequence WHERE id = ?", Long.class, SEQUENCE_ROW);
+    }
+
+    /**
+     * 一条变更：实体类型、所属组合（物品为 null）、键
+     */
+    public record Change(Entity entity, Long portfolioId, long key) {
+    }
+
+    /**
+     * 事务内待写入的变更
+     */
+    private final class Pending implements TransactionSynchronization {
+
+        private final Map<Change, Op> changes = new LinkedHashMap<>();
+        private boolean written;
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(ChangeLog.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(ChangeLog.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (readOnly) {
+                return;
+            }
+            // 先刷新持久化上下文，提交时才执行的插入/更新/删除回调也会记录到这里
+            if (entityManager.isJoinedToTransaction()) {
+                entityManager.flush();
+            }
+            written = true;
+            if (changes.isEmpty()) {
+                return;
+            }
+            int count = changes.size();
+            jdbcTemplate.update("UPDATE change_log_sequence SET last_seq = last_seq + ? WHERE id = ?",
+                    count, SEQUENCE_ROW);
+            long last = latestSeq();
+            long seq = last - count;
+            LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+            List<Object[]> rows = new ArrayList<>(count);
+            for (Map.Entry<Change, Op> entry : changes.entrySet()) {
+                rows.add(new Object[]{++seq, entry.getKey().entity().name(), entry.getKey().portfolioId(),
+                        entry.getKey().key(), entry.getValue().name(), now, origin});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO change_log (seq, entity, portfolio_id, entity_key, op, changed_at, origin)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        }
+
+        @Override
+        public void afterCommit() {
+            // 提交后才失效缓存，之后重新计算的缓存一定能读到本次提交
+            if (!changes.isEmpty()) {
+                eventPublisher.publishEvent(new DataChangedEvent(List.copyOf(changes.keySet()), false));
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ChangeLog.this);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.cs.csinventory.service.sync;
+
+import com.cs.csinventory.domain.Inventory;
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Trade;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA 实体回调 - 所有经过 JPA 的写入（交易、库存、物品及其导入）自动记录到变更日志
+ *
+ * 由 Hibernate 通过 Spring 容器创建；JDBC 直接写入的路径需要自行调用 {@link ChangeLog#record}。
+ */
+@Component
+public class ChangeLogEntityListener {
+
+    private final ObjectProvider<ChangeLog> changeLog;
+
+    public ChangeLogEntityListener(ObjectProvider<ChangeLog> changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onUpsert(Object entity) {
+        record(entity, ChangeLog.Op.UPSERT);
+    }
+
+    @PostRemove
+    public void onDelete(Object entity) {
+        record(entity, ChangeLog.Op.DELETE);
+    }
+
+    private void record(Object entity, ChangeLog.Op op) {
+        if (entity instanceof Trade trade) {
+            changeLog.getObject().record(ChangeLog.Entity.TRADE, trade.getPortfolioId(), trade.getId(), op);
+        } else if (entity instanceof Inventory inventory) {
+            // 库存在组合内按 nameId 同步：全部卖出后重新买入会生成新的库存行，但对客户端是同一条记录
+            changeLog.getObject().record(ChangeLog.Entity.INVENTORY, inventory.getPortfolioId(), inventory.getNameId(), op);
+        } else if (entity instanceof Item item) {
+            changeLog.getObject().record(ChangeLog.Entity.ITEM, null, item.getId(), op);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.cs.csinventory.service.sync;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群缓存失效 - 轮询变更日志，把其他节点提交的变更作为 {@link DataChangedEvent} 发布到本节点
+ *
+ * 变更日志的序号按提交顺序分配，读到 change_log_sequence.last_seq = N 时小于等于 N 的变更都已提交，
+ * 因此只需记住读到的位置，不会漏掉并发提交的变更，也不依赖外部消息中间件。
+ * 没有新变更时每次轮询只读序号表一行；轮询使用独立线程（不受定时任务线程池中长任务的影响），
+ * 不开启事务，走主库，不受只读副本延迟影响。
+ *
+ * 每次轮询成功后确认本节点缓存在 max-staleness 内可信；数据库不可用导致轮询持续失败时，
+ * 超过该时间后 {@link DataVersions} 让缓存全部失效，缓存数据的陈旧程度始终有上限。
+ * 轮询位置早于已清理的日志（节点长时间离线）时无法逐条回放，直接失效全部缓存。
+ */
+@Component
+@Slf4j
+public class ChangeLogTailer implements SmartLifecycle {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeLog changeLog;
+    private final DataVersions dataVersions;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.cache.invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.invalidation.poll-interval:200ms}")
+    private Duration pollInterval;
+
+    @Value("${app.cache.invalidation.max-staleness:5s}")
+    private Duration maxStaleness;
+
+    @Value("${app.cache.invalidation.batch-size:1000}")
+    private int batchSize;
+
+    private volatile ScheduledExecutorService executor;
+    /** 已处理到的变更日志序号 */
+    private volatile long position;
+    private boolean started;
+
+    public ChangeLogTailer(JdbcTemplate jdbcTemplate, ChangeLog changeLog, DataVersions dataVersions,
+                           ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.changeLog = changeLog;
+        this.dataVersions = dataVersions;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // 首次启动时缓存为空，从当前位置开始即可；停止后再启动则从停止的位置继续
+        if (!started) {
+            position = changeLog.latestSeq();
+            started = true;
+        }
+        dataVersions.confirmCoherentUntil(System.nanoTime() + maxStaleness.toNanos());
+        executor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("change-log-tailer").daemon().factory());
+        executor.scheduleWithFixedDelay(this::pollSafely, pollInterval.toMillis(), pollInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        log.info("集群缓存失效轮询已启动，间隔 {}，最大延迟 {}，起始序号 {}", pollInterval, maxStaleness, position);
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService running = executor;
+        if (running != null) {
+            running.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * 已处理到的变更日志序号
+     */
+    public long position() {
+        return position;
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            log.warn("轮询变更日志失败，序号 {}: {}", position, e.getMessage());
+        }
+    }
+
+    /**
+     * 读取并发布 position 之后其他节点提交的变更
+     */
+    void poll() {
+        long confirmedAt = System.nanoTime();
+        Map<String, Object> sequence = jdbcTemplate.queryForMap(
+                "SELECT last_seq, pruned_through FROM change_log_sequence WHERE id = 1");
+        long latest = ((Number) sequence.get("last_seq")).longValue();
+        long prunedThrough = ((Number) sequence.get("pruned_through")).longValue();
+
+        if (position < prunedThrough) {
+            log.warn("变更日志已清理至 {}，本节点位置 {}，失效全部缓存", prunedThrough, position);
+            eventPublisher.publishEvent(DataChangedEvent.everything());
+            position = latest;
+        }
+        while (position < latest) {
+            long from = position;
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT seq, entity, portfolio_id, entity_key, origin FROM change_log "
+                            + "WHERE seq > ? AND seq <= ? ORDER BY seq LIMIT ?",
+                    (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getObject(3, Long.class),
+                            rs.getLong(4), rs.getString(5)},
+                    from, latest, batchSize);
+            List<ChangeLog.Change> remote = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                // 本节点的变更在提交后已直接发布
+                if (!changeLog.origin().equals(row[4])) {
+                    remote.add(new ChangeLog.Change(ChangeLog.Entity.valueOf((String) row[1]), (Long) row[2], (long) row[3]));
+                }
+            }
+            if (!remote.isEmpty()) {
+                eventPublisher.publishEvent(new DataChangedEvent(remote, true));
+            }
+            // 序号中间有空缺（已被清理）时直接前进到 latest
+            position = rows.size() < batchSize ? latest : (long) rows.get(rows.size() - 1)[0];
+        }
+        // 以开始轮询的时间为准：这一刻之前提交的变更都已处理
+        dataVersions.confirmCoherentUntil(confirmedAt + maxStaleness.toNanos());
+    }
+}
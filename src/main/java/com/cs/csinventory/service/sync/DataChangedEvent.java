@@ -0,0 +1,23 @@
+package com.cs.csinventory.service.sync;
+
+import java.util.List;
+
+/**
+ * 已提交的数据变更，进程内缓存据此精确失效
+ *
+ * @param changes 变更的记录，为空列表时表示无法确定变更范围，所有缓存都应失效
+ * @param remote  变更来自集群中的其他节点（由 {@link ChangeLogTailer} 轮询到）
+ */
+public record DataChangedEvent(List<ChangeLog.Change> changes, boolean remote) {
+
+    /**
+     * 所有缓存都应失效（轮询位置已被清理、无法逐条回放时）
+     */
+    public static DataChangedEvent everything() {
+        return new DataChangedEvent(List.of(), true);
+    }
+
+    public boolean everythingChanged() {
+        return changes.isEmpty();
+    }
+}
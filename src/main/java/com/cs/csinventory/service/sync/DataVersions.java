@@ -0,0 +1,85 @@
+package com.cs.csinventory.service.sync;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据版本 - 每个投资组合一个单调递增的版本号，在该组合的数据提交变更后递增
+ *
+ * 缓存按 (组合, 版本) 保存结果：写入提交后版本变化，旧结果自动失效，其他组合的写入不影响本组合的缓存。
+ * 计算前先读取版本，即使计算期间有新的提交，结果也只会记在旧版本下，不会把旧数据当作新版本缓存。
+ * 物品目录变更和归档等全局变更使所有组合的版本一起递增。
+ *
+ * 版本由 {@link DataChangedEvent} 驱动，本节点和集群其他节点的提交都会递增版本。
+ * 轮询其他节点的变更落后超过允许的最大延迟时，本节点的缓存不再可信（{@link #coherent} 为 false），
+ * 缓存应绕过直到轮询恢复。
+ */
+@Component
+public class DataVersions {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ConcurrentHashMap<Long, Long> portfolios = new ConcurrentHashMap<>();
+    private volatile long global;
+    /** 是否启用了集群轮询，未启用时缓存始终可信 */
+    private volatile boolean clustered;
+    /** 缓存可信的截止时间（System.nanoTime） */
+    private volatile long coherentUntil;
+
+    /**
+     * 组合当前的数据版本
+     */
+    public long current(long portfolioId) {
+        return Math.max(portfolios.getOrDefault(portfolioId, 0L), global);
+    }
+
+    /**
+     * 本节点已知的变更是否足够新，可以使用进程内缓存
+     */
+    public boolean coherent() {
+        return !clustered || System.nanoTime() - coherentUntil < 0;
+    }
+
+    /**
+     * 集群轮询确认已看到其他节点的全部变更，缓存在 deadlineNanos（System.nanoTime）之前可信
+     */
+    void confirmCoherentUntil(long deadlineNanos) {
+        coherentUntil = deadlineNanos;
+        clustered = true;
+    }
+
+    /**
+     * 组合的数据已提交变更
+     */
+    public void portfolioChanged(long portfolioId) {
+        portfolios.merge(portfolioId, clock.incrementAndGet(), Math::max);
+    }
+
+    /**
+     * 影响所有组合的变更（物品目录、归档等）
+     */
+    public void allChanged() {
+        global = clock.incrementAndGet();
+    }
+
+    @EventListener
+    public void onDataChanged(DataChangedEvent event) {
+        if (event.everythingChanged()) {
+            allChanged();
+            return;
+        }
+        Set<Long> changed = new HashSet<>();
+        for (ChangeLog.Change change : event.changes()) {
+            if (change.portfolioId() == null) {
+                allChanged();
+                return;
+            }
+            changed.add(change.portfolioId());
+        }
+        changed.forEach(this::portfolioChanged);
+    }
+}
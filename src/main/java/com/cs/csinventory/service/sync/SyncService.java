@@ -0,0 +1,162 @@
+package com.cs.csinventory.service.sync;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.repo.InventoryRepository;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.repo.TradeRepository;
+import com.cs.csinventory.service.dto.InventoryWithItemDTO;
+import com.cs.csinventory.service.dto.SyncPageDTO;
+import com.cs.csinventory.service.dto.TradeWithItemDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 增量同步服务 - 按变更日志返回 since 之后的 upsert 和删除标记
+ *
+ * 一页内同一记录的多次变更只返回最后状态：upsert 返回读取时的当前数据；
+ * 如果记录在之后已被删除，删除标记会出现在后续日志中（同一页内直接返回删除标记）。
+ * 已归档的交易不再变化，不会出现在变更日志中。
+ * 交易和库存按投资组合过滤，物品目录的变更对所有组合可见。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SyncService {
+
+    public static final int MAX_PAGE_SIZE = 5000;
+    /** IN 查询每批的参数个数 */
+    private static final int IN_CHUNK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeLog changeLog;
+    private final ItemRepository itemRepository;
+    private final InventoryRepository inventoryRepository;
+    private final TradeRepository tradeRepository;
+
+    @Value("${app.sync.retention:30d}")
+    private Duration retention;
+
+    /**
+     * 获取组合在 since 之后最多 limit 条变更
+     */
+    @Transactional(readOnly = true)
+    public SyncPageDTO changesSince(long portfolioId, long since, int limit) {
+        if (since < 0) {
+            throw new IllegalArgumentException("since不能为负数");
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Map<String, Object> sequence = jdbcTemplate.queryForMap(
+                "SELECT last_seq, pruned_through FROM change_log_sequence WHERE id = 1");
+        long latest = ((Number) sequence.get("last_seq")).longValue();
+        long prunedThrough = ((Number) sequence.get("pruned_through")).longValue();
+        if (since < prunedThrough) {
+            return emptyPage(since, latest, latest, true);
+        }
+
+        // 多取一条判断是否还有下一页
+        List<Object[]> rows = jdbcTemplate.query(
+                "SELECT seq, entity, entity_key, op FROM change_log WHERE seq > ? "
+                        + "AND (portfolio_id = ? OR portfolio_id IS NULL) ORDER BY seq LIMIT ?",
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getString(4)},
+                since, portfolioId, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        // 已读到末尾时直接前进到 latest，跳过其他组合的变更，下次不再重复扫描
+        if (rows.isEmpty()) {
+            return emptyPage(since, Math.max(since, latest), latest, false);
+        }
+        long lastSeq = (long) rows.get(rows.size() - 1)[0];
+        long nextSince = hasMore ? lastSeq : Math.max(lastSeq, latest);
+
+        // 每条记录只保留页内最后一次变更
+        Map<ChangeLog.Entity, Map<Long, ChangeLog.Op>> latestOps = new EnumMap<>(ChangeLog.Entity.class);
+        for (Object[] row : rows) {
+            latestOps.computeIfAbsent(ChangeLog.Entity.valueOf((String) row[1]), e -> new LinkedHashMap<>())
+                    .put((Long) row[2], ChangeLog.Op.valueOf((String) row[3]));
+        }
+
+        return SyncPageDTO.builder()
+                .since(since)
+                .nextSince(nextSince)
+                .latest(latest)
+                .hasMore(hasMore)
+                .resetRequired(false)
+                .items(load(keys(latestOps, ChangeLog.Entity.ITEM, ChangeLog.Op.UPSERT), itemRepository::findAllById))
+                .inventory(load(keys(latestOps, ChangeLog.Entity.INVENTORY, ChangeLog.Op.UPSERT),
+                        nameIds -> inventoryRepository.findInventoryWithItemByNameIdIn(portfolioId, nameIds)))
+                .trades(load(keys(latestOps, ChangeLog.Entity.TRADE, ChangeLog.Op.UPSERT),
+                        tradeRepository::findTradesWithItemByIdIn))
+                .deletedItems(keys(latestOps, ChangeLog.Entity.ITEM, ChangeLog.Op.DELETE))
+                .deletedInventory(keys(latestOps, ChangeLog.Entity.INVENTORY, ChangeLog.Op.DELETE))
+                .deletedTrades(keys(latestOps, ChangeLog.Entity.TRADE, ChangeLog.Op.DELETE))
+                .build();
+    }
+
+    /**
+     * 清理超过保留期的变更日志，since 早于清理位置的客户端需要重新全量下载
+     */
+    @Scheduled(cron = "${app.sync.prune-cron:0 15 4 * * *}")
+    @Transactional
+    public void prune() {
+        LocalDateTime before = LocalDateTime.now(ZoneOffset.UTC).minus(retention);
+        Long through = jdbcTemplate.queryForObject(
+                "SELECT MAX(seq) FROM change_log WHERE changed_at < ?", Long.class, before);
+        if (through == null) {
+            return;
+        }
+        int deleted = jdbcTemplate.update("DELETE FROM change_log WHERE seq <= ?", through);
+        jdbcTemplate.update("UPDATE change_log_sequence SET pruned_through = ? WHERE id = 1 AND pruned_through < ?",
+                through, through);
+        log.info("已清理 {} 条变更日志，清理至序号 {}", deleted, through);
+    }
+
+    private static List<Long> keys(Map<ChangeLog.Entity, Map<Long, ChangeLog.Op>> latestOps,
+                                   ChangeLog.Entity entity, ChangeLog.Op op) {
+        return latestOps.getOrDefault(entity, Map.of()).entrySet().stream()
+                .filter(entry -> entry.getValue() == op)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static <T> List<T> load(List<Long> keys, Function<Collection<Long>, ? extends Collection<T>> loader) {
+        List<T> result = new ArrayList<>(keys.size());
+        for (int from = 0; from < keys.size(); from += IN_CHUNK) {
+            result.addAll(loader.apply(keys.subList(from, Math.min(keys.size(), from + IN_CHUNK))));
+        }
+        return result;
+    }
+
+    private static SyncPageDTO emptyPage(long since, long nextSince, long latest, boolean resetRequired) {
+        return SyncPageDTO.builder()
+                .since(since)
+                .nextSince(nextSince)
+                .latest(latest)
+                .hasMore(false)
+                .resetRequired(resetRequired)
+                .items(List.<Item>of())
+                .inventory(List.<InventoryWithItemDTO>of())
+                .trades(List.<TradeWithItemDTO>of())
+                .deletedItems(List.of())
+                .deletedInventory(List.of())
+                .deletedTrades(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,208 @@
+package com.cs.csinventory.web;
+
+import com.cs.csinventory.service.cache.SingleFlight;
+import com.cs.csinventory.service.sync.DataVersions;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 响应缓存 - 按 (接口, 参数) 缓存序列化后的 JSON 字节，过期后先返回旧结果再在后台刷新（stale-while-revalidate）
+ *
+ * 缓存结果在有效期内且组合的 {@link DataVersions} 版本未变时直接返回（hit）；超过有效期但版本未变、
+ * 且未超过 maxStale 时也直接返回（stale），同时在虚拟线程上重新计算，同一个键同时只有一个刷新任务。
+ * 没有缓存、版本已变化或旧结果超过 maxStale 时在请求线程上计算（miss），同时到达的相同计算经
+ * {@link SingleFlight} 合并；写入后的第一次读取因此能看到自己的写入。
+ * 集群轮询落后时（{@link DataVersions#coherent} 为 false）版本不可靠，缓存结果都视为过期。
+ *
+ * 总条数和总字节数有上限，超出后淘汰最久未访问的条目。响应头 X-Cache 为 HIT、STALE 或 MISS。
+ */
+@Component
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+@Slf4j
+public class ResponseCache {
+
+    private final ResponseCacheProperties properties;
+    private final DataVersions dataVersions;
+    private final ObjectMapper objectMapper;
+    private final SingleFlight singleFlight;
+    private final ExecutorService refresher = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** 按访问顺序排列，淘汰最久未访问的条目；读写都在 this 上同步，临界区只有一次哈希表操作 */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    /** 正在后台刷新的键 */
+    private final ConcurrentHashMap<String, Boolean> refreshing = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Counters> counters = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache(ResponseCacheProperties properties, DataVersions dataVersions, ObjectMapper objectMapper,
+                         SingleFlight singleFlight) {
+        this.properties = properties;
+        this.dataVersions = dataVersions;
+        this.objectMapper = objectMapper;
+        this.singleFlight = singleFlight;
+    }
+
+    private record Entry(byte[] body, long version, long storedAt) {
+    }
+
+    /**
+     * 各接口的计数：命中、返回旧结果、未命中（同步计算）、后台刷新、后台刷新失败
+     */
+    public record EndpointStats(long hits, long stale, long misses, long refreshes, long refreshFailures) {
+    }
+
+    public record Stats(boolean enabled, int entries, long bytes, long evictions, Map<String, EndpointStats> endpoints) {
+    }
+
+    private static final class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder stale = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder refreshes = new LongAdder();
+        final LongAdder refreshFailures = new LongAdder();
+
+        EndpointStats snapshot() {
+            return new EndpointStats(hits.sum(), stale.sum(), misses.sum(), refreshes.sum(), refreshFailures.sum());
+        }
+    }
+
+    /**
+     * 返回接口的 JSON 响应，缓存键为 endpoint 和 params（调用方保证同一组参数的 params 相同）
+     *
+     * @param portfolioId 结果所属的组合，用于判断数据版本是否变化
+     * @param loader      计算结果，未命中时在请求线程上调用，刷新时在后台调用
+     */
+    public ResponseEntity<byte[]> get(String endpoint, long portfolioId, String params, Supplier<?> loader) {
+        ResponseCacheProperties.Endpoint config = properties.endpoints().get(endpoint);
+        if (!properties.enabled() || config == null) {
+            return response(serialize(loader.get()), "MISS");
+        }
+        Counters counter = counters.computeIfAbsent(endpoint, name -> new Counters());
+        String key = endpoint + "?" + params;
+        long version = dataVersions.current(portfolioId);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        // 版本变化（包括本组合自己的写入）后不返回旧结果
+        if (entry != null && entry.version() == version) {
+            long age = System.nanoTime() - entry.storedAt();
+            if (age < config.ttl().toNanos() && dataVersions.coherent()) {
+                counter.hits.increment();
+                return response(entry.body(), "HIT");
+            }
+            if (age < config.maxStale().toNanos()) {
+                counter.stale.increment();
+                refresh(key, portfolioId, loader, counter);
+                return response(entry.body(), "STALE");
+            }
+        }
+        counter.misses.increment();
+        // 先读版本再计算：计算期间提交的写入会使版本前进，下次请求时重新计算
+        byte[] body = singleFlight.execute("responseCache." + endpoint, portfolioId, List.of(params), () -> {
+            byte[] computed = serialize(loader.get());
+            store(key, new Entry(computed, version, System.nanoTime()));
+            return computed;
+        });
+        return response(body, "MISS");
+    }
+
+    private void refresh(String key, long portfolioId, Supplier<?> loader, Counters counter) {
+        if (refreshing.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    long version = dataVersions.current(portfolioId);
+                    byte[] body = serialize(loader.get());
+                    store(key, new Entry(body, version, System.nanoTime()));
+                    counter.refreshes.increment();
+                } catch (RuntimeException e) {
+                    // 刷新失败时继续使用旧结果，直到超过 maxStale 或版本变化
+                    counter.refreshFailures.increment();
+                    log.warn("后台刷新响应缓存失败: {}", key, e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.remove(key);
+            throw e;
+        }
+    }
+
+    private synchronized void store(String key, Entry entry) {
+        Entry previous = entries.get(key);
+        if (previous != null && previous.version() > entry.version()) {
+            // 较早开始的计算晚于较新的结果完成
+            return;
+        }
+        entries.put(key, entry);
+        totalBytes += entry.body().length - (previous != null ? previous.body().length : 0);
+        long maxBytes = properties.maxBytes().toBytes();
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > properties.maxEntries() || totalBytes > maxBytes) && eldest.hasNext()) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            totalBytes -= evicted.getValue().body().length;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * 清空缓存（计数保留）
+     */
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public Stats stats() {
+        Map<String, EndpointStats> endpoints = new TreeMap<>();
+        counters.forEach((endpoint, counter) -> endpoints.put(endpoint, counter.snapshot()));
+        synchronized (this) {
+            return new Stats(properties.enabled(), entries.size(), totalBytes, evictions.sum(), endpoints);
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化响应失败", e);
+        }
+    }
+
+    private static ResponseEntity<byte[]> response(byte[] body, String cacheStatus) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-Cache", cacheStatus)
+                .body(body);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,34 @@
+package com.cs.csinventory.web;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 响应缓存配置（app.response-cache.*），endpoints 中未配置的接口不缓存
+ */
+@ConfigurationProperties("app.response-cache")
+public record ResponseCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1000") int maxEntries,
+        @DefaultValue("32MB") DataSize maxBytes,
+        Map<String, Endpoint> endpoints
+) {
+
+    public ResponseCacheProperties {
+        endpoints = endpoints != null ? Map.copyOf(endpoints) : Map.of();
+    }
+
+    /**
+     * @param ttl      缓存结果的有效期，超过后数据版本未变时仍直接返回旧结果，同时在后台刷新；版本变化后同步重新计算
+     * @param maxStale 旧结果最多可以使用多久，超过后同步重新计算
+     */
+    public record Endpoint(
+            @DefaultValue("5s") Duration ttl,
+            @DefaultValue("60s") Duration maxStale
+    ) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.cs.csinventory.web;
+
+import com.cs.csinventory.service.diagnostics.SlowRequestLog;
+import com.cs.csinventory.service.diagnostics.SqlCapture;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 慢请求过滤器 - 请求期间记录请求线程上执行的 SQL，耗时超过阈值时交给 {@link SlowRequestLog} 保存
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SlowRequestFilter extends OncePerRequestFilter {
+
+    private final SlowRequestLog slowRequestLog;
+
+    public SlowRequestFilter(SlowRequestLog slowRequestLog) {
+        this.slowRequestLog = slowRequestLog;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlCapture capture = slowRequestLog.begin();
+        if (capture == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            String uri = request.getQueryString() != null
+                    ? request.getRequestURI() + "?" + request.getQueryString() : request.getRequestURI();
+            slowRequestLog.end(capture, request.getMethod(), uri, response.getStatus(), System.nanoTime() - start);
+        }
+    }
+}
@@ -2,36 +2,84 @@ package com.cs.csinventory.web;
 
 import com.cs.csinventory.domain.Inventory;
 import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
 import com.cs.csinventory.domain.Trade;
 import com.cs.csinventory.service.InventoryService;
 import com.cs.csinventory.service.ItemService;
+import com.cs.csinventory.service.PoolMetric;
+import com.cs.csinventory.service.PortfolioService;
+import com.cs.csinventory.service.ScenarioService;
+import com.cs.csinventory.service.alerts.PriceAlertService;
+import com.cs.csinventory.service.alerts.PriceAlertType;
 import com.cs.csinventory.service.TradeService;
 import com.cs.csinventory.service.InvestmentPoolService;
-import com.cs.csinventory.service.dto.DailyFlowDTO;
+import com.cs.csinventory.service.analytics.ItemAnalyticsService;
+import com.cs.csinventory.service.archive.TradeArchiveService;
+import com.cs.csinventory.service.backfill.TradeBackfillService;
+import com.cs.csinventory.service.cache.SingleFlight;
+import com.cs.csinventory.service.diagnostics.SlowRequestLog;
+import com.cs.csinventory.service.leaderboard.LeaderboardService;
+import com.cs.csinventory.service.live.LiveUpdateHub;
+import com.cs.csinventory.service.prices.PriceStatisticsService;
+import com.cs.csinventory.service.snapshot.SnapshotService;
+import com.cs.csinventory.service.sync.SyncService;
 import com.cs.csinventory.service.dto.TradeWithItemDTO;
 import com.cs.csinventory.service.dto.InventoryWithItemDTO;
 import com.cs.csinventory.service.dto.InvestmentPoolDTO;
+import com.cs.csinventory.service.dto.InvestmentPoolSummaryDTO;
+import com.cs.csinventory.service.dto.ItemAnalyticsPageDTO;
+import com.cs.csinventory.service.dto.ItemPriceStatsDTO;
+import com.cs.csinventory.service.dto.LeaderboardsDTO;
+import com.cs.csinventory.service.dto.PriceAlertDTO;
+import com.cs.csinventory.service.dto.PriceAlertEventDTO;
+import com.cs.csinventory.service.dto.ScenarioBatchDTO;
+import com.cs.csinventory.service.dto.ScenarioDTO;
+import com.cs.csinventory.service.dto.SyncPageDTO;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class TradeController {
 
+    /** 未指定 portfolioId 时使用的默认投资组合 */
+    private static final String DEFAULT_PORTFOLIO = "" + Portfolio.DEFAULT_ID;
+
     private final TradeService tradeService;
+    private final PortfolioService portfolioService;
     private final ItemService itemService;
     private final InventoryService inventoryService;
     private final InvestmentPoolService investmentPoolService;
+    private final TradeArchiveService tradeArchiveService;
+    private final LiveUpdateHub liveUpdateHub;
+    private final SyncService syncService;
+    private final TradeBackfillService tradeBackfillService;
+    private final ItemAnalyticsService itemAnalyticsService;
+    private final LeaderboardService leaderboardService;
+    private final ScenarioService scenarioService;
+    private final PriceStatisticsService priceStatisticsService;
+    private final PriceAlertService priceAlertService;
+    private final SnapshotService snapshotService;
+    private final ResponseCache responseCache;
+    private final SingleFlight singleFlight;
+    private final SlowRequestLog slowRequestLog;
 
     // ==================== 物品管理接口 ====================
     
@@ -51,6 +99,22 @@ public class TradeController {
         return itemService.searchItems(keyword, actualLimit);
     }
     
+    /**
+     * 按 nameId 列表批量获取物品，以 nameId 为键，不存在的不返回
+     */
+    @PostMapping("/items/batch")
+    public Map<Long, Item> getItemsByNameIds(@RequestBody List<Long> nameIds) {
+        return itemService.getItemsByNameIds(nameIds);
+    }
+
+    /**
+     * 按 marketHashName 列表批量获取物品，以 marketHashName 为键，不存在的不返回
+     */
+    @PostMapping("/items/batch/by-market-hash-name")
+    public Map<String, Item> getItemsByMarketHashNames(@RequestBody List<String> marketHashNames) {
+        return itemService.getItemsByMarketHashNames(marketHashNames);
+    }
+    
     @PostMapping("/items")
     public Item createItem(@RequestBody Item item) {
         return itemService.createItem(item);
@@ -83,20 +147,31 @@ public class TradeController {
         }
         
         try {
-            // 读取文件内容
-            String jsonData = new String(file.getBytes(), StandardCharsets.UTF_8);
-            return itemService.importItemsFromJson(jsonData);
+            return itemService.importItems(file.getBytes());
         } catch (IOException e) {
             throw new RuntimeException("读取文件失败: " + e.getMessage());
         }
     }
 
+    // ==================== 投资组合接口 ====================
+
+    @GetMapping("/portfolios")
+    public List<Portfolio> getAllPortfolios() {
+        return portfolioService.getAllPortfolios();
+    }
+
+    @PostMapping("/portfolios")
+    public Portfolio createPortfolio(@RequestBody PortfolioRequest request) {
+        return portfolioService.createPortfolio(request.name());
+    }
+
     // ==================== 交易管理接口 ====================
 
     @PostMapping("/trades")
     public Trade createTrade(@RequestBody TradeRequest request) {
-        // 构建Trade对象
+        // 构建Trade对象（未指定组合时记入默认组合）
         Trade trade = Trade.builder()
+                .portfolioId(request.portfolioId())
                 .nameId(request.nameId())
                 .type(request.type())
                 .unitPrice(request.unitPrice())
@@ -108,16 +183,9 @@ public class TradeController {
 
     @PostMapping("/trades/sell")
     public Trade createSellTrade(@RequestBody SellRequest request) {
-        // 验证是否有足够库存
-        if (!inventoryService.hasEnoughInventory(request.nameId(), request.quantity())) {
-            Integer currentQuantity = inventoryService.getCurrentQuantity(request.nameId());
-            throw new IllegalStateException(
-                String.format("库存不足，当前持有: %d，尝试卖出: %d", currentQuantity, request.quantity())
-            );
-        }
-        
-        // 构建卖出交易
+        // 构建卖出交易（组合和库存校验在 createTrade 的事务内完成，这里不再重复查询）
         Trade trade = Trade.builder()
+                .portfolioId(request.portfolioId())
                 .nameId(request.nameId())
                 .type(Trade.Type.SELL)
                 .unitPrice(request.unitPrice())
@@ -128,48 +196,120 @@ public class TradeController {
     }
 
     @GetMapping("/trades")
-    public List<TradeWithItemDTO> getAllTrades() {
-        return tradeService.getAllTradesWithItem();
+    public List<TradeWithItemDTO> getAllTrades(@RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId) {
+        return tradeService.getAllTradesWithItem(portfolioService.requirePortfolio(portfolioId));
     }
 
     @GetMapping("/trades/history/{nameId}")
-    public List<TradeWithItemDTO> getTradeHistory(@PathVariable Long nameId) {
-        return tradeService.getTradeHistoryWithItem(nameId);
+    public List<TradeWithItemDTO> getTradeHistory(
+            @PathVariable Long nameId,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        return tradeService.getTradeHistoryWithItem(portfolioService.requirePortfolio(portfolioId), nameId);
     }
 
     @GetMapping("/trades/date-range")
     public List<TradeWithItemDTO> getTradesByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime start,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime end
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime end,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
     ) {
-        return tradeService.getTradesByDateRangeWithItem(start, end);
+        return tradeService.getTradesByDateRangeWithItem(portfolioService.requirePortfolio(portfolioId), start, end);
     }
 
     @DeleteMapping("/trades/{tradeId}")
-    public Map<String, Object> deleteTrade(@PathVariable Long tradeId) {
-        tradeService.deleteTrade(tradeId);
+    public Map<String, Object> deleteTrade(
+            @PathVariable Long tradeId,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        tradeService.deleteTrade(portfolioId, tradeId);
         return Map.of(
                 "success", true,
                 "message", "交易记录已成功删除，库存已回滚"
         );
     }
 
+    /**
+     * 上传 CSV 回填历史交易（表头: nameId,type,unitPrice,quantity,createdAt），导入后按时间顺序重放库存
+     */
+    @PostMapping("/trades/backfill")
+    public TradeBackfillService.BackfillResult backfillTrades(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("文件不能为空");
+        }
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            return tradeBackfillService.backfill(portfolioId, reader);
+        } catch (IOException e) {
+            throw new RuntimeException("读取文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 回填服务器回填目录中的 CSV 文件（大文件无需上传）
+     */
+    @PostMapping("/trades/backfill/local")
+    public TradeBackfillService.BackfillResult backfillTradesFromDirectory(
+            @RequestParam String fileName,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        try {
+            return tradeBackfillService.backfillFile(portfolioId, fileName);
+        } catch (IOException e) {
+            throw new RuntimeException("读取文件失败: " + e.getMessage());
+        }
+    }
+
     // ==================== 库存管理接口 ====================
 
+    /**
+     * 组合的全部库存，经响应缓存（允许短暂的旧结果）
+     */
     @GetMapping("/inventory")
-    public List<InventoryWithItemDTO> getAllInventory() {
-        return inventoryService.getAllInventoryWithItem();
+    public ResponseEntity<byte[]> getAllInventory(@RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId) {
+        return responseCache.get("inventory", portfolioId, "portfolioId=" + portfolioId,
+                () -> inventoryService.getAllInventoryWithItem(portfolioService.requirePortfolio(portfolioId)));
     }
 
     @GetMapping("/inventory/{nameId}")
-    public InventoryWithItemDTO getInventoryByNameId(@PathVariable Long nameId) {
-        return inventoryService.getInventoryWithItemByNameId(nameId)
+    public InventoryWithItemDTO getInventoryByNameId(
+            @PathVariable Long nameId,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        return inventoryService.getInventoryWithItemByNameId(portfolioService.requirePortfolio(portfolioId), nameId)
                 .orElse(null);
     }
 
+    /**
+     * 按 nameId 列表批量获取库存，以 nameId 为键，未持有的不返回
+     */
+    @PostMapping("/inventory/batch")
+    public Map<Long, InventoryWithItemDTO> getInventoryByNameIds(
+            @RequestBody List<Long> nameIds,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        return inventoryService.getInventoryWithItemByNameIds(portfolioService.requirePortfolio(portfolioId), nameIds);
+    }
+
+    /**
+     * 按 nameId 列表批量获取当前持有数量，以 nameId 为键，未持有的为 0
+     */
+    @PostMapping("/inventory/quantities")
+    public Map<Long, Integer> getCurrentQuantities(
+            @RequestBody List<Long> nameIds,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        return inventoryService.getCurrentQuantities(portfolioService.requirePortfolio(portfolioId), nameIds);
+    }
+
     @GetMapping("/inventory/{nameId}/quantity")
-    public Map<String, Object> getCurrentQuantity(@PathVariable Long nameId) {
-        Integer quantity = inventoryService.getCurrentQuantity(nameId);
+    public Map<String, Object> getCurrentQuantity(
+            @PathVariable Long nameId,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        Integer quantity = inventoryService.getCurrentQuantity(portfolioService.requirePortfolio(portfolioId), nameId);
         return Map.of(
                 "nameId", nameId,
                 "quantity", quantity
@@ -178,21 +318,101 @@ public class TradeController {
 
     // ==================== 统计接口 ====================
 
+    /**
+     * 每日资金流，经响应缓存（允许短暂的旧结果）；同时到达的相同查询合并为一次计算，等待者不占用数据库连接
+     */
     @GetMapping("/stats/daily")
-    public List<DailyFlowDTO> daily(
+    public ResponseEntity<byte[]> daily(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime start,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime end
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime end,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
     ) {
-        return tradeService.dailySummary(start, end);
+        return responseCache.get("daily", portfolioId,
+                "portfolioId=" + portfolioId + "&start=" + start.toInstant() + "&end=" + end.toInstant(),
+                () -> {
+                    long resolved = portfolioService.requirePortfolio(portfolioId);
+                    return singleFlight.execute("tradeService.dailySummary", resolved,
+                            List.of(start.toInstant(), end.toInstant()),
+                            () -> tradeService.dailySummary(resolved, start, end));
+                });
     }
 
+    /**
+     * 投资池统计；fields 为逗号分隔的字段名（如 realizedProfit,realReturnRate），只查询和计算这些字段，为空时返回全部字段。
+     * 经响应缓存（允许短暂的旧结果）
+     */
     @GetMapping("/stats/investment-pool")
-    public InvestmentPoolDTO getInvestmentPoolStatistics() {
-        return investmentPoolService.getInvestmentPoolStatistics();
+    public ResponseEntity<byte[]> getInvestmentPoolStatistics(
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId,
+            @RequestParam(required = false) String fields
+    ) {
+        Set<PoolMetric> metrics = PoolMetric.parse(fields);
+        String params = "portfolioId=" + portfolioId + "&fields="
+                + metrics.stream().map(PoolMetric::field).collect(Collectors.joining(","));
+        return responseCache.get("investment-pool", portfolioId, params,
+                () -> investmentPoolService.getInvestmentPoolStatistics(portfolioId, metrics));
+    }
+
+    /**
+     * 跨组合汇总：合并各组合的统计聚合，并附带各组合各自的统计；fields 同上
+     */
+    @GetMapping("/stats/investment-pool/all")
+    public InvestmentPoolSummaryDTO getCombinedInvestmentPoolStatistics(@RequestParam(required = false) String fields) {
+        return investmentPoolService.getCombinedStatistics(PoolMetric.parse(fields));
+    }
+
+    /**
+     * 各物品的交易表现（持有时长、周转率、买卖均价、已实现盈利、交易频率），服务端排序分页，页大小最多 500
+     */
+    @GetMapping("/stats/items")
+    public ItemAnalyticsPageDTO getItemAnalytics(
+            @RequestParam(defaultValue = "realizedProfit") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        return itemAnalyticsService.getItemAnalytics(portfolioId, sort, direction, page, size);
+    }
+
+    /**
+     * 实时排行榜：持仓成本、已实现盈利、交易笔数各前 limit 名（最多 100），从内存读取
+     */
+    @GetMapping("/stats/leaderboards")
+    public LeaderboardsDTO getLeaderboards(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        return leaderboardService.getLeaderboards(portfolioId, limit);
+    }
+
+    /**
+     * 一组物品的买入、卖出成交价格统计（分位数、加权均价、最值、最近成交价），从内存读取，最多 500 个物品
+     */
+    @GetMapping("/stats/prices")
+    public List<ItemPriceStatsDTO> getPriceStatistics(
+            @RequestParam List<Long> nameIds,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        return priceStatisticsService.getPriceStatistics(portfolioId, nameIds);
+    }
+
+    /**
+     * 假设场景模拟：每个场景在组合的内存快照上依次执行假设的买入、卖出、设定市场单价，返回各自的投资池统计
+     */
+    @PostMapping("/stats/scenarios")
+    public ScenarioBatchDTO evaluateScenarios(
+            @RequestBody List<ScenarioDTO> scenarios,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        return scenarioService.evaluate(portfolioId, scenarios);
     }
 
     @PostMapping("/stats/calculate-with-manual-value")
-    public InvestmentPoolDTO calculateWithManualValue(@RequestBody Map<String, Object> request) {
+    public InvestmentPoolDTO calculateWithManualValue(
+            @RequestBody Map<String, Object> request,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
         try {
             String manualValueStr = (String) request.get("manualValue");
             BigDecimal manualValue = null;
@@ -201,20 +421,200 @@ public class TradeController {
                 manualValue = new BigDecimal(manualValueStr);
             }
             
-            return investmentPoolService.getInvestmentPoolStatisticsWithManualValue(manualValue);
+            return investmentPoolService.getInvestmentPoolStatisticsWithManualValue(portfolioId, manualValue);
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException("无效的价格格式");
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("计算失败: " + e.getMessage());
         }
     }
 
+    // ==================== 增量同步接口 ====================
+
+    /**
+     * 返回组合在序号 since 之后的变更（upsert + 删除标记），分页大小最多 5000
+     */
+    @GetMapping("/sync")
+    public SyncPageDTO sync(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "1000") int limit,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        return syncService.changesSince(portfolioService.requirePortfolio(portfolioId), since, limit);
+    }
+
+    // ==================== 实时推送接口 ====================
+
+    /**
+     * SSE 增量推送：trade-created / trade-deleted / inventory / inventory-deleted / pool / price-alert，
+     * 收到 resync 时客户端应重新拉取完整数据；指定 portfolioId 时只推送该组合的增量
+     */
+    @GetMapping(path = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter live(@RequestParam(required = false) Long portfolioId) {
+        return liveUpdateHub.subscribe(portfolioId != null ? portfolioService.requirePortfolio(portfolioId) : null);
+    }
+
+    // ==================== 价格提醒接口 ====================
+
+    /**
+     * 创建价格提醒：PRICE_ABOVE / PRICE_BELOW 的 target 为提醒价格，DRAWDOWN 的 target 为相对加权平均成本的跌幅百分比
+     */
+    @PostMapping("/alerts")
+    public PriceAlertDTO createAlert(@RequestBody AlertRequest request) {
+        return priceAlertService.createAlert(request.portfolioId(), request.nameId(), request.type(), request.target());
+    }
+
+    /**
+     * 组合的价格提醒（含已触发的）
+     */
+    @GetMapping("/alerts")
+    public List<PriceAlertDTO> getAlerts(@RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId) {
+        return priceAlertService.getAlerts(portfolioId);
+    }
+
+    @DeleteMapping("/alerts/{alertId}")
+    public Map<String, Object> deleteAlert(
+            @PathVariable Long alertId,
+            @RequestParam(defaultValue = DEFAULT_PORTFOLIO) Long portfolioId
+    ) {
+        priceAlertService.deleteAlert(portfolioId, alertId);
+        return Map.of(
+                "success", true,
+                "message", "价格提醒已删除"
+        );
+    }
+
+    /**
+     * 推送物品价格（一次最多 10000 条），返回触发的提醒
+     */
+    @PostMapping("/alerts/prices")
+    public PriceAlertService.PriceUpdateResult updatePrices(@RequestBody List<PriceAlertService.PriceUpdate> prices) {
+        return priceAlertService.updatePrices(prices);
+    }
+
+    /**
+     * 上传 CSV 推送价格（表头: nameId,price）
+     */
+    @PostMapping("/alerts/prices/file")
+    public PriceAlertService.PriceUpdateResult updatePricesFromUpload(@RequestParam("file") MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("文件不能为空");
+        }
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            return priceAlertService.updatePrices(reader);
+        } catch (IOException e) {
+            throw new RuntimeException("读取文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 读取服务器价格目录（app.alerts.price-directory）中的 CSV 文件推送价格
+     */
+    @PostMapping("/alerts/prices/local")
+    public PriceAlertService.PriceUpdateResult updatePricesFromDirectory(@RequestParam String fileName) {
+        try {
+            return priceAlertService.updatePricesFromFile(fileName);
+        } catch (IOException e) {
+            throw new RuntimeException("读取文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 最近的提醒触发事件中序号大于 after 的；不指定 portfolioId 时返回所有组合的
+     */
+    @GetMapping("/alerts/events")
+    public List<PriceAlertEventDTO> getAlertEvents(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(required = false) Long portfolioId
+    ) {
+        return priceAlertService.getEvents(portfolioId, after);
+    }
+
+    /**
+     * 提醒索引概况：未触发的提醒数、有索引的物品数、处理的价格条数、触发次数
+     */
+    @GetMapping("/alerts/stats")
+    public PriceAlertService.AlertStats getAlertStats() {
+        return priceAlertService.stats();
+    }
+
+    // ==================== 归档接口 ====================
+
+    /**
+     * 立即归档超过保留期的交易（定时归档见 app.archive.trades.cron）
+     */
+    @PostMapping("/archive/trades")
+    public TradeArchiveService.ArchiveResult archiveTrades() {
+        return tradeArchiveService.archive();
+    }
+
+    // ==================== 快照接口 ====================
+
+    /**
+     * 导出组合、物品、库存、交易和归档数据到快照目录（app.snapshot.directory）中的新快照文件
+     */
+    @PostMapping("/snapshot/export")
+    public SnapshotService.ExportResult exportSnapshot(@RequestParam String fileName) {
+        return snapshotService.export(fileName);
+    }
+
+    /**
+     * 从快照目录中的快照文件导入（目标库必须没有物品、交易、库存和归档数据），导入后校验库存与交易是否一致
+     */
+    @PostMapping("/snapshot/import")
+    public SnapshotService.ImportResult importSnapshot(@RequestParam String fileName) {
+        return snapshotService.importSnapshot(fileName);
+    }
+
+    // ==================== 响应缓存 ====================
+
+    /**
+     * 响应缓存的条数、字节数和各接口的命中、旧结果、未命中、后台刷新计数
+     */
+    @GetMapping("/cache/responses")
+    public ResponseCache.Stats responseCacheStats() {
+        return responseCache.stats();
+    }
+
+    /**
+     * 相同统计计算的合并情况：各操作实际计算、合并（省去）的计算、失败和等待超时次数
+     */
+    @GetMapping("/cache/coalescing")
+    public SingleFlight.Stats coalescingStats() {
+        return singleFlight.stats();
+    }
+
+    // ==================== 诊断接口 ====================
+
+    /**
+     * 最近的慢请求（耗时超过 app.diagnostics.slow-requests.threshold），含各条 SQL 的绑定参数、耗时和最慢查询的执行计划
+     */
+    @GetMapping("/diagnostics/slow-requests")
+    public SlowRequestLog.SlowRequests getSlowRequests() {
+        return slowRequestLog.recent();
+    }
+
+    /**
+     * 清空慢请求记录
+     */
+    @DeleteMapping("/diagnostics/slow-requests")
+    public Map<String, Object> clearSlowRequests() {
+        slowRequestLog.clear();
+        return Map.of(
+                "success", true,
+                "message", "慢请求记录已清空"
+        );
+    }
+
     // ==================== 内部类 ====================
 
     /**
      * 交易请求DTO
      */
     public record TradeRequest(
+            Long portfolioId,
             Long nameId,
             Trade.Type type,
             BigDecimal unitPrice,
@@ -225,8 +625,26 @@ public class TradeController {
      * 卖出请求DTO
      */
     public record SellRequest(
+            Long portfolioId,
             Long nameId,
             BigDecimal unitPrice,
             Integer quantity
     ) {}
+
+    /**
+     * 创建投资组合请求DTO
+     */
+    public record PortfolioRequest(
+            String name
+    ) {}
+
+    /**
+     * 创建价格提醒请求DTO
+     */
+    public record AlertRequest(
+            Long portfolioId,
+            Long nameId,
+            PriceAlertType type,
+            BigDecimal target
+    ) {}
 }
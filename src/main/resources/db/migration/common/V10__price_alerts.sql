@@ -0,0 +1,17 @@
+-- 价格提醒（PriceAlertService）：未触发的提醒在启动时载入内存中按物品、阈值排序的索引，触发后记录触发时间和价格
+-- target 为 PRICE_ABOVE / PRICE_BELOW 的价格，或 DRAWDOWN 的跌幅百分比（相对加权平均成本）
+
+CREATE TABLE price_alerts (
+    id              BIGINT                                       NOT NULL,
+    portfolio_id    BIGINT                                       NOT NULL,
+    name_id         BIGINT                                       NOT NULL,
+    type            ENUM ('PRICE_ABOVE','PRICE_BELOW','DRAWDOWN') NOT NULL,
+    target          DECIMAL(19, 4)                               NOT NULL,
+    created_at      DATETIME(6)                                  NOT NULL,
+    triggered_at    DATETIME(6),
+    triggered_price DECIMAL(19, 4),
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_price_alerts_portfolio ON price_alerts (portfolio_id, triggered_at);
+
+INSERT INTO id_generators (sequence_name, next_val) VALUES ('price_alerts', 0);
@@ -0,0 +1,41 @@
+-- 基线表结构：与此前 ddl-auto: update 生成的结构一致
+-- 已有数据库通过 spring.flyway.baseline-on-migrate 标记为版本 1，不会重复执行本脚本
+
+CREATE TABLE items (
+    id               BIGINT       NOT NULL AUTO_INCREMENT,
+    market_hash_name VARCHAR(512) NOT NULL,
+    cn_name          VARCHAR(512) NOT NULL,
+    en_name          VARCHAR(512) NOT NULL,
+    name_id          BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_items_market_hash_name UNIQUE (market_hash_name),
+    CONSTRAINT uk_items_name_id UNIQUE (name_id)
+);
+CREATE INDEX idx_item_market_hash_name ON items (market_hash_name);
+CREATE INDEX idx_item_name_id ON items (name_id);
+
+CREATE TABLE trades (
+    id           BIGINT              NOT NULL AUTO_INCREMENT,
+    name_id      BIGINT              NOT NULL,
+    type         ENUM ('BUY','SELL') NOT NULL,
+    unit_price   DECIMAL(19, 4)      NOT NULL,
+    quantity     INT                 NOT NULL,
+    total_amount DECIMAL(19, 4)      NOT NULL,
+    created_at   DATETIME(6)         NOT NULL,
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_trade_name_id ON trades (name_id);
+CREATE INDEX idx_trade_time ON trades (created_at);
+CREATE INDEX idx_trade_type ON trades (type);
+
+CREATE TABLE inventory (
+    id                    BIGINT         NOT NULL AUTO_INCREMENT,
+    name_id               BIGINT         NOT NULL,
+    current_quantity      INT            NOT NULL,
+    weighted_average_cost DECIMAL(19, 4) NOT NULL,
+    total_investment_cost DECIMAL(19, 4) NOT NULL,
+    created_at            DATETIME(6)    NOT NULL,
+    last_updated_at       DATETIME(6)    NOT NULL,
+    PRIMARY KEY (id)
+);
+CREATE UNIQUE INDEX idx_inventory_name_id ON inventory (name_id);
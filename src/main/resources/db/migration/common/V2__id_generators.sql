@@ -0,0 +1,20 @@
+-- 主键生成器表（表生成器 + pooled-lo），next_val 为已分配出去的最大ID
+-- 从各表现有的 MAX(id) 继续分配，兼容 AUTO_INCREMENT 生成的旧ID
+
+CREATE TABLE IF NOT EXISTS id_generators (
+    sequence_name VARCHAR(255) NOT NULL,
+    next_val      BIGINT,
+    PRIMARY KEY (sequence_name)
+);
+
+INSERT INTO id_generators (sequence_name, next_val)
+SELECT 'items', COALESCE(MAX(id), 0) FROM items
+WHERE NOT EXISTS (SELECT 1 FROM id_generators WHERE sequence_name = 'items');
+
+INSERT INTO id_generators (sequence_name, next_val)
+SELECT 'trades', COALESCE(MAX(id), 0) FROM trades
+WHERE NOT EXISTS (SELECT 1 FROM id_generators WHERE sequence_name = 'trades');
+
+INSERT INTO id_generators (sequence_name, next_val)
+SELECT 'inventory', COALESCE(MAX(id), 0) FROM inventory
+WHERE NOT EXISTS (SELECT 1 FROM id_generators WHERE sequence_name = 'inventory');
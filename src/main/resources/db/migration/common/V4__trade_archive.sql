@@ -0,0 +1,26 @@
+-- 交易冷热分层：超过保留期的交易明细移至本地段文件（TradeSegmentStore），
+-- 数据库中按 日期 × 类型 × 物品 保留汇总，投资池统计和每日汇总不受归档影响
+
+CREATE TABLE trade_archive_rollups (
+    trade_date     DATE                NOT NULL,
+    type           ENUM ('BUY','SELL') NOT NULL,
+    name_id        BIGINT              NOT NULL,
+    trade_count    BIGINT              NOT NULL,
+    total_quantity BIGINT              NOT NULL,
+    total_amount   DECIMAL(19, 4)      NOT NULL,
+    first_trade_at DATETIME(6)         NOT NULL,
+    last_trade_at  DATETIME(6)         NOT NULL,
+    PRIMARY KEY (trade_date, type, name_id)
+);
+CREATE INDEX idx_archive_rollup_name_id ON trade_archive_rollups (name_id);
+
+-- 归档进度（单行）：截止时间，以及截止时刻的累计净投入、历史峰值和第一笔买入金额，
+-- 峰值净投入从这里继续按时间顺序计算
+CREATE TABLE trade_archive_checkpoint (
+    id                  INT            NOT NULL,
+    archived_before     DATETIME(6)    NOT NULL,
+    net_flow            DECIMAL(19, 4) NOT NULL,
+    peak_net_investment DECIMAL(19, 4) NOT NULL,
+    first_buy_amount    DECIMAL(19, 4),
+    PRIMARY KEY (id)
+);
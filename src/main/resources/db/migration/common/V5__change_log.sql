@@ -0,0 +1,36 @@
+-- 增量同步变更日志：每次提交按提交顺序分配连续递增的序号，客户端用 since=序号 拉取之后的变更
+-- entity: ITEM（键为 items.id）、INVENTORY（键为 name_id）、TRADE（键为 trades.id）
+-- op: UPSERT / DELETE
+
+CREATE TABLE change_log (
+    seq        BIGINT      NOT NULL,
+    entity     VARCHAR(16) NOT NULL,
+    entity_key BIGINT      NOT NULL,
+    op         VARCHAR(8)  NOT NULL,
+    changed_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (seq)
+);
+CREATE INDEX idx_change_log_changed_at ON change_log (changed_at);
+
+-- 单行序号表：事务提交前更新该行分配序号，行锁保证序号顺序与提交顺序一致
+-- pruned_through 之前的日志已被清理，since 小于它的客户端需要重新全量下载
+CREATE TABLE change_log_sequence (
+    id             INT    NOT NULL,
+    last_seq       BIGINT NOT NULL,
+    pruned_through BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- 已有数据作为初始变更写入，since=0 即可得到完整数据
+INSERT INTO change_log (seq, entity, entity_key, op, changed_at)
+SELECT ROW_NUMBER() OVER (ORDER BY e.ord, e.entity_key), e.entity, e.entity_key, 'UPSERT', CURRENT_TIMESTAMP(6)
+FROM (
+    SELECT 1 AS ord, 'ITEM' AS entity, id AS entity_key FROM items
+    UNION ALL
+    SELECT 2, 'INVENTORY', name_id FROM inventory
+    UNION ALL
+    SELECT 3, 'TRADE', id FROM trades
+) e;
+
+INSERT INTO change_log_sequence (id, last_seq, pruned_through)
+SELECT 1, COALESCE(MAX(seq), 0), 0 FROM change_log;
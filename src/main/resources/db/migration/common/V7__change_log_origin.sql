@@ -0,0 +1,2 @@
+-- 变更日志记录写入节点，集群中各节点轮询变更日志失效本地缓存时跳过自己写入的变更
+ALTER TABLE change_log ADD COLUMN origin VARCHAR(36);
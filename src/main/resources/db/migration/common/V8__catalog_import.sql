@@ -0,0 +1,16 @@
+-- 物品目录增量导入：每个物品保存导入时的内容哈希，重新导入时只写入新增和变化的物品
+-- 为空表示物品不是通过导入写入（或本迁移之前已存在），下次导入时按字段比较并补上哈希
+ALTER TABLE items ADD COLUMN content_hash BIGINT;
+
+-- 每次导入一行；文件哈希（SHA-256）与最近一次导入相同时直接跳过
+CREATE TABLE catalog_imports (
+    id          BIGINT      NOT NULL AUTO_INCREMENT,
+    file_hash   CHAR(64)    NOT NULL,
+    total_items INT         NOT NULL,
+    added       INT         NOT NULL,
+    updated     INT         NOT NULL,
+    unchanged   INT         NOT NULL,
+    skipped     INT         NOT NULL,
+    imported_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
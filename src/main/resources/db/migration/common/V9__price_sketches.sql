@@ -0,0 +1,18 @@
+-- 成交价格统计（PriceStatisticsService）：每个组合、物品、方向一行，内存中的统计定时写入，启动时读取后按交易校验
+-- digest 为价格分布摘要（t-digest）的紧凑编码；exact 为 false 表示有交易被删除后尚未重建
+
+CREATE TABLE price_sketches (
+    portfolio_id   BIGINT              NOT NULL,
+    name_id        BIGINT              NOT NULL,
+    type           ENUM ('BUY','SELL') NOT NULL,
+    trade_count    BIGINT              NOT NULL,
+    total_quantity BIGINT              NOT NULL,
+    total_amount   DECIMAL(19, 4)      NOT NULL,
+    min_price      DECIMAL(19, 4)      NOT NULL,
+    max_price      DECIMAL(19, 4)      NOT NULL,
+    last_price     DECIMAL(19, 4)      NOT NULL,
+    last_trade_at  DATETIME(6)         NOT NULL,
+    exact          BOOLEAN             NOT NULL,
+    digest         BLOB                NOT NULL,
+    PRIMARY KEY (portfolio_id, name_id, type)
+);
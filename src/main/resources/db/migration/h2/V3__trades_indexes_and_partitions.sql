@@ -0,0 +1,8 @@
+-- 测试库（H2）版本：与 MySQL 版相同的生成列和索引，H2 不支持分区
+
+ALTER TABLE trades ADD COLUMN trade_date DATE GENERATED ALWAYS AS (CAST(created_at AS DATE));
+
+DROP INDEX idx_trade_name_id;
+DROP INDEX idx_trade_time;
+CREATE INDEX idx_trade_name_id_created_at ON trades (name_id, created_at);
+CREATE INDEX idx_trade_covering ON trades (created_at, type, quantity, total_amount);
@@ -0,0 +1,35 @@
+-- 测试库（H2）版本：与 MySQL 版相同的多投资组合结构
+
+CREATE TABLE portfolios (
+    id         BIGINT      NOT NULL,
+    name       VARCHAR(64) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_portfolios_name UNIQUE (name)
+);
+INSERT INTO portfolios (id, name, created_at) VALUES (1, 'main', CURRENT_TIMESTAMP(6));
+INSERT INTO id_generators (sequence_name, next_val) VALUES ('portfolios', 1);
+
+ALTER TABLE trades ADD COLUMN portfolio_id BIGINT DEFAULT 1 NOT NULL;
+DROP INDEX idx_trade_name_id_created_at;
+DROP INDEX idx_trade_covering;
+DROP INDEX idx_trade_type;
+CREATE INDEX idx_trade_portfolio_name_id_created_at ON trades (portfolio_id, name_id, created_at);
+CREATE INDEX idx_trade_portfolio_covering ON trades (portfolio_id, created_at, type, quantity, total_amount);
+CREATE INDEX idx_trade_portfolio_type ON trades (portfolio_id, type);
+
+ALTER TABLE inventory ADD COLUMN portfolio_id BIGINT DEFAULT 1 NOT NULL;
+DROP INDEX idx_inventory_name_id;
+CREATE UNIQUE INDEX idx_inventory_portfolio_name_id ON inventory (portfolio_id, name_id);
+
+ALTER TABLE trade_archive_rollups ADD COLUMN portfolio_id BIGINT DEFAULT 1 NOT NULL;
+ALTER TABLE trade_archive_rollups DROP PRIMARY KEY;
+ALTER TABLE trade_archive_rollups ADD PRIMARY KEY (portfolio_id, trade_date, type, name_id);
+DROP INDEX idx_archive_rollup_name_id;
+CREATE INDEX idx_archive_rollup_portfolio_name_id ON trade_archive_rollups (portfolio_id, name_id);
+
+ALTER TABLE trade_archive_checkpoint ALTER COLUMN id RENAME TO portfolio_id;
+ALTER TABLE trade_archive_checkpoint ALTER COLUMN portfolio_id SET DATA TYPE BIGINT;
+
+ALTER TABLE change_log ADD COLUMN portfolio_id BIGINT;
+UPDATE change_log SET portfolio_id = 1 WHERE entity <> 'ITEM';
@@ -0,0 +1,44 @@
+-- 交易表查询优化：
+--   * (name_id, created_at) 复合索引：按物品查询交易历史并按时间排序时无需 filesort
+--   * (created_at, type, quantity, total_amount) 覆盖索引：按时间范围的每日汇总只扫描索引
+--   * trade_date 生成列：每日汇总直接按日期分组
+--   * 按月范围分区：时间范围查询只扫描相关分区，之后的月份由 TradePartitionService 定期追加
+
+ALTER TABLE trades
+    ADD COLUMN trade_date DATE GENERATED ALWAYS AS (DATE(created_at)) STORED,
+    ADD INDEX idx_trade_name_id_created_at (name_id, created_at),
+    ADD INDEX idx_trade_covering (created_at, type, quantity, total_amount),
+    DROP INDEX idx_trade_name_id,
+    DROP INDEX idx_trade_time;
+
+-- 分区表的每个唯一键（含主键）都必须包含分区列
+ALTER TABLE trades DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at);
+
+ALTER TABLE trades PARTITION BY RANGE COLUMNS (created_at) (
+    PARTITION p_history VALUES LESS THAN ('2025-01-01'),
+    PARTITION p202501 VALUES LESS THAN ('2025-02-01'),
+    PARTITION p202502 VALUES LESS THAN ('2025-03-01'),
+    PARTITION p202503 VALUES LESS THAN ('2025-04-01'),
+    PARTITION p202504 VALUES LESS THAN ('2025-05-01'),
+    PARTITION p202505 VALUES LESS THAN ('2025-06-01'),
+    PARTITION p202506 VALUES LESS THAN ('2025-07-01'),
+    PARTITION p202507 VALUES LESS THAN ('2025-08-01'),
+    PARTITION p202508 VALUES LESS THAN ('2025-09-01'),
+    PARTITION p202509 VALUES LESS THAN ('2025-10-01'),
+    PARTITION p202510 VALUES LESS THAN ('2025-11-01'),
+    PARTITION p202511 VALUES LESS THAN ('2025-12-01'),
+    PARTITION p202512 VALUES LESS THAN ('2026-01-01'),
+    PARTITION p202601 VALUES LESS THAN ('2026-02-01'),
+    PARTITION p202602 VALUES LESS THAN ('2026-03-01'),
+    PARTITION p202603 VALUES LESS THAN ('2026-04-01'),
+    PARTITION p202604 VALUES LESS THAN ('2026-05-01'),
+    PARTITION p202605 VALUES LESS THAN ('2026-06-01'),
+    PARTITION p202606 VALUES LESS THAN ('2026-07-01'),
+    PARTITION p202607 VALUES LESS THAN ('2026-08-01'),
+    PARTITION p202608 VALUES LESS THAN ('2026-09-01'),
+    PARTITION p202609 VALUES LESS THAN ('2026-10-01'),
+    PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+    PARTITION p202611 VALUES LESS THAN ('2026-12-01'),
+    PARTITION p202612 VALUES LESS THAN ('2027-01-01'),
+    PARTITION p_future VALUES LESS THAN (MAXVALUE)
+);
@@ -0,0 +1,42 @@
+-- 多投资组合（账户）：交易、库存、归档汇总和变更日志按 portfolio_id 划分，
+-- 所有复合索引以 portfolio_id 开头，一个组合的查询只扫描自己的索引区间。
+-- 已有数据归入默认组合 1（main）。
+
+CREATE TABLE portfolios (
+    id         BIGINT      NOT NULL,
+    name       VARCHAR(64) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_portfolios_name UNIQUE (name)
+);
+INSERT INTO portfolios (id, name, created_at) VALUES (1, 'main', UTC_TIMESTAMP(6));
+INSERT INTO id_generators (sequence_name, next_val) VALUES ('portfolios', 1);
+
+ALTER TABLE trades
+    ADD COLUMN portfolio_id BIGINT NOT NULL DEFAULT 1,
+    DROP INDEX idx_trade_name_id_created_at,
+    DROP INDEX idx_trade_covering,
+    DROP INDEX idx_trade_type,
+    ADD INDEX idx_trade_portfolio_name_id_created_at (portfolio_id, name_id, created_at),
+    ADD INDEX idx_trade_portfolio_covering (portfolio_id, created_at, type, quantity, total_amount),
+    ADD INDEX idx_trade_portfolio_type (portfolio_id, type);
+
+-- 同一物品在每个组合中各有一条库存
+ALTER TABLE inventory
+    ADD COLUMN portfolio_id BIGINT NOT NULL DEFAULT 1,
+    DROP INDEX idx_inventory_name_id,
+    ADD UNIQUE INDEX idx_inventory_portfolio_name_id (portfolio_id, name_id);
+
+ALTER TABLE trade_archive_rollups
+    ADD COLUMN portfolio_id BIGINT NOT NULL DEFAULT 1,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (portfolio_id, trade_date, type, name_id),
+    DROP INDEX idx_archive_rollup_name_id,
+    ADD INDEX idx_archive_rollup_portfolio_name_id (portfolio_id, name_id);
+
+-- 归档进度按组合各一行（原单行 id = 1 即默认组合）
+ALTER TABLE trade_archive_checkpoint CHANGE COLUMN id portfolio_id BIGINT NOT NULL;
+
+-- 物品目录不属于任何组合，portfolio_id 为 NULL
+ALTER TABLE change_log ADD COLUMN portfolio_id BIGINT NULL;
+UPDATE change_log SET portfolio_id = 1 WHERE entity <> 'ITEM';
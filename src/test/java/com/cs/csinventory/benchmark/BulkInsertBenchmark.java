@@ -0,0 +1,163 @@
+package com.cs.csinventory.benchmark;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import jakarta.persistence.*;
+import org.h2.tools.Server;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量插入物品和交易：IDENTITY 主键（改造前）vs 表生成器 pooled-lo + JDBC 批量写入（改造后）
+ *
+ * 使用 H2 TCP 服务模式，每条语句都有一次真实的本地网络往返。运行方式同 {@link MoneyAggregationBenchmark}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    @Param({"identity", "pooled-batched"})
+    public String strategy;
+
+    /** 每次操作插入的物品数和交易数 */
+    @Param({"1000"})
+    public int rows;
+
+    private Server server;
+    private SessionFactory sessionFactory;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        Configuration configuration = new Configuration()
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL,
+                        "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:bulk_" + strategy + ";MODE=MySQL")
+                .setProperty(AvailableSettings.JAKARTA_JDBC_USER, "sa")
+                .setProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD, "")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        if ("identity".equals(strategy)) {
+            configuration.addAnnotatedClass(IdentityItem.class).addAnnotatedClass(IdentityTrade.class);
+        } else {
+            // 与 application.yml 中的批量写入配置一致
+            configuration.addAnnotatedClass(Item.class).addAnnotatedClass(Trade.class)
+                    .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                    .setProperty(AvailableSettings.ORDER_INSERTS, "true")
+                    .setProperty(AvailableSettings.ORDER_UPDATES, "true")
+                    .setProperty(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, "pooled-lo")
+                    .setProperty(AvailableSettings.TABLE_GENERATOR_STORE_LAST_USED, "true");
+        }
+        sessionFactory = configuration.buildSessionFactory();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public void insertItemsAndTrades() {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            for (int i = 0; i < rows; i++) {
+                long nameId = ++sequence;
+                String name = "Item #" + nameId;
+                BigDecimal price = BigDecimal.valueOf(100 + i % 500, 2);
+                if ("identity".equals(strategy)) {
+                    session.persist(new IdentityItem(null, name, name, name, nameId));
+                    session.persist(new IdentityTrade(null, nameId, Trade.Type.BUY, price, 1, price));
+                } else {
+                    session.persist(Item.builder().marketHashName(name).cnName(name).enName(name).nameId(nameId).build());
+                    session.persist(Trade.builder().portfolioId(Portfolio.DEFAULT_ID).nameId(nameId).type(Trade.Type.BUY).unitPrice(price).quantity(1).build());
+                }
+            }
+            session.getTransaction().commit();
+        }
+    }
+
+    /**
+     * 改造前的物品实体（IDENTITY 主键）
+     */
+    @Entity(name = "IdentityItem")
+    @Table(name = "identity_items")
+    public static class IdentityItem {
+        @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+        @Column(nullable = false, length = 512, unique = true)
+        private String marketHashName;
+        @Column(nullable = false, length = 512)
+        private String cnName;
+        @Column(nullable = false, length = 512)
+        private String enName;
+        @Column(nullable = false, unique = true)
+        private Long nameId;
+
+        protected IdentityItem() {
+        }
+
+        IdentityItem(Long id, String marketHashName, String cnName, String enName, Long nameId) {
+            this.id = id;
+            this.marketHashName = marketHashName;
+            this.cnName = cnName;
+            this.enName = enName;
+            this.nameId = nameId;
+        }
+    }
+
+    /**
+     * 改造前的交易实体（IDENTITY 主键）
+     */
+    @Entity(name = "IdentityTrade")
+    @Table(name = "identity_trades")
+    public static class IdentityTrade {
+        @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+        @Column(nullable = false)
+        private Long nameId;
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 8)
+        private Trade.Type type;
+        @Column(nullable = false, precision = 19, scale = 4)
+        private BigDecimal unitPrice;
+        @Column(nullable = false)
+        private Integer quantity;
+        @Column(nullable = false, precision = 19, scale = 4)
+        private BigDecimal totalAmount;
+
+        protected IdentityTrade() {
+        }
+
+        IdentityTrade(Long id, Long nameId, Trade.Type type, BigDecimal unitPrice, Integer quantity, BigDecimal totalAmount) {
+            this.id = id;
+            this.nameId = nameId;
+            this.type = type;
+            this.unitPrice = unitPrice;
+            this.quantity = quantity;
+            this.totalAmount = totalAmount;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BulkInsertBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,162 @@
+package com.cs.csinventory.benchmark;
+
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.InventoryRepository;
+import com.cs.csinventory.repo.PortfolioRepository;
+import com.cs.csinventory.repo.TradeRepository;
+import com.cs.csinventory.service.InvestmentPoolService;
+import com.cs.csinventory.service.PoolMetric;
+import com.cs.csinventory.service.PortfolioService;
+import com.cs.csinventory.service.archive.TradeArchiveRollups;
+import com.cs.csinventory.service.cache.SingleFlight;
+import com.cs.csinventory.service.dto.HoldingSummaryDTO;
+import com.cs.csinventory.service.dto.InvestmentPoolDTO;
+import com.cs.csinventory.service.dto.TradeFlowDTO;
+import com.cs.csinventory.service.dto.TradeTypeSummaryDTO;
+import com.cs.csinventory.service.sync.DataVersions;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 投资池统计端到端延迟：顺序查询 vs 虚拟线程并行查询，以及只请求常用字段组合（?fields=）时的延迟
+ *
+ * 仓库接口由动态代理模拟，每个查询按给定耗时休眠以模拟数据库往返（不含数据库自身的并发竞争），
+ * 并发用户数由 JMH 线程数表示。运行方式同 {@link MoneyAggregationBenchmark}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class InvestmentPoolFanOutBenchmark {
+
+    /** 模拟的各查询耗时（毫秒） */
+    private static final Map<String, Long> QUERY_LATENCY_MS = Map.of(
+            "summarizeByType", 4L,
+            "countDistinctNameId", 3L,
+            "findAllFlowsOrderByCreatedAt", 8L,
+            "summarizeHoldings", 3L);
+
+    /**
+     * 请求的字段：空为全部字段，其余为仪表盘常用的组合（持仓卡片、交易笔数、已实现盈利、收益率）
+     */
+    @Param({"", "staticCost,currentHoldingItems", "totalBuyTrades,totalSellTrades,lastTradeDate", "realizedProfit",
+            "realizedProfit,realReturnRate"})
+    public String fields;
+
+    private InvestmentPoolService sequential;
+    private InvestmentPoolService parallel;
+    private Set<PoolMetric> metrics;
+
+    @Setup
+    public void setUp() {
+        sequential = newService(false);
+        parallel = newService(true);
+        metrics = PoolMetric.parse(fields);
+    }
+
+    @Benchmark
+    public InvestmentPoolDTO sequentialQueries() {
+        return sequential.getInvestmentPoolStatistics(Portfolio.DEFAULT_ID, metrics);
+    }
+
+    @Benchmark
+    public InvestmentPoolDTO parallelQueries() {
+        return parallel.getInvestmentPoolStatistics(Portfolio.DEFAULT_ID, metrics);
+    }
+
+    private static InvestmentPoolService newService(boolean parallelStatistics) {
+        // 没有已归档交易：归档汇总返回空结果
+        PortfolioRepository portfolioRepository = Mockito.mock(PortfolioRepository.class);
+        Mockito.when(portfolioRepository.existsById(Portfolio.DEFAULT_ID)).thenReturn(true);
+        DataVersions dataVersions = new DataVersions();
+        InvestmentPoolService service = new InvestmentPoolService(stub(TradeRepository.class),
+                stub(InventoryRepository.class), Mockito.mock(TradeArchiveRollups.class),
+                new PortfolioService(portfolioRepository, new NoOpTransactionManager()), dataVersions,
+                new SingleFlight(dataVersions, Duration.ofSeconds(30)), new NoOpTransactionManager());
+        ReflectionTestUtils.setField(service, "parallelStatistics", parallelStatistics);
+        ReflectionTestUtils.setField(service, "statisticsTaskTimeout", Duration.ofSeconds(5));
+        // 每次都重新查询，测量的是查询本身而不是缓存
+        ReflectionTestUtils.setField(service, "cacheTtl", Duration.ZERO);
+        return service;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> repositoryType) {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<TradeFlowDTO> flows = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            flows.add(new TradeFlowDTO(i % 3 == 0 ? Trade.Type.SELL : Trade.Type.BUY, BigDecimal.valueOf(100 + i, 2)));
+        }
+        return (T) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+                (proxy, method, args) -> {
+                    Long latency = QUERY_LATENCY_MS.get(method.getName());
+                    if (latency == null) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Thread.sleep(latency);
+                    return switch (method.getName()) {
+                        case "summarizeByType" -> List.of(
+                                new TradeTypeSummaryDTO(Trade.Type.BUY, new BigDecimal("150000.0000"), 1_334L,
+                                        now.minusDays(300), now),
+                                new TradeTypeSummaryDTO(Trade.Type.SELL, new BigDecimal("90000.0000"), 666L,
+                                        now.minusDays(200), now.minusDays(1)));
+                        case "countDistinctNameId" -> 420L;
+                        case "findAllFlowsOrderByCreatedAt" -> flows;
+                        default -> new HoldingSummaryDTO(new BigDecimal("70000.0000"), 120L);
+                    };
+                });
+    }
+
+    /**
+     * 不做任何事的事务管理器，只为满足 TransactionTemplate
+     */
+    static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int users : new int[]{1, 64, 256}) {
+            Options options = new OptionsBuilder()
+                    .include(InvestmentPoolFanOutBenchmark.class.getSimpleName())
+                    .threads(users)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
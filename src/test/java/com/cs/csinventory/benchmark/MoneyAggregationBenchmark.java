@@ -0,0 +1,162 @@
+package com.cs.csinventory.benchmark;
+
+import com.cs.csinventory.service.money.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 投资池聚合与库存更新：BigDecimal 实现 vs Money 定点 long 实现
+ *
+ * 运行方式（附带 GC 分配统计）：
+ * <pre>
+ * ./mvnw test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.cs.csinventory.benchmark.MoneyAggregationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyAggregationBenchmark {
+
+    @Param({"10000"})
+    public int trades;
+
+    private boolean[] buy;
+    private BigDecimal[] amounts;
+    private long[] amountUnits;
+    private int[] quantities;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        buy = new boolean[trades];
+        amounts = new BigDecimal[trades];
+        amountUnits = new long[trades];
+        quantities = new int[trades];
+        for (int i = 0; i < trades; i++) {
+            buy[i] = random.nextInt(3) != 0;
+            quantities[i] = 1 + random.nextInt(20);
+            amounts[i] = BigDecimal.valueOf(1 + random.nextInt(50_000_000), 4)
+                    .multiply(BigDecimal.valueOf(quantities[i]));
+            amountUnits[i] = Money.of(amounts[i]);
+        }
+    }
+
+    /**
+     * 原 InvestmentPoolService 的写法：每一步 add/subtract 都生成新的 BigDecimal
+     */
+    @Benchmark
+    public void poolAggregationBigDecimal(Blackhole bh) {
+        BigDecimal totalBuy = BigDecimal.ZERO;
+        BigDecimal totalSell = BigDecimal.ZERO;
+        BigDecimal net = BigDecimal.ZERO;
+        BigDecimal peak = BigDecimal.ZERO;
+        for (int i = 0; i < trades; i++) {
+            if (buy[i]) {
+                totalBuy = totalBuy.add(amounts[i]);
+                net = net.add(amounts[i]);
+            } else {
+                totalSell = totalSell.add(amounts[i]);
+                net = net.subtract(amounts[i]);
+            }
+            if (net.compareTo(peak) > 0) {
+                peak = net;
+            }
+        }
+        BigDecimal profit = totalSell.subtract(totalBuy);
+        bh.consume(peak.signum() > 0 ? profit.divide(peak, 4, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+    }
+
+    /**
+     * Money 定点实现：循环内零分配，只在结果处转换一次
+     */
+    @Benchmark
+    public void poolAggregationMoney(Blackhole bh) {
+        long totalBuy = 0;
+        long totalSell = 0;
+        long net = 0;
+        long peak = 0;
+        for (int i = 0; i < trades; i++) {
+            if (buy[i]) {
+                totalBuy = Money.add(totalBuy, amountUnits[i]);
+                net = Money.add(net, amountUnits[i]);
+            } else {
+                totalSell = Money.add(totalSell, amountUnits[i]);
+                net = Money.subtract(net, amountUnits[i]);
+            }
+            if (net > peak) {
+                peak = net;
+            }
+        }
+        long profit = Money.subtract(totalSell, totalBuy);
+        bh.consume(Money.toBigDecimal(peak > 0 ? Money.ratio(profit, peak) : 0));
+    }
+
+    /**
+     * 原 InventoryService 的买入/部分卖出成本计算
+     */
+    @Benchmark
+    public void inventoryUpdatesBigDecimal(Blackhole bh) {
+        int quantity = 0;
+        BigDecimal totalCost = BigDecimal.ZERO;
+        BigDecimal average = BigDecimal.ZERO;
+        for (int i = 0; i < trades; i++) {
+            if (buy[i] || quantity <= quantities[i]) {
+                quantity += quantities[i];
+                totalCost = totalCost.add(amounts[i]);
+                average = totalCost.divide(BigDecimal.valueOf(quantity), 4, RoundingMode.HALF_UP);
+            } else {
+                BigDecimal ratio = BigDecimal.valueOf(quantities[i])
+                        .divide(BigDecimal.valueOf(quantity), 4, RoundingMode.HALF_UP);
+                totalCost = totalCost.subtract(totalCost.multiply(ratio)).setScale(4, RoundingMode.HALF_UP);
+                quantity -= quantities[i];
+            }
+        }
+        bh.consume(totalCost);
+        bh.consume(average);
+    }
+
+    /**
+     * Money 定点实现的买入/部分卖出成本计算
+     */
+    @Benchmark
+    public void inventoryUpdatesMoney(Blackhole bh) {
+        int quantity = 0;
+        long totalCost = 0;
+        long average = 0;
+        for (int i = 0; i < trades; i++) {
+            if (buy[i] || quantity <= quantities[i]) {
+                quantity += quantities[i];
+                totalCost = Money.add(totalCost, amountUnits[i]);
+                average = Money.divide(totalCost, quantity);
+            } else {
+                long ratio = Money.ratio(quantities[i], quantity);
+                totalCost = Money.applyRatio(totalCost, Money.subtract(Money.ONE, ratio));
+                quantity -= quantities[i];
+            }
+        }
+        bh.consume(totalCost);
+        bh.consume(average);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MoneyAggregationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,143 @@
+package com.cs.csinventory.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动时间：普通 jar vs 快速启动构建（Spring AOT + AppCDS 归档），测量从启动进程到第一个请求成功返回的时间
+ *
+ * 快速启动 jar 先按 Dockerfile 的方式解压并做一次训练运行生成 AppCDS 归档。每轮两种构建各启动一次、交替进行，
+ * 第0轮为预热不计入结果（操作系统文件缓存）。子进程继承当前环境变量，数据库通过 SPRING_DATASOURCE_URL 等指定，
+ * 例如 docker compose 的 MySQL：jdbc:mysql://localhost:3307/cs_inventory?...。
+ * 运行方式：
+ * <pre>
+ * ./mvnw -DskipTests package &amp;&amp; cp target/csinventory-0.0.1-SNAPSHOT.jar target/standard.jar
+ * ./mvnw -Pfast-startup -DskipTests package &amp;&amp; cp target/csinventory-0.0.1-SNAPSHOT.jar target/fast-startup.jar
+ * ./mvnw test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.cs.csinventory.benchmark.StartupBenchmark \
+ *     target/standard.jar target/fast-startup.jar 5
+ * </pre>
+ */
+public class StartupBenchmark {
+
+    /** 第一个请求：经过 Web、JPA 和数据库的完整链路 */
+    private static final String FIRST_REQUEST = "/api/portfolios";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private record Variant(String name, Path directory, List<String> command) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("用法: StartupBenchmark <普通 jar> <快速启动 jar> [轮数，默认 5]");
+            System.exit(1);
+        }
+        Path standardJar = Path.of(args[0]).toAbsolutePath();
+        Path fastStartupJar = Path.of(args[1]).toAbsolutePath();
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Path work = Files.createTempDirectory("startup-benchmark");
+
+        Path app = prepareFastStartup(java, fastStartupJar, work);
+        List<Variant> variants = List.of(
+                new Variant("standard", standardJar.getParent(), List.of(java, "-jar", standardJar.toString())),
+                new Variant("aot+cds", app.getParent(), List.of(java, "-XX:SharedArchiveFile=app.jsa",
+                        "-Dspring.aot.enabled=true", "-jar", app.getFileName().toString())));
+
+        Map<String, List<Long>> results = new LinkedHashMap<>();
+        for (int round = 0; round <= rounds; round++) {
+            for (Variant variant : variants) {
+                long millis = timeToFirstRequest(variant, work.resolve(variant.name() + "-" + round + ".log"));
+                System.out.printf("第 %d 轮%s %-8s %6d ms%n", round, round == 0 ? "（预热）" : "", variant.name(), millis);
+                if (round > 0) {
+                    results.computeIfAbsent(variant.name(), name -> new ArrayList<>()).add(millis);
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-8s %8s %8s %8s%n", "构建", "最小", "中位数", "最大");
+        results.forEach((name, times) -> {
+            List<Long> sorted = times.stream().sorted().toList();
+            System.out.printf("%-8s %6d ms %6d ms %6d ms%n", name, sorted.get(0), sorted.get(sorted.size() / 2),
+                    sorted.get(sorted.size() - 1));
+        });
+        System.out.println("日志目录: " + work);
+    }
+
+    /**
+     * 解压快速启动 jar，训练运行生成 AppCDS 归档，返回解压后的应用 jar
+     */
+    private static Path prepareFastStartup(String java, Path jar, Path work) throws IOException, InterruptedException {
+        Path directory = work.resolve("fast-startup");
+        run(work, work.resolve("extract.log"),
+                List.of(java, "-Djarmode=tools", "-jar", jar.toString(), "extract", "--destination", directory.toString()));
+        Path app = directory.resolve(jar.getFileName());
+        run(directory, work.resolve("training.log"), List.of(java, "-XX:ArchiveClassesAtExit=app.jsa",
+                "-Dspring.context.exit=onRefresh", "-Dspring.profiles.active=cds-training", "-jar", app.toString()));
+        return app;
+    }
+
+    private static void run(Path directory, Path log, List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).directory(directory.toFile()).redirectErrorStream(true)
+                .redirectOutput(log.toFile()).start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("命令执行失败，详见 " + log + ": " + String.join(" ", command));
+        }
+    }
+
+    /**
+     * 启动进程并轮询第一个请求，返回从启动进程到请求成功的毫秒数
+     */
+    private static long timeToFirstRequest(Variant variant, Path log) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>(variant.command());
+        command.add("--server.port=" + port);
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + FIRST_REQUEST))
+                .timeout(Duration.ofSeconds(5)).build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).directory(variant.directory().toFile()).redirectErrorStream(true)
+                .redirectOutput(log.toFile()).start();
+        try {
+            while (System.nanoTime() - start < STARTUP_TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(variant.name() + " 启动失败，详见 " + log);
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return (System.nanoTime() - start) / 1_000_000;
+                    }
+                } catch (IOException e) {
+                    // 端口尚未监听
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(variant.name() + " 启动超时，详见 " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.cs.csinventory.config;
+
+import com.cs.csinventory.repo.InventoryRepository;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.repo.PortfolioRepository;
+import com.cs.csinventory.repo.TradeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.data.jpa.repository.Query;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AOT 运行时提示：仓库中所有 JPQL 构造表达式的 DTO、实体和迁移脚本都已注册
+ */
+class CsInventoryRuntimeHintsTests {
+
+    private static final Pattern CONSTRUCTOR_EXPRESSION = Pattern.compile("(?i)select\\s+new\\s+([\\w.]+)\\s*\\(");
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    CsInventoryRuntimeHintsTests() {
+        new CsInventoryRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void registersEveryConstructorExpressionType() throws ClassNotFoundException {
+        Set<String> types = new HashSet<>();
+        for (Class<?> repository : List.of(InventoryRepository.class, ItemRepository.class, PortfolioRepository.class,
+                TradeRepository.class)) {
+            for (Method method : repository.getDeclaredMethods()) {
+                Query query = method.getAnnotation(Query.class);
+                if (query == null) {
+                    continue;
+                }
+                Matcher matcher = CONSTRUCTOR_EXPRESSION.matcher(query.value());
+                while (matcher.find()) {
+                    types.add(matcher.group(1));
+                }
+            }
+        }
+        assertFalse(types.isEmpty());
+        for (String type : types) {
+            assertTrue(RuntimeHintsPredicates.reflection().onType(Class.forName(type))
+                    .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS).test(hints), "缺少运行时提示: " + type);
+        }
+    }
+
+    @Test
+    void registersEntitiesAndMigrations() {
+        for (Class<?> entity : CsInventoryRuntimeHints.ENTITY_TYPES) {
+            assertTrue(RuntimeHintsPredicates.reflection().onType(entity)
+                    .withMemberCategory(MemberCategory.DECLARED_FIELDS).test(hints));
+        }
+        assertTrue(RuntimeHintsPredicates.resource().forResource("db/migration/common/V1__baseline_schema.sql").test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("db/migration/mysql/V6__portfolios.sql").test(hints));
+    }
+}
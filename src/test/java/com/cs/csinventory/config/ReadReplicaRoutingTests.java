@@ -0,0 +1,133 @@
+package com.cs.csinventory.config;
+
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.InventoryService;
+import com.cs.csinventory.service.InvestmentPoolService;
+import com.cs.csinventory.service.TradeService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 读写分离路由测试：两个内嵌 H2 分别充当主库和只读副本，副本数据故意与主库不同以模拟复制延迟
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.jdbc-url=jdbc:h2:mem:routing-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.username=sa"
+})
+class ReadReplicaRoutingTests {
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private HikariDataSource replicaDataSource;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private InvestmentPoolService investmentPoolService;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        copySchemaToReplica();
+
+        for (JdbcTemplate db : new JdbcTemplate[]{primary, replica}) {
+            db.update("DELETE FROM trades");
+            db.update("DELETE FROM inventory");
+            db.update("DELETE FROM items");
+            db.update("INSERT INTO items (id, market_hash_name, cn_name, en_name, name_id) VALUES (1001, 'AK-47 | Redline', '红线', 'Redline', 1)");
+        }
+        // 主库：两笔买入，共持有5个；副本：只同步到第一笔，持有2个
+        // 直接写入的行使用远大于生成器当前值的ID，避免与服务创建的记录冲突
+        insertBuy(primary, 1001, 2, "10.0000", "2026-01-01T00:00:00Z");
+        insertBuy(primary, 1002, 3, "12.0000", "2026-01-02T00:00:00Z");
+        insertInventory(primary, 5, "11.2000", "56.0000");
+        insertBuy(replica, 1001, 2, "10.0000", "2026-01-01T00:00:00Z");
+        insertInventory(replica, 2, "10.0000", "20.0000");
+    }
+
+    @Test
+    void readOnlyQueriesUseReplica() {
+        assertEquals(2, inventoryService.getAllInventoryWithItem(Portfolio.DEFAULT_ID).get(0).getCurrentQuantity());
+        assertEquals(1, investmentPoolService.getInvestmentPoolStatistics(Portfolio.DEFAULT_ID).totalBuyTrades());
+    }
+
+    @Test
+    void sellValidationReadsPrimary() {
+        assertTrue(inventoryService.hasEnoughInventory(Portfolio.DEFAULT_ID, 1L, 5));
+        assertEquals(5, inventoryService.getCurrentQuantity(Portfolio.DEFAULT_ID, 1L));
+
+        tradeService.createTrade(Trade.builder()
+                .nameId(1L).type(Trade.Type.SELL).unitPrice(new BigDecimal("15")).quantity(4).build());
+
+        assertEquals(1, primary.queryForObject("SELECT current_quantity FROM inventory WHERE name_id = 1", Integer.class));
+        assertEquals(2, replica.queryForObject("SELECT current_quantity FROM inventory WHERE name_id = 1", Integer.class));
+    }
+
+    @Test
+    void fallsBackToPrimaryWhenReplicaIsDown() throws Exception {
+        try (HikariDataSource brokenReplica = new HikariDataSource()) {
+            brokenReplica.setJdbcUrl("jdbc:h2:tcp://127.0.0.1:1/mem:unreachable");
+            brokenReplica.setConnectionTimeout(250);
+            ReplicaFailoverDataSource failover =
+                    new ReplicaFailoverDataSource(brokenReplica, primaryDataSource, Duration.ofSeconds(30));
+
+            try (Connection connection = failover.getConnection()) {
+                assertTrue(connection.getMetaData().getURL().contains("routing-primary"));
+            }
+            assertTrue(failover.isReplicaSuspended());
+        }
+    }
+
+    /**
+     * 副本库结构与主库一致（主库由 Flyway 迁移建表，Hibernate 只做 validate），从主库导出结构脚本在副本库执行
+     */
+    private void copySchemaToReplica() {
+        Integer tables = replica.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_name = 'inventory'", Integer.class);
+        if (tables != null && tables > 0) {
+            return;
+        }
+        for (String statement : primary.queryForList("SCRIPT NODATA", String.class)) {
+            if (!statement.startsWith("CREATE USER")) {
+                replica.execute(statement);
+            }
+        }
+    }
+
+    private static void insertBuy(JdbcTemplate db, long id, int quantity, String unitPrice, String createdAt) {
+        BigDecimal price = new BigDecimal(unitPrice);
+        db.update("INSERT INTO trades (id, name_id, type, unit_price, quantity, total_amount, created_at) VALUES (?, 1, 'BUY', ?, ?, ?, ?)",
+                id, price, quantity, price.multiply(BigDecimal.valueOf(quantity)), OffsetDateTime.parse(createdAt));
+    }
+
+    private static void insertInventory(JdbcTemplate db, int quantity, String averageCost, String totalCost) {
+        db.update("INSERT INTO inventory (id, name_id, current_quantity, weighted_average_cost, total_investment_cost, created_at, last_updated_at) "
+                        + "VALUES (1001, 1, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)",
+                quantity, new BigDecimal(averageCost), new BigDecimal(totalCost));
+    }
+}
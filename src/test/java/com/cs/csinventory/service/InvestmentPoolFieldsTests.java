@@ -0,0 +1,94 @@
+package com.cs.csinventory.service;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.service.dto.InvestmentPoolDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 按字段计算投资池统计：每个字段只用依赖图声明的数据源即可算出，且与完整统计的值相同
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pool-fields;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        // 不使用缓存，每次只查询请求字段需要的数据源
+        "app.stats.cache-ttl=0s"
+})
+class InvestmentPoolFieldsTests {
+
+    @Autowired
+    private InvestmentPoolService investmentPoolService;
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void eachFieldMatchesFullStatistics() {
+        itemRepository.save(Item.builder().marketHashName("Butterfly Knife | Doppler").cnName("多普勒").enName("Doppler")
+                .nameId(951L).build());
+        long portfolio = portfolioService.createPortfolio("pool-fields").getId();
+        createTrade(portfolio, Trade.Type.BUY, 3, "100.00");
+        createTrade(portfolio, Trade.Type.SELL, 1, "150.00");
+
+        Map<String, Object> full = json(investmentPoolService.getInvestmentPoolStatistics(portfolio));
+        for (PoolMetric metric : PoolMetric.values()) {
+            Map<String, Object> single = json(investmentPoolService.getInvestmentPoolStatistics(portfolio, Set.of(metric)));
+            assertEquals(Map.of(metric.field(), full.get(metric.field())), single, metric.field());
+        }
+    }
+
+    @Test
+    void emptyPoolReturnsZeroForRequestedFields() {
+        long portfolio = portfolioService.createPortfolio("pool-fields-empty").getId();
+
+        InvestmentPoolDTO pool = investmentPoolService.getInvestmentPoolStatistics(portfolio,
+                EnumSet.of(PoolMetric.REALIZED_PROFIT, PoolMetric.TOTAL_BUY_TRADES));
+
+        assertEquals(BigDecimal.ZERO, pool.realizedProfit());
+        assertEquals(0, pool.totalBuyTrades());
+        assertNull(pool.totalInvestment());
+    }
+
+    @Test
+    void resolvesSourcesThroughDependencies() {
+        assertEquals(EnumSet.of(PoolMetric.Source.HOLDINGS),
+                PoolMetric.sources(PoolMetric.parse("staticCost,currentHoldingItems")));
+        assertEquals(EnumSet.of(PoolMetric.Source.TRADE_SUMMARY, PoolMetric.Source.HOLDINGS),
+                PoolMetric.sources(PoolMetric.parse("realizedProfit")));
+        assertEquals(EnumSet.of(PoolMetric.Source.TRADE_SUMMARY, PoolMetric.Source.HOLDINGS,
+                PoolMetric.Source.PEAK_NET_INVESTMENT), PoolMetric.sources(PoolMetric.parse("realReturnRate")));
+        assertEquals(EnumSet.allOf(PoolMetric.class), PoolMetric.parse(" "));
+        assertThrows(IllegalArgumentException.class, () -> PoolMetric.parse("realizedProfit,profit"));
+    }
+
+    private void createTrade(long portfolioId, Trade.Type type, int quantity, String unitPrice) {
+        tradeService.createTrade(Trade.builder().portfolioId(portfolioId).nameId(951L).type(type).quantity(quantity)
+                .unitPrice(new BigDecimal(unitPrice)).build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> json(InvestmentPoolDTO pool) {
+        return objectMapper.convertValue(pool, Map.class);
+    }
+}
@@ -0,0 +1,111 @@
+package com.cs.csinventory.service;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.service.dto.InvestmentPoolDTO;
+import com.cs.csinventory.service.dto.InvestmentPoolSummaryDTO;
+import com.cs.csinventory.service.dto.PortfolioPoolDTO;
+import com.cs.csinventory.service.sync.DataVersions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多投资组合：同一物品在不同组合中的交易、库存、统计互不影响，跨组合统计为各组合聚合之和
+ */
+@SpringBootTest(properties =
+        "spring.datasource.url=jdbc:h2:mem:portfolios;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+class PortfolioIsolationTests {
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InvestmentPoolService investmentPoolService;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Test
+    void isolatesTradesInventoryAndStatisticsPerPortfolio() {
+        itemRepository.save(Item.builder().marketHashName("Karambit | Fade").cnName("渐变大理石").enName("Fade").nameId(901L).build());
+        long main = Portfolio.DEFAULT_ID;
+        long bot = portfolioService.createPortfolio("trading-bot").getId();
+
+        createTrade(main, 901L, Trade.Type.BUY, 2, "100.00");
+        createTrade(bot, 901L, Trade.Type.BUY, 5, "80.00");
+        createTrade(bot, 901L, Trade.Type.SELL, 1, "90.00");
+
+        assertEquals(2, inventoryService.getCurrentQuantity(main, 901L));
+        assertEquals(4, inventoryService.getCurrentQuantity(bot, 901L));
+        assertEquals(1, tradeService.getTradeHistoryWithItem(main, 901L).size());
+        assertEquals(2, tradeService.getTradeHistoryWithItem(bot, 901L).size());
+        // 主组合只有2个，不能卖出其他组合的库存
+        assertThrows(IllegalStateException.class, () -> createTrade(main, 901L, Trade.Type.SELL, 3, "120.00"));
+
+        InvestmentPoolDTO mainPool = investmentPoolService.getInvestmentPoolStatistics(main);
+        InvestmentPoolDTO botPool = investmentPoolService.getInvestmentPoolStatistics(bot);
+        assertEquals(new BigDecimal("200.0000"), mainPool.totalInvestment());
+        assertEquals(1, botPool.totalSellTrades());
+        assertEquals(new BigDecimal("320.0000"), botPool.staticCost());
+
+        // 总计由各组合的聚合相加（其他测试创建的组合也包含在内）
+        InvestmentPoolSummaryDTO combined = investmentPoolService.getCombinedStatistics();
+        List<InvestmentPoolDTO> pools = combined.portfolios().stream().map(PortfolioPoolDTO::pool).toList();
+        assertTrue(combined.portfolios().stream().map(PortfolioPoolDTO::portfolioId).toList().containsAll(List.of(main, bot)));
+        assertEquals(sum(pools, InvestmentPoolDTO::totalInvestment), combined.total().totalInvestment());
+        assertEquals(sum(pools, InvestmentPoolDTO::totalWithdrawal), combined.total().totalWithdrawal());
+        assertEquals(sum(pools, InvestmentPoolDTO::staticCost), combined.total().staticCost());
+        assertEquals(sum(pools, InvestmentPoolDTO::peakNetInvestment), combined.total().peakNetInvestment());
+        assertEquals(pools.stream().mapToInt(InvestmentPoolDTO::currentHoldingItems).sum(),
+                combined.total().currentHoldingItems());
+    }
+
+    @Test
+    void writeInvalidatesOnlyItsOwnPortfolio() {
+        itemRepository.save(Item.builder().marketHashName("Glock-18 | Fade").cnName("渐变之色").enName("Fade").nameId(902L).build());
+        long storage = portfolioService.createPortfolio("storage").getId();
+        long mainVersion = dataVersions.current(Portfolio.DEFAULT_ID);
+        long storageVersion = dataVersions.current(storage);
+
+        createTrade(storage, 902L, Trade.Type.BUY, 1, "50.00");
+
+        assertEquals(mainVersion, dataVersions.current(Portfolio.DEFAULT_ID));
+        assertTrue(dataVersions.current(storage) > storageVersion);
+        assertEquals(1, investmentPoolService.getInvestmentPoolStatistics(storage).totalBuyTrades());
+    }
+
+    @Test
+    void rejectsUnknownPortfolio() {
+        assertThrows(IllegalArgumentException.class, () -> investmentPoolService.getInvestmentPoolStatistics(999L));
+        assertThrows(IllegalArgumentException.class, () -> createTrade(999L, 901L, Trade.Type.BUY, 1, "1.00"));
+    }
+
+    private void createTrade(long portfolioId, long nameId, Trade.Type type, int quantity, String unitPrice) {
+        tradeService.createTrade(Trade.builder().portfolioId(portfolioId).nameId(nameId).type(type).quantity(quantity)
+                .unitPrice(new BigDecimal(unitPrice)).build());
+    }
+
+    private static BigDecimal sum(List<InvestmentPoolDTO> pools, Function<InvestmentPoolDTO, BigDecimal> field) {
+        return pools.stream().map(field).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
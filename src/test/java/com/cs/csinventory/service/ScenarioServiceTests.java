@@ -0,0 +1,118 @@
+package com.cs.csinventory.service;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.service.dto.InvestmentPoolDTO;
+import com.cs.csinventory.service.dto.ScenarioActionDTO;
+import com.cs.csinventory.service.dto.ScenarioBatchDTO;
+import com.cs.csinventory.service.dto.ScenarioDTO;
+import com.cs.csinventory.service.dto.ScenarioResultDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 假设场景：模拟结果与真实执行相同操作后的统计一致，快照只在数据版本变化后重新加载
+ */
+@SpringBootTest(properties =
+        "spring.datasource.url=jdbc:h2:mem:scenarios;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+class ScenarioServiceTests {
+
+    @Autowired
+    private ScenarioService scenarioService;
+
+    @Autowired
+    private InvestmentPoolService investmentPoolService;
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Test
+    void simulatedTradesMatchRealTrades() {
+        saveItem(961L, "Sport Gloves | Vice");
+        saveItem(962L, "M9 Bayonet | Lore");
+        long portfolio = portfolioService.createPortfolio("scenarios").getId();
+        createTrade(portfolio, 961L, Trade.Type.BUY, 3, "300.00");
+        createTrade(portfolio, 961L, Trade.Type.SELL, 1, "360.00");
+
+        ScenarioBatchDTO batch = scenarioService.evaluate(portfolio, List.of(scenario("卖出并买入新物品",
+                action(ScenarioActionDTO.Type.SELL, 961L, 1, "420.00"),
+                action(ScenarioActionDTO.Type.BUY, 962L, 2, "150.00"))));
+        InvestmentPoolDTO simulated = batch.results().get(0).pool();
+
+        createTrade(portfolio, 961L, Trade.Type.SELL, 1, "420.00");
+        createTrade(portfolio, 962L, Trade.Type.BUY, 2, "150.00");
+        InvestmentPoolDTO actual = investmentPoolService.getInvestmentPoolStatistics(portfolio);
+        assertEquals(actual, simulated);
+
+        // 写入后版本变化，快照重新加载
+        assertTrue(scenarioService.evaluate(portfolio, List.of(scenario("空场景"))).dataVersion() > batch.dataVersion());
+    }
+
+    @Test
+    void marketPricesAndInvalidScenarios() {
+        saveItem(963L, "Huntsman Knife | Slaughter");
+        long portfolio = portfolioService.createPortfolio("scenarios-prices").getId();
+        createTrade(portfolio, 963L, Trade.Type.BUY, 2, "100.00");
+
+        ScenarioBatchDTO batch = scenarioService.evaluate(portfolio, List.of(
+                scenario("估值", action(ScenarioActionDTO.Type.SET_PRICE, 963L, null, "130.00")),
+                scenario("卖出过多", action(ScenarioActionDTO.Type.SELL, 963L, 3, "130.00")),
+                new ScenarioDTO("手动估值", List.of(), new BigDecimal("500"))));
+
+        InvestmentPoolDTO priced = batch.results().get(0).pool();
+        assertEquals(0, new BigDecimal("260").compareTo(priced.currentHoldingValue()));
+        assertEquals(0, new BigDecimal("60").compareTo(priced.totalProfit()));
+        ScenarioResultDTO oversold = batch.results().get(1);
+        assertNull(oversold.pool());
+        assertTrue(oversold.error().contains("库存不足"));
+        assertEquals(0, new BigDecimal("300").compareTo(batch.results().get(2).pool().totalProfit()));
+        // 快照不受场景影响
+        assertEquals(investmentPoolService.getInvestmentPoolStatistics(portfolio),
+                scenarioService.evaluate(portfolio, List.of(scenario("空场景"))).results().get(0).pool());
+    }
+
+    @Test
+    void limitsBatchSize() {
+        List<ScenarioDTO> scenarios = new ArrayList<>();
+        for (int i = 0; i <= ScenarioService.MAX_SCENARIOS; i++) {
+            scenarios.add(scenario("场景" + i));
+        }
+        assertThrows(IllegalArgumentException.class, () -> scenarioService.evaluate(1L, scenarios));
+        assertThrows(IllegalArgumentException.class, () -> scenarioService.evaluate(1L, List.of()));
+    }
+
+    private void saveItem(long nameId, String marketHashName) {
+        itemRepository.save(Item.builder().marketHashName(marketHashName).cnName(marketHashName).enName(marketHashName)
+                .nameId(nameId).build());
+    }
+
+    private void createTrade(long portfolioId, long nameId, Trade.Type type, int quantity, String unitPrice) {
+        tradeService.createTrade(Trade.builder().portfolioId(portfolioId).nameId(nameId).type(type).quantity(quantity)
+                .unitPrice(new BigDecimal(unitPrice)).build());
+    }
+
+    private static ScenarioDTO scenario(String name, ScenarioActionDTO... actions) {
+        return new ScenarioDTO(name, List.of(actions), null);
+    }
+
+    private static ScenarioActionDTO action(ScenarioActionDTO.Type type, long nameId, Integer quantity, String unitPrice) {
+        return new ScenarioActionDTO(type, nameId, quantity, new BigDecimal(unitPrice));
+    }
+}
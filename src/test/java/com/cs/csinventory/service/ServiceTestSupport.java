@@ -0,0 +1,80 @@
+package com.cs.csinventory.service;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.ItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+
+/**
+ * 服务层集成测试的共享上下文和测试数据
+ *
+ * 子类的配置完全相同，共用一个缓存的 Spring 上下文和 H2 库（只启动一次）；各测试用自己创建的组合和不重复的 nameId
+ * 隔离数据。配置不同就会另起一个上下文，只有确实需要不同配置的测试才不继承这个类。
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:service-tests;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        // 价格统计的维护由测试手动触发
+        "app.prices.maintenance-interval=1h",
+        // 快照用小块，覆盖键集分页和多块导入
+        "app.snapshot.block-rows=2"
+})
+public abstract class ServiceTestSupport {
+
+    /** 快照、归档段和价格文件的目录；上下文跨测试类复用，不能使用单个测试类的 @TempDir */
+    protected static final Path DIRECTORY = createDirectory();
+
+    @DynamicPropertySource
+    static void directories(DynamicPropertyRegistry registry) {
+        registry.add("app.snapshot.directory", () -> DIRECTORY.resolve("snapshots").toString());
+        registry.add("app.archive.trades.directory", () -> DIRECTORY.resolve("archive").toString());
+        registry.add("app.alerts.price-directory", () -> DIRECTORY.resolve("prices").toString());
+    }
+
+    @Autowired
+    protected TradeService tradeService;
+
+    @Autowired
+    protected PortfolioService portfolioService;
+
+    @Autowired
+    protected ItemRepository itemRepository;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    protected void saveItem(long nameId) {
+        itemRepository.save(Item.builder().marketHashName("Item " + nameId).cnName("物品" + nameId)
+                .enName("Item " + nameId).nameId(nameId).build());
+    }
+
+    protected Trade trade(long portfolioId, long nameId, Trade.Type type, int quantity, String unitPrice) {
+        return tradeService.createTrade(Trade.builder().portfolioId(portfolioId).nameId(nameId).type(type)
+                .quantity(quantity).unitPrice(new BigDecimal(unitPrice)).build());
+    }
+
+    protected Trade trade(long portfolioId, long nameId, Trade.Type type, int quantity, String unitPrice,
+                          String createdAt) {
+        return tradeService.createTrade(Trade.builder().portfolioId(portfolioId).nameId(nameId).type(type)
+                .quantity(quantity).unitPrice(new BigDecimal(unitPrice)).createdAt(OffsetDateTime.parse(createdAt))
+                .build());
+    }
+
+    private static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("csinventory-service-tests");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.cs.csinventory.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 统计任务作用域：并行执行与结果合并、每个任务的截止时间（并行和依次执行）、关闭时取消未完成的任务、异常传递
+ */
+class StatisticsFanOutTests {
+
+    private final RecordingTransactionManager transactions = new RecordingTransactionManager();
+
+    @Test
+    void runsTasksInParallelEachInItsOwnReadOnlyTransaction() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        try (StatisticsFanOut fanOut = new StatisticsFanOut(transactions, true, Duration.ofSeconds(5))) {
+            // 两个任务互相等待对方开始，只有并行执行才能完成
+            var first = fanOut.fork("first", () -> awaitOther(bothStarted, 1));
+            var second = fanOut.fork("second", () -> awaitOther(bothStarted, 2));
+            assertEquals(1, first.join());
+            assertEquals(2, second.join());
+        }
+        assertEquals(2, transactions.definitions.size());
+        for (TransactionDefinition definition : transactions.definitions) {
+            assertTrue(definition.isReadOnly());
+            assertEquals(TransactionDefinition.ISOLATION_REPEATABLE_READ, definition.getIsolationLevel());
+            assertEquals(5, definition.getTimeout());
+        }
+        assertEquals(2, transactions.committed.size());
+    }
+
+    @Test
+    void joinTimesOutAtTaskDeadlineAndCancelsTask() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try (StatisticsFanOut fanOut = new StatisticsFanOut(transactions, true, Duration.ofSeconds(5))) {
+            var slow = fanOut.fork("slow", () -> sleepUntilInterrupted(interrupted), Duration.ofMillis(50));
+            var fast = fanOut.fork("fast", () -> 42);
+            long start = System.nanoTime();
+            IllegalStateException e = assertThrows(IllegalStateException.class, slow::join);
+            assertEquals("统计任务超时: slow", e.getMessage());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+            // 其他任务不受影响
+            assertEquals(42, fast.join());
+        }
+        // 不足一秒的超时向上取整为 1 秒的事务超时
+        assertEquals(1, transactions.definitions.get(0).getTimeout());
+    }
+
+    @Test
+    void closeCancelsUnfinishedTasksAndWaitsForThem() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        try (StatisticsFanOut fanOut = new StatisticsFanOut(transactions, true, Duration.ofSeconds(30))) {
+            fanOut.fork("abandoned", () -> {
+                try {
+                    started.countDown();
+                    return sleepUntilInterrupted(interrupted);
+                } finally {
+                    finished.countDown();
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+        }
+        // close 返回时任务已被中断并结束（只保证任务结束，不保证虚拟线程已退出，因此不检查线程状态）
+        assertEquals(0, interrupted.getCount());
+        assertEquals(0, finished.getCount());
+    }
+
+    @Test
+    void propagatesTaskFailures() {
+        for (boolean parallel : List.of(true, false)) {
+            IllegalArgumentException failure = new IllegalArgumentException("查询失败");
+            try (StatisticsFanOut fanOut = new StatisticsFanOut(transactions, parallel, Duration.ofSeconds(5))) {
+                var failed = fanOut.fork("failed", () -> {
+                    throw failure;
+                });
+                assertSame(failure, assertThrows(IllegalArgumentException.class, failed::join), "parallel=" + parallel);
+            }
+        }
+        // 失败的任务回滚事务
+        assertEquals(2, transactions.rolledBack.size());
+
+        // 非 RuntimeException 包装为 IllegalStateException
+        try (StatisticsFanOut fanOut = new StatisticsFanOut(transactions, true, Duration.ofSeconds(5))) {
+            var error = fanOut.fork("error", () -> {
+                throw new AssertionError("严重错误");
+            });
+            IllegalStateException wrapped = assertThrows(IllegalStateException.class, error::join);
+            assertEquals("统计任务失败: error, 严重错误", wrapped.getMessage());
+        }
+    }
+
+    @Test
+    void inlineTasksRunOnCallerThreadAndRespectDeadline() {
+        Thread caller = Thread.currentThread();
+        try (StatisticsFanOut fanOut = new StatisticsFanOut(transactions, false, Duration.ofSeconds(5))) {
+            var inline = fanOut.fork("inline", () -> Thread.currentThread() == caller);
+            assertTrue(inline.join());
+
+            var late = fanOut.fork("late", () -> {
+                sleep(100);
+                return 1;
+            }, Duration.ofMillis(20));
+            IllegalStateException e = assertThrows(IllegalStateException.class, late::join);
+            assertEquals("统计任务超时: late", e.getMessage());
+        }
+    }
+
+    private static int awaitOther(CountDownLatch bothStarted, int result) {
+        bothStarted.countDown();
+        try {
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS), "任务没有并行执行");
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    private static int sleepUntilInterrupted(CountDownLatch interrupted) {
+        try {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+        }
+        return -1;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 记录事务定义和提交/回滚，不连接数据库
+     */
+    private static class RecordingTransactionManager implements PlatformTransactionManager {
+        final List<TransactionDefinition> definitions = new CopyOnWriteArrayList<>();
+        final List<TransactionStatus> committed = new CopyOnWriteArrayList<>();
+        final List<TransactionStatus> rolledBack = new CopyOnWriteArrayList<>();
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            definitions.add(definition);
+            return new SimpleTransactionStatus(true);
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            committed.add(status);
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            rolledBack.add(status);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.cs.csinventory.service;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.service.dto.DailyFlowDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 每日交易汇总：表结构由 Flyway 迁移脚本创建，按生成列 trade_date 分组
+ */
+@SpringBootTest(properties =
+        "spring.datasource.url=jdbc:h2:mem:daily-summary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+class TradeDailySummaryTests {
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Test
+    void groupsTradesByDayAndType() {
+        itemRepository.save(Item.builder().marketHashName("AWP | Asiimov").cnName("二西莫夫").enName("Asiimov").nameId(7L).build());
+        createTrade(Trade.Type.BUY, 2, "10.00", "2026-03-01T08:00:00Z");
+        createTrade(Trade.Type.BUY, 1, "12.50", "2026-03-01T23:59:59Z");
+        createTrade(Trade.Type.SELL, 1, "15.00", "2026-03-02T00:00:00Z");
+
+        List<DailyFlowDTO> days = tradeService.dailySummary(Portfolio.DEFAULT_ID,
+                OffsetDateTime.parse("2026-03-01T00:00:00Z"), OffsetDateTime.parse("2026-03-03T00:00:00Z"));
+
+        assertEquals(2, days.size());
+        assertEquals(new DailyFlowDTO(LocalDate.of(2026, 3, 2), Trade.Type.SELL, 1, new BigDecimal("15.0000"), 1), days.get(0));
+        assertEquals(new DailyFlowDTO(LocalDate.of(2026, 3, 1), Trade.Type.BUY, 3, new BigDecimal("32.5000"), 2), days.get(1));
+    }
+
+    @Test
+    void coversCurrentMonthAndMonthsAhead() {
+        assertEquals(List.of(YearMonth.of(2026, 11), YearMonth.of(2026, 12), YearMonth.of(2027, 1)),
+                TradePartitionService.monthsToCover(YearMonth.of(2026, 11), 2));
+    }
+
+    private void createTrade(Trade.Type type, int quantity, String unitPrice, String createdAt) {
+        tradeService.createTrade(Trade.builder().nameId(7L).type(type).quantity(quantity)
+                .unitPrice(new BigDecimal(unitPrice)).createdAt(OffsetDateTime.parse(createdAt)).build());
+    }
+}
@@ -0,0 +1,101 @@
+package com.cs.csinventory.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 交易表分区维护：需要覆盖的月份、只拆分 p_future、与其他节点同时拆分时不失败
+ */
+class TradePartitionServiceTests {
+
+    private static final String CURRENT = YearMonth.now(ZoneOffset.UTC).format(DateTimeFormatter.ofPattern("'p'yyyyMM"));
+
+    @Test
+    void monthsToCoverStartsAtCurrentMonthAndCrossesYears() {
+        assertEquals(List.of(YearMonth.of(2026, 12), YearMonth.of(2027, 1), YearMonth.of(2027, 2)),
+                TradePartitionService.monthsToCover(YearMonth.of(2026, 12), 2));
+        assertEquals(List.of(YearMonth.of(2026, 5)), TradePartitionService.monthsToCover(YearMonth.of(2026, 5), 0));
+        // 配置为负数时至少覆盖本月
+        assertEquals(List.of(YearMonth.of(2026, 5)), TradePartitionService.monthsToCover(YearMonth.of(2026, 5), -1));
+    }
+
+    @Test
+    void splitsMissingMonthOutOfFuturePartition() {
+        StubJdbcTemplate jdbc = new StubJdbcTemplate(TradePartitionService.FUTURE_PARTITION);
+        assertEquals(1, new TradePartitionService(jdbc).ensureFuturePartitions());
+        assertEquals(1, jdbc.executed.size());
+        assertTrue(jdbc.executed.get(0).contains("REORGANIZE PARTITION p_future INTO (PARTITION " + CURRENT),
+                jdbc.executed.get(0));
+
+        // 已存在时不再修改表结构
+        jdbc.executed.clear();
+        jdbc.partitions.add(CURRENT);
+        assertEquals(0, new TradePartitionService(jdbc).ensureFuturePartitions());
+        assertEquals(List.of(), jdbc.executed);
+    }
+
+    @Test
+    void toleratesPartitionCreatedConcurrentlyByAnotherNode() {
+        StubJdbcTemplate jdbc = new StubJdbcTemplate(TradePartitionService.FUTURE_PARTITION);
+        jdbc.onExecute = () -> {
+            // 另一个节点先拆分成功，本节点收到分区名重复的错误
+            jdbc.partitions.add(CURRENT);
+            throw new DataIntegrityViolationException("Duplicate partition name " + CURRENT);
+        };
+        assertEquals(0, new TradePartitionService(jdbc).ensureFuturePartitions());
+    }
+
+    @Test
+    void rethrowsFailureWhenPartitionStillMissing() {
+        StubJdbcTemplate jdbc = new StubJdbcTemplate(TradePartitionService.FUTURE_PARTITION);
+        jdbc.onExecute = () -> {
+            throw new BadSqlGrammarException("reorganize", "ALTER TABLE", new SQLException("lock wait timeout"));
+        };
+        assertThrows(BadSqlGrammarException.class, () -> new TradePartitionService(jdbc).ensureFuturePartitions());
+    }
+
+    @Test
+    void skipsTablesWithoutFuturePartition() {
+        StubJdbcTemplate jdbc = new StubJdbcTemplate();
+        assertEquals(0, new TradePartitionService(jdbc).ensureFuturePartitions());
+        assertEquals(List.of(), jdbc.executed);
+    }
+
+    /**
+     * 只模拟分区信息查询和 ALTER TABLE
+     */
+    private static class StubJdbcTemplate extends JdbcTemplate {
+        final Set<String> partitions;
+        final List<String> executed = new ArrayList<>();
+        Runnable onExecute = () -> { };
+
+        StubJdbcTemplate(String... partitions) {
+            this.partitions = new HashSet<>(Set.of(partitions));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType) {
+            return (List<T>) new ArrayList<>(partitions);
+        }
+
+        @Override
+        public void execute(String sql) {
+            onExecute.run();
+            executed.add(sql);
+        }
+    }
+}
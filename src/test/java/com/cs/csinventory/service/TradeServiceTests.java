@@ -0,0 +1,30 @@
+package com.cs.csinventory.service;
+
+import com.cs.csinventory.domain.Trade;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 创建交易的单价校验：按4位小数舍入后校验，超出定点范围的单价与其他无效输入一样返回参数错误
+ */
+class TradeServiceTests extends ServiceTestSupport {
+
+    @Test
+    void rejectsUnitPricesOutOfRange() {
+        long portfolio = portfolioService.createPortfolio("trade-validation").getId();
+        saveItem(1601L);
+
+        IllegalArgumentException overflow = assertThrows(IllegalArgumentException.class,
+                () -> trade(portfolio, 1601L, Trade.Type.BUY, 1, "1e30"));
+        assertEquals("单价超出范围", overflow.getMessage());
+        IllegalArgumentException zero = assertThrows(IllegalArgumentException.class,
+                () -> trade(portfolio, 1601L, Trade.Type.BUY, 1, "0.00004"));
+        assertEquals("单价必须大于0", zero.getMessage());
+
+        assertEquals(new BigDecimal("0.0001"), trade(portfolio, 1601L, Trade.Type.BUY, 1, "0.00005").getUnitPrice());
+    }
+}
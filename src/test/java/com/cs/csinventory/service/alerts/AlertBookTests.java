@@ -0,0 +1,98 @@
+package com.cs.csinventory.service.alerts;
+
+import com.cs.csinventory.service.alerts.AlertBook.Alert;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 提醒索引：只取出被越过的提醒，触发一次后移出索引，已越过的提醒不放入索引
+ */
+class AlertBookTests {
+
+    private long nextId;
+
+    @Test
+    void firesOnlyCrossedAlertsOnce() {
+        AlertBook book = new AlertBook();
+        Alert above100 = alert(PriceAlertType.PRICE_ABOVE);
+        Alert above120 = alert(PriceAlertType.PRICE_ABOVE);
+        Alert below80 = alert(PriceAlertType.PRICE_BELOW);
+        Alert below60 = alert(PriceAlertType.PRICE_BELOW);
+        assertFalse(book.arm(above100, 100L));
+        assertFalse(book.arm(above120, 120L));
+        assertFalse(book.arm(below80, 80L));
+        assertFalse(book.arm(below60, 60L));
+        assertEquals(4, book.size());
+
+        assertEquals(List.of(), book.update(90));
+        assertEquals(List.of(above100), book.update(100));
+        assertEquals(3, book.size());
+        // 已触发的提醒不再触发
+        assertEquals(List.of(), book.update(110));
+        assertEquals(List.of(below80, below60), book.update(50));
+        assertEquals(List.of(above120), book.update(130));
+        assertEquals(0, book.size());
+        assertTrue(above100.closed && above120.closed && below80.closed && below60.closed);
+    }
+
+    @Test
+    void armingAlreadyCrossedAlertFiresImmediately() {
+        AlertBook book = new AlertBook();
+        book.update(100);
+        assertEquals(100L, book.lastPrice());
+
+        Alert above = alert(PriceAlertType.PRICE_ABOVE);
+        assertTrue(book.arm(above, 90L));
+        assertTrue(above.closed);
+        assertEquals(0, book.size());
+        // 已关闭的提醒不能重新放入索引
+        assertFalse(book.arm(above, 200L));
+        assertEquals(0, book.size());
+
+        Alert drawdown = alert(PriceAlertType.DRAWDOWN);
+        assertFalse(book.arm(drawdown, 80L));
+        assertEquals(1, book.size());
+    }
+
+    @Test
+    void rearmingMovesAlertAndNullThresholdRemovesIt() {
+        AlertBook book = new AlertBook();
+        Alert drawdown = alert(PriceAlertType.DRAWDOWN);
+        book.arm(drawdown, 80L);
+        book.arm(drawdown, 60L);
+        assertEquals(1, book.size());
+        assertEquals(60L, book.threshold(drawdown));
+        assertEquals(List.of(), book.update(70));
+
+        // 清仓后没有触发价格
+        book.arm(drawdown, null);
+        assertEquals(0, book.size());
+        assertEquals(List.of(), book.update(10));
+
+        // 最近价格 10 已低于新的触发价格
+        assertTrue(book.arm(drawdown, 50L));
+        assertTrue(drawdown.closed);
+    }
+
+    @Test
+    void disarmedAlertNeverFires() {
+        AlertBook book = new AlertBook();
+        Alert below = alert(PriceAlertType.PRICE_BELOW);
+        Alert other = alert(PriceAlertType.PRICE_BELOW);
+        book.arm(below, 80L);
+        book.arm(other, 80L);
+        book.disarm(below);
+        assertEquals(1, book.size());
+        assertEquals(List.of(other), book.update(70));
+        assertFalse(book.arm(below, 200L));
+        assertEquals(0, book.size());
+    }
+
+    private Alert alert(PriceAlertType type) {
+        return new Alert(++nextId, 1, 1, type, 0, OffsetDateTime.now());
+    }
+}
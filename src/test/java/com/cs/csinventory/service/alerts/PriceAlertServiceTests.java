@@ -0,0 +1,174 @@
+package com.cs.csinventory.service.alerts;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.ServiceTestSupport;
+import com.cs.csinventory.service.dto.PriceAlertDTO;
+import com.cs.csinventory.service.dto.PriceAlertEventDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 价格提醒：越过提醒价格时只触发一次并写回数据库，DRAWDOWN 随库存变更重新计算，事件日志按序号查询
+ */
+class PriceAlertServiceTests extends ServiceTestSupport {
+
+    @Autowired
+    private PriceAlertService priceAlertService;
+
+    @Test
+    void firesPriceAlertsOnceWhenCrossed() {
+        long portfolio = portfolioService.createPortfolio("alerts-price").getId();
+        saveItem(4901L);
+        PriceAlertDTO above = create(portfolio, 4901L, PriceAlertType.PRICE_ABOVE, "120");
+        PriceAlertDTO below = create(portfolio, 4901L, PriceAlertType.PRICE_BELOW, "80");
+        assertEquals(0, new BigDecimal("120").compareTo(above.threshold()));
+        long after = priceAlertService.stats().fired();
+
+        PriceAlertService.PriceUpdateResult result = priceAlertService.updatePrices(List.of(price(4901L, "100")));
+        assertEquals(1, result.updates());
+        assertEquals(List.of(), result.fired());
+
+        result = priceAlertService.updatePrices(List.of(price(4901L, "125"), price(4901L, "130")));
+        assertEquals(List.of(above.id()), result.fired().stream().map(PriceAlertEventDTO::alertId).toList());
+        assertEquals(0, new BigDecimal("125").compareTo(result.fired().get(0).price()));
+
+        result = priceAlertService.updatePrices(List.of(price(4901L, "70"), price(4901L, "140")));
+        assertEquals(List.of(below.id()), result.fired().stream().map(PriceAlertEventDTO::alertId).toList());
+
+        List<PriceAlertDTO> alerts = priceAlertService.getAlerts(portfolio);
+        assertEquals(List.of(below.id(), above.id()), alerts.stream().map(PriceAlertDTO::id).toList());
+        assertTrue(alerts.stream().allMatch(alert -> alert.triggeredAt() != null));
+        assertEquals(0, new BigDecimal("70").compareTo(alerts.get(0).triggeredPrice()));
+
+        List<PriceAlertEventDTO> events = priceAlertService.getEvents(portfolio, after);
+        assertEquals(List.of(above.id(), below.id()), events.stream().map(PriceAlertEventDTO::alertId).toList());
+        assertEquals(List.of(below.id()), priceAlertService.getEvents(portfolio, events.get(0).sequence()).stream()
+                .map(PriceAlertEventDTO::alertId).toList());
+
+        // 已越过最近价格的新提醒立即触发
+        PriceAlertDTO crossed = create(portfolio, 4901L, PriceAlertType.PRICE_ABOVE, "100");
+        assertNotNull(crossed.triggeredAt());
+        assertEquals(0, new BigDecimal("140").compareTo(crossed.triggeredPrice()));
+    }
+
+    @Test
+    void oversizedPriceIsRejectedWithoutLosingFiredAlerts() throws IOException {
+        long portfolio = portfolioService.createPortfolio("alerts-overflow").getId();
+        saveItem(4951L);
+        saveItem(4952L);
+        PriceAlertDTO above = create(portfolio, 4951L, PriceAlertType.PRICE_ABOVE, "100");
+        PriceAlertDTO below = create(portfolio, 4952L, PriceAlertType.PRICE_BELOW, "10");
+        long after = priceAlertService.stats().fired();
+
+        // 越过提醒的价格之后是超出范围和舍入为 0 的价格
+        PriceAlertService.PriceUpdateResult result = priceAlertService.updatePrices(List.of(
+                price(4951L, "120"), price(4951L, "1e30"), price(4951L, "0.00001")));
+        assertEquals(1, result.updates());
+        assertEquals(2, result.rejected());
+        assertEquals(List.of(above.id()), result.fired().stream().map(PriceAlertEventDTO::alertId).toList());
+        assertNotNull(priceAlertService.getAlerts(portfolio).get(1).triggeredAt());
+        assertEquals(List.of(above.id()), priceAlertService.getEvents(portfolio, after).stream()
+                .map(PriceAlertEventDTO::alertId).toList());
+
+        result = priceAlertService.updatePrices(new StringReader("4952,5\n4952,1e30\n"));
+        assertEquals(1, result.updates());
+        assertEquals(1, result.rejected());
+        assertEquals(List.of(below.id()), result.fired().stream().map(PriceAlertEventDTO::alertId).toList());
+        assertNotNull(priceAlertService.getAlerts(portfolio).get(0).triggeredAt());
+    }
+
+    @Test
+    void drawdownFollowsWeightedAverageCost() {
+        long portfolio = portfolioService.createPortfolio("alerts-drawdown").getId();
+        saveItem(4911L);
+        trade(portfolio, 4911L, Trade.Type.BUY, 2, "100.00");
+        PriceAlertDTO drawdown = create(portfolio, 4911L, PriceAlertType.DRAWDOWN, "10");
+        assertEquals(0, new BigDecimal("90").compareTo(drawdown.threshold()));
+
+        // 加仓后加权平均成本 75，触发价格 67.5
+        trade(portfolio, 4911L, Trade.Type.BUY, 2, "50.00");
+        assertEquals(0, new BigDecimal("67.5").compareTo(priceAlertService.getAlerts(portfolio).get(0).threshold()));
+        assertEquals(List.of(), priceAlertService.updatePrices(List.of(price(4911L, "80"))).fired());
+
+        // 清仓后不触发，重新买入后按新成本计算
+        trade(portfolio, 4911L, Trade.Type.SELL, 4, "80.00");
+        assertNull(priceAlertService.getAlerts(portfolio).get(0).threshold());
+        assertEquals(List.of(), priceAlertService.updatePrices(List.of(price(4911L, "10"))).fired());
+        // 最近价格 10 已低于新的触发价格 18，买入提交后立即触发
+        trade(portfolio, 4911L, Trade.Type.BUY, 1, "20.00");
+        PriceAlertDTO fired = priceAlertService.getAlerts(portfolio).get(0);
+        assertNotNull(fired.triggeredAt());
+        assertEquals(0, BigDecimal.TEN.compareTo(fired.triggeredPrice()));
+    }
+
+    @Test
+    void deletedAlertIsRemovedFromIndex() {
+        long portfolio = portfolioService.createPortfolio("alerts-delete").getId();
+        long other = portfolioService.createPortfolio("alerts-delete-other").getId();
+        saveItem(4921L);
+        PriceAlertDTO alert = create(portfolio, 4921L, PriceAlertType.PRICE_BELOW, "50");
+        int indexed = priceAlertService.indexedAlerts();
+
+        assertThrows(IllegalArgumentException.class, () -> priceAlertService.deleteAlert(other, alert.id()));
+        priceAlertService.deleteAlert(portfolio, alert.id());
+        assertEquals(indexed - 1, priceAlertService.indexedAlerts());
+        assertEquals(List.of(), priceAlertService.getAlerts(portfolio));
+        assertEquals(List.of(), priceAlertService.updatePrices(List.of(price(4921L, "40"))).fired());
+        assertThrows(IllegalArgumentException.class, () -> priceAlertService.deleteAlert(portfolio, alert.id()));
+    }
+
+    @Test
+    void rejectsInvalidAlerts() {
+        long portfolio = portfolioService.createPortfolio("alerts-invalid").getId();
+        saveItem(4931L);
+        assertThrows(IllegalArgumentException.class,
+                () -> create(portfolio, 4931L, PriceAlertType.PRICE_ABOVE, "0"));
+        assertThrows(IllegalArgumentException.class,
+                () -> create(portfolio, 4931L, PriceAlertType.DRAWDOWN, "100"));
+        assertThrows(IllegalArgumentException.class,
+                () -> create(portfolio, 4939L, PriceAlertType.PRICE_ABOVE, "10"));
+        assertThrows(IllegalArgumentException.class,
+                () -> priceAlertService.createAlert(portfolio, 4931L, null, BigDecimal.ONE));
+    }
+
+    @Test
+    void readsPricesFromCsv() throws IOException {
+        long portfolio = portfolioService.createPortfolio("alerts-csv").getId();
+        saveItem(4941L);
+        saveItem(4942L);
+        PriceAlertDTO first = create(portfolio, 4941L, PriceAlertType.PRICE_ABOVE, "10");
+        PriceAlertDTO second = create(portfolio, 4942L, PriceAlertType.PRICE_BELOW, "5");
+
+        PriceAlertService.PriceUpdateResult result = priceAlertService.updatePrices(new StringReader(
+                "﻿nameId,price\n4941,12.5\n\nabc,1\n4942,-1\n4942,6\n"));
+        assertEquals(2, result.updates());
+        assertEquals(2, result.rejected());
+        assertEquals(List.of(first.id()), result.fired().stream().map(PriceAlertEventDTO::alertId).toList());
+
+        Files.createDirectories(DIRECTORY.resolve("prices"));
+        Files.writeString(DIRECTORY.resolve("prices").resolve("prices.csv"), "4942,4.99\n");
+        result = priceAlertService.updatePricesFromFile("prices.csv");
+        assertEquals(List.of(second.id()), result.fired().stream().map(PriceAlertEventDTO::alertId).toList());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM price_alerts WHERE id = ? AND triggered_at IS NOT NULL", Integer.class,
+                second.id()));
+        assertThrows(IllegalArgumentException.class, () -> priceAlertService.updatePricesFromFile("../prices.csv"));
+        assertThrows(IllegalArgumentException.class, () -> priceAlertService.updatePricesFromFile("missing.csv"));
+    }
+
+    private PriceAlertDTO create(long portfolioId, long nameId, PriceAlertType type, String target) {
+        return priceAlertService.createAlert(portfolioId, nameId, type, new BigDecimal(target));
+    }
+
+    private static PriceAlertService.PriceUpdate price(long nameId, String price) {
+        return new PriceAlertService.PriceUpdate(nameId, new BigDecimal(price));
+    }
+}
@@ -0,0 +1,88 @@
+package com.cs.csinventory.service.analytics;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.ServiceTestSupport;
+import com.cs.csinventory.service.dto.ItemAnalyticsDTO;
+import com.cs.csinventory.service.dto.ItemAnalyticsPageDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 物品交易表现：一条 SQL 按物品计算买卖均价、已实现盈利、周转率、持有时长和交易频率，排序分页在缓存结果上完成
+ */
+class ItemAnalyticsServiceTests extends ServiceTestSupport {
+
+    @Autowired
+    private ItemAnalyticsService analyticsService;
+
+    @Test
+    void computesPerItemMetrics() {
+        long portfolio = portfolioService.createPortfolio("analytics").getId();
+        saveItem(1201L);
+        saveItem(1202L);
+        // 1201: 买入 2@10、2@14，卖出 3@20，剩余 1 个（成本 12）
+        trade(portfolio, 1201L, Trade.Type.BUY, 2, "10.00", "2025-02-01T00:00:00Z");
+        trade(portfolio, 1201L, Trade.Type.BUY, 2, "14.00", "2025-02-03T00:00:00Z");
+        trade(portfolio, 1201L, Trade.Type.SELL, 3, "20.00", "2025-02-05T00:00:00Z");
+        // 1202: 买入 2@10，10天后全部以 15 卖出
+        trade(portfolio, 1202L, Trade.Type.BUY, 2, "10.00", "2025-01-01T00:00:00Z");
+        trade(portfolio, 1202L, Trade.Type.SELL, 2, "15.00", "2025-01-11T00:00:00Z");
+
+        List<ItemAnalyticsDTO> items = analyticsService.getItemAnalytics(portfolio, "nameId", "asc", 0, 50).items();
+
+        assertEquals(2, items.size());
+        ItemAnalyticsDTO held = items.get(0);
+        assertEquals(3L, held.buyTrades() + held.sellTrades());
+        assertEquals(1, held.currentQuantity());
+        assertEquals(new BigDecimal("12.0000"), held.averageBuyPrice());
+        assertEquals(new BigDecimal("20.0000"), held.averageSellPrice());
+        assertEquals(new BigDecimal("24.0000"), held.realizedProfit());
+        assertEquals(new BigDecimal("0.6667"), held.realizedMargin());
+        assertEquals(new BigDecimal("0.7500"), held.turnover());
+        // 仍有持仓，持有时长一直累计到当前
+        assertTrue(held.holdingDays().compareTo(new BigDecimal("365")) > 0);
+
+        ItemAnalyticsDTO closed = items.get(1);
+        assertEquals(0, closed.currentQuantity());
+        assertEquals(new BigDecimal("10.0000"), closed.realizedProfit());
+        assertEquals(new BigDecimal("0.5000"), closed.realizedMargin());
+        assertEquals(new BigDecimal("1.0000"), closed.turnover());
+        assertEquals(new BigDecimal("10.0000"), closed.holdingDays());
+        assertEquals(new BigDecimal("6.0000"), closed.tradesPerMonth());
+        assertEquals(OffsetDateTime.parse("2025-01-11T00:00:00Z"), closed.lastTradeAt());
+    }
+
+    @Test
+    void sortsPaginatesAndRefreshesAfterWrites() {
+        long portfolio = portfolioService.createPortfolio("analytics-sorting").getId();
+        saveItem(1211L);
+        saveItem(1212L);
+        trade(portfolio, 1211L, Trade.Type.BUY, 1, "10.00", "2025-03-01T00:00:00Z");
+        trade(portfolio, 1212L, Trade.Type.BUY, 1, "10.00", "2025-03-01T00:00:00Z");
+        trade(portfolio, 1212L, Trade.Type.SELL, 1, "30.00", "2025-03-02T00:00:00Z");
+
+        ItemAnalyticsPageDTO first = analyticsService.getItemAnalytics(portfolio, "realizedProfit", "desc", 0, 1);
+        assertEquals(2, first.total());
+        assertEquals(1212L, first.items().get(0).nameId());
+        // 未卖出的物品利润率为空，降序时仍排在最后
+        assertEquals(1211L, analyticsService.getItemAnalytics(portfolio, "realizedMargin", "desc", 1, 1).items().get(0).nameId());
+        assertNull(analyticsService.getItemAnalytics(portfolio, "realizedMargin", "asc", 1, 1).items().get(0).realizedMargin());
+        assertTrue(analyticsService.getItemAnalytics(portfolio, "nameId", "asc", 5, 1).items().isEmpty());
+
+        // 写入后版本变化，重新计算
+        trade(portfolio, 1211L, Trade.Type.SELL, 1, "50.00", "2025-03-03T00:00:00Z");
+        assertEquals(1211L, analyticsService.getItemAnalytics(portfolio, "realizedProfit", "desc", 0, 1).items().get(0).nameId());
+
+        assertThrows(IllegalArgumentException.class, () -> analyticsService.getItemAnalytics(portfolio, "price", "desc", 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> analyticsService.getItemAnalytics(portfolio, "nameId", "up", 0, 10));
+    }
+}
@@ -0,0 +1,120 @@
+package com.cs.csinventory.service.archive;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.repo.TradeRepository;
+import com.cs.csinventory.service.InvestmentPoolService;
+import com.cs.csinventory.service.TradeService;
+import com.cs.csinventory.service.dto.DailyFlowDTO;
+import com.cs.csinventory.service.dto.InvestmentPoolDTO;
+import com.cs.csinventory.service.dto.TradeWithItemDTO;
+import com.cs.csinventory.service.sync.DataVersions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 交易归档：归档前后各查询接口和统计结果保持一致
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:trade-archive;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.archive.trades.segment-rows=2"
+})
+class TradeArchiveTests {
+
+    @TempDir
+    static Path archiveDirectory;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.archive.trades.directory", archiveDirectory::toString);
+    }
+
+    @Autowired
+    private TradeArchiveService tradeArchiveService;
+
+    @Autowired
+    private TradeSegmentStore tradeSegmentStore;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private InvestmentPoolService investmentPoolService;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Test
+    void archivedTradesStayVisibleThroughQueriesAndStatistics() {
+        itemRepository.save(Item.builder().marketHashName("M4A4 | Howl").cnName("咆哮").enName("Howl").nameId(11L).build());
+        itemRepository.save(Item.builder().marketHashName("AK-47 | Fire Serpent").cnName("火蛇").enName("Fire Serpent").nameId(12L).build());
+        createTrade(11L, Trade.Type.BUY, 3, "100.00", "2024-01-05T10:00:00Z");
+        createTrade(12L, Trade.Type.BUY, 1, "500.00", "2024-01-05T11:00:00Z");
+        createTrade(11L, Trade.Type.SELL, 2, "180.00", "2024-02-10T09:00:00Z");
+        createTrade(12L, Trade.Type.SELL, 1, "450.00", "2024-03-01T09:00:00Z");
+        createTrade(11L, Trade.Type.BUY, 1, "120.00", "2025-06-01T08:00:00Z");
+
+        OffsetDateTime start = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        OffsetDateTime end = OffsetDateTime.parse("2025-12-31T23:59:59Z");
+        List<Long> allBefore = ids(tradeService.getAllTradesWithItem(Portfolio.DEFAULT_ID));
+        List<Long> historyBefore = ids(tradeService.getTradeHistoryWithItem(Portfolio.DEFAULT_ID, 11L));
+        List<Long> rangeBefore = ids(tradeService.getTradesByDateRangeWithItem(Portfolio.DEFAULT_ID, start, end));
+        List<DailyFlowDTO> dailyBefore = tradeService.dailySummary(Portfolio.DEFAULT_ID, start, end);
+        InvestmentPoolDTO poolBefore = investmentPoolService.getInvestmentPoolStatistics(Portfolio.DEFAULT_ID);
+        long versionBefore = dataVersions.current(Portfolio.DEFAULT_ID);
+
+        TradeArchiveService.ArchiveResult result =
+                tradeArchiveService.archiveBefore(OffsetDateTime.parse("2025-01-01T00:00:00Z"));
+        // 每个批次提交后组合版本前进，缓存的统计重新计算
+        assertTrue(dataVersions.current(Portfolio.DEFAULT_ID) > versionBefore);
+
+        assertEquals(4, result.trades());
+        assertEquals(2, result.segments());
+        assertEquals(2, tradeSegmentStore.segments().size());
+        assertEquals(1, tradeRepository.count());
+
+        assertEquals(allBefore, ids(tradeService.getAllTradesWithItem(Portfolio.DEFAULT_ID)));
+        assertEquals(historyBefore, ids(tradeService.getTradeHistoryWithItem(Portfolio.DEFAULT_ID, 11L)));
+        assertEquals(rangeBefore, ids(tradeService.getTradesByDateRangeWithItem(Portfolio.DEFAULT_ID, start, end)));
+        assertEquals(dailyBefore, tradeService.dailySummary(Portfolio.DEFAULT_ID, start, end));
+        assertEquals(poolBefore, investmentPoolService.getInvestmentPoolStatistics(Portfolio.DEFAULT_ID));
+
+        TradeWithItemDTO archived = tradeService.getTradeHistoryWithItem(Portfolio.DEFAULT_ID, 12L).get(0);
+        assertEquals("火蛇", archived.getCnName());
+        assertEquals(new BigDecimal("450.0000"), archived.getTotalAmount());
+        assertEquals(OffsetDateTime.parse("2024-03-01T09:00:00Z"), archived.getCreatedAt());
+
+        // 没有新的过期交易时不产生新段
+        assertEquals(0, tradeArchiveService.archiveBefore(OffsetDateTime.parse("2025-01-01T00:00:00Z")).trades());
+        assertEquals(2, tradeSegmentStore.segments().size());
+    }
+
+    private void createTrade(Long nameId, Trade.Type type, int quantity, String unitPrice, String createdAt) {
+        tradeService.createTrade(Trade.builder().nameId(nameId).type(type).quantity(quantity)
+                .unitPrice(new BigDecimal(unitPrice)).createdAt(OffsetDateTime.parse(createdAt)).build());
+    }
+
+    private static List<Long> ids(List<TradeWithItemDTO> trades) {
+        return trades.stream().map(TradeWithItemDTO::getId).toList();
+    }
+}
@@ -0,0 +1,90 @@
+package com.cs.csinventory.service.archive;
+
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 归档段文件的写入、内存映射读取和头部索引
+ */
+class TradeSegmentTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsTradesThroughCompressedSegment() throws IOException {
+        List<ArchivedTrade> trades = randomTrades(5_000);
+        Path file = directory.resolve("trades" + TradeSegment.EXTENSION);
+        TradeSegment.write(file, trades);
+
+        TradeSegment segment = TradeSegment.open(file);
+        assertEquals(trades, segment.read());
+        assertEquals(trades.size(), segment.rowCount());
+        assertEquals(trades.get(0).createdAtMicros(), segment.minCreatedAtMicros());
+        assertEquals(trades.get(trades.size() - 1).createdAtMicros(), segment.maxCreatedAtMicros());
+        // 列式 + 增量编码后压缩，应明显小于原始行大小
+        assertTrue(Files.size(file) < trades.size() * 41L / 2, "段文件大小: " + Files.size(file));
+    }
+
+    @Test
+    void headerIndexFiltersByNameIdAndTime() {
+        List<ArchivedTrade> trades = randomTrades(100);
+        Path file = directory.resolve("trades" + TradeSegment.EXTENSION);
+        TradeSegment.write(file, trades);
+        TradeSegment segment = TradeSegment.open(file);
+
+        assertTrue(trades.stream().allMatch(trade -> segment.containsNameId(trade.nameId())));
+        assertFalse(segment.containsNameId(-1));
+        assertTrue(segment.overlaps(segment.maxCreatedAtMicros(), Long.MAX_VALUE));
+        assertFalse(segment.overlaps(segment.maxCreatedAtMicros() + 1, Long.MAX_VALUE));
+        assertFalse(segment.overlaps(Long.MIN_VALUE, segment.minCreatedAtMicros() - 1));
+    }
+
+    @Test
+    void detectsCorruptedPayload() throws IOException {
+        Path file = directory.resolve("trades" + TradeSegment.EXTENSION);
+        TradeSegment.write(file, randomTrades(1_000));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 10] ^= 0x5A;
+        Files.write(file, bytes, StandardOpenOption.TRUNCATE_EXISTING);
+
+        TradeSegment segment = TradeSegment.open(file);
+        assertThrows(IllegalStateException.class, segment::read);
+    }
+
+    @Test
+    void refusesToOverwriteExistingSegment() {
+        Path file = directory.resolve("trades" + TradeSegment.EXTENSION);
+        TradeSegment.write(file, randomTrades(10));
+        assertThrows(RuntimeException.class, () -> TradeSegment.write(file, randomTrades(10)));
+    }
+
+    private static List<ArchivedTrade> randomTrades(int count) {
+        Random random = new Random(7);
+        List<ArchivedTrade> trades = new ArrayList<>(count);
+        long time = 1_700_000_000_000_000L;
+        long id = 1;
+        for (int i = 0; i < count; i++) {
+            time += random.nextInt(1_000_000_000);
+            id += 1 + random.nextInt(3);
+            int quantity = 1 + random.nextInt(10);
+            long unitPrice = 1 + random.nextInt(50_000_000);
+            trades.add(new ArchivedTrade(id, Portfolio.DEFAULT_ID, 1000 + random.nextInt(200),
+                    random.nextInt(3) == 0 ? Trade.Type.SELL : Trade.Type.BUY,
+                    unitPrice, quantity, unitPrice * quantity, time));
+        }
+        return trades;
+    }
+}
@@ -0,0 +1,143 @@
+package com.cs.csinventory.service.backfill;
+
+import com.cs.csinventory.domain.Inventory;
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.InventoryRepository;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.service.TradeService;
+import com.cs.csinventory.service.dto.SyncPageDTO;
+import com.cs.csinventory.service.dto.TradeWithItemDTO;
+import com.cs.csinventory.service.sync.ChangeLog;
+import com.cs.csinventory.service.sync.SyncService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 历史交易回填：乱序 CSV 插入后按时间重放，库存与按时间顺序逐笔创建交易的结果一致
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:backfill;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.trades.backfill.batch-rows=2",
+        "app.trades.backfill.replay-page=2"
+})
+class TradeBackfillTests {
+
+    @Autowired
+    private TradeBackfillService backfillService;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Test
+    void replaysOutOfOrderRowsLikeChronologicalTrades() throws Exception {
+        saveItem(801L);
+        saveItem(802L);
+        // 参照：按时间顺序逐笔创建
+        createTrade(801L, Trade.Type.BUY, 2, "10.00", "2025-01-01T00:00:00Z");
+        createTrade(801L, Trade.Type.BUY, 3, "13.3333", "2025-01-02T00:00:00Z");
+        createTrade(801L, Trade.Type.SELL, 4, "20.00", "2025-01-03T00:00:00Z");
+        createTrade(801L, Trade.Type.BUY, 1, "11.50", "2025-01-04T00:00:00Z");
+        long since = changeLog.latestSeq();
+
+        TradeBackfillService.BackfillResult result = backfillService.backfill(Portfolio.DEFAULT_ID, new StringReader("""
+                name_id,type,unit_price,quantity,created_at,note
+                802,SELL,20.00,4,2025-01-03T00:00:00Z,
+                802,buy,11.50,1,2025-01-04T00:00:00,
+                999,BUY,1.00,1,2025-01-01T00:00:00Z,unknown item
+
+                802,BUY,10.00,2,2025-01-01T08:00:00+08:00,
+                802,BUY,oops,3,2025-01-02T00:00:00Z,
+                802,BUY,13.3333,3,2025-01-02T00:00:00Z,
+                """));
+
+        assertEquals(6, result.totalRows());
+        assertEquals(4, result.insertedTrades());
+        assertEquals(2, result.rejectedRows());
+        assertEquals(List.of("第 4 行: 物品不存在，nameId: 999", "第 7 行: 格式错误: 802,BUY,oops,3,2025-01-02T00:00:00Z,"),
+                result.errors());
+        assertEquals(1, result.replayedItems());
+        assertTrue(result.inconsistentNameIds().isEmpty());
+
+        Inventory expected = inventoryRepository.findByPortfolioIdAndNameId(Portfolio.DEFAULT_ID, 801L).orElseThrow();
+        Inventory actual = inventoryRepository.findByPortfolioIdAndNameId(Portfolio.DEFAULT_ID, 802L).orElseThrow();
+        assertEquals(expected.getCurrentQuantity(), actual.getCurrentQuantity());
+        assertEquals(expected.getWeightedAverageCost(), actual.getWeightedAverageCost());
+        assertEquals(expected.getTotalInvestmentCost(), actual.getTotalInvestmentCost());
+
+        // 原始时间保留，交易和库存都进入变更日志
+        List<TradeWithItemDTO> history = tradeService.getTradeHistoryWithItem(Portfolio.DEFAULT_ID, 802L);
+        assertEquals(OffsetDateTime.parse("2025-01-04T00:00:00Z"), history.get(0).getCreatedAt().withOffsetSameInstant(ZoneOffset.UTC));
+        SyncPageDTO changes = syncService.changesSince(Portfolio.DEFAULT_ID, since, 100);
+        assertEquals(4, changes.trades().size());
+        assertEquals(List.of(802L), changes.inventory().stream().map(inv -> inv.getNameId()).toList());
+    }
+
+    @Test
+    void reportsItemsWhoseReplayOversells() throws Exception {
+        saveItem(803L);
+        createTrade(803L, Trade.Type.BUY, 1, "5.00", "2025-02-01T00:00:00Z");
+
+        TradeBackfillService.BackfillResult result = backfillService.backfill(Portfolio.DEFAULT_ID, new StringReader("""
+                nameId,type,unitPrice,quantity,createdAt
+                803,SELL,6.00,2,2025-01-15T00:00:00Z
+                """));
+
+        assertEquals(List.of(803L), result.inconsistentNameIds());
+        Inventory inventory = inventoryRepository.findByPortfolioIdAndNameId(Portfolio.DEFAULT_ID, 803L).orElseThrow();
+        assertEquals(1, inventory.getCurrentQuantity());
+        assertTrue(result.errors().isEmpty());
+    }
+
+    @Test
+    void rejectsPricesThatRoundToZeroOrOverflow() throws Exception {
+        saveItem(804L);
+
+        TradeBackfillService.BackfillResult result = backfillService.backfill(Portfolio.DEFAULT_ID, new StringReader("""
+                nameId,type,unitPrice,quantity,createdAt
+                804,BUY,0.00004,1,2025-03-01T00:00:00Z
+                804,BUY,1e30,1,2025-03-02T00:00:00Z
+                804,BUY,900000000000000,100000,2025-03-03T00:00:00Z
+                804,BUY,0.00005,2,2025-03-04T00:00:00Z
+                """));
+
+        assertEquals(1, result.insertedTrades());
+        assertEquals(List.of("第 2 行: 单价必须大于0", "第 3 行: 单价超出范围", "第 4 行: 总金额超出范围"),
+                result.errors());
+        Inventory inventory = inventoryRepository.findByPortfolioIdAndNameId(Portfolio.DEFAULT_ID, 804L).orElseThrow();
+        assertEquals(new BigDecimal("0.0001"), inventory.getWeightedAverageCost());
+    }
+
+    private void saveItem(long nameId) {
+        itemRepository.save(Item.builder().marketHashName("Item " + nameId).cnName("物品" + nameId)
+                .enName("Item " + nameId).nameId(nameId).build());
+    }
+
+    private void createTrade(long nameId, Trade.Type type, int quantity, String unitPrice, String createdAt) {
+        tradeService.createTrade(Trade.builder().nameId(nameId).type(type).quantity(quantity)
+                .unitPrice(new BigDecimal(unitPrice)).createdAt(OffsetDateTime.parse(createdAt)).build());
+    }
+}
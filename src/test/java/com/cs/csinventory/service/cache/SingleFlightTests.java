@@ -0,0 +1,146 @@
+package com.cs.csinventory.service.cache;
+
+import com.cs.csinventory.service.sync.DataVersions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 相同计算合并：同时到达的相同请求共享一次计算和它的异常，版本或参数不同时各自计算，等待有超时
+ */
+class SingleFlightTests {
+
+    private static final long PORTFOLIO = 1L;
+
+    private final DataVersions dataVersions = new DataVersions();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Test
+    void concurrentIdenticalCallsShareOneComputation() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(dataVersions, Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> slow = () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "pool";
+        };
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("pool", PORTFOLIO, List.of("a"), slow)));
+        }
+        waitUntil(() -> stats(singleFlight).coalesced() == 7);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("pool", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(new SingleFlight.OperationStats(1, 7, 0, 0), stats(singleFlight));
+        assertEquals(0, singleFlight.stats().inFlight());
+
+        // 计算完成后不缓存结果
+        assertEquals("again", singleFlight.execute("pool", PORTFOLIO, List.of("a"), () -> "again"));
+    }
+
+    @Test
+    void failurePropagatesToEveryWaiter() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(dataVersions, Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("统计任务超时");
+        Supplier<String> failing = () -> {
+            await(release);
+            throw failure;
+        };
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("pool", PORTFOLIO, List.of("a"), failing)));
+        }
+        waitUntil(() -> stats(singleFlight).coalesced() == 3);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(new SingleFlight.OperationStats(1, 3, 1, 0), stats(singleFlight));
+        // 失败后不保留，下一次请求重新计算
+        assertEquals("ok", singleFlight.execute("pool", PORTFOLIO, List.of("a"), () -> "ok"));
+    }
+
+    @Test
+    void differentArgumentsOrVersionsComputeSeparately() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(dataVersions, Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> singleFlight.execute("pool", PORTFOLIO, List.of("a"), () -> {
+            await(release);
+            return "v1";
+        }));
+        waitUntil(() -> singleFlight.stats().inFlight() == 1);
+
+        assertEquals("b", singleFlight.execute("pool", PORTFOLIO, List.of("b"), () -> "b"));
+        assertEquals("other", singleFlight.execute("pool", PORTFOLIO + 1, List.of("a"), () -> "other"));
+        // 写入提交后开始的请求不使用提交前开始的计算
+        dataVersions.portfolioChanged(PORTFOLIO);
+        assertEquals("v2", singleFlight.execute("pool", PORTFOLIO, List.of("a"), () -> "v2"));
+
+        release.countDown();
+        assertEquals("v1", first.get(10, TimeUnit.SECONDS));
+        assertEquals(new SingleFlight.OperationStats(4, 0, 0, 0), stats(singleFlight));
+    }
+
+    @Test
+    void waitersTimeOut() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(dataVersions, Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute("pool", PORTFOLIO, List.of("a"), () -> {
+            await(release);
+            return "slow";
+        }));
+        waitUntil(() -> singleFlight.stats().inFlight() == 1);
+
+        assertThrows(IllegalStateException.class,
+                () -> singleFlight.execute("pool", PORTFOLIO, List.of("a"), () -> "unused"));
+        release.countDown();
+        // 超时不影响正在进行的计算
+        assertEquals("slow", leader.get(10, TimeUnit.SECONDS));
+        assertEquals(new SingleFlight.OperationStats(1, 1, 0, 1), stats(singleFlight));
+    }
+
+    private static SingleFlight.OperationStats stats(SingleFlight singleFlight) {
+        return singleFlight.stats().operations().getOrDefault("pool", new SingleFlight.OperationStats(0, 0, 0, 0));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("等待超时");
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.cs.csinventory.service.catalog;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.service.ItemService;
+import com.cs.csinventory.service.cache.ItemCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 物品目录增量导入：相同文件直接跳过，按内容哈希只写入新增和变化的物品
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalog-import;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.items.import.batch-rows=2"
+})
+class CatalogImportServiceTests {
+
+    @Autowired
+    private CatalogImportService importService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private ItemCache itemCache;
+
+    @Test
+    void importsOnlyNewAndChangedItems() {
+        // 通过接口新建、没有内容哈希的物品
+        itemRepository.save(Item.builder().marketHashName("Glock-18 | Fade").enName("Fade").cnName("渐变之色")
+                .nameId(1404L).build());
+        String first = """
+                {"AK-47 | Redline": {"en_name": "Redline", "cn_name": "红线", "name_id": 1401},
+                 "AWP | Asiimov": {"en_name": "Asiimov", "cn_name": "二西莫夫", "name_id": 1402},
+                 "M4A4 | Howl": {"en_name": "Howl", "cn_name": "咆哮", "name_id": 1403},
+                 "Glock-18 | Fade": {"en_name": "Fade", "cn_name": "渐变之色", "name_id": 1404}}
+                """;
+        ItemService.ImportResult initial = importService.importCatalog(bytes(first));
+        assertEquals(3, initial.importedCount);
+        assertEquals(1, initial.unchangedCount);
+        assertEquals(4, initial.totalItems);
+        assertEquals("红线", itemCache.findByNameId(1401L).orElseThrow().getCnName());
+
+        // 完全相同的文件不再比较
+        ItemService.ImportResult same = importService.importCatalog(bytes(first));
+        assertTrue(same.fileUnchanged);
+        assertEquals(4, same.unchangedCount);
+
+        // 1401 改名，1402 不变，1403 的 marketHashName 变化，1405 新增，
+        // 1406 使用了数据库中属于 1403 的名称，1401 在文件中重复，最后一条缺少字段
+        ItemService.ImportResult changed = importService.importCatalog(bytes("""
+                {"AK-47 | Redline": {"en_name": "Redline", "cn_name": "红线（新）", "name_id": 1401},
+                 "AWP | Asiimov": {"en_name": "Asiimov", "cn_name": "二西莫夫", "name_id": 1402},
+                 "M4A4 | Howl (Souvenir)": {"en_name": "Howl", "cn_name": "咆哮", "name_id": 1403},
+                 "Glock-18 | Fade": {"en_name": "Fade", "cn_name": "渐变之色", "name_id": 1404},
+                 "USP-S | Kill Confirmed": {"en_name": "Kill Confirmed", "cn_name": "枪响人亡", "name_id": 1405},
+                 "M4A4 | Howl": {"en_name": "Howl", "cn_name": "咆哮", "name_id": 1406},
+                 "AK-47 | Redline (Copy)": {"en_name": "Redline", "cn_name": "红线", "name_id": 1401},
+                 "Broken": {"en_name": "Broken"}}
+                """));
+        assertFalse(changed.fileUnchanged);
+        assertEquals(1, changed.importedCount);
+        assertEquals(2, changed.updatedCount);
+        assertEquals(2, changed.unchangedCount);
+        assertEquals(3, changed.skippedCount);
+        assertEquals(8, changed.totalItems);
+
+        // 更新经变更日志使物品缓存失效
+        assertEquals("红线（新）", itemCache.findByNameId(1401L).orElseThrow().getCnName());
+        assertEquals("M4A4 | Howl (Souvenir)", itemRepository.findByNameId(1403L).orElseThrow().getMarketHashName());
+        assertTrue(itemRepository.findByNameId(1405L).isPresent());
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,105 @@
+package com.cs.csinventory.service.leaderboard;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.ServiceTestSupport;
+import com.cs.csinventory.service.dto.LeaderboardEntryDTO;
+import com.cs.csinventory.service.dto.LeaderboardsDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 实时排行榜：交易提交后增量更新，结果与从数据库重建一致
+ */
+class LeaderboardServiceTests extends ServiceTestSupport {
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Test
+    void ranksItemsIncrementally() {
+        long portfolio = portfolioService.createPortfolio("leaderboards").getId();
+        saveItem(1301L);
+        saveItem(1302L);
+        saveItem(1303L);
+        assertTrue(leaderboardService.getLeaderboards(portfolio, 10).largestPositions().isEmpty());
+
+        // 1301: 持仓 3@10（另有一笔 10 天前买入的 1@10）；1302: 买入 2@10 卖出 1@25，持仓 1@10；1303: 买入 2@50 卖出 1@40
+        tradeService.createTrade(Trade.builder().portfolioId(portfolio).nameId(1301L).type(Trade.Type.BUY).quantity(1)
+                .unitPrice(new BigDecimal("10.00")).createdAt(OffsetDateTime.now().minusDays(10)).build());
+        trade(portfolio, 1301L, Trade.Type.BUY, 2, "10.00");
+        trade(portfolio, 1302L, Trade.Type.BUY, 2, "10.00");
+        trade(portfolio, 1302L, Trade.Type.SELL, 1, "25.00");
+        trade(portfolio, 1303L, Trade.Type.BUY, 2, "50.00");
+        Trade sell = trade(portfolio, 1303L, Trade.Type.SELL, 1, "40.00");
+
+        LeaderboardsDTO boards = leaderboardService.getLeaderboards(portfolio, 10);
+        assertEquals(List.of(1303L, 1301L, 1302L), nameIds(boards.largestPositions()));
+        assertEquals(new BigDecimal("50.0000"), boards.largestPositions().get(0).value());
+        assertEquals(List.of(1302L, 1303L), nameIds(boards.topRealizedProfit()));
+        assertEquals(new BigDecimal("15.0000"), boards.topRealizedProfit().get(0).value());
+        assertEquals(new BigDecimal("-10.0000"), boards.topRealizedProfit().get(1).value());
+        // 利润率 = 已实现盈利 / 已卖出部分的成本：1302 为 15 / 10，1303 为 -10 / 50
+        assertEquals(List.of(1302L, 1303L), nameIds(boards.bestRealizedMargin()));
+        assertEquals(new BigDecimal("1.5000"), boards.bestRealizedMargin().get(0).value());
+        assertEquals(new BigDecimal("-0.2000"), boards.bestRealizedMargin().get(1).value());
+        assertEquals(List.of(1301L, 1302L, 1303L), nameIds(boards.mostTraded()));
+        assertEquals("物品1301", boards.mostTraded().get(0).cnName());
+        assertEquals(1, boards.mostTraded().get(0).rank());
+        // 10 天前的交易不计入最近 7 天
+        assertEquals(List.of(1302L, 1303L, 1301L), nameIds(boards.mostTradedThisWeek()));
+        assertEquals(BigDecimal.ONE, boards.mostTradedThisWeek().get(2).value());
+        assertEquals(1, leaderboardService.getLeaderboards(portfolio, 1).mostTraded().size());
+
+        // 删除卖出交易：1303 持仓成本恢复、移出盈利榜
+        tradeService.deleteTrade(portfolio, sell.getId());
+        boards = leaderboardService.getLeaderboards(portfolio, 10);
+        assertEquals(List.of(1303L, 1301L, 1302L), nameIds(boards.largestPositions()));
+        assertEquals(new BigDecimal("100.0000"), boards.largestPositions().get(0).value());
+        assertEquals(List.of(1302L), nameIds(boards.topRealizedProfit()));
+        assertEquals(List.of(1302L), nameIds(boards.bestRealizedMargin()));
+        assertEquals(List.of(1302L, 1301L, 1303L), nameIds(boards.mostTradedThisWeek()));
+
+        // 增量结果与从数据库重建一致
+        leaderboardService.onInventoryChanged(InventoryChangedEvent.rebuilt(portfolio));
+        assertEquals(boards, leaderboardService.getLeaderboards(portfolio, 10));
+    }
+
+    @Test
+    void recentTradesExpireDayByDay() {
+        LocalDate today = LocalDate.of(2026, 10, 19);
+        LeaderboardService.Board board = new LeaderboardService.Board(today);
+        // 窗口为 10-13 至 10-19
+        board.count(1L, LocalDate.of(2026, 10, 12), 5);
+        board.count(1L, LocalDate.of(2026, 10, 13), 2);
+        board.count(2L, LocalDate.of(2026, 10, 15), 3);
+        board.count(1L, LocalDate.of(2026, 10, 19), 1);
+        assertEquals(List.of(new RankedSet.Ranked(1L, 3), new RankedSet.Ranked(2L, 3)), recent(board));
+
+        board.expire(today.plusDays(1));
+        assertEquals(List.of(new RankedSet.Ranked(2L, 3), new RankedSet.Ranked(1L, 1)), recent(board));
+        // 同一天重复移出不影响计数
+        board.expire(today.plusDays(1));
+        assertEquals(List.of(new RankedSet.Ranked(2L, 3), new RankedSet.Ranked(1L, 1)), recent(board));
+
+        board.expire(today.plusDays(6));
+        assertEquals(List.of(new RankedSet.Ranked(1L, 1)), recent(board));
+        board.expire(today.plusDays(7));
+        assertEquals(List.of(), recent(board));
+    }
+
+    private static List<RankedSet.Ranked> recent(LeaderboardService.Board board) {
+        return board.tradedRecently().top(10);
+    }
+
+    private static List<Long> nameIds(List<LeaderboardEntryDTO> entries) {
+        return entries.stream().map(LeaderboardEntryDTO::nameId).toList();
+    }
+}
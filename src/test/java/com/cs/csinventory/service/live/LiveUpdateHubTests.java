@@ -0,0 +1,88 @@
+package com.cs.csinventory.service.live;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 推送中心的广播和按客户端背压
+ */
+class LiveUpdateHubTests {
+
+    @Test
+    void slowClientFallsBackToResyncWithoutBlockingOthers() throws Exception {
+        LiveUpdateHub hub = new LiveUpdateHub(4);
+        CountDownLatch release = new CountDownLatch(1);
+        List<LiveUpdate> slow = new CopyOnWriteArrayList<>();
+        List<LiveUpdate> fast = new CopyOnWriteArrayList<>();
+        hub.subscribe(update -> {
+            await(release);
+            slow.add(update);
+        });
+        hub.subscribe(fast::add);
+
+        for (int i = 0; i < 100; i++) {
+            hub.broadcast(new LiveUpdate(LiveUpdate.TRADE_CREATED, i));
+            // 快速客户端每条都能及时写出，慢客户端的积压不影响它
+            int expected = i + 1;
+            waitUntil(() -> fast.size() == expected);
+        }
+        release.countDown();
+        waitUntil(() -> slow.stream().anyMatch(update -> LiveUpdate.RESYNC.equals(update.event())));
+
+        assertEquals(100, fast.stream().filter(update -> LiveUpdate.TRADE_CREATED.equals(update.event())).count());
+        assertTrue(slow.size() < 100, "慢客户端应丢弃积压的增量");
+        assertTrue(hub.resyncCount() >= 1);
+        assertEquals(2, hub.subscriberCount());
+    }
+
+    @Test
+    void failedClientIsRemoved() throws Exception {
+        LiveUpdateHub hub = new LiveUpdateHub(4);
+        hub.subscribe(update -> {
+            throw new IOException("连接已断开");
+        });
+        hub.broadcast(new LiveUpdate(LiveUpdate.POOL, "x"));
+        waitUntil(() -> !hub.hasSubscribers());
+        assertEquals(0, hub.subscriberCount());
+    }
+
+    @Test
+    void closedSubscriberStopsReceiving() throws Exception {
+        LiveUpdateHub hub = new LiveUpdateHub(4);
+        List<LiveUpdate> received = new CopyOnWriteArrayList<>();
+        LiveUpdateHub.Subscriber subscriber = hub.subscribe(received::add);
+        hub.broadcast(new LiveUpdate(LiveUpdate.POOL, 1));
+        waitUntil(() -> received.size() == 1);
+
+        subscriber.close();
+        hub.broadcast(new LiveUpdate(LiveUpdate.POOL, 2));
+        Thread.sleep(50);
+        assertEquals(1, received.size());
+        assertFalse(hub.hasSubscribers());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("等待超时");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.cs.csinventory.service.live;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.service.TradeService;
+import com.cs.csinventory.service.dto.InventoryWithItemDTO;
+import com.cs.csinventory.service.dto.TradeWithItemDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.cs.csinventory.service.live.LiveUpdateHubTests.waitUntil;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 交易提交后推送的增量内容；回滚的交易不推送
+ */
+@SpringBootTest(properties =
+        "spring.datasource.url=jdbc:h2:mem:live-updates;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+class LiveUpdatePublisherTests {
+
+    @Autowired
+    private LiveUpdateHub hub;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    private final List<LiveUpdate> received = new CopyOnWriteArrayList<>();
+    private LiveUpdateHub.Subscriber subscriber;
+
+    @BeforeEach
+    void subscribe() {
+        if (itemRepository.findByNameId(21L).isEmpty()) {
+            itemRepository.save(Item.builder().marketHashName("Karambit | Doppler").cnName("多普勒").enName("Doppler").nameId(21L).build());
+        }
+        subscriber = hub.subscribe(received::add);
+    }
+
+    @AfterEach
+    void unsubscribe() {
+        subscriber.close();
+    }
+
+    @Test
+    void pushesTradeInventoryAndPoolAfterCommit() throws Exception {
+        Trade buy = tradeService.createTrade(trade(Trade.Type.BUY, 3));
+        waitUntil(() -> events().containsAll(List.of(LiveUpdate.TRADE_CREATED, LiveUpdate.INVENTORY, LiveUpdate.POOL)));
+
+        TradeWithItemDTO created = (TradeWithItemDTO) find(LiveUpdate.TRADE_CREATED).data();
+        assertEquals(buy.getId(), created.getId());
+        assertEquals("多普勒", created.getCnName());
+        InventoryWithItemDTO inventory = (InventoryWithItemDTO) find(LiveUpdate.INVENTORY).data();
+        assertEquals(3, inventory.getCurrentQuantity());
+        assertTrue(((PoolHeadlineDTO) find(LiveUpdate.POOL).data()).totalBuyTrades() >= 1);
+
+        received.clear();
+        tradeService.deleteTrade(Portfolio.DEFAULT_ID, buy.getId());
+        waitUntil(() -> events().containsAll(List.of(LiveUpdate.TRADE_DELETED, LiveUpdate.INVENTORY_DELETED)));
+        assertEquals(buy.getId(), ((Map<?, ?>) find(LiveUpdate.TRADE_DELETED).data()).get("id"));
+    }
+
+    @Test
+    void rolledBackTradeIsNotPushed() throws Exception {
+        assertThrows(IllegalStateException.class, () -> tradeService.createTrade(trade(Trade.Type.SELL, 1_000)));
+        Thread.sleep(100);
+        assertTrue(received.isEmpty());
+    }
+
+    private Trade trade(Trade.Type type, int quantity) {
+        return Trade.builder().nameId(21L).type(type).quantity(quantity).unitPrice(new BigDecimal("88.00")).build();
+    }
+
+    private List<String> events() {
+        return received.stream().map(LiveUpdate::event).toList();
+    }
+
+    private LiveUpdate find(String event) {
+        return received.stream().filter(update -> event.equals(update.event())).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,138 @@
+package com.cs.csinventory.service.money;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Money 定点运算的性质测试：随机输入下与原 BigDecimal 实现（按数据库列 scale = 4 舍入后）结果完全一致
+ */
+class MoneyTests {
+
+    private static final int ROUNDS = 200_000;
+
+    private final Random random = new Random(20261018L);
+
+    @Test
+    void conversionRoundTrips() {
+        for (int i = 0; i < ROUNDS; i++) {
+            BigDecimal value = randomAmount();
+            assertEquals(value, Money.toBigDecimal(Money.of(value)));
+        }
+        assertEquals(new BigDecimal("1.2346"), Money.normalize(new BigDecimal("1.23455")));
+        assertEquals(new BigDecimal("-1.2346"), Money.normalize(new BigDecimal("-1.23455")));
+        assertEquals(new BigDecimal("3.0000"), Money.normalize(new BigDecimal("3")));
+    }
+
+    @Test
+    void sumMatchesBigDecimalReduce() {
+        for (int i = 0; i < 2_000; i++) {
+            BigDecimal expected = BigDecimal.ZERO;
+            long actual = 0;
+            int size = random.nextInt(200);
+            for (int j = 0; j < size; j++) {
+                BigDecimal amount = randomAmount();
+                if (random.nextBoolean()) {
+                    expected = expected.add(amount);
+                    actual = Money.add(actual, Money.of(amount));
+                } else {
+                    expected = expected.subtract(amount);
+                    actual = Money.subtract(actual, Money.of(amount));
+                }
+            }
+            assertEquals(0, expected.compareTo(Money.toBigDecimal(actual)));
+        }
+    }
+
+    @Test
+    void weightedAverageMatchesBigDecimalDivide() {
+        for (int i = 0; i < ROUNDS; i++) {
+            BigDecimal total = randomAmount();
+            int quantity = 1 + random.nextInt(10_000);
+            BigDecimal expected = total.divide(BigDecimal.valueOf(quantity), 4, RoundingMode.HALF_UP);
+            assertEquals(expected, Money.toBigDecimal(Money.divide(Money.of(total), quantity)));
+            BigDecimal negated = total.negate().divide(BigDecimal.valueOf(quantity), 4, RoundingMode.HALF_UP);
+            assertEquals(negated, Money.toBigDecimal(Money.divide(Money.of(total.negate()), quantity)));
+        }
+    }
+
+    @Test
+    void unitPriceTimesQuantityMatchesBigDecimalMultiply() {
+        for (int i = 0; i < ROUNDS; i++) {
+            BigDecimal price = randomAmount();
+            int quantity = 1 + random.nextInt(10_000);
+            BigDecimal expected = price.multiply(BigDecimal.valueOf(quantity));
+            assertEquals(expected, Money.toBigDecimal(Money.times(Money.of(price), quantity)));
+        }
+    }
+
+    @Test
+    void partialSellMatchesBigDecimalRatio() {
+        for (int i = 0; i < ROUNDS; i++) {
+            BigDecimal totalCost = randomAmount();
+            int oldQuantity = 2 + random.nextInt(5_000);
+            int sold = 1 + random.nextInt(oldQuantity - 1);
+
+            // 原 InventoryService 实现，结果写入 scale = 4 的列时按 HALF_UP 舍入
+            BigDecimal sellRatio = BigDecimal.valueOf(sold)
+                    .divide(BigDecimal.valueOf(oldQuantity), 4, RoundingMode.HALF_UP);
+            BigDecimal expected = totalCost.subtract(totalCost.multiply(sellRatio))
+                    .setScale(4, RoundingMode.HALF_UP);
+
+            long ratio = Money.ratio(sold, oldQuantity);
+            long actual = Money.applyRatio(Money.of(totalCost), Money.subtract(Money.ONE, ratio));
+
+            assertEquals(sellRatio, Money.toBigDecimal(ratio));
+            assertEquals(expected, Money.toBigDecimal(actual));
+        }
+    }
+
+    @Test
+    void returnRateMatchesBigDecimalDivide() {
+        for (int i = 0; i < ROUNDS; i++) {
+            BigDecimal profit = random.nextBoolean() ? randomAmount() : randomAmount().negate();
+            BigDecimal base = randomAmount().add(new BigDecimal("0.0001"));
+            BigDecimal expected = profit.divide(base, 4, RoundingMode.HALF_UP);
+            assertEquals(expected, Money.toBigDecimal(Money.ratio(Money.of(profit), Money.of(base))));
+        }
+    }
+
+    @Test
+    void ratioFallsBackWhenScalingOverflows() {
+        long numerator = 9_000_000_000_000_000L;
+        long denominator = 7_000_000_000_003L;
+        BigDecimal expected = BigDecimal.valueOf(numerator)
+                .divide(BigDecimal.valueOf(denominator), 4, RoundingMode.HALF_UP);
+        assertEquals(expected, Money.toBigDecimal(Money.ratio(numerator, denominator)));
+    }
+
+    @Test
+    void overflowIsDetected() {
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE / 2, 3));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e20")));
+        assertThrows(ArithmeticException.class, () -> Money.divide(1, 0));
+    }
+
+    private BigDecimal randomAmount() {
+        return amount(random);
+    }
+
+    /**
+     * 生成 0 ~ 1亿 之间、最多4位小数的金额，小额与整数值出现概率更高
+     */
+    private static BigDecimal amount(Random random) {
+        long units = switch (random.nextInt(4)) {
+            case 0 -> random.nextInt(100_000);
+            case 1 -> random.nextInt(1_000_000) * Money.ONE;
+            default -> (long) (random.nextDouble() * 1_000_000_000_000L);
+        };
+        return BigDecimal.valueOf(units, 4);
+    }
+}
@@ -0,0 +1,99 @@
+package com.cs.csinventory.service.prices;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 价格分布摘要：分位数误差、质心数上限、合并和紧凑编码
+ */
+class PriceDigestTests {
+
+    private static final double[] QUANTILES = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+
+    @Test
+    void estimatesQuantilesWithBoundedCentroids() {
+        Random random = new Random(42);
+        long[] prices = new long[100_000];
+        PriceDigest digest = new PriceDigest(100);
+        for (int i = 0; i < prices.length; i++) {
+            // 对数正态分布的价格，单位为定点（4位小数）
+            prices[i] = Math.round(Math.exp(random.nextGaussian() * 0.5 + 4) * 10_000);
+            digest.add(prices[i], 1);
+        }
+        Arrays.sort(prices);
+
+        assertTrue(digest.centroids() <= 100, "质心数: " + digest.centroids());
+        for (double q : QUANTILES) {
+            assertRankError(prices, q, digest.quantile(q), 0.01);
+        }
+        assertEquals(prices[0], digest.quantile(0), 0.0);
+        assertEquals(prices[prices.length - 1], digest.quantile(1), 0.0);
+    }
+
+    @Test
+    void weightsValuesByQuantity() {
+        PriceDigest digest = new PriceDigest(100);
+        digest.add(100, 1);
+        digest.add(200, 8);
+        digest.add(300, 1);
+
+        assertEquals(10, digest.totalWeight());
+        assertEquals(200, digest.quantile(0.5), 0.0);
+    }
+
+    @Test
+    void mergedDigestMatchesSingleDigest() {
+        Random random = new Random(7);
+        long[] prices = new long[20_000];
+        PriceDigest left = new PriceDigest(100);
+        PriceDigest right = new PriceDigest(100);
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = 1_000_000 + random.nextInt(500_000);
+            (i % 2 == 0 ? left : right).add(prices[i], 1);
+        }
+        Arrays.sort(prices);
+
+        left.merge(right);
+
+        assertEquals(prices.length, left.totalWeight());
+        for (double q : QUANTILES) {
+            assertRankError(prices, q, left.quantile(q), 0.01);
+        }
+    }
+
+    @Test
+    void roundTripsCompactEncoding() {
+        Random random = new Random(3);
+        PriceDigest digest = new PriceDigest(100);
+        for (int i = 0; i < 50_000; i++) {
+            digest.add(500_000 + random.nextInt(100_000), 1 + random.nextInt(5));
+        }
+
+        byte[] bytes = digest.toBytes();
+        PriceDigest decoded = PriceDigest.fromBytes(bytes);
+
+        assertTrue(bytes.length < 1024, "编码字节数: " + bytes.length);
+        assertEquals(digest.totalWeight(), decoded.totalWeight());
+        for (double q : QUANTILES) {
+            // 质心均值编码时舍入到定点单位
+            assertEquals(digest.quantile(q), decoded.quantile(q), 1.0);
+        }
+        assertEquals(Double.NaN, PriceDigest.fromBytes(new PriceDigest(100).toBytes()).quantile(0.5));
+        assertThrows(IllegalArgumentException.class, () -> digest.add(1, 0));
+    }
+
+    private static void assertRankError(long[] sorted, double q, double estimate, double tolerance) {
+        int below = 0;
+        while (below < sorted.length && sorted[below] < estimate) {
+            below++;
+        }
+        double rank = (double) below / sorted.length;
+        assertTrue(Math.abs(rank - q) <= tolerance, "q=" + q + " 估计值的实际排名: " + rank);
+    }
+}
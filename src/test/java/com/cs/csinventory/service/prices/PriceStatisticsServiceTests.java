@@ -0,0 +1,103 @@
+package com.cs.csinventory.service.prices;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.ServiceTestSupport;
+import com.cs.csinventory.service.dto.ItemPriceStatsDTO;
+import com.cs.csinventory.service.dto.PriceStatsDTO;
+import com.cs.csinventory.service.sync.ChangeLog;
+import com.cs.csinventory.service.sync.DataChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 成交价格统计：创建交易后增量更新，删除后由定时维护重建，持久化后可按数据库校验
+ */
+class PriceStatisticsServiceTests extends ServiceTestSupport {
+
+    @Autowired
+    private PriceStatisticsService priceStatisticsService;
+
+    @Test
+    void updatesIncrementallyAndRebuildsAfterDelete() {
+        long portfolio = portfolioService.createPortfolio("price-stats").getId();
+        saveItem(1501L);
+        trade(portfolio, 1501L, Trade.Type.BUY, 1, "10.00");
+        Trade expensive = trade(portfolio, 1501L, Trade.Type.BUY, 2, "40.00");
+        trade(portfolio, 1501L, Trade.Type.BUY, 1, "20.00");
+        trade(portfolio, 1501L, Trade.Type.SELL, 1, "35.00");
+
+        ItemPriceStatsDTO item = priceStatisticsService.getPriceStatistics(portfolio, List.of(1501L)).get(0);
+        PriceStatsDTO buy = item.buy();
+        assertEquals("Item 1501", item.enName());
+        assertEquals(3, buy.trades());
+        assertEquals(4, buy.quantity());
+        // (10 + 80 + 20) / 4
+        assertEquals(new BigDecimal("27.5000"), buy.vwap());
+        assertEquals(new BigDecimal("10.0000"), buy.min());
+        assertEquals(new BigDecimal("40.0000"), buy.max());
+        assertEquals(new BigDecimal("20.0000"), buy.last());
+        assertTrue(buy.exact());
+        assertEquals(1, item.sell().quantity());
+        assertEquals(new BigDecimal("35.0000"), item.sell().median());
+
+        tradeService.deleteTrade(portfolio, expensive.getId());
+        buy = priceStatisticsService.getPriceStatistics(portfolio, List.of(1501L)).get(0).buy();
+        assertEquals(2, buy.trades());
+        assertEquals(new BigDecimal("15.0000"), buy.vwap());
+        assertFalse(buy.exact());
+
+        priceStatisticsService.maintain();
+        buy = priceStatisticsService.getPriceStatistics(portfolio, List.of(1501L)).get(0).buy();
+        assertTrue(buy.exact());
+        assertEquals(new BigDecimal("20.0000"), buy.max());
+        Long rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM price_sketches WHERE portfolio_id = ? AND name_id = 1501", Long.class, portfolio);
+        assertEquals(2L, rows);
+        byte[] digest = jdbcTemplate.queryForObject(
+                "SELECT digest FROM price_sketches WHERE portfolio_id = ? AND name_id = 1501 AND type = 'BUY'",
+                byte[].class, portfolio);
+        assertEquals(2, PriceDigest.fromBytes(digest).totalWeight());
+    }
+
+    @Test
+    void revalidatesAfterRemoteWrites() {
+        long portfolio = portfolioService.createPortfolio("price-stats-remote").getId();
+        saveItem(1502L);
+        trade(portfolio, 1502L, Trade.Type.BUY, 1, "10.00");
+        // 其他节点写入的交易没有本地事件
+        jdbcTemplate.update("INSERT INTO trades (id, portfolio_id, name_id, type, unit_price, quantity, total_amount, "
+                        + "created_at) VALUES (?, ?, 1502, 'BUY', 30.0000, 1, 30.0000, ?)",
+                9_150_201L, portfolio, LocalDateTime.of(2030, 1, 1, 0, 0));
+        priceStatisticsService.onDataChanged(new DataChangedEvent(
+                List.of(new ChangeLog.Change(ChangeLog.Entity.TRADE, portfolio, 9_150_201L)), true));
+
+        priceStatisticsService.maintain();
+
+        PriceStatsDTO buy = priceStatisticsService.getPriceStatistics(portfolio, List.of(1502L)).get(0).buy();
+        assertEquals(2, buy.trades());
+        assertEquals(new BigDecimal("30.0000"), buy.last());
+        assertEquals(new BigDecimal("20.0000"), buy.vwap());
+    }
+
+    @Test
+    void returnsEmptySidesAndRejectsOversizedRequests() {
+        ItemPriceStatsDTO missing = priceStatisticsService.getPriceStatistics(null, List.of(999_999L)).get(0);
+        assertNull(missing.buy());
+        assertNull(missing.sell());
+        assertThrows(IllegalArgumentException.class, () -> priceStatisticsService.getPriceStatistics(null, List.of()));
+        List<Long> tooMany = LongStream.rangeClosed(1, PriceStatisticsService.MAX_ITEMS + 1)
+                .boxed().toList();
+        assertThrows(IllegalArgumentException.class, () -> priceStatisticsService.getPriceStatistics(null, tooMany));
+    }
+}
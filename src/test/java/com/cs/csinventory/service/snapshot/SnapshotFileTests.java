@@ -0,0 +1,133 @@
+package com.cs.csinventory.service.snapshot;
+
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.archive.ArchivedTrade;
+import com.cs.csinventory.service.snapshot.SnapshotBlocks.CheckpointRow;
+import com.cs.csinventory.service.snapshot.SnapshotBlocks.ItemRow;
+import com.cs.csinventory.service.snapshot.SnapshotBlocks.RollupRow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 快照文件的块编码、校验和结尾块
+ */
+class SnapshotFileTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsColumnarBlocks() {
+        List<ItemRow> items = List.of(
+                new ItemRow(1, "AK-47 | Redline (Field-Tested)", "红线", "AK-47 | Redline", 42L),
+                new ItemRow(2, "Sticker | Crown", null, "Sticker | Crown", null));
+        List<ArchivedTrade> trades = randomTrades(3_000);
+        Path file = directory.resolve("full" + SnapshotService.EXTENSION);
+        try (SnapshotFile.Writer writer = new SnapshotFile.Writer(file, 1L)) {
+            writer.writeBlock(SnapshotFile.Table.ITEMS, items.size(), SnapshotBlocks.encodeItems(items));
+            writer.writeBlock(SnapshotFile.Table.TRADES, 1_000, SnapshotBlocks.encodeTrades(trades.subList(0, 1_000)));
+            writer.writeBlock(SnapshotFile.Table.TRADES, 2_000, SnapshotBlocks.encodeTrades(trades.subList(1_000, 3_000)));
+        }
+
+        List<ArchivedTrade> read = new ArrayList<>();
+        try (SnapshotFile.Reader reader = new SnapshotFile.Reader(file)) {
+            assertEquals(items, SnapshotBlocks.decodeItems(reader.next()));
+            SnapshotFile.Block block;
+            while ((block = reader.next()) != null) {
+                assertEquals(SnapshotFile.Table.TRADES, block.table());
+                read.addAll(SnapshotBlocks.decodeTrades(block));
+            }
+        }
+        assertEquals(trades, read);
+    }
+
+    @Test
+    void roundTripsArchiveBlocks() {
+        List<RollupRow> rollups = List.of(
+                new RollupRow(1, 19_723, Trade.Type.BUY, 1001, 3, 7, 12_345_678L, 1_704_067_200_000_000L,
+                        1_704_070_800_000_000L),
+                new RollupRow(2, 19_724, Trade.Type.SELL, 1002, 1, 1, 990_000L, 1_704_153_600_000_000L,
+                        1_704_153_600_000_000L));
+        List<CheckpointRow> checkpoints = List.of(
+                new CheckpointRow(1, 1_735_689_600_000_000L, 5_000_000L, 8_000_000L, 3_000_000L),
+                new CheckpointRow(2, 1_735_689_600_000_000L, -100_000L, 0, null));
+        Path file = directory.resolve("archive" + SnapshotService.EXTENSION);
+        try (SnapshotFile.Writer writer = new SnapshotFile.Writer(file, 1L)) {
+            writer.writeBlock(SnapshotFile.Table.ARCHIVE_CHECKPOINTS, checkpoints.size(),
+                    SnapshotBlocks.encodeCheckpoints(checkpoints));
+            writer.writeBlock(SnapshotFile.Table.ARCHIVE_ROLLUPS, rollups.size(), SnapshotBlocks.encodeRollups(rollups));
+        }
+
+        try (SnapshotFile.Reader reader = new SnapshotFile.Reader(file)) {
+            assertEquals(checkpoints, SnapshotBlocks.decodeCheckpoints(reader.next()));
+            assertEquals(rollups, SnapshotBlocks.decodeRollups(reader.next()));
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void detectsCorruptedBlock() throws IOException {
+        Path file = writeTrades("corrupt");
+        byte[] bytes = Files.readAllBytes(file);
+        // 落在压缩数据中间
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(file, bytes);
+
+        try (SnapshotFile.Reader reader = new SnapshotFile.Reader(file)) {
+            assertThrows(IllegalStateException.class, reader::next);
+        }
+    }
+
+    @Test
+    void detectsTruncatedFile() throws IOException {
+        Path file = writeTrades("truncated");
+        byte[] bytes = Files.readAllBytes(file);
+        // 去掉结尾块的最后一个字节
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        try (SnapshotFile.Reader reader = new SnapshotFile.Reader(file)) {
+            assertNotNull(reader.next());
+            assertThrows(IllegalStateException.class, reader::next);
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("other" + SnapshotService.EXTENSION);
+        Files.write(file, new byte[64]);
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotFile.Reader(file));
+    }
+
+    private Path writeTrades(String name) {
+        Path file = directory.resolve(name + SnapshotService.EXTENSION);
+        try (SnapshotFile.Writer writer = new SnapshotFile.Writer(file, 1L)) {
+            writer.writeBlock(SnapshotFile.Table.TRADES, 1_000, SnapshotBlocks.encodeTrades(randomTrades(1_000)));
+        }
+        return file;
+    }
+
+    private static List<ArchivedTrade> randomTrades(int count) {
+        Random random = new Random(46);
+        List<ArchivedTrade> trades = new ArrayList<>(count);
+        long micros = 1_700_000_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            micros += random.nextInt(60_000_000);
+            int quantity = 1 + random.nextInt(20);
+            long unitPrice = 10_000L + random.nextInt(5_000_000);
+            trades.add(new ArchivedTrade(i + 1, 1 + random.nextInt(3), 1000 + random.nextInt(50),
+                    random.nextBoolean() ? Trade.Type.BUY : Trade.Type.SELL, unitPrice, quantity,
+                    unitPrice * quantity, micros));
+        }
+        return trades;
+    }
+}
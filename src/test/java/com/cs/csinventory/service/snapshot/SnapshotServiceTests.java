@@ -0,0 +1,204 @@
+package com.cs.csinventory.service.snapshot;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.InvestmentPoolService;
+import com.cs.csinventory.service.ServiceTestSupport;
+import com.cs.csinventory.service.archive.ArchivedTrade;
+import com.cs.csinventory.service.archive.TradeArchiveService;
+import com.cs.csinventory.service.archive.TradeSegmentStore;
+import com.cs.csinventory.service.dto.DailyFlowDTO;
+import com.cs.csinventory.service.dto.InvestmentPoolDTO;
+import com.cs.csinventory.service.dto.InventoryWithItemDTO;
+import com.cs.csinventory.service.dto.SyncPageDTO;
+import com.cs.csinventory.service.dto.TradeWithItemDTO;
+import com.cs.csinventory.service.sync.ChangeLog;
+import com.cs.csinventory.service.sync.SyncService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 快照导出后清空库再导入：行数、库存、交易和归档数据一致，导入的数据记录在变更日志中，库存与交易不符的物品在结果中报告
+ */
+class SnapshotServiceTests extends ServiceTestSupport {
+
+    private static final String INVENTORY_SQL = """
+            SELECT p.name, i.name_id, i.current_quantity, i.weighted_average_cost, i.total_investment_cost
+            FROM inventory i JOIN portfolios p ON p.id = i.portfolio_id
+            ORDER BY p.name, i.name_id""";
+    private static final String TRADES_SQL = """
+            SELECT p.name, t.name_id, t.type, t.unit_price, t.quantity, t.total_amount, t.created_at
+            FROM trades t JOIN portfolios p ON p.id = t.portfolio_id
+            ORDER BY p.name, t.name_id, t.created_at, t.quantity""";
+    private static final String ROLLUPS_SQL = """
+            SELECT trade_date, type, name_id, trade_count, total_quantity, total_amount, first_trade_at, last_trade_at
+            FROM trade_archive_rollups ORDER BY trade_date, type, name_id""";
+    private static final String CHECKPOINT_SQL =
+            "SELECT archived_before, net_flow, peak_net_investment, first_buy_amount FROM trade_archive_checkpoint";
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Autowired
+    private TradeArchiveService tradeArchiveService;
+
+    @Autowired
+    private TradeSegmentStore segmentStore;
+
+    @Autowired
+    private InvestmentPoolService investmentPoolService;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private SyncService syncService;
+
+    @Test
+    void exportsAndImportsIntoEmptyDatabase() {
+        clear();
+        long portfolio = portfolioService.createPortfolio("snapshot").getId();
+        long defaultPortfolio = portfolioService.getAllPortfolios().get(0).getId();
+        saveItem(4601L);
+        saveItem(4602L);
+        saveItem(4603L);
+        trade(portfolio, 4601L, Trade.Type.BUY, 3, "10.00");
+        trade(portfolio, 4601L, Trade.Type.BUY, 1, "20.00");
+        trade(portfolio, 4601L, Trade.Type.SELL, 2, "25.00");
+        trade(portfolio, 4602L, Trade.Type.BUY, 5, "1.50");
+        trade(defaultPortfolio, 4601L, Trade.Type.BUY, 1, "12.00");
+        trade(defaultPortfolio, 4603L, Trade.Type.BUY, 2, "30.00");
+        List<Map<String, Object>> items = jdbcTemplate.queryForList(
+                "SELECT name_id, market_hash_name, cn_name, en_name FROM items ORDER BY name_id");
+        List<Map<String, Object>> inventory = jdbcTemplate.queryForList(INVENTORY_SQL);
+        List<Map<String, Object>> trades = jdbcTemplate.queryForList(TRADES_SQL);
+
+        SnapshotService.ExportResult exported = snapshotService.export("full");
+        assertEquals("full" + SnapshotService.EXTENSION, exported.file());
+        assertEquals(3, exported.items());
+        assertEquals(4, exported.inventory());
+        assertEquals(6, exported.trades());
+        assertThrows(IllegalArgumentException.class, () -> snapshotService.export("full"));
+        assertThrows(IllegalArgumentException.class, () -> snapshotService.export("../escape"));
+        assertThrows(IllegalStateException.class, () -> snapshotService.importSnapshot("full"));
+
+        clear();
+        long since = changeLog.latestSeq();
+        SnapshotService.ImportResult imported = snapshotService.importSnapshot("full.snap");
+        assertEquals(exported.bytes(), imported.bytes());
+        assertEquals(3, imported.items());
+        assertEquals(4, imported.inventory());
+        assertEquals(6, imported.trades());
+        assertEquals(0, imported.inconsistentItems(), imported.inconsistencies().toString());
+        assertEquals(items, jdbcTemplate.queryForList(
+                "SELECT name_id, market_hash_name, cn_name, en_name FROM items ORDER BY name_id"));
+        assertEquals(inventory, jdbcTemplate.queryForList(INVENTORY_SQL));
+        assertEquals(trades, jdbcTemplate.queryForList(TRADES_SQL));
+
+        // 导入的物品、库存和交易写入变更日志：增量同步客户端收到，其他节点轮询到后失效缓存
+        assertEquals(3 + 4 + 6, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM change_log WHERE seq > ? AND origin = ?", Integer.class, since, changeLog.origin()));
+        SyncPageDTO page = syncService.changesSince(portfolio, since, 100);
+        assertEquals(List.of(4601L, 4602L, 4603L), page.items().stream().map(Item::getNameId).sorted().toList());
+        assertEquals(List.of(4601L, 4602L), page.inventory().stream().map(InventoryWithItemDTO::getNameId).sorted().toList());
+        assertEquals(List.of(4601L, 4601L, 4601L, 4602L),
+                page.trades().stream().map(TradeWithItemDTO::getNameId).sorted().toList());
+
+        // 导入后的数据可以继续正常交易（主键从 id_generators 预留，不与后续插入冲突）
+        trade(portfolio, 4601L, Trade.Type.SELL, 1, "30.00");
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT current_quantity FROM inventory WHERE portfolio_id = ? AND name_id = 4601", Integer.class, portfolio));
+    }
+
+    @Test
+    void reportsInventoryThatDoesNotMatchTrades() {
+        clear();
+        long portfolio = portfolioService.createPortfolio("snapshot-drift").getId();
+        saveItem(4611L);
+        trade(portfolio, 4611L, Trade.Type.BUY, 4, "5.00");
+        jdbcTemplate.update("UPDATE inventory SET current_quantity = 7 WHERE portfolio_id = ? AND name_id = 4611",
+                portfolio);
+        snapshotService.export("drift");
+
+        clear();
+        SnapshotService.ImportResult imported = snapshotService.importSnapshot("drift");
+        assertEquals(1, imported.inconsistentItems());
+        assertTrue(imported.inconsistencies().stream().anyMatch(error -> error.contains("物品 4611")),
+                imported.inconsistencies().toString());
+    }
+
+    @Test
+    void exportsAndImportsArchivedTrades() {
+        clear();
+        long portfolio = portfolioService.createPortfolio("snapshot-archive").getId();
+        saveItem(4621L);
+        saveItem(4622L);
+        trade(portfolio, 4621L, Trade.Type.BUY, 4, "100.00", "2024-01-05T10:00:00Z");
+        trade(portfolio, 4622L, Trade.Type.BUY, 2, "50.00", "2024-01-10T10:00:00Z");
+        trade(portfolio, 4621L, Trade.Type.SELL, 2, "150.00", "2024-03-01T10:00:00Z");
+        assertEquals(3, tradeArchiveService.archiveBefore(OffsetDateTime.parse("2025-01-01T00:00:00Z")).trades());
+        // 归档后回填的交易早于已归档的卖出，库存校验按时间合并
+        trade(portfolio, 4621L, Trade.Type.BUY, 1, "100.00", "2024-02-01T10:00:00Z");
+        Trade live = trade(portfolio, 4621L, Trade.Type.BUY, 1, "120.00", "2025-06-01T10:00:00Z");
+        // 归档中途崩溃：段已发布，明细仍在数据库中
+        segmentStore.append(List.of(ArchivedTrade.from(live)));
+
+        OffsetDateTime start = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        OffsetDateTime end = OffsetDateTime.parse("2025-12-31T23:59:59Z");
+        List<String> trades = describe(tradeService.getAllTradesWithItem(portfolio));
+        List<DailyFlowDTO> daily = tradeService.dailySummary(portfolio, start, end);
+        InvestmentPoolDTO pool = investmentPoolService.getInvestmentPoolStatistics(portfolio);
+        List<Map<String, Object>> rollups = jdbcTemplate.queryForList(ROLLUPS_SQL);
+        List<Map<String, Object>> checkpoint = jdbcTemplate.queryForList(CHECKPOINT_SQL);
+
+        SnapshotService.ExportResult exported = snapshotService.export("archive");
+        assertEquals(2, exported.trades());
+        // 同时在数据库和段中的交易只随 trades 导出
+        assertEquals(3, exported.archivedTrades());
+        assertEquals(rollups.size(), exported.archiveRollups());
+        assertEquals(1, exported.archiveCheckpoints());
+
+        // 目标库残留归档数据时拒绝导入，避免重复计入统计
+        jdbcTemplate.update("DELETE FROM trades");
+        jdbcTemplate.update("DELETE FROM inventory");
+        jdbcTemplate.update("DELETE FROM items");
+        assertThrows(IllegalStateException.class, () -> snapshotService.importSnapshot("archive"));
+
+        clear();
+        SnapshotService.ImportResult imported = snapshotService.importSnapshot("archive");
+        assertEquals(2, imported.trades());
+        assertEquals(3, imported.archivedTrades());
+        assertEquals(rollups.size(), imported.archiveRollups());
+        assertEquals(1, imported.archiveCheckpoints());
+        assertEquals(0, imported.inconsistentItems(), imported.inconsistencies().toString());
+        assertEquals(trades, describe(tradeService.getAllTradesWithItem(portfolio)));
+        assertEquals(daily, tradeService.dailySummary(portfolio, start, end));
+        assertEquals(pool, investmentPoolService.getInvestmentPoolStatistics(portfolio));
+        assertEquals(rollups, jdbcTemplate.queryForList(ROLLUPS_SQL));
+        assertEquals(checkpoint, jdbcTemplate.queryForList(CHECKPOINT_SQL));
+        clear();
+    }
+
+    private void clear() {
+        jdbcTemplate.update("DELETE FROM trades");
+        jdbcTemplate.update("DELETE FROM inventory");
+        jdbcTemplate.update("DELETE FROM items");
+        jdbcTemplate.update("DELETE FROM trade_archive_rollups");
+        jdbcTemplate.update("DELETE FROM trade_archive_checkpoint");
+        segmentStore.segments().forEach(segmentStore::discard);
+    }
+
+    /**
+     * 导入后主键重新分配，只比较交易内容
+     */
+    private static List<String> describe(List<TradeWithItemDTO> trades) {
+        return trades.stream().map(trade -> trade.getNameId() + " " + trade.getType() + " " + trade.getQuantity()
+                + " " + trade.getTotalAmount() + " " + trade.getCreatedAt()).toList();
+    }
+}
@@ -0,0 +1,132 @@
+package com.cs.csinventory.service.sync;
+
+import com.cs.csinventory.CsinventoryApplication;
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.service.InvestmentPoolService;
+import com.cs.csinventory.service.TradeService;
+import com.cs.csinventory.service.cache.ItemCache;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 集群缓存一致性：同一进程内启动两个应用实例共用一个数据库，一个节点的写入经变更日志轮询使另一节点的缓存失效
+ */
+class ClusterCacheCoherenceTests {
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void evictsItemWrittenByOtherNode() throws Exception {
+        ItemRepository repositoryB = nodeB.getBean(ItemRepository.class);
+        Item howl = repositoryB.save(item(701L, "咆哮"));
+        repositoryB.save(item(702L, "二西莫夫"));
+        // 先等节点A处理完两条新增，避免新增的失效把随后放入的缓存清掉
+        awaitCaughtUp(nodeA);
+        ItemCache cacheA = nodeA.getBean(ItemCache.class);
+        assertEquals("咆哮", cacheA.findByNameId(701L).orElseThrow().getCnName());
+        cacheA.findByNameId(702L);
+        int cached = cacheA.size();
+
+        howl.setCnName("咆哮（改）");
+        repositoryB.save(howl);
+
+        // 只失效被修改的物品
+        waitUntil(() -> cacheA.size() == cached - 1);
+        assertEquals("咆哮（改）", cacheA.findByNameId(701L).orElseThrow().getCnName());
+    }
+
+    @Test
+    void refreshesStatisticsAfterTradeOnOtherNode() throws Exception {
+        nodeB.getBean(ItemRepository.class).save(item(703L, "渐变"));
+        InvestmentPoolService poolA = nodeA.getBean(InvestmentPoolService.class);
+        int before = poolA.getInvestmentPoolStatistics(Portfolio.DEFAULT_ID).totalBuyTrades();
+
+        buyOn(nodeB, 703L);
+
+        // 统计缓存有效期远长于等待时间，只有失效才能看到新交易
+        waitUntil(() -> poolA.getInvestmentPoolStatistics(Portfolio.DEFAULT_ID).totalBuyTrades() == before + 1);
+    }
+
+    @Test
+    void stopsUsingCachesWhenPollingFallsBehind() throws Exception {
+        nodeB.getBean(ItemRepository.class).save(item(704L, "多普勒"));
+        ChangeLogTailer tailerA = nodeA.getBean(ChangeLogTailer.class);
+        DataVersions versionsA = nodeA.getBean(DataVersions.class);
+        InvestmentPoolService poolA = nodeA.getBean(InvestmentPoolService.class);
+        int before = poolA.getInvestmentPoolStatistics(Portfolio.DEFAULT_ID).totalBuyTrades();
+
+        tailerA.stop();
+        try {
+            buyOn(nodeB, 704L);
+            waitUntil(() -> !versionsA.coherent());
+            assertEquals(before + 1, poolA.getInvestmentPoolStatistics(Portfolio.DEFAULT_ID).totalBuyTrades());
+        } finally {
+            tailerA.start();
+        }
+        // 重新启动后从停止的位置继续，补上停止期间的变更
+        awaitCaughtUp(nodeA);
+        waitUntil(versionsA::coherent);
+    }
+
+    private static void awaitCaughtUp(ConfigurableApplicationContext node) throws InterruptedException {
+        long latest = node.getBean(ChangeLog.class).latestSeq();
+        ChangeLogTailer tailer = node.getBean(ChangeLogTailer.class);
+        waitUntil(() -> tailer.position() >= latest);
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(CsinventoryApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:cluster;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "app.cache.invalidation.poll-interval=50ms",
+                        "app.cache.invalidation.max-staleness=1s",
+                        "app.stats.cache-ttl=10m")
+                .run();
+    }
+
+    private static void buyOn(ConfigurableApplicationContext node, long nameId) {
+        node.getBean(TradeService.class).createTrade(Trade.builder().nameId(nameId).type(Trade.Type.BUY)
+                .quantity(1).unitPrice(new BigDecimal("10.00")).build());
+    }
+
+    private static Item item(long nameId, String cnName) {
+        return Item.builder().marketHashName("Item " + nameId).cnName(cnName).enName("Item " + nameId)
+                .nameId(nameId).build();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("等待超时");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
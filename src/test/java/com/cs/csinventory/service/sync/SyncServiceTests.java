@@ -0,0 +1,114 @@
+package com.cs.csinventory.service.sync;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.service.ItemService;
+import com.cs.csinventory.service.TradeService;
+import com.cs.csinventory.service.dto.SyncPageDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 增量同步：各写入路径都记录变更日志，按序号分页返回 upsert 和删除标记
+ */
+@SpringBootTest(properties =
+        "spring.datasource.url=jdbc:h2:mem:sync;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+class SyncServiceTests {
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void returnsUpsertsAndTombstonesAfterSince() {
+        long start = changeLog.latestSeq();
+        Item item = itemService.createItem(Item.builder()
+                .marketHashName("M4A4 | Howl").cnName("咆哮").enName("Howl").nameId(501L).build());
+        Trade buy = tradeService.createTrade(trade(501L, Trade.Type.BUY, 2));
+        long afterBuy = changeLog.latestSeq();
+
+        SyncPageDTO page = syncService.changesSince(Portfolio.DEFAULT_ID, start, 100);
+        assertEquals(List.of(item.getId()), page.items().stream().map(Item::getId).toList());
+        assertEquals(List.of(buy.getId()), page.trades().stream().map(t -> t.getId()).toList());
+        assertEquals(2, page.inventory().get(0).getCurrentQuantity());
+        assertEquals(afterBuy, page.nextSince());
+        assertFalse(page.hasMore());
+
+        // 删除买入后库存清零被删除，客户端只需要 afterBuy 之后的变更
+        tradeService.deleteTrade(Portfolio.DEFAULT_ID, buy.getId());
+        SyncPageDTO deleted = syncService.changesSince(Portfolio.DEFAULT_ID, afterBuy, 100);
+        assertEquals(List.of(buy.getId()), deleted.deletedTrades());
+        assertEquals(List.of(501L), deleted.deletedInventory());
+        assertTrue(deleted.trades().isEmpty());
+        assertTrue(deleted.items().isEmpty());
+    }
+
+    @Test
+    void pagesInSequenceOrder() {
+        itemService.importItemsFromJson("""
+                {"P250 | Sand Dune": {"en_name": "Sand Dune", "cn_name": "沙丘", "name_id": 601},
+                 "P250 | Nuclear Threat": {"en_name": "Nuclear Threat", "cn_name": "核子威胁", "name_id": 602},
+                 "P250 | Whiteout": {"en_name": "Whiteout", "cn_name": "白化", "name_id": 603}}
+                """);
+        long since = changeLog.latestSeq() - 3;
+
+        SyncPageDTO first = syncService.changesSince(Portfolio.DEFAULT_ID, since, 2);
+        assertTrue(first.hasMore());
+        assertEquals(List.of(601L, 602L), first.items().stream().map(Item::getNameId).toList());
+        SyncPageDTO second = syncService.changesSince(Portfolio.DEFAULT_ID, first.nextSince(), 2);
+        assertFalse(second.hasMore());
+        assertEquals(List.of(603L), second.items().stream().map(Item::getNameId).toList());
+        assertEquals(second.latest(), second.nextSince());
+    }
+
+    @Test
+    void requiresResetAfterPrune() {
+        jdbcTemplate.update("UPDATE change_log_sequence SET pruned_through = last_seq WHERE id = 1");
+        try {
+            SyncPageDTO page = syncService.changesSince(Portfolio.DEFAULT_ID, 0, 100);
+            assertTrue(page.resetRequired());
+            assertEquals(page.latest(), page.nextSince());
+        } finally {
+            jdbcTemplate.update("UPDATE change_log_sequence SET pruned_through = 0 WHERE id = 1");
+        }
+    }
+
+    @Test
+    void rejectsRecordOutsideTransaction() {
+        assertThrows(IllegalStateException.class, () -> changeLog.record(ChangeLog.Entity.ITEM, null, 1L, ChangeLog.Op.UPSERT));
+        long before = changeLog.latestSeq();
+        transactionTemplate.executeWithoutResult(status -> changeLog.record(ChangeLog.Entity.TRADE, Portfolio.DEFAULT_ID, 42L, ChangeLog.Op.DELETE));
+        assertEquals(before + 1, changeLog.latestSeq());
+        assertEquals(List.of(42L), syncService.changesSince(Portfolio.DEFAULT_ID, before, 10).deletedTrades());
+    }
+
+    private static Trade trade(long nameId, Trade.Type type, int quantity) {
+        return Trade.builder().nameId(nameId).type(type).quantity(quantity).unitPrice(new BigDecimal("100.00")).build();
+    }
+}
@@ -0,0 +1,203 @@
+package com.cs.csinventory.web;
+
+import com.cs.csinventory.service.cache.SingleFlight;
+import com.cs.csinventory.service.sync.DataVersions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * 响应缓存：有效期内命中，过期后立即返回旧结果并在后台刷新，版本变化或超过 maxStale 时同步计算，按访问顺序淘汰
+ */
+class ResponseCacheTests {
+
+    private static final long PORTFOLIO = 1L;
+
+    private final DataVersions dataVersions = new DataVersions();
+    private final SingleFlight singleFlight = new SingleFlight(dataVersions, Duration.ofSeconds(10));
+
+    @Test
+    void servesFreshEntriesWithoutRecomputing() {
+        ResponseCache cache = cache(Duration.ofHours(1), Duration.ofHours(1), 100);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<Object> loader = () -> "v" + calls.incrementAndGet();
+
+        assertResponse("MISS", "v1", cache.get("pool", PORTFOLIO, "a", loader));
+        assertResponse("HIT", "v1", cache.get("pool", PORTFOLIO, "a", loader));
+        // 参数不同是另一个缓存条目
+        assertResponse("MISS", "v2", cache.get("pool", PORTFOLIO, "b", loader));
+        assertEquals(new ResponseCache.EndpointStats(1, 0, 2, 0, 0), cache.stats().endpoints().get("pool"));
+    }
+
+    @Test
+    void servesStaleEntryImmediatelyWhileRefreshing() {
+        ResponseCache cache = cache(Duration.ZERO, Duration.ofHours(1), 100);
+        cache.get("pool", PORTFOLIO, "a", () -> "v1");
+
+        // 刷新阻塞期间的请求不等待刷新，同一个键只有一个刷新任务
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger refreshes = new AtomicInteger();
+        Supplier<Object> slowLoader = () -> {
+            refreshes.incrementAndGet();
+            await(release);
+            return "v2";
+        };
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            assertResponse("STALE", "v1", cache.get("pool", PORTFOLIO, "a", slowLoader));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        }
+        release.countDown();
+        waitUntil(() -> cache.stats().endpoints().get("pool").refreshes() == 1);
+        assertEquals(1, refreshes.get());
+
+        assertResponse("STALE", "v2", cache.get("pool", PORTFOLIO, "a", () -> "v3"));
+    }
+
+    @Test
+    void dataVersionChangeRecomputesOnRequestThread() {
+        ResponseCache cache = cache(Duration.ofHours(1), Duration.ofHours(1), 100);
+        cache.get("pool", PORTFOLIO, "a", () -> "v1");
+
+        dataVersions.portfolioChanged(PORTFOLIO);
+
+        // 写入后的第一次读取看到新结果，不返回旧结果
+        assertResponse("MISS", "v2", cache.get("pool", PORTFOLIO, "a", () -> "v2"));
+        assertEquals(0, cache.stats().endpoints().get("pool").stale());
+        assertEquals(0, cache.stats().endpoints().get("pool").refreshes());
+        assertResponse("HIT", "v2", cache.get("pool", PORTFOLIO, "a", () -> "v3"));
+        // 其他组合的写入不影响
+        dataVersions.portfolioChanged(PORTFOLIO + 1);
+        assertResponse("HIT", "v2", cache.get("pool", PORTFOLIO, "a", () -> "v3"));
+    }
+
+    @Test
+    void versionChangeAfterTtlDoesNotServeStaleEntry() {
+        ResponseCache cache = cache(Duration.ZERO, Duration.ofHours(1), 100);
+        cache.get("pool", PORTFOLIO, "a", () -> "v1");
+
+        dataVersions.portfolioChanged(PORTFOLIO);
+
+        assertResponse("MISS", "v2", cache.get("pool", PORTFOLIO, "a", () -> "v2"));
+        // 版本未再变化，过期后按旧结果处理
+        assertResponse("STALE", "v2", cache.get("pool", PORTFOLIO, "a", () -> "v3"));
+    }
+
+    @Test
+    void coalescesRecomputationAfterVersionChange() throws InterruptedException {
+        ResponseCache cache = cache(Duration.ofHours(1), Duration.ofHours(1), 100);
+        cache.get("pool", PORTFOLIO, "a", () -> "v1");
+        dataVersions.portfolioChanged(PORTFOLIO);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<Object> slowLoader = () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "v2";
+        };
+        Thread first = Thread.ofVirtual().start(() -> cache.get("pool", PORTFOLIO, "a", slowLoader));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        Thread second = Thread.ofVirtual().start(() -> cache.get("pool", PORTFOLIO, "a", slowLoader));
+        waitUntil(() -> singleFlight.stats().operations().get("responseCache.pool").coalesced() == 1);
+        release.countDown();
+        first.join(Duration.ofSeconds(10));
+        second.join(Duration.ofSeconds(10));
+
+        assertEquals(1, calls.get());
+        assertResponse("HIT", "v2", cache.get("pool", PORTFOLIO, "a", () -> "v3"));
+    }
+
+    @Test
+    void recomputesSynchronouslyAfterMaxStale() {
+        ResponseCache cache = cache(Duration.ZERO, Duration.ZERO, 100);
+        cache.get("pool", PORTFOLIO, "a", () -> "v1");
+
+        assertResponse("MISS", "v2", cache.get("pool", PORTFOLIO, "a", () -> "v2"));
+    }
+
+    @Test
+    void keepsStaleEntryWhenRefreshFails() {
+        ResponseCache cache = cache(Duration.ZERO, Duration.ofHours(1), 100);
+        cache.get("pool", PORTFOLIO, "a", () -> "v1");
+
+        cache.get("pool", PORTFOLIO, "a", () -> {
+            throw new IllegalStateException("数据库不可用");
+        });
+        waitUntil(() -> cache.stats().endpoints().get("pool").refreshFailures() == 1);
+
+        assertResponse("STALE", "v1", cache.get("pool", PORTFOLIO, "a", () -> "v1"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        ResponseCache cache = cache(Duration.ofHours(1), Duration.ofHours(1), 2);
+        cache.get("pool", PORTFOLIO, "a", () -> "a1");
+        cache.get("pool", PORTFOLIO, "b", () -> "b1");
+        cache.get("pool", PORTFOLIO, "a", () -> "a2");
+
+        cache.get("pool", PORTFOLIO, "c", () -> "c1");
+
+        assertEquals(2, cache.stats().entries());
+        assertEquals(1, cache.stats().evictions());
+        assertResponse("HIT", "a1", cache.get("pool", PORTFOLIO, "a", () -> "a2"));
+        assertResponse("MISS", "b2", cache.get("pool", PORTFOLIO, "b", () -> "b2"));
+    }
+
+    @Test
+    void unconfiguredEndpointsAreNotCached() {
+        ResponseCache cache = cache(Duration.ofHours(1), Duration.ofHours(1), 100);
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("other", PORTFOLIO, "a", calls::incrementAndGet);
+        cache.get("other", PORTFOLIO, "a", calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.stats().entries());
+    }
+
+    private ResponseCache cache(Duration ttl, Duration maxStale, int maxEntries) {
+        ResponseCacheProperties properties = new ResponseCacheProperties(true, maxEntries, DataSize.ofMegabytes(1),
+                Map.of("pool", new ResponseCacheProperties.Endpoint(ttl, maxStale)));
+        return new ResponseCache(properties, dataVersions, new ObjectMapper(), singleFlight);
+    }
+
+    private static void assertResponse(String cacheStatus, String value, ResponseEntity<byte[]> response) {
+        assertEquals(cacheStatus, response.getHeaders().getFirst("X-Cache"));
+        assertEquals("\"" + value + "\"", new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("等待超时");
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
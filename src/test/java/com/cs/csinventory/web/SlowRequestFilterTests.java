@@ -0,0 +1,151 @@
+package com.cs.csinventory.web;
+
+import com.cs.csinventory.service.diagnostics.SlowRequestLog;
+import com.cs.csinventory.service.diagnostics.SlowRequestProperties;
+import com.cs.csinventory.service.diagnostics.SqlCapture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 慢请求记录：阈值为 0 时每个请求都记录，含 SQL、绑定参数和最慢查询的执行计划，缓冲区满后覆盖最早的记录，
+ * 已有 EXPLAIN 在执行时跳过执行计划
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:slow-requests;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.diagnostics.slow-requests.threshold=0ms",
+        "app.diagnostics.slow-requests.capacity=2"
+})
+@AutoConfigureMockMvc
+class SlowRequestFilterTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SlowRequestLog slowRequestLog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clear() {
+        slowRequestLog.clear();
+    }
+
+    @Test
+    void capturesStatementsWithParametersAndExplainPlan() throws Exception {
+        mockMvc.perform(get("/api/trades/date-range?start=2024-01-01T00:00:00Z&end=2024-02-01T00:00:00Z"))
+                .andExpect(status().isOk());
+        waitUntil(() -> slowRequestLog.recent().requests().size() == 1);
+
+        SlowRequestLog.SlowRequest request = slowRequestLog.recent().requests().get(0);
+        assertEquals("GET", request.method());
+        assertEquals("/api/trades/date-range?start=2024-01-01T00:00:00Z&end=2024-02-01T00:00:00Z", request.uri());
+        assertEquals(200, request.status());
+        SlowRequestLog.CapturedStatement trades = request.statements().stream()
+                .filter(statement -> statement.sql().contains("trades"))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("没有记录到交易查询: " + request.statements()));
+        // 组合ID和起止时间
+        assertTrue(trades.parameters().size() >= 3, trades.parameters().toString());
+        assertTrue(trades.parameters().stream().anyMatch(parameter -> parameter.contains("2024-01-01")),
+                trades.parameters().toString());
+        assertNotNull(request.slowest());
+        assertNull(request.explainError());
+        assertNotNull(request.explain());
+        assertTrue(request.explain().size() >= 2, request.explain().toString());
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentRequests() throws Exception {
+        for (String nameId : List.of("1", "2", "3")) {
+            mockMvc.perform(get("/api/trades/history/" + nameId));
+            int expected = Math.min(2, Integer.parseInt(nameId));
+            waitUntil(() -> slowRequestLog.recent().requests().size() == expected
+                    && slowRequestLog.recent().requests().get(0).uri().endsWith("/" + nameId));
+        }
+        List<SlowRequestLog.SlowRequest> requests = slowRequestLog.recent().requests();
+        assertEquals("/api/trades/history/3", requests.get(0).uri());
+        assertEquals("/api/trades/history/2", requests.get(1).uri());
+
+        mockMvc.perform(get("/api/diagnostics/slow-requests"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.thresholdMillis").value(0))
+                .andExpect(jsonPath("$.requests[0].uri").value("/api/trades/history/3"));
+    }
+
+    @Test
+    void skipsExplainWhileAnotherExplainIsRunning() throws Exception {
+        // EXPLAIN 阻塞到 release，模拟变慢的数据库
+        CountDownLatch explaining = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        JdbcTemplate blocking = new JdbcTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T query(String sql, ResultSetExtractor<T> rse, Object... args) {
+                explaining.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return (T) List.of("plan");
+            }
+        };
+        SlowRequestLog log = new SlowRequestLog(new SlowRequestProperties(true, Duration.ZERO, 2, 10, true), blocking);
+
+        request(log, "/first");
+        assertTrue(explaining.await(10, TimeUnit.SECONDS));
+        request(log, "/second");
+        waitUntil(() -> log.recent().requests().size() == 1);
+        SlowRequestLog.SlowRequest skipped = log.recent().requests().get(0);
+        assertEquals("/second", skipped.uri());
+        assertNull(skipped.explain());
+        assertEquals("explain skipped: busy", skipped.explainError());
+        // 没有执行计划也保留 SQL
+        assertEquals(1, skipped.statements().size());
+
+        release.countDown();
+        waitUntil(() -> log.recent().requests().size() == 2);
+        SlowRequestLog.SlowRequest explained = log.recent().requests().get(0);
+        assertEquals("/first", explained.uri());
+        assertEquals(List.of("plan"), explained.explain());
+        assertNull(explained.explainError());
+    }
+
+    /**
+     * 在测试线程上执行一条查询作为请求的 SQL
+     */
+    private void request(SlowRequestLog log, String uri) {
+        SqlCapture capture = log.begin();
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM trades", Long.class);
+        log.end(capture, "GET", uri, 200, 1);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("等待超时");
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
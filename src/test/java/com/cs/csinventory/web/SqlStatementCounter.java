@@ -0,0 +1,147 @@
+package com.cs.csinventory.web;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 测试用 SQL 语句计数 - 包装应用的 DataSource，记录每次发往数据库的语句
+ *
+ * 按语句准备次数计数（PreparedStatement 每准备一次计一条，批量插入的多行只计一条），
+ * 同时覆盖 JPA 和 JdbcTemplate。只记录调用 expect* 的线程上执行的语句，后台任务（实时推送的异步计算、
+ * 集群失效轮询等）不计入；统计接口的并行查询在其他线程上，使用时应设置 app.stats.parallel=false。
+ */
+class SqlStatementCounter implements BeanPostProcessor {
+
+    private static final Set<String> PREPARE = Set.of("prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTE = Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate",
+            "addBatch");
+
+    private final List<String> statements = new ArrayList<>();
+    /** 正在记录的线程，未记录时为 null */
+    private volatile Thread recording;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return countingConnection(super.getConnection());
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return countingConnection(super.getConnection(username, password));
+                }
+            };
+        }
+        return bean;
+    }
+
+    /**
+     * 执行 action，执行期间的语句数不得超过 budget，超出时列出全部语句
+     */
+    <E extends Exception> List<String> expectAtMost(int budget, String name, ThrowingRunnable<E> action) throws E {
+        List<String> recorded = record(action);
+        if (recorded.size() > budget) {
+            throw new AssertionError(describe(name + " 最多 " + budget + " 条语句，实际 " + recorded.size(), recorded));
+        }
+        return recorded;
+    }
+
+    /**
+     * 执行 action，执行期间的语句数必须恰好为 expected（用于锁定不应增加查询的接口）
+     */
+    <E extends Exception> List<String> expectExactly(int expected, String name, ThrowingRunnable<E> action) throws E {
+        List<String> recorded = record(action);
+        if (recorded.size() != expected) {
+            throw new AssertionError(describe(name + " 应为 " + expected + " 条语句，实际 " + recorded.size(), recorded));
+        }
+        return recorded;
+    }
+
+    private <E extends Exception> List<String> record(ThrowingRunnable<E> action) throws E {
+        statements.clear();
+        recording = Thread.currentThread();
+        try {
+            action.run();
+        } finally {
+            recording = null;
+        }
+        return List.copyOf(statements);
+    }
+
+    private static String describe(String headline, List<String> recorded) {
+        return headline + "\n" + IntStream.range(0, recorded.size())
+                .mapToObj(i -> "  " + (i + 1) + ". " + recorded.get(i).replaceAll("\\s+", " ").trim())
+                .collect(Collectors.joining("\n"));
+    }
+
+    private void add(String sql) {
+        if (recording == Thread.currentThread()) {
+            statements.add(sql);
+        }
+    }
+
+    private Connection countingConnection(Connection connection) {
+        return proxy(Connection.class, connection, (method, args) -> {
+            if (PREPARE.contains(method.getName()) && args != null && args[0] instanceof String sql) {
+                add(sql);
+            }
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement statement && !PREPARE.contains(method.getName())) {
+                return countingStatement(statement);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * createStatement 创建的普通 Statement 在执行时才知道 SQL
+     */
+    private Statement countingStatement(Statement statement) {
+        return proxy(Statement.class, statement, (method, args) -> {
+            if (EXECUTE.contains(method.getName()) && args != null && args[0] instanceof String sql) {
+                add(sql);
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        InvocationHandler invocation = (proxy, method, args) -> handler.handle(method, args);
+        return type.cast(Proxy.newProxyInstance(SqlStatementCounter.class.getClassLoader(), new Class<?>[]{type},
+                invocation));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    @FunctionalInterface
+    interface ThrowingRunnable<E extends Exception> {
+        void run() throws E;
+    }
+}
@@ -0,0 +1,466 @@
+package com.cs.csinventory.web;
+
+import com.cs.csinventory.domain.Item;
+import com.cs.csinventory.domain.Portfolio;
+import com.cs.csinventory.domain.Trade;
+import com.cs.csinventory.repo.ItemRepository;
+import com.cs.csinventory.service.PortfolioService;
+import com.cs.csinventory.service.TradeService;
+import com.cs.csinventory.service.alerts.PriceAlertService;
+import com.cs.csinventory.service.live.LiveUpdateHub;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * TradeController 各接口的 SQL 语句预算：新增查询或出现 N+1 时测试失败并列出执行的语句
+ *
+ * 列表接口准备了多条数据，逐行查询会超出预算。每次写入提交时变更日志固定 3 条语句（序号加锁、读取序号、批量插入）。
+ * 统计在调用线程上依次计算，才能计入请求的语句数。
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-budget;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.stats.parallel=false",
+        // 预算针对接口本身的查询，不经过响应缓存
+        "app.response-cache.enabled=false",
+        // 快照按小块导出、导入，预算按块数计算
+        "app.snapshot.block-rows=4"
+})
+@AutoConfigureMockMvc
+@Import(SqlStatementCounter.class)
+class TradeControllerQueryBudgetTests {
+
+    @TempDir
+    static Path tempDir;
+
+    private static final AtomicLong NEXT_NAME_ID = new AtomicLong(1100);
+
+    @DynamicPropertySource
+    static void directories(DynamicPropertyRegistry registry) {
+        registry.add("app.trades.backfill.directory", () -> tempDir.resolve("backfill").toString());
+        registry.add("app.archive.trades.directory", () -> tempDir.resolve("archive").toString());
+        registry.add("app.alerts.price-directory", () -> tempDir.resolve("prices").toString());
+        registry.add("app.snapshot.directory", () -> tempDir.resolve("snapshots").toString());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SqlStatementCounter sql;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    @Autowired
+    private LiveUpdateHub liveUpdateHub;
+
+    @Autowired
+    private PriceAlertService priceAlertService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** 每个测试自己的物品，持有 3 种物品的库存和 6 笔交易 */
+    private long nameId;
+
+    @BeforeEach
+    void setUp() {
+        nameId = saveItem();
+        for (int i = 0; i < 3; i++) {
+            long other = i == 0 ? nameId : saveItem();
+            buy(other, 4);
+            buy(other, 1);
+        }
+    }
+
+    // ==================== 物品 ====================
+
+    @Test
+    void items() throws Exception {
+        budget(1, "GET /items", get("/api/items"));
+        budget(1, "GET /items/search", get("/api/items/search").param("keyword", "物品"));
+        budget(1, "GET /items/search 无关键词", get("/api/items/search"));
+        budget(4, "POST /items", post("/api/items").contentType(MediaType.APPLICATION_JSON)
+                .content(itemJson(NEXT_NAME_ID.incrementAndGet())));
+    }
+
+    @Test
+    void itemBatch() throws Exception {
+        String nameIds = "[" + nameId + "," + (nameId + 1) + ",999999]";
+        // 未缓存的物品一次 IN 查询，之后存在的物品都来自物品缓存（不存在的 nameId 不缓存）
+        budget(1, "POST /items/batch", post("/api/items/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(nameIds));
+        exactly(0, "POST /items/batch 缓存", post("/api/items/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("[" + nameId + "," + (nameId + 1) + "]"));
+        mockMvc.perform(post("/api/items/batch").contentType(MediaType.APPLICATION_JSON).content(nameIds))
+                .andExpect(jsonPath("$['" + nameId + "'].marketHashName").value("Item " + nameId))
+                .andExpect(jsonPath("$.999999").doesNotExist());
+        String names = "[\"Item " + nameId + "\",\"Missing Item\"]";
+        exactly(0, "POST /items/batch/by-market-hash-name 缓存", post("/api/items/batch/by-market-hash-name")
+                .contentType(MediaType.APPLICATION_JSON).content("[\"Item " + nameId + "\"]"));
+        budget(1, "POST /items/batch/by-market-hash-name", post("/api/items/batch/by-market-hash-name")
+                .contentType(MediaType.APPLICATION_JSON).content(names));
+        mockMvc.perform(post("/api/items/batch/by-market-hash-name").contentType(MediaType.APPLICATION_JSON)
+                        .content(names))
+                .andExpect(jsonPath("$['Item " + nameId + "'].nameId").value(nameId))
+                .andExpect(jsonPath("$['Missing Item']").doesNotExist());
+        // 超过 IN 分块大小时分多次查询
+        String many = LongStream.range(0, 1500).mapToObj(i -> String.valueOf(2_000_000 + i))
+                .collect(Collectors.joining(",", "[", "]"));
+        exactly(2, "POST /items/batch 分块", post("/api/items/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(many));
+    }
+
+    @Test
+    void itemImport() throws Exception {
+        long first = NEXT_NAME_ID.incrementAndGet();
+        long second = NEXT_NAME_ID.incrementAndGet();
+        String json = "{\"Import " + first + "\":{\"en_name\":\"A\",\"cn_name\":\"甲\",\"name_id\":" + first + "},"
+                + "\"Import " + second + "\":{\"en_name\":\"B\",\"cn_name\":\"乙\",\"name_id\":" + second + "}}";
+        // 上次文件哈希、读已有物品、预留主键、批量插入、逐条变更日志、导入记录
+        budget(10, "POST /items/import", post("/api/items/import").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"jsonData\":" + quote(json) + "}"));
+        long third = NEXT_NAME_ID.incrementAndGet();
+        budget(9, "POST /items/import-file", multipart("/api/items/import-file").file(new MockMultipartFile("file",
+                "items.json", "application/json",
+                ("{\"File " + third + "\":{\"en_name\":\"C\",\"cn_name\":\"丙\",\"name_id\":" + third + "}}")
+                        .getBytes(StandardCharsets.UTF_8))));
+        // 与上次导入的文件相同时只查上次的文件哈希
+        exactly(1, "POST /items/import-file 相同文件", multipart("/api/items/import-file").file(new MockMultipartFile(
+                "file", "items.json", "application/json",
+                ("{\"File " + third + "\":{\"en_name\":\"C\",\"cn_name\":\"丙\",\"name_id\":" + third + "}}")
+                        .getBytes(StandardCharsets.UTF_8))));
+    }
+
+    // ==================== 投资组合 ====================
+
+    @Test
+    void portfolios() throws Exception {
+        budget(1, "GET /portfolios", get("/api/portfolios"));
+        budget(2, "POST /portfolios", post("/api/portfolios").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"budget-" + nameId + "\"}"));
+    }
+
+    // ==================== 交易 ====================
+
+    @Test
+    void createTrades() throws Exception {
+        // 读库存、插入交易、更新库存 + 变更日志
+        budget(6, "POST /trades 追加买入", post("/api/trades").contentType(MediaType.APPLICATION_JSON)
+                .content(tradeJson("BUY", 2)));
+        // 卖出多一次库存校验
+        budget(7, "POST /trades 卖出", post("/api/trades").contentType(MediaType.APPLICATION_JSON)
+                .content(tradeJson("SELL", 1)));
+        budget(7, "POST /trades/sell", post("/api/trades/sell").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nameId\":" + nameId + ",\"unitPrice\":\"12.00\",\"quantity\":1}"));
+    }
+
+    @Test
+    void readTrades() throws Exception {
+        exactly(1, "GET /trades", get("/api/trades"));
+        budget(1, "GET /trades/history", get("/api/trades/history/" + nameId));
+        budget(1, "GET /trades/date-range", get("/api/trades/date-range")
+                .param("start", "2000-01-01T00:00:00Z").param("end", "2100-01-01T00:00:00Z"));
+    }
+
+    @Test
+    void deleteTrade() throws Exception {
+        Trade trade = buy(nameId, 1);
+        budget(7, "DELETE /trades/{id}", delete("/api/trades/" + trade.getId()));
+    }
+
+    @Test
+    void backfill() throws Exception {
+        String csv = "nameId,type,unitPrice,quantity,createdAt\n"
+                + nameId + ",BUY,10.00,1,2025-01-01T00:00:00Z\n"
+                + nameId + ",BUY,11.00,1,2025-01-02T00:00:00Z\n";
+        // 检查点、物品校验、分配ID、批量插入、重放（读库存、读交易、更新库存），两个事务各有变更日志
+        budget(14, "POST /trades/backfill", multipart("/api/trades/backfill")
+                .file(new MockMultipartFile("file", "trades.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8))));
+
+        Files.createDirectories(tempDir.resolve("backfill"));
+        Files.writeString(tempDir.resolve("backfill").resolve("trades.csv"), csv);
+        budget(14, "POST /trades/backfill/local", post("/api/trades/backfill/local").param("fileName", "trades.csv"));
+    }
+
+    // ==================== 库存 ====================
+
+    @Test
+    void inventory() throws Exception {
+        exactly(1, "GET /inventory", get("/api/inventory"));
+        budget(1, "GET /inventory/{nameId}", get("/api/inventory/" + nameId));
+        budget(1, "GET /inventory/{nameId}/quantity", get("/api/inventory/" + nameId + "/quantity"));
+    }
+
+    @Test
+    void inventoryBatch() throws Exception {
+        String nameIds = "[" + nameId + ",999999," + nameId + "]";
+        exactly(1, "POST /inventory/batch", post("/api/inventory/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(nameIds));
+        exactly(1, "POST /inventory/quantities", post("/api/inventory/quantities")
+                .contentType(MediaType.APPLICATION_JSON).content(nameIds));
+        mockMvc.perform(post("/api/inventory/batch").contentType(MediaType.APPLICATION_JSON).content(nameIds))
+                .andExpect(jsonPath("$['" + nameId + "'].currentQuantity").value(5))
+                .andExpect(jsonPath("$['" + nameId + "'].cnName").value("物品" + nameId))
+                .andExpect(jsonPath("$.999999").doesNotExist());
+        mockMvc.perform(post("/api/inventory/quantities").contentType(MediaType.APPLICATION_JSON).content(nameIds))
+                .andExpect(jsonPath("$['" + nameId + "']").value(5))
+                .andExpect(jsonPath("$.999999").value(0));
+        String many = LongStream.range(0, 2500).mapToObj(i -> String.valueOf(nameId + i))
+                .collect(Collectors.joining(",", "[", "]"));
+        exactly(3, "POST /inventory/quantities 分块", post("/api/inventory/quantities")
+                .contentType(MediaType.APPLICATION_JSON).content(many));
+    }
+
+    // ==================== 统计 ====================
+
+    @Test
+    void statistics() throws Exception {
+        // 未归档交易 + 归档汇总
+        budget(2, "GET /stats/daily", get("/api/stats/daily")
+                .param("start", "2000-01-01T00:00:00Z").param("end", "2100-01-01T00:00:00Z"));
+        budget(6, "GET /stats/investment-pool", get("/api/stats/investment-pool"));
+        // 版本未变，命中缓存
+        exactly(0, "GET /stats/investment-pool 缓存", get("/api/stats/investment-pool"));
+        // 只请求部分字段时只查询它们依赖的数据源：持仓 1 条，交易汇总 2 条（未归档、已归档），峰值净投入 2 条
+        buy(nameId, 1);
+        exactly(1, "GET /stats/investment-pool?fields=持仓", get("/api/stats/investment-pool")
+                .param("fields", "staticCost,currentHoldingItems"));
+        // 同一版本下只补充缓存中缺少的数据源
+        exactly(2, "GET /stats/investment-pool?fields=交易笔数", get("/api/stats/investment-pool")
+                .param("fields", "totalBuyTrades,totalSellTrades,lastTradeDate"));
+        exactly(0, "GET /stats/investment-pool?fields=已实现盈利", get("/api/stats/investment-pool")
+                .param("fields", "realizedProfit"));
+        exactly(2, "GET /stats/investment-pool?fields=真实收益率", get("/api/stats/investment-pool")
+                .param("fields", "realizedProfit,realReturnRate"));
+        buy(nameId, 1);
+        budget(6, "POST /stats/calculate-with-manual-value", post("/api/stats/calculate-with-manual-value")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"manualValue\":\"1000\"}"));
+        portfolioService.createPortfolio("budget-all-" + nameId);
+        buy(nameId, 1);
+        // 组合列表 1 条，每个需要重新计算的组合 6 条（不随交易数、物品数增长）
+        int portfolios = portfolioService.getAllPortfolios().size();
+        budget(1 + 6 * portfolios, "GET /stats/investment-pool/all", get("/api/stats/investment-pool/all"));
+        budget(1, "GET /stats/investment-pool/all 缓存", get("/api/stats/investment-pool/all"));
+        // 场景模拟：投资池聚合已缓存，快照加载持仓和交易过的物品 2 条，之后在快照上计算
+        String scenarios = "[{\"name\":\"卖出\",\"actions\":[{\"type\":\"SELL\",\"nameId\":" + nameId
+                + ",\"quantity\":1,\"unitPrice\":\"20\"},{\"type\":\"SET_PRICE\",\"nameId\":" + nameId
+                + ",\"unitPrice\":\"30\"}]}]";
+        budget(2, "POST /stats/scenarios", post("/api/stats/scenarios").contentType(MediaType.APPLICATION_JSON)
+                .content(scenarios));
+        exactly(0, "POST /stats/scenarios 快照", post("/api/stats/scenarios").contentType(MediaType.APPLICATION_JSON)
+                .content(scenarios));
+        // 所有物品一条查询，排序分页在缓存上完成
+        budget(1, "GET /stats/items", get("/api/stats/items"));
+        exactly(0, "GET /stats/items 换排序翻页", get("/api/stats/items").param("sort", "turnover").param("page", "1"));
+        // 排行榜启动时已构建，之后的交易增量更新，物品名称来自缓存
+        budget(2, "GET /stats/leaderboards", get("/api/stats/leaderboards"));
+        buy(nameId, 1);
+        exactly(0, "GET /stats/leaderboards 增量更新后", get("/api/stats/leaderboards"));
+        // 价格统计在内存中增量维护，物品名称来自缓存
+        exactly(0, "GET /stats/prices", get("/api/stats/prices").param("nameIds", "" + nameId));
+    }
+
+    // ==================== 同步、推送、归档 ====================
+
+    @Test
+    void sync() throws Exception {
+        // 序号、变更日志，再按类型各一次 IN 查询（物品、库存、交易）
+        budget(5, "GET /sync", get("/api/sync").param("since", "0"));
+    }
+
+    @Test
+    void live() throws Exception {
+        try {
+            budget(0, "GET /live", get("/api/live"), true);
+            budget(0, "GET /live?portfolioId", get("/api/live").param("portfolioId", "" + Portfolio.DEFAULT_ID), true);
+        } finally {
+            // 断开订阅，避免其他测试的写入触发推送查询
+            liveUpdateHub.destroy();
+        }
+    }
+
+    // ==================== 价格提醒 ====================
+
+    @Test
+    void alerts() throws Exception {
+        // 物品缓存、预留主键（更新、读取）、插入
+        budget(4, "POST /alerts", post("/api/alerts").contentType(MediaType.APPLICATION_JSON)
+                .content(alertJson("PRICE_ABOVE", "20")));
+        budget(4, "POST /alerts 第二个", post("/api/alerts").contentType(MediaType.APPLICATION_JSON)
+                .content(alertJson("PRICE_ABOVE", "30")));
+        // DRAWDOWN 多读一次持仓
+        budget(5, "POST /alerts DRAWDOWN", post("/api/alerts").contentType(MediaType.APPLICATION_JSON)
+                .content(alertJson("DRAWDOWN", "50")));
+        exactly(1, "GET /alerts", get("/api/alerts"));
+
+        // 没有提醒被越过时不访问数据库，越过多个时一次批量写回
+        exactly(0, "POST /alerts/prices 未触发", post("/api/alerts/prices").contentType(MediaType.APPLICATION_JSON)
+                .content(pricesJson("15")));
+        exactly(1, "POST /alerts/prices 触发多个", post("/api/alerts/prices").contentType(MediaType.APPLICATION_JSON)
+                .content(pricesJson("40")));
+        exactly(1, "POST /alerts/prices/file", multipart("/api/alerts/prices/file").file(new MockMultipartFile(
+                "file", "prices.csv", "text/csv", ("nameId,price\n" + nameId + ",4\n").getBytes(StandardCharsets.UTF_8))));
+        Files.createDirectories(tempDir.resolve("prices"));
+        Files.writeString(tempDir.resolve("prices").resolve("prices.csv"), nameId + ",5\n" + nameId + ",6\n");
+        exactly(0, "POST /alerts/prices/local", post("/api/alerts/prices/local").param("fileName", "prices.csv"));
+        mockMvc.perform(get("/api/alerts"))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[?(@.triggeredAt == null)]").isEmpty());
+
+        // 事件日志和索引概况在内存中
+        exactly(0, "GET /alerts/events", get("/api/alerts/events").param("after", "0"));
+        exactly(0, "GET /alerts/events?portfolioId", get("/api/alerts/events")
+                .param("portfolioId", "" + Portfolio.DEFAULT_ID));
+        exactly(0, "GET /alerts/stats", get("/api/alerts/stats"));
+
+        long alertId = priceAlertService.getAlerts(Portfolio.DEFAULT_ID).get(0).id();
+        exactly(1, "DELETE /alerts/{id}", delete("/api/alerts/" + alertId));
+    }
+
+    @Test
+    void archive() throws Exception {
+        budget(1, "POST /archive/trades", post("/api/archive/trades"));
+    }
+
+    // ==================== 快照 ====================
+
+    @Test
+    void snapshot() throws Exception {
+        long items = rows("items");
+        long inventory = rows("inventory");
+        long trades = rows("trades");
+        long rollups = rows("trade_archive_rollups");
+        // 组合、归档进度各一次，其余各表每块一次分页查询（没有归档段时不读段文件）
+        budget(2 + pages(items) + pages(inventory) + pages(rollups) + pages(trades), "POST /snapshot/export",
+                post("/api/snapshot/export").param("fileName", "budget-" + nameId));
+
+        for (String table : List.of("trades", "inventory", "items", "trade_archive_rollups", "trade_archive_checkpoint")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+        // 目标库检查、组合列表、全部失效事件（价格统计读组合列表）、导入后逐表核对行数 5 次；
+        // 物品、库存、交易每块预留主键 2 次 + 批量插入 + 变更日志 3 次（序号更新、读取、批量插入），
+        // 归档汇总每块一次批量插入
+        budget(3 + 5 + 6 * (blocks(items) + blocks(inventory) + blocks(trades)) + blocks(rollups),
+                "POST /snapshot/import", post("/api/snapshot/import").param("fileName", "budget-" + nameId));
+    }
+
+    // ==================== 缓存概况 ====================
+
+    @Test
+    void responseCacheStats() throws Exception {
+        exactly(0, "GET /cache/responses", get("/api/cache/responses"));
+    }
+
+    @Test
+    void coalescingStats() throws Exception {
+        exactly(0, "GET /cache/coalescing", get("/api/cache/coalescing"));
+    }
+
+    // ==================== 诊断 ====================
+
+    @Test
+    void diagnostics() throws Exception {
+        // 慢请求记录在内存中，查看和清空都不访问数据库
+        exactly(0, "GET /diagnostics/slow-requests", get("/api/diagnostics/slow-requests"));
+        exactly(0, "DELETE /diagnostics/slow-requests", delete("/api/diagnostics/slow-requests"));
+    }
+
+    private void budget(int statements, String name, RequestBuilder request) throws Exception {
+        budget(statements, name, request, false);
+    }
+
+    private void exactly(int statements, String name, RequestBuilder request) throws Exception {
+        sql.expectExactly(statements, name, () -> mockMvc.perform(request).andExpect(status().isOk()));
+    }
+
+    private void budget(int statements, String name, RequestBuilder request, boolean async) throws Exception {
+        sql.expectAtMost(statements, name, () -> {
+            if (async) {
+                mockMvc.perform(request).andExpect(request().asyncStarted());
+            } else {
+                mockMvc.perform(request).andExpect(status().isOk());
+            }
+        });
+    }
+
+    private long rows(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    /** 导出的分页查询次数：最后一页不满一块时结束 */
+    private static int pages(long rows) {
+        return (int) (rows / 4 + 1);
+    }
+
+    private static int blocks(long rows) {
+        return (int) ((rows + 3) / 4);
+    }
+
+    private long saveItem() {
+        long id = NEXT_NAME_ID.incrementAndGet();
+        itemRepository.save(Item.builder().marketHashName("Item " + id).cnName("物品" + id).enName("Item " + id)
+                .nameId(id).build());
+        return id;
+    }
+
+    private Trade buy(long nameId, int quantity) {
+        return tradeService.createTrade(Trade.builder().nameId(nameId).type(Trade.Type.BUY).quantity(quantity)
+                .unitPrice(new BigDecimal("10.00")).build());
+    }
+
+    private String tradeJson(String type, int quantity) {
+        return "{\"nameId\":" + nameId + ",\"type\":\"" + type + "\",\"unitPrice\":\"12.00\",\"quantity\":" + quantity + "}";
+    }
+
+    private String alertJson(String type, String target) {
+        return "{\"nameId\":" + nameId + ",\"type\":\"" + type + "\",\"target\":\"" + target + "\"}";
+    }
+
+    private String pricesJson(String price) {
+        return "[{\"nameId\":" + nameId + ",\"price\":\"" + price + "\"}]";
+    }
+
+    private static String itemJson(long nameId) {
+        return "{\"marketHashName\":\"Item " + nameId + "\",\"cnName\":\"物品\",\"enName\":\"Item\",\"nameId\":" + nameId + "}";
+    }
+
+    private static String quote(String json) {
+        return "\"" + json.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}